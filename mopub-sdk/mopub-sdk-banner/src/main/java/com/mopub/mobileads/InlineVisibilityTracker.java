@@ -6,7 +6,6 @@ package com.mopub.mobileads;
 
 import android.content.Context;
 import android.graphics.Rect;
-import android.os.Handler;
 import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -14,6 +13,7 @@ import android.view.View;
 import android.view.ViewTreeObserver;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibilityScheduler;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Dips;
@@ -21,7 +21,6 @@ import com.mopub.common.util.Views;
 
 import java.lang.ref.WeakReference;
 
-import static android.view.ViewTreeObserver.OnPreDrawListener;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
@@ -30,9 +29,6 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * configured by the AdServer via headers.
  */
 class InlineVisibilityTracker {
-    // Time interval to use for throttling visibility checks.
-    private static final int VISIBILITY_THROTTLE_MILLIS = 100;
-
     /**
      * Callback when visibility conditions are satisfied.
      */
@@ -40,7 +36,6 @@ class InlineVisibilityTracker {
         void onVisibilityChanged();
     }
 
-    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
     @NonNull @VisibleForTesting WeakReference<ViewTreeObserver> mWeakViewTreeObserver;
 
     /**
@@ -69,14 +64,11 @@ class InlineVisibilityTracker {
     @NonNull private final BannerVisibilityRunnable mVisibilityRunnable;
 
     /**
-     * Handler for visibility.
+     * Scheduler running the visibility checks of all trackers.
      */
-    @NonNull private final Handler mVisibilityHandler;
+    @NonNull private final VisibilityScheduler mVisibilityScheduler;
 
-    /**
-     * Whether the visibility runnable is scheduled.
-     */
-    private boolean mIsVisibilityScheduled;
+    @NonNull private final VisibilityScheduler.Subscriber mSubscriber;
 
     /**
      * Whether the imp tracker has been fired already.
@@ -96,14 +88,14 @@ class InlineVisibilityTracker {
         mTrackedView = trackedView;
 
         mVisibilityChecker = new BannerVisibilityChecker(minVisibleDips, minVisibleMillis);
-        mVisibilityHandler = new Handler();
+        mVisibilityScheduler = VisibilityScheduler.getInstance();
         mVisibilityRunnable = new BannerVisibilityRunnable();
 
-        mOnPreDrawListener = new OnPreDrawListener() {
+        mSubscriber = new VisibilityScheduler.Subscriber() {
             @Override
-            public boolean onPreDraw() {
-                scheduleVisibilityCheck();
-                return true;
+            public int onVisibilityCheck() {
+                mVisibilityRunnable.run();
+                return 1;
             }
         };
 
@@ -131,7 +123,7 @@ class InlineVisibilityTracker {
         }
 
         mWeakViewTreeObserver = new WeakReference<>(viewTreeObserver);
-        viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
+        mVisibilityScheduler.attach(viewTreeObserver, mSubscriber);
     }
 
     @Nullable
@@ -150,25 +142,17 @@ class InlineVisibilityTracker {
      * Destroy the visibility tracker, preventing it from future use.
      */
     void destroy() {
-        mVisibilityHandler.removeMessages(0);
-        mIsVisibilityScheduled = false;
+        mVisibilityScheduler.cancelCheck(mSubscriber);
         final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
-        if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
-            viewTreeObserver.removeOnPreDrawListener(mOnPreDrawListener);
+        if (viewTreeObserver != null) {
+            mVisibilityScheduler.detach(viewTreeObserver, mSubscriber);
         }
         mWeakViewTreeObserver.clear();
         mInlineVisibilityTrackerListener = null;
     }
 
     void scheduleVisibilityCheck() {
-        // Tracking this directly instead of calling hasMessages directly because we measured that
-        // this led to slightly better performance.
-        if (mIsVisibilityScheduled) {
-            return;
-        }
-
-        mIsVisibilityScheduled = true;
-        mVisibilityHandler.postDelayed(mVisibilityRunnable, VISIBILITY_THROTTLE_MILLIS);
+        mVisibilityScheduler.requestCheck(mSubscriber);
     }
 
     @NonNull
@@ -178,17 +162,10 @@ class InlineVisibilityTracker {
         return mVisibilityChecker;
     }
 
-    @NonNull
-    @Deprecated
-    @VisibleForTesting
-    Handler getVisibilityHandler() {
-        return mVisibilityHandler;
-    }
-
     @Deprecated
     @VisibleForTesting
     boolean isVisibilityScheduled() {
-        return mIsVisibilityScheduled;
+        return mVisibilityScheduler.isCheckRequested(mSubscriber);
     }
 
     @Deprecated
@@ -204,8 +181,6 @@ class InlineVisibilityTracker {
                 return;
             }
 
-            mIsVisibilityScheduled = false;
-
             // If the view meets the dips count requirement for visibility, then also check the
             // duration requirement for visibility.
             if (mVisibilityChecker.isVisible(mRootView, mTrackedView)) {
@@ -10,6 +10,7 @@ import android.location.Location;
 import android.text.TextUtils;
 import android.view.WindowInsets;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.privacy.ConsentData;
@@ -18,6 +19,8 @@ import com.mopub.common.util.DateAndTime;
 import com.mopub.common.util.ResponseHeader;
 import com.mopub.network.RequestRateTracker;
 
+import java.util.Arrays;
+
 import static com.mopub.common.ClientMetadata.MoPubNetworkType;
 
 public abstract class AdUrlGenerator extends BaseUrlGenerator {
@@ -135,6 +138,18 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
      */
     private static final String CE_SETTINGS_HASH_KEY = "ce_settings_hash_key";
 
+    /**
+     * Most parameters are the same on every request. They are encoded once, in three groups,
+     * and each group is encoded again only when one of the values it was encoded from changes:
+     * device and SDK parameters, which are fixed for the process; carrier and connectivity
+     * parameters, which change with the network; and consent parameters, which change when the
+     * user's consent does. The groups are shared by all ad units.
+     */
+    @Nullable private static volatile EncodedParams sDeviceParams;
+    @Nullable private static volatile EncodedParams sCarrierParams;
+    @Nullable private static volatile EncodedParams sConsentParams;
+    private static volatile boolean sEncodedParamsCacheEnabled = true;
+
     protected Context mContext;
     protected String mAdUnitId;
     protected String mKeywords;
@@ -326,16 +341,7 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
     protected void addBaseParams(final ClientMetadata clientMetadata) {
         setAdUnitId(mAdUnitId);
 
-        setSdkVersion(clientMetadata.getSdkVersion());
-        appendAppEngineInfo();
-        appendWrapperVersion();
-        addParam(PLATFORM_KEY, Constants.ANDROID_PLATFORM);
-        setDeviceInfo(clientMetadata.getDeviceOsVersion(),
-                clientMetadata.getDeviceManufacturer(),
-                clientMetadata.getDeviceModel(),
-                clientMetadata.getDeviceProduct(),
-                clientMetadata.getDeviceHardware());
-        setBundleId(clientMetadata.getAppPackageName());
+        addDeviceParams(clientMetadata);
 
         setKeywords(mKeywords);
 
@@ -350,19 +356,92 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
         setDeviceDimensions(clientMetadata.getDeviceDimensions(), mRequestedAdSize, mWindowInsets);
         setDensity(clientMetadata.getDensity());
 
+        addCarrierParams(clientMetadata);
+
+        setAdvancedBiddingTokens();
+
+        addConsentParams();
+
+        addRequestRateParameters();
+
+        setViewability();
+
+        setCeSettingsHashKey(mCeSettingsHash);
+    }
+
+    private void addDeviceParams(@NonNull final ClientMetadata clientMetadata) {
+        final AppEngineInfo appEngineInfo = getAppEngineInfo();
+        final Object[] values = new Object[]{
+                clientMetadata.getSdkVersion(),
+                appEngineInfo != null ? appEngineInfo.mName : null,
+                appEngineInfo != null ? appEngineInfo.mVersion : null,
+                getWrapperVersion(),
+                clientMetadata.getDeviceOsVersion(),
+                clientMetadata.getDeviceManufacturer(),
+                clientMetadata.getDeviceModel(),
+                clientMetadata.getDeviceProduct(),
+                clientMetadata.getDeviceHardware(),
+                clientMetadata.getAppPackageName()};
+        if (addCachedParams(sDeviceParams, values)) {
+            return;
+        }
+
+        final int urlLength = getUrlLength();
+        setSdkVersion((String) values[0]);
+        appendAppEngineInfo();
+        appendWrapperVersion();
+        addParam(PLATFORM_KEY, Constants.ANDROID_PLATFORM);
+        setDeviceInfo((String) values[4],
+                (String) values[5],
+                (String) values[6],
+                (String) values[7],
+                (String) values[8]);
+        setBundleId((String) values[9]);
+        sDeviceParams = new EncodedParams(values, getParamsSince(urlLength));
+    }
+
+    private void addCarrierParams(@NonNull final ClientMetadata clientMetadata) {
         final String networkOperator = clientMetadata.getNetworkOperatorForUrl();
+        final Object[] values = new Object[]{
+                networkOperator,
+                clientMetadata.getIsoCountryCode(),
+                clientMetadata.getNetworkOperatorName(),
+                clientMetadata.getActiveNetworkType(),
+                clientMetadata.getAppVersion()};
+        if (addCachedParams(sCarrierParams, values)) {
+            return;
+        }
+
+        final int urlLength = getUrlLength();
         setMccCode(networkOperator);
         setMncCode(networkOperator);
 
-        setIsoCountryCode(clientMetadata.getIsoCountryCode());
-        setCarrierName(clientMetadata.getNetworkOperatorName());
+        setIsoCountryCode((String) values[1]);
+        setCarrierName((String) values[2]);
 
-        setNetworkType(clientMetadata.getActiveNetworkType());
+        setNetworkType((MoPubNetworkType) values[3]);
 
-        setAppVersion(clientMetadata.getAppVersion());
+        setAppVersion((String) values[4]);
+        sCarrierParams = new EncodedParams(values, getParamsSince(urlLength));
+    }
 
-        setAdvancedBiddingTokens();
+    /**
+     * Adds the advertising info templates and the consent parameters.
+     */
+    private void addConsentParams() {
+        final Object[] values = new Object[]{
+                mPersonalInfoManager != null ? mPersonalInfoManager.gdprApplies() : null,
+                mConsentData != null ? mConsentData.isForceGdprApplies() : null,
+                mPersonalInfoManager != null
+                        ? mPersonalInfoManager.getPersonalInfoConsentStatus().getValue()
+                        : null,
+                mConsentData != null ? mConsentData.getConsentedPrivacyPolicyVersion() : null,
+                mConsentData != null ? mConsentData.getConsentedVendorListVersion() : null};
+        if (addCachedParams(sConsentParams, values)) {
+            return;
+        }
 
+        final int urlLength = getUrlLength();
         appendAdvertisingInfoTemplates();
 
         setGdprApplies();
@@ -374,12 +453,31 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
         setConsentedPrivacyPolicyVersion();
 
         setConsentedVendorListVersion();
+        sConsentParams = new EncodedParams(values, getParamsSince(urlLength));
+    }
 
-        addRequestRateParameters();
-
-        setViewability();
+    /**
+     * Adds parameters encoded for an earlier request, if they were encoded from the same values.
+     *
+     * @return Whether the parameters were added.
+     */
+    private boolean addCachedParams(@Nullable final EncodedParams encodedParams,
+            @NonNull final Object[] values) {
+        if (!sEncodedParamsCacheEnabled
+                || encodedParams == null
+                || !Arrays.equals(encodedParams.mValues, values)) {
+            return false;
+        }
+        addEncodedParams(encodedParams.mEncoded);
+        return true;
+    }
 
-        setCeSettingsHashKey(mCeSettingsHash);
+    @VisibleForTesting
+    public static void setEncodedParamsCacheEnabled(final boolean enabled) {
+        sEncodedParamsCacheEnabled = enabled;
+        sDeviceParams = null;
+        sCarrierParams = null;
+        sConsentParams = null;
     }
 
     private void addParam(String key, MoPubNetworkType value) {
@@ -408,6 +506,19 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
         addParam(BACKOFF_REASON_KEY, record.mReason);
     }
 
+    /**
+     * Group of encoded parameters and the values they were encoded from.
+     */
+    private static class EncodedParams {
+        @NonNull final Object[] mValues;
+        @NonNull final String mEncoded;
+
+        EncodedParams(@NonNull final Object[] values, @NonNull final String encoded) {
+            mValues = values;
+            mEncoded = encoded;
+        }
+    }
+
     /**
      * @deprecated As of release 2.4
      */
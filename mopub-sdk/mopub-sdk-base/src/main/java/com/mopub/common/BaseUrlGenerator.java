@@ -182,6 +182,46 @@ public abstract class BaseUrlGenerator {
         mStringBuilder.append(value ? "1" : "0");
     }
 
+    /**
+     * @return The current length of the URL, to pass to {@link #getParamsSince(int)}.
+     */
+    protected int getUrlLength() {
+        return mStringBuilder.length();
+    }
+
+    /**
+     * @param urlLength A length returned by {@link #getUrlLength()}.
+     * @return The encoded parameters added since the URL had the given length, each preceded by
+     * an ampersand, so that they can be added to another URL with
+     * {@link #addEncodedParams(String)}.
+     */
+    @NonNull
+    protected String getParamsSince(final int urlLength) {
+        if (urlLength >= mStringBuilder.length()) {
+            return "";
+        }
+        if (mStringBuilder.charAt(urlLength) == '?') {
+            return "&" + mStringBuilder.substring(urlLength + 1);
+        }
+        return mStringBuilder.substring(urlLength);
+    }
+
+    /**
+     * Adds parameters encoded by an earlier URL, as returned by {@link #getParamsSince(int)}.
+     */
+    protected void addEncodedParams(@NonNull final String encodedParams) {
+        if (encodedParams.isEmpty()) {
+            return;
+        }
+
+        if (mFirstParam) {
+            mFirstParam = false;
+            mStringBuilder.append('?').append(encodedParams, 1, encodedParams.length());
+        } else {
+            mStringBuilder.append(encodedParams);
+        }
+    }
+
     private String getParamDelimiter() {
         if (mFirstParam) {
             mFirstParam = false;
@@ -248,6 +288,16 @@ public abstract class BaseUrlGenerator {
         sWrapperVersion = wrapperVersion;
     }
 
+    @Nullable
+    protected static AppEngineInfo getAppEngineInfo() {
+        return mAppEngineInfo;
+    }
+
+    @Nullable
+    protected static String getWrapperVersion() {
+        return sWrapperVersion;
+    }
+
     /**
      * Add parameters 'e_name' and 'e_ver' to the URL
      */
@@ -14,10 +14,24 @@ import com.mopub.mobileads.CreativeExperienceSettings
 
 import kotlinx.coroutines.SupervisorJob
 
+import java.util.concurrent.ConcurrentHashMap
+
 object CESettingsCacheService : CacheService("mopub-ce-cache") {
 
     private val supervisorJob = SupervisorJob()
 
+    /**
+     * Settings hash per ad unit id, filled by puts and by reads from disk, so that building an ad
+     * request only reads the disk cache the first time an ad unit is seen in this process.
+     */
+    private val hashIndex = ConcurrentHashMap<String, String>()
+
+    /**
+     * Told when an entry in the old serialized format has been written back in the current one.
+     */
+    @VisibleForTesting
+    internal var migrationListener: DiskLruCacheListener? = null
+
     /**
      * Interface for CE Settings cache related callbacks
      */
@@ -33,7 +47,8 @@ object CESettingsCacheService : CacheService("mopub-ce-cache") {
 
     /**
      * Get the CE Settings hash for an ad unit from the CE Settings cache and pass the hash
-     * retrieved to the provided listener.
+     * retrieved to the provided listener. If the hash is already in memory, the listener is
+     * called before this returns.
      *
      * @param adUnitId the ad unit id for which to fetch the CE Settings hash for.
      * @param listener the listener to pass the retrieved hash to.
@@ -52,12 +67,17 @@ object CESettingsCacheService : CacheService("mopub-ce-cache") {
             return
         }
 
+        hashIndex[adUnitId]?.let {
+            listener.onHashReceived(it)
+            return
+        }
+
         val cacheListener = object : DiskLruCacheListener {
             override fun onGetComplete(key: String, content: ByteArray?) {
                 if (key != adUnitId) {
                     return
                 }
-                val settingsFromCache = CreativeExperienceSettings.fromByteArray(content)
+                val settingsFromCache = readSettings(adUnitId, content, context)
                 listener.onHashReceived(settingsFromCache?.hash ?: "0")
             }
         }
@@ -97,7 +117,7 @@ object CESettingsCacheService : CacheService("mopub-ce-cache") {
                     return
                 }
 
-                val settingsFromCache = CreativeExperienceSettings.fromByteArray(content)
+                val settingsFromCache = readSettings(adUnitId, content, context)
                 listener.onSettingsReceived(settingsFromCache)
             }
         }
@@ -129,6 +149,7 @@ object CESettingsCacheService : CacheService("mopub-ce-cache") {
             return
         }
 
+        hashIndex[adUnitId] = ceSettings.hash
         putToDiskCacheAsync(
             adUnitId,
             ceSettings.toByteArray(),
@@ -138,9 +159,37 @@ object CESettingsCacheService : CacheService("mopub-ce-cache") {
         )
     }
 
+    /**
+     * Decodes settings read from disk and records their hash in the index. Entries written with
+     * Java serialization by older SDK versions are written back in the current format.
+     */
+    private fun readSettings(
+        adUnitId: String,
+        content: ByteArray?,
+        context: Context
+    ): CreativeExperienceSettings? {
+        val settings = CreativeExperienceSettings.fromByteArray(content)
+        // A put may have happened while this was read from disk. Its hash wins.
+        hashIndex.putIfAbsent(adUnitId, settings?.hash ?: "0")
+        if (settings != null && CreativeExperienceSettings.isSerializedFormat(content)) {
+            putToDiskCacheAsync(
+                adUnitId,
+                settings.toByteArray(),
+                migrationListener,
+                supervisorJob,
+                context
+            )
+        }
+        return settings
+    }
+
     // Testing
     @JvmStatic
     @WorkerThread
     @VisibleForTesting
-    fun clearCESettingsCache() = clearAndNullCache()
+    fun clearCESettingsCache() {
+        hashIndex.clear()
+        migrationListener = null
+        clearAndNullCache()
+    }
 }
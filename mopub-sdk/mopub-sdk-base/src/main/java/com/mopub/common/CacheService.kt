@@ -5,6 +5,7 @@
 package com.mopub.common
 
 import android.content.Context
+import android.os.ParcelFileDescriptor
 import androidx.annotation.AnyThread
 import androidx.annotation.WorkerThread
 
@@ -17,6 +18,8 @@ import com.mopub.common.util.Utils
 import kotlinx.coroutines.*
 
 import java.io.*
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
 
 abstract class CacheService(private val uniqueCacheName: String) {
 
@@ -24,6 +27,7 @@ abstract class CacheService(private val uniqueCacheName: String) {
         private const val APP_VERSION = 1
         private const val DISK_CACHE_INDEX = 0
         private const val VALUE_COUNT = 1  // Number of values per cache entry. Must be positive.
+        private const val PARTIAL_FILE_SUFFIX = ".partial"
     }
 
     @Volatile
@@ -31,6 +35,9 @@ abstract class CacheService(private val uniqueCacheName: String) {
     var diskLruCache: DiskLruCache? = null
         protected set
 
+    // Each cache initializes under its own lock so one slow cache does not block the others
+    private val initLock = Any()
+
     /**
      * Interface for async get and put operation listeners
      */
@@ -50,7 +57,7 @@ abstract class CacheService(private val uniqueCacheName: String) {
             return false
         }
         // Double-checked locking to initialize.
-        diskLruCache ?: synchronized(CacheService::class) {
+        diskLruCache ?: synchronized(initLock) {
             diskLruCache ?: run {
                 val cacheDirectory = getDiskCacheDirectory(context) ?: return false
                 val diskCacheSizeBytes = DeviceUtils.diskCacheSizeBytes(cacheDirectory)
@@ -109,6 +116,69 @@ abstract class CacheService(private val uniqueCacheName: String) {
         }
     }
 
+    /**
+     * Gets a file in the cache directory where the value for [key] can be written over time, for
+     * example by a download that may be resumed later. The file is not part of the cache until it
+     * is passed to [putFileToDiskCache].
+     */
+    @AnyThread
+    fun getPartialFileDiskCache(key: String?): File? {
+        if (key == null) {
+            return null
+        }
+        return diskLruCache?.let {
+            File(it.directory, "${createValidDiskCacheKey(key)}.$DISK_CACHE_INDEX$PARTIAL_FILE_SUFFIX")
+        }
+    }
+
+    /**
+     * Deletes partial files from [getPartialFileDiskCache] that have not been written to for
+     * [maxAgeMillis], along with any files that share their name as a prefix.
+     */
+    @WorkerThread
+    fun deleteStalePartialFilesDiskCache(maxAgeMillis: Long) {
+        val directory = diskLruCache?.directory ?: return
+        val oldestAllowed = System.currentTimeMillis() - maxAgeMillis
+        val files = directory.listFiles() ?: return
+        for (file in files) {
+            if (file.name.endsWith(PARTIAL_FILE_SUFFIX) && file.lastModified() < oldestAllowed) {
+                for (related in files) {
+                    if (related.name.startsWith(file.name)) {
+                        related.delete()
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves [file] into the cache as the value for [key].
+     */
+    @WorkerThread
+    fun putFileToDiskCache(key: String?, file: File?): Boolean {
+        if (diskLruCache == null || key.isNullOrEmpty() || file == null || !file.exists()) {
+            return false
+        }
+        var editor: DiskLruCache.Editor? = null
+        try {
+            editor = diskLruCache?.edit(createValidDiskCacheKey(key)) ?:
+                    // another edit is in progress
+                    return false
+            editor.setFile(DISK_CACHE_INDEX, file)
+            diskLruCache?.flush()
+            editor.commit()
+        } catch (e: IOException) {
+            MoPubLog.log(SdkLogEvent.CUSTOM, "Unable to put file to DiskLruCache", e)
+            try {
+                editor?.abort()
+            } catch (ignore: IOException) {
+                // ignore
+            }
+            return false
+        }
+        return true
+    }
+
     @WorkerThread
     fun putToDiskCache(key: String?, content: ByteArray?): Boolean {
         if (key == null || content == null) {
@@ -146,6 +216,44 @@ abstract class CacheService(private val uniqueCacheName: String) {
         return true
     }
 
+    /**
+     * Removes the cached value for [key], if any.
+     *
+     * @return whether a value was removed
+     */
+    @WorkerThread
+    fun removeFromDiskCache(key: String?): Boolean {
+        if (diskLruCache == null || key.isNullOrEmpty()) {
+            return false
+        }
+        return try {
+            diskLruCache?.remove(createValidDiskCacheKey(key)) ?: false
+        } catch (e: IOException) {
+            MoPubLog.log(SdkLogEvent.CUSTOM, "Unable to remove from DiskLruCache", e)
+            false
+        }
+    }
+
+    @AnyThread
+    fun removeFromDiskCacheAsync(
+        key: String,
+        supervisorJob: CompletableJob,
+        context: Context
+    ) {
+        CoroutineScope(supervisorJob + Dispatchers.IO).launch(
+            CoroutineExceptionHandler { coroutineContext, e ->
+                coroutineContext.cancel()
+                MoPubLog.log(SdkLogEvent.CUSTOM, "Exception in removeFromDiskCacheAsync", e)
+            })
+        {
+            if (!initializeDiskCache(context)) {
+                MoPubLog.log(SdkLogEvent.CUSTOM, "Failed to initialize cache.")
+                return@launch
+            }
+            removeFromDiskCache(key)
+        }
+    }
+
     @AnyThread
     fun putToDiskCacheAsync(
         key: String,
@@ -177,6 +285,11 @@ abstract class CacheService(private val uniqueCacheName: String) {
         }
     }
 
+    /**
+     * Reads the whole cached value for [key] into a new array. Prefer
+     * [getInputStreamFromDiskCache], [mapFromDiskCache] or [openFileDescriptorDiskCache] for large
+     * values.
+     */
     @WorkerThread
     fun getFromDiskCache(key: String?): ByteArray? {
         if (diskLruCache == null || key.isNullOrEmpty()) {
@@ -205,6 +318,74 @@ abstract class CacheService(private val uniqueCacheName: String) {
         return bytes
     }
 
+    /**
+     * Opens a stream over the cached value for [key] without reading it into memory. The caller
+     * must close the stream.
+     */
+    @WorkerThread
+    fun getInputStreamFromDiskCache(key: String?): InputStream? {
+        if (diskLruCache == null || key.isNullOrEmpty()) {
+            return null
+        }
+        return try {
+            diskLruCache?.get(createValidDiskCacheKey(key))?.getInputStream(DISK_CACHE_INDEX)
+        } catch (e: IOException) {
+            MoPubLog.log(SdkLogEvent.CUSTOM, "Unable to get from DiskLruCache", e)
+            null
+        }
+    }
+
+    /**
+     * Opens a read-only [FileChannel] over the cached value for [key]. The caller must close the
+     * channel.
+     */
+    @WorkerThread
+    fun getFileChannelFromDiskCache(key: String?): FileChannel? {
+        val inputStream = getInputStreamFromDiskCache(key) ?: return null
+        if (inputStream !is FileInputStream) {
+            Streams.closeStream(inputStream)
+            return null
+        }
+        return inputStream.channel
+    }
+
+    /**
+     * Maps the cached value for [key] into memory read-only. The pages are backed by the file, so
+     * this does not use Java heap regardless of the value's size. The mapping stays valid after
+     * the entry is evicted.
+     */
+    @WorkerThread
+    fun mapFromDiskCache(key: String?): MappedByteBuffer? {
+        val channel = getFileChannelFromDiskCache(key) ?: return null
+        return try {
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+        } catch (e: IOException) {
+            MoPubLog.log(SdkLogEvent.CUSTOM, "Unable to map from DiskLruCache", e)
+            null
+        } finally {
+            Streams.closeStream(channel)
+        }
+    }
+
+    /**
+     * Opens a read-only file descriptor for the cached value for [key], to hand to a media player
+     * or another process. The descriptor keeps the file readable after the entry is evicted. The
+     * caller must close it.
+     */
+    @WorkerThread
+    fun openFileDescriptorDiskCache(key: String?): ParcelFileDescriptor? {
+        if (!containsKeyDiskCache(key)) {
+            return null
+        }
+        val filePath = getFilePathDiskCache(key) ?: return null
+        return try {
+            ParcelFileDescriptor.open(File(filePath), ParcelFileDescriptor.MODE_READ_ONLY)
+        } catch (e: FileNotFoundException) {
+            MoPubLog.log(SdkLogEvent.CUSTOM, "Unable to open file descriptor from DiskLruCache", e)
+            null
+        }
+    }
+
     @AnyThread
     fun getFromDiskCacheAsync(
         key: String,
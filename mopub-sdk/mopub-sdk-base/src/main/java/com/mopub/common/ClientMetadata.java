@@ -5,7 +5,11 @@
 package com.mopub.common;
 
 import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
@@ -26,6 +30,8 @@ import com.mopub.common.util.DeviceUtils;
 import com.mopub.common.util.Dips;
 
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static android.Manifest.permission.ACCESS_NETWORK_STATE;
 import static android.content.pm.PackageManager.NameNotFoundException;
@@ -41,14 +47,6 @@ public class ClientMetadata {
     private static final String DEVICE_ORIENTATION_SQUARE = "s";
     private static final String DEVICE_ORIENTATION_UNKNOWN = "u";
 
-    private String mNetworkOperatorForUrl;
-    private String mNetworkOperator;
-    private String mSimOperator;
-    private String mIsoCountryCode;
-    private String mSimIsoCountryCode;
-    private String mNetworkOperatorName;
-    private String mSimOperatorName;
-
     @NonNull
     private final MoPubIdentifier moPubIdentifier;
 
@@ -95,6 +93,20 @@ public class ClientMetadata {
     private final Context mContext;
     private final ConnectivityManager mConnectivityManager;
 
+    /**
+     * Network type and carrier data, which come from binder calls to the connectivity and
+     * telephony services. They are read once and kept until the connectivity, the configuration
+     * or the consent changes, so that building an ad request only reads this field.
+     */
+    @NonNull private volatile Snapshot mSnapshot;
+    // Incremented on every change that makes the snapshot out of date
+    @NonNull private final AtomicInteger mChangeCount = new AtomicInteger();
+    private volatile boolean mIsObservingChanges;
+
+    // Instrumentation
+    @NonNull private final AtomicLong mBinderCallCount = new AtomicLong();
+    private int mSnapshotCount;
+
     /**
      * Returns the singleton ClientMetadata object, using the context to obtain data if necessary.
      */
@@ -160,46 +172,119 @@ public class ClientMetadata {
             mAppName = (String) packageManager.getApplicationLabel(applicationInfo);
         }
 
+        mSnapshot = createSnapshot(mChangeCount.get());
+        observeChanges();
+        moPubIdentifier = new MoPubIdentifier(mContext);
+    }
+
+    public void repopulateCountryData() {
+        invalidateSnapshot();
+    }
+
+    /**
+     * Marks the network type and carrier data as out of date. They are read again the next time
+     * they are needed.
+     */
+    public void invalidateSnapshot() {
+        mChangeCount.incrementAndGet();
+    }
+
+    @SuppressWarnings("deprecation")
+    private void observeChanges() {
+        try {
+            // Sticky, so this is also delivered once right after registering.
+            mContext.registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(final Context context, final Intent intent) {
+                    invalidateSnapshot();
+                }
+            }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+            mContext.registerComponentCallbacks(new ComponentCallbacks() {
+                @Override
+                public void onConfigurationChanged(@NonNull final Configuration newConfig) {
+                    // The mobile country and network codes are part of the configuration.
+                    invalidateSnapshot();
+                }
+
+                @Override
+                public void onLowMemory() {
+                }
+            });
+            mIsObservingChanges = true;
+        } catch (RuntimeException e) {
+            MoPubLog.log(CUSTOM, "Unable to observe connectivity changes. Network type and " +
+                    "carrier data will be read on every request.");
+        }
+    }
+
+    @NonNull
+    private Snapshot getSnapshot() {
+        final Snapshot snapshot = mSnapshot;
+        if (mIsObservingChanges && snapshot.mVersion == mChangeCount.get()) {
+            return snapshot;
+        }
+
+        synchronized (this) {
+            final int changeCount = mChangeCount.get();
+            if (!mIsObservingChanges || mSnapshot.mVersion != changeCount) {
+                mSnapshot = createSnapshot(changeCount);
+            }
+            return mSnapshot;
+        }
+    }
+
+    @NonNull
+    private Snapshot createSnapshot(final int version) {
+        String networkOperatorForUrl = null;
+        String networkOperator = null;
+        String simOperator = null;
+        String isoCountryCode = null;
+        String simIsoCountryCode = null;
+        String networkOperatorName = null;
+        String simOperatorName = null;
+
         final TelephonyManager telephonyManager =
                 (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
         if(telephonyManager!=null) {
-            mNetworkOperatorForUrl = telephonyManager.getNetworkOperator();
-            mNetworkOperator = telephonyManager.getNetworkOperator();
+            mBinderCallCount.addAndGet(3);
+            networkOperatorForUrl = telephonyManager.getNetworkOperator();
+            networkOperator = networkOperatorForUrl;
             if (telephonyManager.getPhoneType() == TelephonyManager.PHONE_TYPE_CDMA &&
                     telephonyManager.getSimState() == TelephonyManager.SIM_STATE_READY) {
-                mNetworkOperatorForUrl = telephonyManager.getSimOperator();
-                mSimOperator = telephonyManager.getSimOperator();
+                mBinderCallCount.incrementAndGet();
+                simOperator = telephonyManager.getSimOperator();
+                networkOperatorForUrl = simOperator;
             }
 
             if (MoPub.canCollectPersonalInformation()) {
-                mIsoCountryCode = telephonyManager.getNetworkCountryIso();
-                mSimIsoCountryCode = telephonyManager.getSimCountryIso();
+                mBinderCallCount.addAndGet(2);
+                isoCountryCode = telephonyManager.getNetworkCountryIso();
+                simIsoCountryCode = telephonyManager.getSimCountryIso();
             } else {
-                mIsoCountryCode = "";
-                mSimIsoCountryCode = "";
+                isoCountryCode = "";
+                simIsoCountryCode = "";
             }
 
             try {
                 // Some Lenovo devices require READ_PHONE_STATE here.
-                mNetworkOperatorName = telephonyManager.getNetworkOperatorName();
+                mBinderCallCount.addAndGet(2);
+                networkOperatorName = telephonyManager.getNetworkOperatorName();
                 if (telephonyManager.getSimState() == TelephonyManager.SIM_STATE_READY) {
-                    mSimOperatorName = telephonyManager.getSimOperatorName();
+                    mBinderCallCount.incrementAndGet();
+                    simOperatorName = telephonyManager.getSimOperatorName();
                 }
             } catch (SecurityException e) {
-                mNetworkOperatorName = null;
-                mSimOperatorName = null;
+                networkOperatorName = null;
+                simOperatorName = null;
             }
         }
-        moPubIdentifier = new MoPubIdentifier(mContext);
-    }
 
-    public void repopulateCountryData() {
-        final TelephonyManager telephonyManager =
-                (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
-        if (MoPub.canCollectPersonalInformation() && telephonyManager != null) {
-            mIsoCountryCode = telephonyManager.getNetworkCountryIso();
-            mSimIsoCountryCode = telephonyManager.getSimCountryIso();
+        synchronized (this) {
+            mSnapshotCount++;
         }
+        return new Snapshot(version, readActiveNetworkType(), networkOperatorForUrl,
+                networkOperator, simOperator, isoCountryCode, simIsoCountryCode,
+                networkOperatorName, simOperatorName);
     }
 
     private static String getAppVersionFromContext(Context context) {
@@ -230,12 +315,19 @@ public class ClientMetadata {
         return orientation;
     }
 
-    @SuppressLint("MissingPermission")
     public MoPubNetworkType getActiveNetworkType() {
+        return getSnapshot().mNetworkType;
+    }
+
+    @SuppressLint("MissingPermission")
+    @NonNull
+    private MoPubNetworkType readActiveNetworkType() {
+        mBinderCallCount.incrementAndGet();
         if (!DeviceUtils.isPermissionGranted(mContext, ACCESS_NETWORK_STATE)) {
             return MoPubNetworkType.UNKNOWN;
         }
 
+        mBinderCallCount.incrementAndGet();
         NetworkInfo activeNetworkInfo = mConnectivityManager.getActiveNetworkInfo();
         if (activeNetworkInfo == null || !activeNetworkInfo.isConnected()) {
             return MoPubNetworkType.UNKNOWN;
@@ -246,19 +338,23 @@ public class ClientMetadata {
                 return MoPubNetworkType.ETHERNET;
             }
         } else {
+            mBinderCallCount.incrementAndGet();
             Network[] networks = mConnectivityManager.getAllNetworks();
             for (Network network : networks) {
+                mBinderCallCount.incrementAndGet();
                 NetworkCapabilities capabilities = mConnectivityManager.getNetworkCapabilities(network);
                 if (capabilities != null && capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET))
                     return MoPubNetworkType.ETHERNET;
             }
         }
 
+        mBinderCallCount.incrementAndGet();
         NetworkInfo networkInfo = mConnectivityManager.getNetworkInfo(ConnectivityManager.TYPE_WIFI);
         if (networkInfo != null && networkInfo.isConnected()) {
             return MoPubNetworkType.WIFI;
         }
 
+        mBinderCallCount.incrementAndGet();
         networkInfo = mConnectivityManager.getNetworkInfo(ConnectivityManager.TYPE_MOBILE);
         if (networkInfo != null && networkInfo.isConnected()) {
             int netType = networkInfo.getSubtype();
@@ -302,14 +398,14 @@ public class ClientMetadata {
      * @return the network operator for URL generators.
      */
     public String getNetworkOperatorForUrl() {
-        return mNetworkOperatorForUrl;
+        return getSnapshot().mNetworkOperatorForUrl;
     }
 
     /**
      * @return the network operator.
      */
     public String getNetworkOperator() {
-        return mNetworkOperator;
+        return getSnapshot().mNetworkOperator;
     }
 
     public Locale getDeviceLocale() {
@@ -320,35 +416,35 @@ public class ClientMetadata {
      * @return the sim operator.
      */
     public String getSimOperator() {
-        return mSimOperator;
+        return getSnapshot().mSimOperator;
     }
 
     /**
      * @return the country code of the device.
      */
     public String getIsoCountryCode() {
-        return MoPub.canCollectPersonalInformation() ? mIsoCountryCode : "";
+        return MoPub.canCollectPersonalInformation() ? getSnapshot().mIsoCountryCode : "";
     }
 
     /**
      * @return the sim provider's country code.
      */
     public String getSimIsoCountryCode() {
-        return MoPub.canCollectPersonalInformation() ? mSimIsoCountryCode : "";
+        return MoPub.canCollectPersonalInformation() ? getSnapshot().mSimIsoCountryCode : "";
     }
 
     /**
      * @return the network operator name.
      */
     public String getNetworkOperatorName() {
-        return mNetworkOperatorName;
+        return getSnapshot().mNetworkOperatorName;
     }
 
     /**
      * @return the sim operator name.
      */
     public String getSimOperatorName() {
-        return mSimOperatorName;
+        return getSnapshot().mSimOperatorName;
     }
 
     /**
@@ -466,6 +562,66 @@ public class ClientMetadata {
         return mDeviceHardware;
     }
 
+    /**
+     * @return How many binder calls were made to read the network type and carrier data, and how
+     * many times they were read.
+     */
+    @NonNull
+    public Stats getStats() {
+        synchronized (this) {
+            return new Stats(mSnapshot.mVersion, mSnapshotCount, mBinderCallCount.get());
+        }
+    }
+
+    /**
+     * Network type and carrier data as of one version. Never modified after creation.
+     */
+    private static class Snapshot {
+        // Number of changes observed before this snapshot was read
+        final int mVersion;
+        @NonNull final MoPubNetworkType mNetworkType;
+        final String mNetworkOperatorForUrl;
+        final String mNetworkOperator;
+        final String mSimOperator;
+        final String mIsoCountryCode;
+        final String mSimIsoCountryCode;
+        final String mNetworkOperatorName;
+        final String mSimOperatorName;
+
+        Snapshot(final int version, @NonNull final MoPubNetworkType networkType,
+                final String networkOperatorForUrl, final String networkOperator,
+                final String simOperator, final String isoCountryCode,
+                final String simIsoCountryCode, final String networkOperatorName,
+                final String simOperatorName) {
+            mVersion = version;
+            mNetworkType = networkType;
+            mNetworkOperatorForUrl = networkOperatorForUrl;
+            mNetworkOperator = networkOperator;
+            mSimOperator = simOperator;
+            mIsoCountryCode = isoCountryCode;
+            mSimIsoCountryCode = simIsoCountryCode;
+            mNetworkOperatorName = networkOperatorName;
+            mSimOperatorName = simOperatorName;
+        }
+    }
+
+    /**
+     * Counts of the binder calls made for the network type and carrier data.
+     */
+    public static class Stats {
+        // Version of the current snapshot
+        public final int snapshotVersion;
+        // Times the network type and carrier data were read
+        public final int snapshotCount;
+        public final long binderCallCount;
+
+        Stats(final int snapshotVersion, final int snapshotCount, final long binderCallCount) {
+            this.snapshotVersion = snapshotVersion;
+            this.snapshotCount = snapshotCount;
+            this.binderCallCount = binderCallCount;
+        }
+    }
+
     @Deprecated
     @VisibleForTesting
     public static void setInstance(ClientMetadata clientMetadata) {
@@ -793,6 +793,47 @@ public final class DiskLruCache implements Closeable {
       }
     }
 
+    /**
+     * Sets the value at {@code index} to the contents of {@code source}. The
+     * file is moved into the cache, or copied and then deleted if it can't be
+     * moved.
+     */
+    public void setFile(int index, File source) throws IOException {
+      File dirtyFile;
+      synchronized (DiskLruCache.this) {
+        if (entry.currentEditor != this) {
+          throw new IllegalStateException();
+        }
+        if (!entry.readable) {
+          written[index] = true;
+        }
+        dirtyFile = entry.getDirtyFile(index);
+      }
+      deleteIfExists(dirtyFile);
+      if (source.renameTo(dirtyFile)) {
+        return;
+      }
+
+      InputStream in = null;
+      OutputStream out = null;
+      try {
+        in = new FileInputStream(source);
+        out = new FileOutputStream(dirtyFile);
+        byte[] buffer = new byte[16384];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+          out.write(buffer, 0, length);
+        }
+      } catch (IOException e) {
+        hasErrors = true;
+        throw e;
+      } finally {
+        DiskLruCacheUtil.closeQuietly(in);
+        DiskLruCacheUtil.closeQuietly(out);
+      }
+      deleteIfExists(source);
+    }
+
     /** Sets the value at {@code index} to {@code value}. */
     public void set(int index, String value) throws IOException {
       Writer writer = null;
@@ -0,0 +1,69 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common
+
+import android.content.Context
+import androidx.annotation.AnyThread
+import androidx.annotation.WorkerThread
+
+import com.mopub.common.logging.MoPubLog
+import com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM
+
+import kotlinx.coroutines.SupervisorJob
+
+/**
+ * Disk cache holding tracking urls that could not be sent because there was no connection.
+ * The whole journal is stored as a single entry.
+ */
+object TrackingJournalCacheService : CacheService("mopub-tracking-journal") {
+
+    private const val JOURNAL_KEY = "tracking_journal"
+
+    private val supervisorJob = SupervisorJob()
+
+    /**
+     * Reads the journal and passes its content to the listener on the main thread.
+     *
+     * @param listener the listener to pass the journal content to. Content is null when there is
+     * no journal.
+     * @param context to initialize the journal cache.
+     */
+    @JvmStatic
+    @AnyThread
+    fun getJournal(listener: DiskLruCacheListener, context: Context?) {
+        if (context == null) {
+            MoPubLog.log(CUSTOM, "Context cannot be null.")
+            listener.onGetComplete(JOURNAL_KEY, null)
+            return
+        }
+
+        getFromDiskCacheAsync(JOURNAL_KEY, listener, supervisorJob, context)
+    }
+
+    /**
+     * Replaces the journal with the given content.
+     *
+     * @param content the serialized journal.
+     * @param listener notified on the main thread when the write completes.
+     * @param context to initialize the journal cache.
+     */
+    @JvmStatic
+    @AnyThread
+    fun putJournal(content: ByteArray, listener: DiskLruCacheListener?, context: Context?) {
+        if (context == null) {
+            MoPubLog.log(CUSTOM, "Context cannot be null.")
+            listener?.onPutComplete(false)
+            return
+        }
+
+        putToDiskCacheAsync(JOURNAL_KEY, content, listener, supervisorJob, context)
+    }
+
+    // Testing
+    @JvmStatic
+    @WorkerThread
+    @VisibleForTesting
+    fun clearTrackingJournalCache() = clearAndNullCache()
+}
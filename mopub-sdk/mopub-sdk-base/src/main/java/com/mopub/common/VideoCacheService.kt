@@ -5,10 +5,14 @@
 package com.mopub.common
 
 import android.content.Context
+import android.os.ParcelFileDescriptor
 import androidx.annotation.AnyThread
 import androidx.annotation.WorkerThread
 
+import java.io.File
 import java.io.InputStream
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
 
 object VideoCacheService : CacheService("mopub-video-cache") {
 
@@ -20,10 +24,30 @@ object VideoCacheService : CacheService("mopub-video-cache") {
     @WorkerThread
     fun containsKey(key: String?) = containsKeyDiskCache(key)
 
+    /**
+     * Copies the whole video into the heap. Use [getInputStream], [map] or [openFileDescriptor]
+     * instead outside of tests.
+     */
     @JvmStatic
     @WorkerThread
     fun get(key: String?): ByteArray? = getFromDiskCache(key)
 
+    @JvmStatic
+    @WorkerThread
+    fun getInputStream(key: String?): InputStream? = getInputStreamFromDiskCache(key)
+
+    @JvmStatic
+    @WorkerThread
+    fun getFileChannel(key: String?): FileChannel? = getFileChannelFromDiskCache(key)
+
+    @JvmStatic
+    @WorkerThread
+    fun map(key: String?): MappedByteBuffer? = mapFromDiskCache(key)
+
+    @JvmStatic
+    @WorkerThread
+    fun openFileDescriptor(key: String?): ParcelFileDescriptor? = openFileDescriptorDiskCache(key)
+
     @JvmStatic
     @AnyThread
     fun getFilePath(key: String?): String? = getFilePathDiskCache(key)
@@ -38,6 +62,20 @@ object VideoCacheService : CacheService("mopub-video-cache") {
     fun put(key: String?, content: ByteArray?): Boolean =
         putToDiskCache(key, content)
 
+    @JvmStatic
+    @AnyThread
+    fun getPartialFile(key: String?): File? = getPartialFileDiskCache(key)
+
+    @JvmStatic
+    @WorkerThread
+    fun putFile(key: String?, file: File?): Boolean =
+        putFileToDiskCache(key, file)
+
+    @JvmStatic
+    @WorkerThread
+    fun deleteStalePartialFiles(maxAgeMillis: Long) =
+        deleteStalePartialFilesDiskCache(maxAgeMillis)
+
     // Testing
     @JvmStatic
     @VisibleForTesting
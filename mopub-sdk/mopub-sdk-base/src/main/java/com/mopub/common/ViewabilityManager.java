@@ -6,6 +6,7 @@ package com.mopub.common;
 
 import android.content.Context;
 import android.text.TextUtils;
+import android.webkit.WebResourceResponse;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -16,7 +17,12 @@ import com.iab.omid.library.mopub.Omid;
 import com.iab.omid.library.mopub.ScriptInjector;
 import com.iab.omid.library.mopub.adsession.Partner;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.network.Networking;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
@@ -29,11 +35,31 @@ public class ViewabilityManager {
 
     private static final String PARTNER_NAME = "mopub";
 
+    /**
+     * File name the OM SDK service script is served under, on the ads.mopub.com base URL ads are
+     * loaded with. The SDK's WebViewClients answer requests for exactly that URL (see
+     * {@link #createOmidJsServiceResponse()}).
+     */
+    @VisibleForTesting
+    static final String OMID_JS_SERVICE_FILE = "mopub-omsdk-v1.js";
+    private static final Charset OMID_JS_SERVICE_CHARSET = Charset.forName("UTF-8");
+
+    // ScriptInjector is given this marker to find out where it would insert scripts.
+    private static final String INSERTION_MARKER = "cfc10ccaf0724c4cbc6122cf51421f03";
+    private static final String INSERTION_MARKER_TAG =
+            "<script type=\"text/javascript\">" + INSERTION_MARKER + "</script>";
+    private static final String SCRIPT_SRC_TAG_START = "<script src=\"";
+    private static final String SCRIPT_SRC_TAG_END = "\"></script>";
+
     @NonNull
     private static final ViewabilityScriptLoader sScriptLoader = new ViewabilityScriptLoader();
 
     private static boolean sViewabilityEnabled = true;
 
+    // Encoded OM SDK service script, created the first time a WebView requests it
+    @Nullable
+    private static volatile byte[] sOmidJsServiceBytes;
+
     @Nullable
     private Partner mPartner;
 
@@ -124,15 +150,13 @@ public class ViewabilityManager {
             return adResponseHtml;
         }
 
-        final String hack_value = "cfc10ccaf0724c4cbc6122cf51421f03";
-        final String placeholder_tag = "<script type=\"text/javascript\">" + hack_value + "</script>";
-        final String valid_tag = "<script src=\"" + scriptUrl + "\"></script>";
+        final String valid_tag = SCRIPT_SRC_TAG_START + scriptUrl + SCRIPT_SRC_TAG_END;
 
         try {
             final String intermediate = ScriptInjector.injectScriptContentIntoHtml(
-                    hack_value,
+                    INSERTION_MARKER,
                     adResponseHtml);
-            final String modifiedHtml = intermediate.replace(placeholder_tag, valid_tag);
+            final String modifiedHtml = intermediate.replace(INSERTION_MARKER_TAG, valid_tag);
             if (!modifiedHtml.equals(intermediate)) {
                 return modifiedHtml;
             }
@@ -160,6 +184,97 @@ public class ViewabilityManager {
 
         return responseHtml;
     }
+
+    /**
+     * Adds the OM SDK service script and the verification scripts of the given vendors to the ad
+     * HTML in a single pass. The service script is referenced by URL rather than inlined, so only
+     * short script tags are copied into each ad. The WebView the HTML is loaded into must answer
+     * requests for it with {@link #createOmidJsServiceResponse()}.
+     *
+     * @param adResponseHtml The HTML of the ad.
+     * @param vendors        Third party open measurement vendors, or null.
+     * @return The HTML with the scripts added, or the original HTML if they could not be added.
+     */
+    @NonNull
+    public static String injectScriptsIntoHtml(@NonNull final String adResponseHtml,
+            @Nullable final Set<ViewabilityVendor> vendors) {
+        Preconditions.checkNotNull(adResponseHtml);
+
+        if (!isViewabilityEnabled() || TextUtils.isEmpty(adResponseHtml)) {
+            return adResponseHtml;
+        }
+
+        final List<String> scriptUrls = new ArrayList<>();
+        scriptUrls.add(getOmidJsServiceUrl());
+        if (vendors != null) {
+            for (final ViewabilityVendor vendor : vendors) {
+                if (vendor != null) {
+                    scriptUrls.add(vendor.getJavascriptResourceUrl().toString());
+                }
+            }
+        }
+
+        try {
+            // Nothing before the insertion point changes, so the marker is found at the same
+            // offset in the ad HTML.
+            final int insertionIndex = ScriptInjector.injectScriptContentIntoHtml(INSERTION_MARKER,
+                    adResponseHtml).indexOf(INSERTION_MARKER_TAG);
+            if (insertionIndex < 0) {
+                return adResponseHtml;
+            }
+
+            int length = adResponseHtml.length();
+            for (final String scriptUrl : scriptUrls) {
+                length += SCRIPT_SRC_TAG_START.length() + scriptUrl.length()
+                        + SCRIPT_SRC_TAG_END.length();
+            }
+            final StringBuilder builder = new StringBuilder(length);
+            builder.append(adResponseHtml, 0, insertionIndex);
+            for (final String scriptUrl : scriptUrls) {
+                builder.append(SCRIPT_SRC_TAG_START).append(scriptUrl).append(SCRIPT_SRC_TAG_END);
+            }
+            builder.append(adResponseHtml, insertionIndex, adResponseHtml.length());
+            return builder.toString();
+        } catch (Throwable e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Failed to inject scripts into HTML. ", e);
+            return adResponseHtml;
+        }
+    }
+
+    /**
+     * @param url The URL requested by a WebView.
+     * @return Whether the URL is the one {@link #injectScriptsIntoHtml(String, Set)} references
+     * the OM SDK service script by.
+     */
+    public static boolean matchesOmidJsServiceUrl(@Nullable final String url) {
+        return getOmidJsServiceUrl().equals(url);
+    }
+
+    /**
+     * @return The OM SDK service file resolved against the base URL ads are loaded with (see
+     * {@link com.mopub.mobileads.BaseHtmlWebView}). It is referenced by this absolute URL so that
+     * a base tag in the ad HTML does not change where it is requested from.
+     */
+    @NonNull
+    @VisibleForTesting
+    static String getOmidJsServiceUrl() {
+        return Networking.getScheme() + "://" + Constants.HOST + "/" + OMID_JS_SERVICE_FILE;
+    }
+
+    /**
+     * Creates the response to a WebView request for the OM SDK service script. Called on the
+     * WebView's background thread, which is also where the script is encoded, only once.
+     */
+    @NonNull
+    public static WebResourceResponse createOmidJsServiceResponse() {
+        byte[] omidJsServiceBytes = sOmidJsServiceBytes;
+        if (omidJsServiceBytes == null) {
+            omidJsServiceBytes = getOmidJsServiceContent().getBytes(OMID_JS_SERVICE_CHARSET);
+            sOmidJsServiceBytes = omidJsServiceBytes;
+        }
+        return new WebResourceResponse("text/javascript", OMID_JS_SERVICE_CHARSET.name(),
+                new ByteArrayInputStream(omidJsServiceBytes));
+    }
     //endregion
 
     //region Internal Implementation
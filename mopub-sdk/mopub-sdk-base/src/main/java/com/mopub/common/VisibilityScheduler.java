@@ -0,0 +1,245 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static android.view.ViewTreeObserver.OnPreDrawListener;
+
+/**
+ * Runs the visibility checks of all visibility trackers together on the main thread. A check is
+ * requested by a pre-draw of a view tree a subscriber is attached to, or by the subscriber itself,
+ * and all requested checks run in a single pass at most once per throttle window. With many ads on
+ * screen this keeps the work to one pre-draw listener per view tree and one pass per window,
+ * instead of one of each per tracker.
+ *
+ * All methods must be called on the main thread.
+ */
+public class VisibilityScheduler {
+    // Time interval to use for throttling visibility checks.
+    @VisibleForTesting static final int VISIBILITY_THROTTLE_MILLIS = 100;
+
+    /**
+     * A visibility tracker whose checks are run by the scheduler.
+     */
+    public interface Subscriber {
+        /**
+         * Checks the visibility of the subscriber's views and notifies its listeners.
+         *
+         * @return the number of views that were checked.
+         */
+        int onVisibilityCheck();
+    }
+
+    @Nullable private static VisibilityScheduler sInstance;
+
+    @NonNull private final Handler mHandler;
+    @NonNull private final Runnable mPassRunnable;
+
+    // Subscribers attached to each view tree, which share a single pre-draw listener.
+    @NonNull private final Map<ViewTreeObserver, AttachedSubscribers> mAttachedSubscribers;
+
+    // Subscribers whose check runs in the next pass, in the order they were requested.
+    @NonNull private final Set<Subscriber> mRequestedSubscribers;
+
+    // Subscribers of the running pass. Created once to avoid allocating on every pass.
+    @NonNull private final ArrayList<Subscriber> mPassSubscribers;
+
+    // Checker shared by trackers that don't need their own, which reuses a single Rect.
+    @NonNull private final VisibilityTracker.VisibilityChecker mVisibilityChecker;
+
+    private boolean mIsPassScheduled;
+
+    // Instrumentation
+    private long mPassCount;
+    private long mCheckCount;
+    private long mViewsChecked;
+    private long mTotalPassNanos;
+    private long mMaxPassNanos;
+
+    @NonNull
+    public static VisibilityScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new VisibilityScheduler(new Handler(Looper.getMainLooper()));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    VisibilityScheduler(@NonNull final Handler handler) {
+        Preconditions.checkNotNull(handler);
+
+        mHandler = handler;
+        mAttachedSubscribers = new WeakHashMap<>();
+        mRequestedSubscribers = new LinkedHashSet<>();
+        mPassSubscribers = new ArrayList<>();
+        mVisibilityChecker = new VisibilityTracker.VisibilityChecker();
+        mPassRunnable = new Runnable() {
+            @Override
+            public void run() {
+                runPass();
+            }
+        };
+    }
+
+    @NonNull
+    public VisibilityTracker.VisibilityChecker getVisibilityChecker() {
+        return mVisibilityChecker;
+    }
+
+    /**
+     * Requests a check of the subscriber on every pre-draw of the given view tree.
+     */
+    public void attach(@NonNull final ViewTreeObserver viewTreeObserver,
+            @NonNull final Subscriber subscriber) {
+        Preconditions.checkNotNull(viewTreeObserver);
+        Preconditions.checkNotNull(subscriber);
+
+        AttachedSubscribers attached = mAttachedSubscribers.get(viewTreeObserver);
+        if (attached == null) {
+            attached = new AttachedSubscribers();
+            mAttachedSubscribers.put(viewTreeObserver, attached);
+            viewTreeObserver.addOnPreDrawListener(attached);
+        }
+        attached.mSubscribers.add(subscriber);
+    }
+
+    /**
+     * Stops requesting checks of the subscriber on pre-draws of the given view tree. The view
+     * tree's pre-draw listener is removed once no subscriber is attached to it.
+     */
+    public void detach(@NonNull final ViewTreeObserver viewTreeObserver,
+            @NonNull final Subscriber subscriber) {
+        Preconditions.checkNotNull(viewTreeObserver);
+        Preconditions.checkNotNull(subscriber);
+
+        final AttachedSubscribers attached = mAttachedSubscribers.get(viewTreeObserver);
+        if (attached == null) {
+            return;
+        }
+        attached.mSubscribers.remove(subscriber);
+        if (attached.mSubscribers.isEmpty()) {
+            mAttachedSubscribers.remove(viewTreeObserver);
+            if (viewTreeObserver.isAlive()) {
+                viewTreeObserver.removeOnPreDrawListener(attached);
+            }
+        }
+    }
+
+    /**
+     * Runs a check of the subscriber in the next pass, scheduling one if needed.
+     */
+    public void requestCheck(@NonNull final Subscriber subscriber) {
+        Preconditions.checkNotNull(subscriber);
+
+        mRequestedSubscribers.add(subscriber);
+        if (mIsPassScheduled) {
+            return;
+        }
+
+        mIsPassScheduled = true;
+        mHandler.postDelayed(mPassRunnable, VISIBILITY_THROTTLE_MILLIS);
+    }
+
+    /**
+     * Removes a pending check of the subscriber. The scheduled pass is cancelled when no other
+     * check is pending.
+     */
+    public void cancelCheck(@NonNull final Subscriber subscriber) {
+        Preconditions.checkNotNull(subscriber);
+
+        mRequestedSubscribers.remove(subscriber);
+        if (mRequestedSubscribers.isEmpty()) {
+            mHandler.removeMessages(0);
+            mIsPassScheduled = false;
+        }
+    }
+
+    public boolean isCheckRequested(@NonNull final Subscriber subscriber) {
+        return mRequestedSubscribers.contains(subscriber);
+    }
+
+    @VisibleForTesting
+    void runPass() {
+        mIsPassScheduled = false;
+        if (mRequestedSubscribers.isEmpty()) {
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+
+        // Subscribers may request their next check while this pass runs.
+        mPassSubscribers.addAll(mRequestedSubscribers);
+        mRequestedSubscribers.clear();
+        int viewsChecked = 0;
+        for (int i = 0; i < mPassSubscribers.size(); i++) {
+            viewsChecked += mPassSubscribers.get(i).onVisibilityCheck();
+        }
+        final int checkCount = mPassSubscribers.size();
+        mPassSubscribers.clear();
+
+        final long passNanos = System.nanoTime() - startNanos;
+        mPassCount++;
+        mCheckCount += checkCount;
+        mViewsChecked += viewsChecked;
+        mTotalPassNanos += passNanos;
+        mMaxPassNanos = Math.max(mMaxPassNanos, passNanos);
+    }
+
+    @NonNull
+    public Stats getStats() {
+        return new Stats(mPassCount, mCheckCount, mViewsChecked,
+                mPassCount == 0 ? 0 : mTotalPassNanos / mPassCount / 1000,
+                mMaxPassNanos / 1000);
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        sInstance = null;
+    }
+
+    /**
+     * Cost of the visibility passes run so far.
+     */
+    public static class Stats {
+        public final long passCount;
+        public final long checkCount;
+        public final long viewsChecked;
+        public final long averagePassMicros;
+        public final long maxPassMicros;
+
+        Stats(final long passCount, final long checkCount, final long viewsChecked,
+                final long averagePassMicros, final long maxPassMicros) {
+            this.passCount = passCount;
+            this.checkCount = checkCount;
+            this.viewsChecked = viewsChecked;
+            this.averagePassMicros = averagePassMicros;
+            this.maxPassMicros = maxPassMicros;
+        }
+    }
+
+    private class AttachedSubscribers implements OnPreDrawListener {
+        @NonNull final Set<Subscriber> mSubscribers = new LinkedHashSet<>();
+
+        @Override
+        public boolean onPreDraw() {
+            for (final Subscriber subscriber : mSubscribers) {
+                requestCheck(subscriber);
+            }
+            return true;
+        }
+    }
+}
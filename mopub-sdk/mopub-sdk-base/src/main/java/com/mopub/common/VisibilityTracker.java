@@ -6,7 +6,6 @@ package com.mopub.common;
 
 import android.content.Context;
 import android.graphics.Rect;
-import android.os.Handler;
 import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -19,55 +18,38 @@ import com.mopub.common.util.Views;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
-import static android.view.ViewTreeObserver.OnPreDrawListener;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
  * Tracks views to determine when they become visible or invisible, where visibility is defined as
- * having been at least X% on the screen.
+ * having been at least X% on the screen. Checks are run by the shared {@link VisibilityScheduler}.
  */
 public class VisibilityTracker {
-    // Time interval to use for throttling visibility checks.
-    private static final int VISIBILITY_THROTTLE_MILLIS = 100;
-
     // Trim the tracked views after this many accesses. This protects us against tracking
     // too many views if the developer uses the adapter for multiple ListViews. It also
     // limits the memory leak if a developer forgets to call destroy().
     @VisibleForTesting static final int NUM_ACCESSES_BEFORE_TRIMMING = 50;
 
-    // Temporary array of trimmed views so that we don't allocate this on every trim.
-    @NonNull private final ArrayList<View> mTrimmedViews;
-
     // Incrementing access counter. Use a long to support very long-lived apps.
     private long mAccessCounter = 0;
 
-    // Listener that passes all visible and invisible views when a visibility check occurs
+    /**
+     * Listener that passes visible and invisible views when a visibility check occurs. By default
+     * it is called after every check with all visible and invisible views. If the tracker only
+     * reports transitions, it is called only when views changed state, with just those views.
+     */
     public interface VisibilityTrackerListener {
         void onVisibilityChanged(List<View> visibleViews, List<View> invisibleViews);
     }
 
-    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
     @NonNull @VisibleForTesting WeakReference<ViewTreeObserver> mWeakViewTreeObserver;
 
-    static class TrackingInfo {
-        int mMinViewablePercent;
-        // Must be less than mMinVisiblePercent
-        int mMaxInvisiblePercent;
-        long mAccessOrder;
-        View mRootView;
-
-        /**
-         * If this number is set, then use this as the minimum amount of the view seen before it is
-         * considered visible. This is in real pixels.
-         */
-        @Nullable Integer mMinVisiblePx;
-    }
+    // Views that are being tracked, with their thresholds and last visibility state
+    @NonNull private final VisibilityTrackingTable mTrackedViews;
 
-    // Views that are being tracked, mapped to the min viewable percentage
-    @NonNull private final Map<View, TrackingInfo> mTrackedViews;
+    // Whether the listener only hears about views that changed state
+    private boolean mReportTransitionsOnly;
 
     // Object to check actual visibility
     @NonNull private final VisibilityChecker mVisibilityChecker;
@@ -78,35 +60,34 @@ public class VisibilityTracker {
     // Runnable to run on each visibility loop
     @NonNull private final VisibilityRunnable mVisibilityRunnable;
 
-    // Handler for visibility
-    @NonNull private final Handler mVisibilityHandler;
+    // Scheduler running the visibility checks of all trackers
+    @NonNull private final VisibilityScheduler mVisibilityScheduler;
 
-    // Whether the visibility runnable is scheduled
-    private boolean mIsVisibilityScheduled;
+    @NonNull private final VisibilityScheduler.Subscriber mSubscriber;
 
     public VisibilityTracker(@NonNull final Context context) {
         this(context,
-                new WeakHashMap<View, TrackingInfo>(10),
-                new VisibilityChecker(),
-                new Handler());
+                new VisibilityTrackingTable(),
+                VisibilityScheduler.getInstance().getVisibilityChecker(),
+                VisibilityScheduler.getInstance());
     }
 
     @VisibleForTesting
     VisibilityTracker(@NonNull final Context context,
-            @NonNull final Map<View, TrackingInfo> trackedViews,
+            @NonNull final VisibilityTrackingTable trackedViews,
             @NonNull final VisibilityChecker visibilityChecker,
-            @NonNull final Handler visibilityHandler) {
+            @NonNull final VisibilityScheduler visibilityScheduler) {
         mTrackedViews = trackedViews;
         mVisibilityChecker = visibilityChecker;
-        mVisibilityHandler = visibilityHandler;
+        mVisibilityScheduler = visibilityScheduler;
         mVisibilityRunnable = new VisibilityRunnable();
-        mTrimmedViews = new ArrayList<View>(NUM_ACCESSES_BEFORE_TRIMMING);
 
-        mOnPreDrawListener = new OnPreDrawListener() {
+        mSubscriber = new VisibilityScheduler.Subscriber() {
             @Override
-            public boolean onPreDraw() {
-                scheduleVisibilityCheck();
-                return true;
+            public int onVisibilityCheck() {
+                final int viewCount = mTrackedViews.size();
+                mVisibilityRunnable.run();
+                return viewCount;
             }
         };
 
@@ -119,6 +100,9 @@ public class VisibilityTracker {
         if (originalViewTreeObserver != null && originalViewTreeObserver.isAlive()) {
             return;
         }
+        if (originalViewTreeObserver != null) {
+            mVisibilityScheduler.detach(originalViewTreeObserver, mSubscriber);
+        }
 
         final View rootView = Views.getTopmostView(context, view);
         if (rootView == null) {
@@ -134,7 +118,7 @@ public class VisibilityTracker {
         }
 
         mWeakViewTreeObserver = new WeakReference<ViewTreeObserver>(viewTreeObserver);
-        viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
+        mVisibilityScheduler.attach(viewTreeObserver, mSubscriber);
     }
 
     public void setVisibilityTrackerListener(
@@ -142,6 +126,15 @@ public class VisibilityTracker {
         mVisibilityTrackerListener = visibilityTrackerListener;
     }
 
+    /**
+     * Only tell the listener about views that became visible or invisible since the last check,
+     * and skip it when no view changed state. Views start out in neither state, so the first check
+     * reports every view that is visible or invisible.
+     */
+    public void setReportTransitionsOnly(final boolean reportTransitionsOnly) {
+        mReportTransitionsOnly = reportTransitionsOnly;
+    }
+
     /**
      * Tracks the given view for visibility.
      */
@@ -160,43 +153,26 @@ public class VisibilityTracker {
             @Nullable final Integer minVisiblePx) {
         setViewTreeObserver(view.getContext(), view);
 
-        // Find the view if already tracked
-        TrackingInfo trackingInfo = mTrackedViews.get(view);
-        if (trackingInfo == null) {
-            trackingInfo = new TrackingInfo();
-            mTrackedViews.put(view, trackingInfo);
-            scheduleVisibilityCheck();
-        }
+        final boolean isNewView = mTrackedViews.indexOf(view) < 0;
 
         int maxInvisiblePercent = Math.min(maxInvisiblePercentageViewed, minVisiblePercentageViewed);
 
-        trackingInfo.mRootView = rootView;
-        trackingInfo.mMinViewablePercent = minVisiblePercentageViewed;
-        trackingInfo.mMaxInvisiblePercent = maxInvisiblePercent;
-        trackingInfo.mAccessOrder = mAccessCounter;
-        trackingInfo.mMinVisiblePx = minVisiblePx;
+        // If min visible px is set, it is used as the minimum amount of the view seen before it
+        // is considered visible. This is in real pixels.
+        mTrackedViews.put(view, rootView, minVisiblePercentageViewed, maxInvisiblePercent,
+                minVisiblePx == null ? 0 : minVisiblePx, mAccessCounter);
+        if (isNewView) {
+            scheduleVisibilityCheck();
+        }
 
         // Trim the number of tracked views to a reasonable number
         mAccessCounter++;
         if (mAccessCounter % NUM_ACCESSES_BEFORE_TRIMMING == 0) {
-            trimTrackedViews(mAccessCounter - NUM_ACCESSES_BEFORE_TRIMMING);
+            // Clear anything that is below minAccessOrder.
+            mTrackedViews.removeEntriesAccessedBefore(mAccessCounter - NUM_ACCESSES_BEFORE_TRIMMING);
         }
     }
 
-    private void trimTrackedViews(long minAccessOrder) {
-        // Clear anything that is below minAccessOrder.
-        for (final Map.Entry<View, TrackingInfo> entry : mTrackedViews.entrySet()) {
-            if (entry.getValue().mAccessOrder <  minAccessOrder) {
-                mTrimmedViews.add(entry.getKey());
-            }
-        }
-
-        for (View view : mTrimmedViews) {
-            removeView(view);
-        }
-        mTrimmedViews.clear();
-    }
-
     /**
      * Stops tracking a view, cleaning any pending tracking
      */
@@ -209,8 +185,7 @@ public class VisibilityTracker {
      */
     public void clear() {
         mTrackedViews.clear();
-        mVisibilityHandler.removeMessages(0);
-        mIsVisibilityScheduled = false;
+        mVisibilityScheduler.cancelCheck(mSubscriber);
     }
 
     /**
@@ -219,22 +194,15 @@ public class VisibilityTracker {
     public void destroy() {
         clear();
         final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
-        if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
-            viewTreeObserver.removeOnPreDrawListener(mOnPreDrawListener);
+        if (viewTreeObserver != null) {
+            mVisibilityScheduler.detach(viewTreeObserver, mSubscriber);
         }
         mWeakViewTreeObserver.clear();
         mVisibilityTrackerListener = null;
     }
 
     public void scheduleVisibilityCheck() {
-        // Tracking this directly instead of calling hasMessages directly because we measured that
-        // this led to slightly better performance.
-        if (mIsVisibilityScheduled) {
-            return;
-        }
-
-        mIsVisibilityScheduled = true;
-        mVisibilityHandler.postDelayed(mVisibilityRunnable, VISIBILITY_THROTTLE_MILLIS);
+        mVisibilityScheduler.requestCheck(mSubscriber);
     }
 
     class VisibilityRunnable implements Runnable {
@@ -250,24 +218,50 @@ public class VisibilityTracker {
 
         @Override
         public void run() {
-            mIsVisibilityScheduled = false;
-            for (final Map.Entry<View, TrackingInfo> entry : mTrackedViews.entrySet()) {
-                final View view = entry.getKey();
-                final int minPercentageViewed = entry.getValue().mMinViewablePercent;
-                final int maxInvisiblePercent = entry.getValue().mMaxInvisiblePercent;
-                final Integer minVisiblePx = entry.getValue().mMinVisiblePx;
-                final View rootView = entry.getValue().mRootView;
-
-                if (mVisibilityChecker.isVisible(rootView, view, minPercentageViewed,
-                        minVisiblePx)) {
+            // Walk the table by slot rather than with an iterator so that a check allocates
+            // nothing once the lists have grown to size.
+            boolean hasClearedEntries = false;
+            final int capacity = mTrackedViews.capacity();
+            for (int slot = 0; slot < capacity; slot++) {
+                final View view = mTrackedViews.getViewAt(slot);
+                if (view == null) {
+                    hasClearedEntries |= mTrackedViews.isClearedAt(slot);
+                    continue;
+                }
+                final View rootView = mTrackedViews.getRootViewAt(slot);
+
+                final byte state;
+                if (rootView == null) {
+                    // The root view was collected, so the view is no longer on screen.
+                    state = VisibilityTrackingTable.STATE_INVISIBLE;
+                } else if (mVisibilityChecker.isVisible(rootView, view,
+                        mTrackedViews.getMinVisiblePercentAt(slot),
+                        mTrackedViews.getMinVisiblePxAt(slot))) {
+                    state = VisibilityTrackingTable.STATE_VISIBLE;
+                } else if (!mVisibilityChecker.isVisible(rootView, view,
+                        mTrackedViews.getMaxInvisiblePercentAt(slot), 0)) {
+                    state = VisibilityTrackingTable.STATE_INVISIBLE;
+                } else {
+                    continue;
+                }
+
+                if (mReportTransitionsOnly && state == mTrackedViews.getStateAt(slot)) {
+                    continue;
+                }
+                mTrackedViews.setStateAt(slot, state);
+                if (state == VisibilityTrackingTable.STATE_VISIBLE) {
                     mVisibleViews.add(view);
-                } else if (!mVisibilityChecker.isVisible(rootView, view, maxInvisiblePercent,
-                        null)) {
+                } else {
                     mInvisibleViews.add(view);
                 }
             }
 
-            if (mVisibilityTrackerListener != null) {
+            if (hasClearedEntries) {
+                mTrackedViews.removeClearedEntries();
+            }
+
+            final boolean hasChanges = !mVisibleViews.isEmpty() || !mInvisibleViews.isEmpty();
+            if (mVisibilityTrackerListener != null && (hasChanges || !mReportTransitionsOnly)) {
                 mVisibilityTrackerListener.onVisibilityChanged(mVisibleViews, mInvisibleViews);
             }
 
@@ -294,6 +288,16 @@ public class VisibilityTracker {
          */
         public boolean isVisible(@Nullable final View rootView, @Nullable final View view,
                 final int minPercentageViewed, @Nullable final Integer minVisiblePx) {
+            return isVisible(rootView, view, minPercentageViewed,
+                    minVisiblePx == null ? 0 : minVisiblePx);
+        }
+
+        /**
+         * Same as {@link #isVisible(View, View, int, Integer)}, where a min pixel amount of 0 or
+         * less is not set. Doesn't box the pixel amount.
+         */
+        public boolean isVisible(@Nullable final View rootView, @Nullable final View view,
+                final int minPercentageViewed, final int minVisiblePx) {
             // ListView & GridView both call detachFromParent() for views that can be recycled for
             // new data. This is one of the rare instances where a view will have a null parent for
             // an extended period of time and will not be the main window.
@@ -317,7 +321,7 @@ public class VisibilityTracker {
                 return false;
             }
 
-            if (minVisiblePx != null && minVisiblePx > 0) {
+            if (minVisiblePx > 0) {
                 return visibleViewArea >= minVisiblePx;
             }
 
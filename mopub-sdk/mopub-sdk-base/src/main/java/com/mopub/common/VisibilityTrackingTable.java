@@ -0,0 +1,278 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Tracking state of the views of a {@link VisibilityTracker}, in an open-addressing table keyed by
+ * view identity. Entries are kept in parallel arrays so that walking the table during a visibility
+ * check allocates nothing. Views are held weakly, and entries whose view was collected stay in the
+ * table until {@link #removeClearedEntries()} is called.
+ *
+ * Entries are addressed by slot, from 0 to {@link #capacity()}. A slot is empty or cleared when
+ * {@link #getViewAt(int)} returns null.
+ */
+class VisibilityTrackingTable {
+    static final byte STATE_UNKNOWN = 0;
+    static final byte STATE_VISIBLE = 1;
+    static final byte STATE_INVISIBLE = 2;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    @NonNull private WeakReference<View>[] mViews;
+    @NonNull private WeakReference<View>[] mRootViews;
+    @NonNull private int[] mHashes;
+    @NonNull private int[] mMinVisiblePercents;
+    @NonNull private int[] mMaxInvisiblePercents;
+    @NonNull private int[] mMinVisiblePx;
+    @NonNull private long[] mAccessOrders;
+    @NonNull private byte[] mStates;
+    private int mSize;
+
+    VisibilityTrackingTable() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(final int capacity) {
+        mViews = new WeakReference[capacity];
+        mRootViews = new WeakReference[capacity];
+        mHashes = new int[capacity];
+        mMinVisiblePercents = new int[capacity];
+        mMaxInvisiblePercents = new int[capacity];
+        mMinVisiblePx = new int[capacity];
+        mAccessOrders = new long[capacity];
+        mStates = new byte[capacity];
+    }
+
+    /**
+     * @return the number of entries, including those whose view was collected.
+     */
+    int size() {
+        return mSize;
+    }
+
+    int capacity() {
+        return mViews.length;
+    }
+
+    /**
+     * Adds the view or updates its entry. The visibility state of an existing entry is kept.
+     *
+     * @return the slot of the view.
+     */
+    int put(@NonNull final View view, @NonNull final View rootView,
+            final int minVisiblePercent, final int maxInvisiblePercent, final int minVisiblePx,
+            final long accessOrder) {
+        int slot = indexOf(view);
+        if (slot < 0) {
+            if ((mSize + 1) * 4 > capacity() * 3) {
+                removeClearedEntries();
+                if ((mSize + 1) * 4 > capacity() * 3) {
+                    resize(capacity() * 2);
+                }
+            }
+            final int hash = hash(view);
+            slot = findEmptySlot(hash);
+            mViews[slot] = new WeakReference<>(view);
+            mHashes[slot] = hash;
+            mStates[slot] = STATE_UNKNOWN;
+            mSize++;
+        }
+        if (mRootViews[slot] == null || mRootViews[slot].get() != rootView) {
+            mRootViews[slot] = rootView == view ? mViews[slot] : new WeakReference<>(rootView);
+        }
+        mMinVisiblePercents[slot] = minVisiblePercent;
+        mMaxInvisiblePercents[slot] = maxInvisiblePercent;
+        mMinVisiblePx[slot] = minVisiblePx;
+        mAccessOrders[slot] = accessOrder;
+        return slot;
+    }
+
+    /**
+     * @return the slot of the view, or -1 if it isn't tracked.
+     */
+    int indexOf(@Nullable final View view) {
+        if (view == null) {
+            return -1;
+        }
+        final int mask = capacity() - 1;
+        final int hash = hash(view);
+        for (int slot = hash & mask; mViews[slot] != null; slot = (slot + 1) & mask) {
+            if (mHashes[slot] == hash && mViews[slot].get() == view) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    boolean remove(@Nullable final View view) {
+        final int slot = indexOf(view);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Removes the entries of collected views.
+     *
+     * @return the number of entries removed.
+     */
+    int removeClearedEntries() {
+        int removed = 0;
+        for (int slot = 0; slot < capacity(); slot++) {
+            // Removing moves a later entry into the slot, which needs to be checked as well.
+            while (mViews[slot] != null && mViews[slot].get() == null) {
+                removeAt(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the entries last accessed before the given access order.
+     *
+     * @return the number of entries removed.
+     */
+    int removeEntriesAccessedBefore(final long minAccessOrder) {
+        int removed = 0;
+        for (int slot = 0; slot < capacity(); slot++) {
+            while (mViews[slot] != null && mAccessOrders[slot] < minAccessOrder) {
+                removeAt(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(mViews, null);
+        Arrays.fill(mRootViews, null);
+        mSize = 0;
+    }
+
+    @Nullable
+    View getViewAt(final int slot) {
+        final WeakReference<View> view = mViews[slot];
+        return view == null ? null : view.get();
+    }
+
+    /**
+     * @return true if the slot holds an entry whose view was collected.
+     */
+    boolean isClearedAt(final int slot) {
+        final WeakReference<View> view = mViews[slot];
+        return view != null && view.get() == null;
+    }
+
+    @Nullable
+    View getRootViewAt(final int slot) {
+        final WeakReference<View> rootView = mRootViews[slot];
+        return rootView == null ? null : rootView.get();
+    }
+
+    int getMinVisiblePercentAt(final int slot) {
+        return mMinVisiblePercents[slot];
+    }
+
+    int getMaxInvisiblePercentAt(final int slot) {
+        return mMaxInvisiblePercents[slot];
+    }
+
+    int getMinVisiblePxAt(final int slot) {
+        return mMinVisiblePx[slot];
+    }
+
+    byte getStateAt(final int slot) {
+        return mStates[slot];
+    }
+
+    void setStateAt(final int slot, final byte state) {
+        mStates[slot] = state;
+    }
+
+    /**
+     * Removes the entry in the slot, moving back later entries of its probe run so that lookups
+     * never need tombstones.
+     */
+    private void removeAt(final int slot) {
+        final int mask = capacity() - 1;
+        int hole = slot;
+        for (int next = (slot + 1) & mask; mViews[next] != null; next = (next + 1) & mask) {
+            final int home = mHashes[next] & mask;
+            // Move the entry back if the hole lies cyclically between its home slot and its slot.
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                moveSlot(next, hole);
+                hole = next;
+            }
+        }
+        mViews[hole] = null;
+        mRootViews[hole] = null;
+        mSize--;
+    }
+
+    private int findEmptySlot(final int hash) {
+        final int mask = capacity() - 1;
+        int slot = hash & mask;
+        while (mViews[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(final int capacity) {
+        final WeakReference<View>[] views = mViews;
+        final WeakReference<View>[] rootViews = mRootViews;
+        final int[] hashes = mHashes;
+        final int[] minVisiblePercents = mMinVisiblePercents;
+        final int[] maxInvisiblePercents = mMaxInvisiblePercents;
+        final int[] minVisiblePx = mMinVisiblePx;
+        final long[] accessOrders = mAccessOrders;
+        final byte[] states = mStates;
+
+        allocate(capacity);
+        for (int i = 0; i < views.length; i++) {
+            if (views[i] == null) {
+                continue;
+            }
+            final int slot = findEmptySlot(hashes[i]);
+            mViews[slot] = views[i];
+            mRootViews[slot] = rootViews[i];
+            mHashes[slot] = hashes[i];
+            mMinVisiblePercents[slot] = minVisiblePercents[i];
+            mMaxInvisiblePercents[slot] = maxInvisiblePercents[i];
+            mMinVisiblePx[slot] = minVisiblePx[i];
+            mAccessOrders[slot] = accessOrders[i];
+            mStates[slot] = states[i];
+        }
+    }
+
+    private void moveSlot(final int from, final int to) {
+        mViews[to] = mViews[from];
+        mRootViews[to] = mRootViews[from];
+        mHashes[to] = mHashes[from];
+        mMinVisiblePercents[to] = mMinVisiblePercents[from];
+        mMaxInvisiblePercents[to] = mMaxInvisiblePercents[from];
+        mMinVisiblePx[to] = mMinVisiblePx[from];
+        mAccessOrders[to] = mAccessOrders[from];
+        mStates[to] = mStates[from];
+    }
+
+    private static int hash(@NonNull final View view) {
+        // Spread the identity hash so that nearby hashes don't share a probe run.
+        final int h = System.identityHashCode(view) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -63,11 +63,55 @@ data class CreativeExperienceSettings(
                 DEFAULT_MAX_AD_EXPERIENCE_TIME_REWARDED_SECS
             else DEFAULT_MAX_AD_EXPERIENCE_TIME_NON_REWARDED_SECS
 
+        /**
+         * Binary format: [FORMAT_MAGIC], [FORMAT_VERSION], then the fields in declaration order.
+         * Older cache entries were written with Java serialization and are still read.
+         */
+        private const val FORMAT_MAGIC: Byte = 0x43 // 'C'
+        private const val FORMAT_VERSION: Byte = 1
+        private const val SERIALIZATION_MAGIC_HIGH: Byte = 0xAC.toByte()
+        private const val SERIALIZATION_MAGIC_LOW: Byte = 0xED.toByte()
+
         @JvmStatic
         fun fromByteArray(byteArray: ByteArray?): CreativeExperienceSettings? {
             if (byteArray == null) {
                 return null
             }
+            if (isSerializedFormat(byteArray)) {
+                return fromSerializedByteArray(byteArray)
+            }
+            try {
+                DataInputStream(ByteArrayInputStream(byteArray)).use {
+                    if (it.readByte() != FORMAT_MAGIC) {
+                        throw IOException("Unknown creative experience settings format.")
+                    }
+                    val version = it.readByte()
+                    if (version > FORMAT_VERSION) {
+                        throw IOException("Unsupported creative experience settings version $version.")
+                    }
+                    return readSettings(it)
+                }
+            } catch (e: IOException) {
+                MoPubLog.log(
+                    MoPubLog.SdkLogEvent.CUSTOM,
+                    "Unable to parse creative experience settings from byte array.",
+                    e
+                )
+            }
+            return null
+        }
+
+        /**
+         * @return true if [byteArray] was written by an SDK version that cached these settings
+         * with Java serialization, and should be written again with [toByteArray]
+         */
+        @JvmStatic
+        fun isSerializedFormat(byteArray: ByteArray?) =
+            byteArray != null && byteArray.size >= 2 &&
+                    byteArray[0] == SERIALIZATION_MAGIC_HIGH &&
+                    byteArray[1] == SERIALIZATION_MAGIC_LOW
+
+        private fun fromSerializedByteArray(byteArray: ByteArray): CreativeExperienceSettings? {
             try {
                 val byteArrayInputStream = ByteArrayInputStream(byteArray)
                 val objectInput = ObjectInputStream(byteArrayInputStream)
@@ -87,21 +131,82 @@ data class CreativeExperienceSettings(
                     "Unable to cast byte array to CreativeExperienceSettings.",
                     e
                 )
+            } catch (e: ClassNotFoundException) {
+                MoPubLog.log(
+                    MoPubLog.SdkLogEvent.CUSTOM,
+                    "Unable to parse creative experience settings from byte array.",
+                    e
+                )
             }
             return null
         }
+
+        private fun readSettings(input: DataInputStream): CreativeExperienceSettings {
+            val hash = input.readUTF()
+            val maxAdExperienceTimeSecs = input.readInt()
+            val vastSkipThresholdCount = input.readInt()
+            if (vastSkipThresholdCount < 0) {
+                throw IOException("Invalid vast skip threshold count $vastSkipThresholdCount.")
+            }
+            val vastSkipThresholds = ArrayList<VastSkipThreshold>(vastSkipThresholdCount)
+            repeat(vastSkipThresholdCount) {
+                vastSkipThresholds.add(VastSkipThreshold(input.readInt(), input.readInt()))
+            }
+            val endCardDurations = EndCardDurations(
+                input.readInt(),
+                input.readInt(),
+                input.readInt(),
+                input.readInt()
+            )
+            return CreativeExperienceSettings(
+                hash,
+                maxAdExperienceTimeSecs,
+                vastSkipThresholds,
+                endCardDurations,
+                readAdConfig(input),
+                readAdConfig(input)
+            )
+        }
+
+        private fun readAdConfig(input: DataInputStream) =
+            CreativeExperienceAdConfig(
+                if (input.readBoolean()) input.readInt() else null,
+                input.readInt(),
+                input.readBoolean()
+            )
+
+        private fun writeAdConfig(output: DataOutputStream, adConfig: CreativeExperienceAdConfig) {
+            val minTimeUntilNextActionSecs = adConfig.minTimeUntilNextActionSecs
+            output.writeBoolean(minTimeUntilNextActionSecs != null)
+            if (minTimeUntilNextActionSecs != null) {
+                output.writeInt(minTimeUntilNextActionSecs)
+            }
+            output.writeInt(adConfig.countdownTimerDelaySecs)
+            output.writeBoolean(adConfig.showCountdownTimer)
+        }
     }
 
     fun toByteArray(): ByteArray? {
         try {
-            val byteArrayOutputStream = ByteArrayOutputStream()
-            val objectOutputStream = ObjectOutputStream(byteArrayOutputStream)
-            objectOutputStream.writeObject(this@CreativeExperienceSettings)
-            objectOutputStream.flush()
-            val result = byteArrayOutputStream.toByteArray()
-            byteArrayOutputStream.close()
-            objectOutputStream.close()
-            return result
+            val byteArrayOutputStream = ByteArrayOutputStream(128)
+            DataOutputStream(byteArrayOutputStream).use {
+                it.writeByte(FORMAT_MAGIC.toInt())
+                it.writeByte(FORMAT_VERSION.toInt())
+                it.writeUTF(hash)
+                it.writeInt(maxAdExperienceTimeSecs)
+                it.writeInt(vastSkipThresholds.size)
+                for (vastSkipThreshold in vastSkipThresholds) {
+                    it.writeInt(vastSkipThreshold.skipMinSecs)
+                    it.writeInt(vastSkipThreshold.skipAfterSecs)
+                }
+                it.writeInt(endCardDurations.staticEndCardExperienceDurSecs)
+                it.writeInt(endCardDurations.interactiveEndCardExperienceDurSecs)
+                it.writeInt(endCardDurations.minStaticEndCardDurSecs)
+                it.writeInt(endCardDurations.minInteractiveEndCardDurSecs)
+                writeAdConfig(it, mainAdConfig)
+                writeAdConfig(it, endCardConfig)
+            }
+            return byteArrayOutputStream.toByteArray()
         } catch (e: IOException) {
             MoPubLog.log(
                 MoPubLog.SdkLogEvent.CUSTOM,
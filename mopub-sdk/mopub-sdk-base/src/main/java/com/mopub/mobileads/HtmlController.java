@@ -18,17 +18,30 @@ import com.mopub.common.VisibleForTesting;
 public class HtmlController extends MoPubWebViewController {
 
     private BaseHtmlWebView.BaseWebViewListener mHtmlWebViewListener = new HtmlWebViewListener();
+    @Nullable private final WebViewPool<HtmlWebView> mWebViewPool;
 
     public HtmlController(final @NonNull Context context,
                           final @Nullable String dspCreativeId) {
+        this(context, dspCreativeId, null);
+    }
+
+    /**
+     * @param webViewPool Pool to lease the WebView from, or null to construct it.
+     */
+    public HtmlController(final @NonNull Context context,
+                          final @Nullable String dspCreativeId,
+                          final @Nullable WebViewPool<HtmlWebView> webViewPool) {
         super(context, dspCreativeId);
 
+        mWebViewPool = webViewPool;
         mDefaultAdContainer.setLayoutParams(getLayoutParams());
     }
 
     @Override
     protected BaseWebView createWebView() {
-        final HtmlWebView htmlWebView = new HtmlWebView(mContext);
+        final HtmlWebView htmlWebView = (mWebViewPool != null)
+                ? mWebViewPool.lease(mContext)
+                : new HtmlWebView(mContext);
         AdViewController.setShouldHonorServerDimensions(htmlWebView);
         htmlWebView.init(mHtmlWebViewListener, mDspCreativeId);
         return htmlWebView;
@@ -5,6 +5,7 @@
 package com.mopub.mobileads;
 
 import android.content.Context;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
@@ -12,6 +13,7 @@ import androidx.annotation.NonNull;
 
 import com.mopub.common.UrlAction;
 import com.mopub.common.UrlHandler;
+import com.mopub.common.ViewabilityManager;
 
 import java.util.EnumSet;
 
@@ -42,6 +44,16 @@ class HtmlWebViewClient extends WebViewClient {
         mBaseWebViewListener = baseWebViewListener;
     }
 
+    @SuppressWarnings("deprecation") // new method will simply call this one
+    @Override
+    public WebResourceResponse shouldInterceptRequest(@NonNull final WebView view,
+            @NonNull final String url) {
+        if (ViewabilityManager.matchesOmidJsServiceUrl(url)) {
+            return ViewabilityManager.createOmidJsServiceResponse();
+        }
+        return super.shouldInterceptRequest(view, url);
+    }
+
     @Override
     public boolean shouldOverrideUrlLoading(final WebView view, final String url) {
         new UrlHandler.Builder()
@@ -6,6 +6,7 @@ package com.mopub.mobileads;
 
 import android.app.Activity;
 import android.content.Context;
+import android.os.AsyncTask;
 import android.os.Handler;
 import android.util.Patterns;
 import android.view.View;
@@ -20,12 +21,16 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.ViewabilityManager;
 import com.mopub.common.ViewabilityVendor;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.AsyncTasks;
 import com.mopub.mobileads.util.WebViews;
 import com.mopub.mraid.WebViewDebugListener;
 
 import java.lang.ref.WeakReference;
 import java.util.Set;
 
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM_WITH_THROWABLE;
+
 public abstract class MoPubWebViewController {
 
     /**
@@ -49,6 +54,8 @@ public abstract class MoPubWebViewController {
 
     protected boolean mIsPaused = true;
 
+    @Nullable private InjectScriptsTask mInjectScriptsTask;
+
 
     public interface WebViewCacheListener {
         void onReady(final BaseWebView webView);
@@ -72,7 +79,8 @@ public abstract class MoPubWebViewController {
     protected abstract void doFillContent(@NonNull final String htmlData);
 
     /**
-     * Creates a BaseWebView and fills it with data.
+     * Creates a BaseWebView and fills it with data. The viewability scripts are added to the HTML
+     * on a background thread, so the data is loaded once that is done.
      *
      * @param htmlData            The HTML of the ad. This will only be loaded if a cached WebView
      *                            is not found.
@@ -91,13 +99,25 @@ public abstract class MoPubWebViewController {
             listener.onReady(mWebView);
         }
 
-        String htmlDataOm = htmlData;
-        if (!Patterns.WEB_URL.matcher(htmlData).matches()) {
-            htmlDataOm = ViewabilityManager.injectVerificationUrlsIntoHtml(htmlData, viewabilityVendors);
-            htmlDataOm = ViewabilityManager.injectScriptContentIntoHtml(htmlDataOm);
+        mInjectScriptsTask = new InjectScriptsTask(this, viewabilityVendors);
+        try {
+            AsyncTasks.safeExecuteOnExecutor(mInjectScriptsTask, htmlData);
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Failed to add scripts in the background", e);
+            mInjectScriptsTask = null;
+            doFillContent(injectScripts(htmlData, viewabilityVendors));
         }
+    }
 
-        doFillContent(htmlDataOm);
+    @NonNull
+    private static String injectScripts(@NonNull final String htmlData,
+                                        @Nullable final Set<ViewabilityVendor> viewabilityVendors) {
+        if (Patterns.WEB_URL.matcher(htmlData).matches()) {
+            return htmlData;
+        }
+        // The WebViews of HtmlController and MraidController serve the OM SDK script, so it
+        // is referenced by URL instead of being copied into every ad.
+        return ViewabilityManager.injectScriptsIntoHtml(htmlData, viewabilityVendors);
     }
 
     protected abstract ViewGroup.LayoutParams getLayoutParams();
@@ -135,6 +155,11 @@ public abstract class MoPubWebViewController {
     }
 
     protected void destroy() {
+        if (mInjectScriptsTask != null) {
+            mInjectScriptsTask.cancel(true);
+            mInjectScriptsTask = null;
+        }
+
         // Pause the controller to make sure the video gets stopped.
         if (!mIsPaused) {
             pause(true);
@@ -164,6 +189,41 @@ public abstract class MoPubWebViewController {
         return mDefaultAdContainer;
     }
 
+    /**
+     * Adds the viewability scripts to the ad's HTML off the main thread, then fills the WebView
+     * with it on the main thread.
+     */
+    private static class InjectScriptsTask extends AsyncTask<String, Void, String> {
+        @NonNull private final MoPubWebViewController mController;
+        @Nullable private final Set<ViewabilityVendor> mViewabilityVendors;
+
+        InjectScriptsTask(@NonNull final MoPubWebViewController controller,
+                          @Nullable final Set<ViewabilityVendor> viewabilityVendors) {
+            mController = controller;
+            mViewabilityVendors = viewabilityVendors;
+        }
+
+        @Nullable
+        @Override
+        protected String doInBackground(@Nullable final String... htmlData) {
+            if (htmlData == null || htmlData.length == 0 || htmlData[0] == null) {
+                return null;
+            }
+            return injectScripts(htmlData[0], mViewabilityVendors);
+        }
+
+        @Override
+        protected void onPostExecute(@Nullable final String htmlDataOm) {
+            if (mController.mInjectScriptsTask != this) {
+                return;
+            }
+            mController.mInjectScriptsTask = null;
+            if (htmlDataOm != null) {
+                mController.doFillContent(htmlDataOm);
+            }
+        }
+    }
+
     @VisibleForTesting
     public static class ScreenMetricsWaiter {
         public static class WaitRequest {
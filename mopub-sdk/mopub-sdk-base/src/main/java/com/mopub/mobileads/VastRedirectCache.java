@@ -0,0 +1,90 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Short-lived in-memory cache of VAST wrapper redirect responses, keyed by the wrapper's
+ * VASTAdTagURI. Shared by all {@link VastXmlManagerAggregator}s so that the same wrapper chain
+ * requested by several ad units in quick succession is only fetched once.
+ */
+public class VastRedirectCache {
+    static final long TIME_TO_LIVE_MILLIS = 30 * 1000;
+    static final int MAX_ENTRIES = 20;
+
+    private static final Map<String, Entry> sEntries =
+            new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private VastRedirectCache() {
+    }
+
+    /**
+     * @return the cached VAST xml for this url, or null if there is none or it has expired
+     */
+    @Nullable
+    static String get(@NonNull final String url) {
+        Preconditions.checkNotNull(url);
+
+        synchronized (sEntries) {
+            final Entry entry = sEntries.get(url);
+            if (entry == null) {
+                return null;
+            }
+            if (SystemClock.elapsedRealtime() - entry.mCreatedAtMillis > TIME_TO_LIVE_MILLIS) {
+                sEntries.remove(url);
+                return null;
+            }
+            return entry.mVastXml;
+        }
+    }
+
+    static void put(@NonNull final String url, @NonNull final String vastXml) {
+        Preconditions.checkNotNull(url);
+        Preconditions.checkNotNull(vastXml);
+
+        synchronized (sEntries) {
+            sEntries.put(url, new Entry(vastXml, SystemClock.elapsedRealtime()));
+        }
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        synchronized (sEntries) {
+            sEntries.clear();
+        }
+    }
+
+    @VisibleForTesting
+    static int size() {
+        synchronized (sEntries) {
+            return sEntries.size();
+        }
+    }
+
+    private static class Entry {
+        @NonNull final String mVastXml;
+        final long mCreatedAtMillis;
+
+        Entry(@NonNull final String vastXml, final long createdAtMillis) {
+            mVastXml = vastXml;
+            mCreatedAtMillis = createdAtMillis;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import android.content.Intent
 import android.content.res.Configuration
 import android.graphics.drawable.GradientDrawable
 import android.net.Uri
+import android.os.AsyncTask
 import android.os.Build
 import android.os.Bundle
 import android.os.Handler
@@ -25,9 +26,12 @@ import android.webkit.WebViewClient
 import android.widget.RelativeLayout
 
 import androidx.annotation.RequiresApi
+import androidx.annotation.WorkerThread
 import androidx.core.content.ContextCompat
 import androidx.core.view.isVisible
 import androidx.media.AudioAttributesCompat
+import androidx.media2.common.FileMediaItem
+import androidx.media2.common.MediaItem
 import androidx.media2.common.SessionPlayer
 import androidx.media2.common.SessionPlayer.*
 import androidx.media2.common.UriMediaItem
@@ -50,6 +54,7 @@ import com.mopub.mobileads.resource.DrawableConstants.PrivacyInfoIcon.TOP_MARGIN
 import com.mopub.network.TrackingRequest.makeVastTrackingHttpRequest
 
 import java.util.*
+import java.util.concurrent.Executor
 import java.util.concurrent.ExecutorService
 
 import kotlin.collections.HashSet
@@ -72,6 +77,13 @@ class VastVideoViewController(
         private const val VIDEO_PROGRESS_TIMER_CHECKER_DELAY: Long = 50
         private const val VIDEO_COUNTDOWN_UPDATE_INTERVAL: Long = 250
         private const val SEEKER_POSITION_NOT_INITIALIZED = -1
+
+        /**
+         * Opens the video's file descriptor off the main thread.
+         */
+        @VisibleForTesting
+        @JvmStatic
+        var mediaItemExecutor: Executor = AsyncTask.THREAD_POOL_EXECUTOR
     }
 
     private val videoView: VideoView
@@ -80,6 +92,7 @@ class VastVideoViewController(
     val playerCallback = PlayerCallback()
 
     private var seekerPositionOnPause = SEEKER_POSITION_NOT_INITIALIZED
+    private var isDestroyed = false
     private var vastCompanionAdConfigs: MutableSet<VastCompanionAdConfig> = HashSet()
     @VisibleForTesting
     val vastVideoConfig: VastVideoConfig
@@ -357,10 +370,27 @@ class VastVideoViewController(
         tempVideoView.setPlayer(mediaPlayer)
         tempVideoView.setOnTouchListener(clickThroughListener)
 
+        val networkMediaFileUrl = vastVideoConfig.networkMediaFileUrl
+        val diskMediaFileUrl = vastVideoConfig.diskMediaFileUrl
+        mediaItemExecutor.execute {
+            val mediaItem = createMediaItem(networkMediaFileUrl, diskMediaFileUrl)
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                setMediaItemAndPrepare(mediaItem, executor)
+            } else {
+                Handler(Looper.getMainLooper()).post { setMediaItemAndPrepare(mediaItem, executor) }
+            }
+        }
+
+        return tempVideoView
+    }
+
+    private fun setMediaItemAndPrepare(mediaItem: MediaItem, executor: Executor) {
+        if (isDestroyed) {
+            (mediaItem as? FileMediaItem)?.parcelFileDescriptor?.close()
+            return
+        }
         mediaPlayer.run {
-            setMediaItem(
-                UriMediaItem.Builder(Uri.parse(vastVideoConfig.diskMediaFileUrl)).build()
-            )
+            setMediaItem(mediaItem)
             prepare().addListener(
                 Runnable {
                     // Called when media source is ready for playback
@@ -394,8 +424,19 @@ class VastVideoViewController(
                 executor
             )
         }
+    }
 
-        return tempVideoView
+    /**
+     * Hands the player a file descriptor for the cached video when it is in the video cache, so
+     * the video is read straight from the file and stays readable if the cache evicts it during
+     * playback. Otherwise the player streams from the disk path or network url.
+     */
+    @WorkerThread
+    private fun createMediaItem(networkMediaFileUrl: String?, diskMediaFileUrl: String?): MediaItem {
+        VideoCacheService.openFileDescriptor(networkMediaFileUrl)?.let {
+            return FileMediaItem.Builder(it).build()
+        }
+        return UriMediaItem.Builder(Uri.parse(diskMediaFileUrl)).build()
     }
 
     private fun selectVastCompanionAd(): VastCompanionAdConfig? {
@@ -485,6 +526,7 @@ class VastVideoViewController(
     }
 
     override fun onDestroy() {
+        isDestroyed = true
         stopRunnables()
         externalViewabilitySessionManager.endSession()
     }
@@ -29,15 +29,26 @@ import org.w3c.dom.Node;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR_WITH_THROWABLE;
 import static com.mopub.network.TrackingRequest.makeVastTrackingHttpRequest;
@@ -85,6 +96,14 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
     private static final int MINIMUM_COMPANION_AD_HEIGHT = 250;
     private static final int BITRATE_THRESHOLD_HIGH = 1500;
     private static final int BITRATE_THRESHOLD_LOW = 700;
+    private static final int MAX_CONCURRENT_REDIRECTS = 4;
+    private static final long REDIRECT_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Fetches sibling wrapper redirects ahead of the in-order evaluation so that a wrapper chain
+     * that fails does not add its whole latency to the next wrapper's.
+     */
+    private static final ExecutorService sRedirectExecutor = createRedirectExecutor();
 
     @NonNull private final WeakReference<VastXmlManagerAggregatorListener> mVastXmlManagerAggregatorListener;
     private final double mScreenAspectRatio;
@@ -97,6 +116,13 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
      */
     private int mTimesFollowedVastRedirect;
 
+    /**
+     * Redirect urls this has already followed. A url that comes up again in the same chain is
+     * fetched again rather than served from {@link VastRedirectCache}. This is only accessed on
+     * the background thread.
+     */
+    @NonNull private final Set<String> mFollowedRedirectUrls = new HashSet<String>();
+
     VastXmlManagerAggregator(@NonNull final VastXmlManagerAggregatorListener vastXmlManagerAggregatorListener,
                              final double screenAspectRatio,
                              final int screenWidthDp,
@@ -192,6 +218,26 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
             return null;
         }
 
+        final Map<String, Future<String>> prefetchedRedirects =
+                prefetchWrapperRedirects(vastAdXmlManagers);
+        try {
+            return evaluateAdXmlManagers(xmlManager, vastAdXmlManagers, errorTrackers,
+                    prefetchedRedirects);
+        } finally {
+            for (final Future<String> prefetchedRedirect : prefetchedRedirects.values()) {
+                prefetchedRedirect.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Evaluates each Ad element in document order. See {@link #evaluateVastXmlManager}.
+     */
+    @Nullable
+    private VastVideoConfig evaluateAdXmlManagers(@NonNull final VastXmlManager xmlManager,
+            @NonNull final List<VastAdXmlManager> vastAdXmlManagers,
+            @NonNull final List<VastTracker> errorTrackers,
+            @NonNull final Map<String, Future<String>> prefetchedRedirects) {
         for (VastAdXmlManager vastAdXmlManager : vastAdXmlManagers) {
             if (!isValidSequenceNumber(vastAdXmlManager.getSequence())) {
                 continue;
@@ -217,7 +263,7 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
                 final List<VastTracker> wrapperErrorTrackers = new ArrayList<VastTracker>(errorTrackers);
                 wrapperErrorTrackers.addAll(vastWrapperXmlManager.getErrorTrackers());
                 final String vastRedirectXml = evaluateWrapperRedirect(vastWrapperXmlManager,
-                        wrapperErrorTrackers);
+                        wrapperErrorTrackers, prefetchedRedirects);
                 if (vastRedirectXml == null) {
                     continue;
                 }
@@ -277,6 +323,63 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
         return null;
     }
 
+    /**
+     * Starts fetching the redirects of the wrappers after the first one on
+     * {@link #sRedirectExecutor}, within the remaining redirect budget. The first wrapper is
+     * fetched on this thread when it is reached, as before. Urls that are already in
+     * {@link VastRedirectCache} are not prefetched.
+     *
+     * @param vastAdXmlManagers the Ad elements of the current document
+     * @return the pending fetches keyed by redirect url
+     */
+    @NonNull
+    private Map<String, Future<String>> prefetchWrapperRedirects(
+            @NonNull final List<VastAdXmlManager> vastAdXmlManagers) {
+        final Map<String, Future<String>> prefetchedRedirects =
+                new HashMap<String, Future<String>>();
+        int remainingRedirects = MAX_TIMES_TO_FOLLOW_VAST_REDIRECT - mTimesFollowedVastRedirect;
+        String firstVastAdTagUri = null;
+        for (final VastAdXmlManager vastAdXmlManager : vastAdXmlManagers) {
+            if (remainingRedirects <= 0) {
+                break;
+            }
+            if (!isValidSequenceNumber(vastAdXmlManager.getSequence())) {
+                continue;
+            }
+            final VastWrapperXmlManager vastWrapperXmlManager =
+                    vastAdXmlManager.getWrapperXmlManager();
+            if (vastWrapperXmlManager == null) {
+                continue;
+            }
+            final String vastAdTagUri = vastWrapperXmlManager.getVastAdTagURI();
+            if (vastAdTagUri == null) {
+                continue;
+            }
+            remainingRedirects--;
+            if (firstVastAdTagUri == null) {
+                firstVastAdTagUri = vastAdTagUri;
+                continue;
+            }
+            if (firstVastAdTagUri.equals(vastAdTagUri)
+                    || prefetchedRedirects.containsKey(vastAdTagUri)
+                    || isCachedRedirect(vastAdTagUri)) {
+                continue;
+            }
+            try {
+                prefetchedRedirects.put(vastAdTagUri,
+                        sRedirectExecutor.submit(new Callable<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                return fetchVastRedirect(vastAdTagUri);
+                            }
+                        }));
+            } catch (RejectedExecutionException e) {
+                // Fetch it in order when it is reached instead
+            }
+        }
+        return prefetchedRedirects;
+    }
+
     /**
      * Parses and evaluates an InLine element looking for a valid media file. InLine elements are
      * evaluated in order and the first valid media file found is used. If a media file is
@@ -382,11 +485,13 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
      *
      * @param vastWrapperXmlManager used to get the redirect uri
      * @param wrapperErrorTrackers  Error trackers to hit if something goes wrong
+     * @param prefetchedRedirects  Redirects already being fetched, keyed by url
      * @return the next VAST xml String or {@code null} if it could not be resolved
      */
     @Nullable
     private String evaluateWrapperRedirect(@NonNull VastWrapperXmlManager vastWrapperXmlManager,
-            @NonNull List<VastTracker> wrapperErrorTrackers) {
+            @NonNull List<VastTracker> wrapperErrorTrackers,
+            @NonNull Map<String, Future<String>> prefetchedRedirects) {
         final String vastAdTagUri = vastWrapperXmlManager.getVastAdTagURI();
         if (vastAdTagUri == null) {
             return null;
@@ -394,7 +499,8 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
 
         String vastRedirectXml = null;
         try {
-            vastRedirectXml = followVastRedirect(vastAdTagUri);
+            vastRedirectXml = followVastRedirect(vastAdTagUri,
+                    prefetchedRedirects.remove(vastAdTagUri));
         } catch (Exception e) {
             MoPubLog.log(ERROR_WITH_THROWABLE, "Failed to follow VAST redirect", e);
             if (!wrapperErrorTrackers.isEmpty()) {
@@ -783,29 +889,92 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
         }
     }
 
+    /**
+     * Follows a redirect if the redirect budget allows it. The response comes from, in order,
+     * {@link VastRedirectCache}, the prefetch for this url, or a new request.
+     */
     @Nullable
-    private String followVastRedirect(@NonNull final String redirectUrl) throws IOException {
+    private String followVastRedirect(@NonNull final String redirectUrl,
+            @Nullable final Future<String> prefetchedRedirect) throws IOException {
         Preconditions.checkNotNull(redirectUrl);
 
-        if (mTimesFollowedVastRedirect < MAX_TIMES_TO_FOLLOW_VAST_REDIRECT) {
-            mTimesFollowedVastRedirect++;
-
-            HttpURLConnection urlConnection = null;
-            InputStream inputStream = null;
-            try {
-                urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(redirectUrl);
-                inputStream = new BufferedInputStream(urlConnection.getInputStream());
-
-                return Strings.fromStream(inputStream);
-            } finally {
-                Streams.closeStream(inputStream);
-                if (urlConnection != null) {
-                    urlConnection.disconnect();
+        if (mTimesFollowedVastRedirect >= MAX_TIMES_TO_FOLLOW_VAST_REDIRECT) {
+            if (prefetchedRedirect != null) {
+                prefetchedRedirect.cancel(true);
+            }
+            return null;
+        }
+        mTimesFollowedVastRedirect++;
+
+        if (isCachedRedirect(redirectUrl)) {
+            final String cachedVastXml = VastRedirectCache.get(redirectUrl);
+            if (cachedVastXml != null) {
+                mFollowedRedirectUrls.add(redirectUrl);
+                if (prefetchedRedirect != null) {
+                    prefetchedRedirect.cancel(true);
                 }
+                return cachedVastXml;
             }
         }
+        mFollowedRedirectUrls.add(redirectUrl);
 
-        return null;
+        if (prefetchedRedirect == null) {
+            return fetchVastRedirect(redirectUrl);
+        }
+
+        try {
+            return prefetchedRedirect.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while following VAST redirect");
+        }
+    }
+
+    private boolean isCachedRedirect(@NonNull final String redirectUrl) {
+        return !mFollowedRedirectUrls.contains(redirectUrl)
+                && VastRedirectCache.get(redirectUrl) != null;
+    }
+
+    /**
+     * Requests the redirect url and stores the response in {@link VastRedirectCache}. This may
+     * run on {@link #sRedirectExecutor}, so it must not touch instance state.
+     */
+    @Nullable
+    private static String fetchVastRedirect(@NonNull final String redirectUrl) throws IOException {
+        Preconditions.checkNotNull(redirectUrl);
+
+        HttpURLConnection urlConnection = null;
+        InputStream inputStream = null;
+        try {
+            urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(redirectUrl);
+            inputStream = new BufferedInputStream(urlConnection.getInputStream());
+
+            final String vastXml = Strings.fromStream(inputStream);
+            if (vastXml != null) {
+                VastRedirectCache.put(redirectUrl, vastXml);
+            }
+            return vastXml;
+        } finally {
+            Streams.closeStream(inputStream);
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+
+    @NonNull
+    private static ExecutorService createRedirectExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_REDIRECTS,
+                MAX_CONCURRENT_REDIRECTS, REDIRECT_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @VisibleForTesting
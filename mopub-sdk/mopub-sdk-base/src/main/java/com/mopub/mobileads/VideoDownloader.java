@@ -17,27 +17,101 @@ import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.Streams;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR_WITH_THROWABLE;
 
 public class VideoDownloader {
     private static final int MAX_VIDEO_SIZE = 25 * 1024 * 1024; // 25 MiB
+    // Number of times one task resumes after its connection drops before giving up
+    @VisibleForTesting static final int MAX_RESUME_ATTEMPTS = 3;
+    private static final long STALE_PARTIAL_FILE_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final String METADATA_FILE_SUFFIX = ".meta";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
     private static final Deque<WeakReference<VideoDownloaderTask>> sDownloaderTasks =
             new ArrayDeque<WeakReference<VideoDownloaderTask>>();
+    // Listeners of each url being downloaded. Later downloads of the same url join the first one.
+    private static final Map<String, List<VideoDownloaderListener>> sActiveDownloads =
+            new HashMap<String, List<VideoDownloaderListener>>();
+    private static final Object sStatsLock = new Object();
+
+    private static long sDownloads;
+    private static long sSucceeded;
+    private static long sFailed;
+    private static long sResumes;
+    private static long sBytesDownloaded;
+    private static long sDownloadNanos;
 
     interface VideoDownloaderListener {
         void onComplete(boolean success);
     }
 
+    /**
+     * Download counters since the process started.
+     */
+    public static class Stats {
+        public final long downloads;
+        public final long succeeded;
+        public final long failed;
+        public final long resumes;
+        public final long bytesDownloaded;
+        public final long bytesPerSecond;
+
+        Stats(final long downloads, final long succeeded, final long failed, final long resumes,
+                final long bytesDownloaded, final long bytesPerSecond) {
+            this.downloads = downloads;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.resumes = resumes;
+            this.bytesDownloaded = bytesDownloaded;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+    }
+
     private VideoDownloader() {}
 
+    @NonNull
+    public static Stats getStats() {
+        synchronized (sStatsLock) {
+            final long bytesPerSecond = sDownloadNanos > 0
+                    ? sBytesDownloaded * TimeUnit.SECONDS.toNanos(1) / sDownloadNanos
+                    : 0;
+            return new Stats(sDownloads, sSucceeded, sFailed, sResumes, sBytesDownloaded,
+                    bytesPerSecond);
+        }
+    }
+
+    /**
+     * Downloads the video into {@link VideoCacheService}. If the download is interrupted, the
+     * bytes already on disk are kept and the next download of the same url resumes from there
+     * with an HTTP Range request. A download of a url that is already downloading does not start
+     * another task: its listener is called with the result of the download in progress.
+     *
+     * @param url      the video url
+     * @param listener notified when the download completes or fails
+     */
     public static void cache(@Nullable final String url,
             @NonNull final VideoDownloaderListener listener) {
         Preconditions.checkNotNull(listener);
@@ -48,11 +122,42 @@ public class VideoDownloader {
             return;
         }
 
-        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(listener);
+        synchronized (sActiveDownloads) {
+            final List<VideoDownloaderListener> activeListeners = sActiveDownloads.get(url);
+            if (activeListeners != null) {
+                activeListeners.add(listener);
+                return;
+            }
+            final List<VideoDownloaderListener> listeners =
+                    new ArrayList<VideoDownloaderListener>();
+            listeners.add(listener);
+            sActiveDownloads.put(url, listeners);
+        }
+
+        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(
+                new VideoDownloaderListener() {
+                    @Override
+                    public void onComplete(final boolean success) {
+                        notifyListeners(url, success);
+                    }
+                });
         try {
             AsyncTasks.safeExecuteOnExecutor(videoDownloaderTask, url);
         } catch (Exception e) {
-            listener.onComplete(false);
+            notifyListeners(url, false);
+        }
+    }
+
+    private static void notifyListeners(@NonNull final String url, final boolean success) {
+        final List<VideoDownloaderListener> listeners;
+        synchronized (sActiveDownloads) {
+            listeners = sActiveDownloads.remove(url);
+        }
+        if (listeners == null) {
+            return;
+        }
+        for (final VideoDownloaderListener listener : listeners) {
+            listener.onComplete(success);
         }
     }
 
@@ -114,40 +219,187 @@ public class VideoDownloader {
             }
 
             final String videoUrl = params[0];
-            HttpURLConnection urlConnection = null;
-            InputStream inputStream = null;
-            try {
-                urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(videoUrl);
-                inputStream = new BufferedInputStream(urlConnection.getInputStream());
-
-                // Check status code range
-                int statusCode = urlConnection.getResponseCode();
-                if (statusCode < HttpURLConnection.HTTP_OK
-                        || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
-                    MoPubLog.log(CUSTOM, "VideoDownloader encountered unexpected statusCode: " +
-                            statusCode);
-                    return false;
-                }
+            final File partialFile = VideoCacheService.getPartialFile(videoUrl);
+            if (partialFile == null) {
+                MoPubLog.log(CUSTOM, "VideoDownloader could not find the video cache.");
+                return false;
+            }
 
-                // Check video size below maximum
-                int contentLength = urlConnection.getContentLength();
-                if (contentLength > MAX_VIDEO_SIZE) {
-                    MoPubLog.log(CUSTOM, String.format(
-                            "VideoDownloader encountered video larger than disk cap. " +
-                                    "(%d bytes / %d maximum).",
-                            contentLength,
-                            MAX_VIDEO_SIZE));
-                    return false;
-                }
+            if (VideoCacheService.containsKey(videoUrl)) {
+                MoPubLog.log(CUSTOM, "VideoDownloader found the video cached by another " +
+                        "download.");
+                return true;
+            }
+            return downloadAndCache(videoUrl, partialFile);
+        }
 
-                return VideoCacheService.put(videoUrl, inputStream);
+        private boolean downloadAndCache(@NonNull final String videoUrl,
+                @NonNull final File partialFile) {
+            synchronized (sStatsLock) {
+                sDownloads++;
+            }
+            final long startNanos = System.nanoTime();
+            boolean success = false;
+            try {
+                VideoCacheService.deleteStalePartialFiles(STALE_PARTIAL_FILE_AGE_MILLIS);
+                success = download(videoUrl, partialFile)
+                        && VideoCacheService.putFile(videoUrl, partialFile);
+                if (success) {
+                    deleteQuietly(getMetadataFile(partialFile));
+                }
+                return success;
             } catch (Exception e) {
                 MoPubLog.log(ERROR_WITH_THROWABLE, "VideoDownloader task threw an internal exception.", e);
                 return false;
             } finally {
-                Streams.closeStream(inputStream);
-                if (urlConnection != null) {
-                    urlConnection.disconnect();
+                synchronized (sStatsLock) {
+                    sDownloadNanos += System.nanoTime() - startNanos;
+                    if (success) {
+                        sSucceeded++;
+                    } else {
+                        sFailed++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Downloads the video into {@code partialFile}, resuming from the bytes already in it
+         * when the server supports Range requests for the same version of the file. Without an
+         * ETag or Last-Modified validator there is no way to tell that the file is unchanged, so
+         * the download starts over instead.
+         *
+         * @return true if the whole video is in {@code partialFile}
+         */
+        private boolean download(@NonNull final String videoUrl, @NonNull final File partialFile)
+                throws IOException {
+            final File metadataFile = getMetadataFile(partialFile);
+            PartialMetadata metadata = PartialMetadata.read(metadataFile);
+            if (metadata == null) {
+                deleteQuietly(partialFile);
+            }
+
+            int resumeAttempts = 0;
+            while (true) {
+                final long offset = partialFile.length();
+                final boolean canResume = metadata != null && metadata.mValidator != null;
+                if (canResume && metadata.mTotalLength > 0 && offset == metadata.mTotalLength) {
+                    return true;
+                }
+
+                HttpURLConnection urlConnection = null;
+                InputStream inputStream = null;
+                OutputStream outputStream = null;
+                try {
+                    urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(videoUrl);
+                    final boolean isResuming = canResume && offset > 0;
+                    if (isResuming) {
+                        urlConnection.setRequestProperty("Range", "bytes=" + offset + "-");
+                        urlConnection.setRequestProperty("If-Range", metadata.mValidator);
+                    }
+
+                    final int statusCode = urlConnection.getResponseCode();
+                    if (statusCode == HTTP_RANGE_NOT_SATISFIABLE) {
+                        // The partial file does not match the file on the server. Start over.
+                        MoPubLog.log(CUSTOM, "VideoDownloader could not resume the download.");
+                        deleteQuietly(partialFile);
+                        deleteQuietly(metadataFile);
+                        metadata = null;
+                        if (++resumeAttempts > MAX_RESUME_ATTEMPTS) {
+                            return false;
+                        }
+                        continue;
+                    }
+
+                    // Check status code range
+                    if (statusCode < HttpURLConnection.HTTP_OK
+                            || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                        MoPubLog.log(CUSTOM, "VideoDownloader encountered unexpected statusCode: " +
+                                statusCode);
+                        return false;
+                    }
+
+                    final boolean isAppending = isResuming
+                            && statusCode == HttpURLConnection.HTTP_PARTIAL
+                            && getContentRangeStart(urlConnection) == offset;
+                    if (isAppending) {
+                        synchronized (sStatsLock) {
+                            sResumes++;
+                        }
+                    } else {
+                        if (statusCode == HttpURLConnection.HTTP_PARTIAL) {
+                            // A range we did not ask for. Start over without one.
+                            MoPubLog.log(CUSTOM, "VideoDownloader got an unexpected range.");
+                            deleteQuietly(partialFile);
+                            deleteQuietly(metadataFile);
+                            metadata = null;
+                            if (++resumeAttempts > MAX_RESUME_ATTEMPTS) {
+                                return false;
+                            }
+                            continue;
+                        }
+                        // The server sent the whole file, possibly a newer version of it
+                        metadata = new PartialMetadata(getValidator(urlConnection),
+                                urlConnection.getContentLength());
+                        deleteQuietly(partialFile);
+                        metadata.write(metadataFile);
+                    }
+
+                    // Check video size below maximum
+                    if (metadata.mTotalLength > MAX_VIDEO_SIZE) {
+                        MoPubLog.log(CUSTOM, String.format(
+                                "VideoDownloader encountered video larger than disk cap. " +
+                                        "(%d bytes / %d maximum).",
+                                metadata.mTotalLength,
+                                MAX_VIDEO_SIZE));
+                        deleteQuietly(partialFile);
+                        deleteQuietly(metadataFile);
+                        return false;
+                    }
+
+                    inputStream = urlConnection.getInputStream();
+                    outputStream = new FileOutputStream(partialFile, isAppending);
+                    long bytesOnDisk = isAppending ? offset : 0;
+                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    int length;
+                    while ((length = inputStream.read(buffer)) != -1) {
+                        if (isCancelled()) {
+                            return false;
+                        }
+                        bytesOnDisk += length;
+                        if (bytesOnDisk > MAX_VIDEO_SIZE) {
+                            MoPubLog.log(CUSTOM, "VideoDownloader encountered video larger " +
+                                    "than disk cap.");
+                            Streams.closeStream(outputStream);
+                            deleteQuietly(partialFile);
+                            deleteQuietly(metadataFile);
+                            return false;
+                        }
+                        outputStream.write(buffer, 0, length);
+                        synchronized (sStatsLock) {
+                            sBytesDownloaded += length;
+                        }
+                    }
+
+                    if (metadata.mTotalLength > 0 && bytesOnDisk < metadata.mTotalLength) {
+                        throw new EOFException("VideoDownloader connection closed after "
+                                + bytesOnDisk + " of " + metadata.mTotalLength + " bytes.");
+                    }
+                    return true;
+                } catch (IOException e) {
+                    // Keep what is on disk so that this or a later download can resume
+                    if (metadata == null || isCancelled()
+                            || ++resumeAttempts > MAX_RESUME_ATTEMPTS) {
+                        throw e;
+                    }
+                    MoPubLog.log(CUSTOM, "VideoDownloader connection failed, resuming. "
+                            + e.getMessage());
+                } finally {
+                    Streams.closeStream(inputStream);
+                    Streams.closeStream(outputStream);
+                    if (urlConnection != null) {
+                        urlConnection.disconnect();
+                    }
                 }
             }
         }
@@ -177,6 +429,111 @@ public class VideoDownloader {
         }
     }
 
+    /**
+     * What is needed to resume a partial download: the validator to send in If-Range, so the
+     * server only continues the same version of the file, and the full length of the file.
+     */
+    private static class PartialMetadata {
+        @Nullable final String mValidator;
+        final long mTotalLength;
+
+        PartialMetadata(@Nullable final String validator, final long totalLength) {
+            mValidator = validator;
+            mTotalLength = totalLength;
+        }
+
+        @Nullable
+        static PartialMetadata read(@NonNull final File file) {
+            if (!file.exists()) {
+                return null;
+            }
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                        "UTF-8"));
+                final String validator = reader.readLine();
+                final String totalLength = reader.readLine();
+                if (validator == null || totalLength == null) {
+                    return null;
+                }
+                return new PartialMetadata(validator.isEmpty() ? null : validator,
+                        Long.parseLong(totalLength));
+            } catch (IOException | NumberFormatException e) {
+                return null;
+            } finally {
+                Streams.closeStream(reader);
+            }
+        }
+
+        void write(@NonNull final File file) throws IOException {
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                writer.write((mValidator == null ? "" : mValidator) + "\n" + mTotalLength + "\n");
+            } finally {
+                Streams.closeStream(writer);
+            }
+        }
+    }
+
+    @NonNull
+    private static File getMetadataFile(@NonNull final File partialFile) {
+        return new File(partialFile.getPath() + METADATA_FILE_SUFFIX);
+    }
+
+    /**
+     * Prefers the ETag and falls back to Last-Modified, which are the two validators If-Range
+     * accepts.
+     */
+    @Nullable
+    private static String getValidator(@NonNull final HttpURLConnection urlConnection) {
+        final String eTag = urlConnection.getHeaderField("ETag");
+        if (eTag != null && !eTag.startsWith("W/")) {
+            return eTag;
+        }
+        return urlConnection.getHeaderField("Last-Modified");
+    }
+
+    /**
+     * @return the first byte position from a "Content-Range: bytes start-end/total" header, or
+     * -1 if it is missing or malformed
+     */
+    @VisibleForTesting
+    static long getContentRangeStart(@NonNull final HttpURLConnection urlConnection) {
+        final String contentRange = urlConnection.getHeaderField("Content-Range");
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        final int dash = contentRange.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void deleteQuietly(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            MoPubLog.log(CUSTOM, "VideoDownloader could not delete " + file.getName());
+        }
+    }
+
+    @Deprecated
+    @VisibleForTesting
+    static void resetStats() {
+        synchronized (sStatsLock) {
+            sDownloads = 0;
+            sSucceeded = 0;
+            sFailed = 0;
+            sResumes = 0;
+            sBytesDownloaded = 0;
+            sDownloadNanos = 0;
+        }
+    }
+
     @Deprecated
     @VisibleForTesting
     public static Deque<WeakReference<VideoDownloaderTask>> getDownloaderTasks() {
@@ -187,5 +544,8 @@ public class VideoDownloader {
     @VisibleForTesting
     public static void clearDownloaderTasks() {
         sDownloaderTasks.clear();
+        synchronized (sActiveDownloads) {
+            sActiveDownloads.clear();
+        }
     }
 }
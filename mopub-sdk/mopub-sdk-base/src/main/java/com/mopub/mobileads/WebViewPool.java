@@ -0,0 +1,240 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.UiThread;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.mraid.MraidBridge.MraidWebView;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps a few WebViews that have not been used yet, so that showing an ad does not have to wait
+ * for one to be constructed. The pool is refilled one WebView at a time while the main thread is
+ * idle, and emptied when the system runs low on memory.
+ *
+ * WebViews that have shown an ad are destroyed as before rather than returned to the pool, since
+ * the creative's scripts and the state of the WebView subclasses can't be reliably reset.
+ *
+ * @param <T> The kind of WebView held by the pool.
+ */
+public class WebViewPool<T extends BaseWebView> implements ComponentCallbacks2 {
+
+    /**
+     * Creates the WebViews held by a pool.
+     */
+    public interface WebViewFactory<T extends BaseWebView> {
+        @NonNull
+        T create(@NonNull Context context);
+    }
+
+    @VisibleForTesting
+    static final int DEFAULT_MAX_SIZE = 2;
+
+    @NonNull
+    private static final WebViewPool<HtmlWebView> sHtmlWebViewPool =
+            new WebViewPool<>(HtmlWebView::new, DEFAULT_MAX_SIZE);
+    @NonNull
+    private static final WebViewPool<MraidWebView> sMraidWebViewPool =
+            new WebViewPool<>(MraidWebView::new, DEFAULT_MAX_SIZE);
+
+    @NonNull private final WebViewFactory<T> mWebViewFactory;
+    private final int mMaxSize;
+    @NonNull private final ArrayDeque<T> mIdleWebViews;
+    @NonNull private final MessageQueue.IdleHandler mWarmUpIdleHandler;
+
+    private Context mApplicationContext;
+    private boolean mIsWarmUpScheduled;
+
+    // Instrumentation
+    private int mLeaseCount;
+    private int mHitCount;
+    private int mConstructedCount;
+    private int mEvictedCount;
+    private long mConstructionNanos;
+
+    @VisibleForTesting
+    WebViewPool(@NonNull final WebViewFactory<T> webViewFactory, final int maxSize) {
+        Preconditions.checkNotNull(webViewFactory);
+        Preconditions.checkArgument(maxSize > 0);
+
+        mWebViewFactory = webViewFactory;
+        mMaxSize = maxSize;
+        mIdleWebViews = new ArrayDeque<>(maxSize);
+        mWarmUpIdleHandler = new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                mIsWarmUpScheduled = warmUpOne();
+                return mIsWarmUpScheduled;
+            }
+        };
+    }
+
+    @NonNull
+    public static WebViewPool<HtmlWebView> getHtmlWebViewPool() {
+        return sHtmlWebViewPool;
+    }
+
+    @NonNull
+    public static WebViewPool<MraidWebView> getMraidWebViewPool() {
+        return sMraidWebViewPool;
+    }
+
+    /**
+     * Takes a WebView from the pool, or constructs one if the pool is empty, and schedules the
+     * pool to be refilled.
+     *
+     * @param context Any context. WebViews are always created with the application context.
+     * @return A WebView that has not been used before.
+     */
+    @UiThread
+    @NonNull
+    public T lease(@NonNull final Context context) {
+        Preconditions.checkUiThread();
+        Preconditions.checkNotNull(context);
+
+        mLeaseCount++;
+        T webView = mIdleWebViews.pollFirst();
+        if (webView != null) {
+            mHitCount++;
+        } else {
+            webView = construct(context.getApplicationContext());
+        }
+        warmUp(context);
+        return webView;
+    }
+
+    /**
+     * Schedules the pool to be filled the next times the main thread is idle.
+     */
+    @UiThread
+    public void warmUp(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        if (mApplicationContext == null) {
+            mApplicationContext = context.getApplicationContext();
+            mApplicationContext.registerComponentCallbacks(this);
+        }
+        if (mIsWarmUpScheduled || mIdleWebViews.size() >= mMaxSize) {
+            return;
+        }
+        mIsWarmUpScheduled = true;
+        Looper.myQueue().addIdleHandler(mWarmUpIdleHandler);
+    }
+
+    /**
+     * Constructs one WebView for the pool.
+     *
+     * @return Whether the pool still has room for more.
+     */
+    @VisibleForTesting
+    boolean warmUpOne() {
+        if (mApplicationContext != null && mIdleWebViews.size() < mMaxSize) {
+            mIdleWebViews.addLast(construct(mApplicationContext));
+        }
+        return mIdleWebViews.size() < mMaxSize;
+    }
+
+    /**
+     * Destroys all WebViews in the pool. The pool is refilled after the next lease.
+     */
+    @UiThread
+    public void evictAll() {
+        if (mIsWarmUpScheduled) {
+            Looper.myQueue().removeIdleHandler(mWarmUpIdleHandler);
+            mIsWarmUpScheduled = false;
+        }
+        T webView;
+        while ((webView = mIdleWebViews.pollFirst()) != null) {
+            webView.destroy();
+            mEvictedCount++;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            evictAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull final Configuration newConfig) {
+    }
+
+    @VisibleForTesting
+    int getIdleCount() {
+        return mIdleWebViews.size();
+    }
+
+    /**
+     * @return How often leases were served from the pool and how much construction time that saved.
+     */
+    @NonNull
+    public Stats getStats() {
+        final long averageConstructionNanos = mConstructedCount > 0
+                ? mConstructionNanos / mConstructedCount
+                : 0;
+        return new Stats(mLeaseCount, mHitCount, mConstructedCount, mEvictedCount,
+                averageConstructionNanos / 1000, mHitCount * averageConstructionNanos / 1000);
+    }
+
+    @NonNull
+    private T construct(@NonNull final Context applicationContext) {
+        final long startNanos = System.nanoTime();
+        final T webView = mWebViewFactory.create(applicationContext);
+        mConstructionNanos += System.nanoTime() - startNanos;
+        mConstructedCount++;
+        return webView;
+    }
+
+    /**
+     * Lease counts of a pool, to compare against constructing every WebView on demand.
+     */
+    public static class Stats {
+        public final int leaseCount;
+        // Leases served from the pool
+        public final int hitCount;
+        // WebViews constructed, whether on demand or to fill the pool
+        public final int constructedCount;
+        // WebViews destroyed unused because of memory pressure
+        public final int evictedCount;
+        public final long averageConstructionMicros;
+        // Construction time the leases served from the pool did not spend
+        public final long savedConstructionMicros;
+
+        Stats(final int leaseCount, final int hitCount, final int constructedCount,
+                final int evictedCount, final long averageConstructionMicros,
+                final long savedConstructionMicros) {
+            this.leaseCount = leaseCount;
+            this.hitCount = hitCount;
+            this.constructedCount = constructedCount;
+            this.evictedCount = evictedCount;
+            this.averageConstructionMicros = averageConstructionMicros;
+            this.savedConstructionMicros = savedConstructionMicros;
+        }
+
+        public double getHitRate() {
+            return leaseCount > 0 ? (double) hitCount / leaseCount : 0;
+        }
+    }
+}
@@ -11,6 +11,8 @@ import androidx.annotation.Nullable;
 
 import com.mopub.common.VisibleForTesting;
 import com.mopub.mobileads.HtmlController;
+import com.mopub.mobileads.HtmlWebView;
+import com.mopub.mobileads.WebViewPool;
 
 public class HtmlControllerFactory {
     protected static HtmlControllerFactory instance = new HtmlControllerFactory();
@@ -27,6 +29,10 @@ public class HtmlControllerFactory {
 
     protected HtmlController internalCreate(@NonNull final Context context,
                                             @Nullable final String dspCreativeId) {
-        return new HtmlController(context, dspCreativeId);
+        // Start filling the pool while the ad is being set up, so that its WebView is ready by
+        // the time the next ad needs one.
+        final WebViewPool<HtmlWebView> webViewPool = WebViewPool.getHtmlWebViewPool();
+        webViewPool.warmUp(context);
+        return new HtmlController(context, dspCreativeId, webViewPool);
     }
 }
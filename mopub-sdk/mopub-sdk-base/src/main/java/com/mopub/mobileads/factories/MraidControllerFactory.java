@@ -9,6 +9,8 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 
 import com.mopub.common.VisibleForTesting;
+import com.mopub.mobileads.WebViewPool;
+import com.mopub.mraid.MraidBridge.MraidWebView;
 import com.mopub.mraid.MraidController;
 import com.mopub.mraid.PlacementType;
 
@@ -29,6 +31,10 @@ public class MraidControllerFactory {
     protected MraidController internalCreate(@NonNull final Context context,
                                              @NonNull final String dspCreativeId,
                                              @NonNull final PlacementType placementType) {
-        return new MraidController(context, dspCreativeId, placementType);
+        // Start filling the pool while the ad is being set up, so that its WebView is ready by
+        // the time the next ad needs one.
+        final WebViewPool<MraidWebView> webViewPool = WebViewPool.getMraidWebViewPool();
+        webViewPool.warmUp(context);
+        return new MraidController(context, dspCreativeId, placementType, webViewPool);
     }
 }
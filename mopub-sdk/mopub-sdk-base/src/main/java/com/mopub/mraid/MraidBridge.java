@@ -256,6 +256,7 @@ public class MraidBridge {
                 }
             };
             mVisibilityTracker.setVisibilityTrackerListener(visibilityTrackerListener);
+            mVisibilityTracker.setReportTransitionsOnly(true);
         }
 
         void setVisibilityChangedListener(@Nullable OnVisibilityChangedListener listener) {
@@ -46,6 +46,7 @@ import com.mopub.mobileads.BaseWebView;
 import com.mopub.mobileads.BaseWebViewViewability;
 import com.mopub.mobileads.MoPubErrorCode;
 import com.mopub.mobileads.MoPubWebViewController;
+import com.mopub.mobileads.WebViewPool;
 import com.mopub.mobileads.base.R;
 import com.mopub.mobileads.util.WebViews;
 import com.mopub.mraid.MraidBridge.MraidBridgeListener;
@@ -84,6 +85,9 @@ public class MraidController extends MoPubWebViewController {
     // are shown in a separate web view
     @Nullable private MraidWebView mTwoPartWebView;
 
+    // Pool both web views are leased from, or null to construct them
+    @Nullable private WebViewPool<MraidWebView> mWebViewPool;
+
     // A bridge to handle all interactions with the WebView HTML and Javascript.
     @NonNull private final MraidBridge mMraidBridge;
     @NonNull private final MraidBridge mTwoPartBridge;
@@ -136,6 +140,17 @@ public class MraidController extends MoPubWebViewController {
                 new ScreenMetricsWaiter());
     }
 
+    /**
+     * @param webViewPool Pool to lease WebViews from, or null to construct them.
+     */
+    public MraidController(final @NonNull Context context,
+                           final @Nullable String dspCreativeId,
+                           final @NonNull PlacementType placementType,
+                           final @Nullable WebViewPool<MraidWebView> webViewPool) {
+        this(context, dspCreativeId, placementType);
+        mWebViewPool = webViewPool;
+    }
+
     @VisibleForTesting
     MraidController(@NonNull Context context, @Nullable String dspCreativeId,
             @NonNull PlacementType placementType,
@@ -884,7 +899,9 @@ public class MraidController extends MoPubWebViewController {
 
     @Override
     public BaseWebView createWebView() {
-        return new MraidWebView(mContext);
+        return (mWebViewPool != null)
+                ? mWebViewPool.lease(mContext)
+                : new MraidWebView(mContext);
     }
 
     @Override
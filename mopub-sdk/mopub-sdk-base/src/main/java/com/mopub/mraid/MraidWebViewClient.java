@@ -11,6 +11,7 @@ import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
+import com.mopub.common.ViewabilityManager;
 import com.mopub.mobileads.resource.MraidJavascript;
 
 import java.io.ByteArrayInputStream;
@@ -18,7 +19,8 @@ import java.io.InputStream;
 import java.util.Locale;
 
 /**
- * Handles injecting the MRAID javascript when encountering mraid.js urls
+ * Handles injecting the MRAID javascript when encountering mraid.js urls, and serves the OM SDK
+ * script referenced by {@link ViewabilityManager#injectScriptsIntoHtml}.
  */
 public class MraidWebViewClient extends WebViewClient {
 
@@ -26,12 +28,17 @@ public class MraidWebViewClient extends WebViewClient {
     private static final String MRAID_INJECTION_JAVASCRIPT = "javascript:"
             + MraidJavascript.JAVASCRIPT_SOURCE;
 
+    // Encoded once, the first time a WebView requests mraid.js
+    private static volatile byte[] sMraidInjectionBytes;
+
     @SuppressWarnings("deprecation") // new method will simply call this one
     @Override
     public WebResourceResponse shouldInterceptRequest(@NonNull final WebView view,
             @NonNull final String url) {
         if (matchesInjectionUrl(url)) {
             return createMraidInjectionResponse();
+        } else if (ViewabilityManager.matchesOmidJsServiceUrl(url)) {
+            return ViewabilityManager.createOmidJsServiceResponse();
         } else {
             return super.shouldInterceptRequest(view, url);
         }
@@ -44,7 +51,12 @@ public class MraidWebViewClient extends WebViewClient {
     }
 
     private WebResourceResponse createMraidInjectionResponse() {
-        InputStream data = new ByteArrayInputStream(MRAID_INJECTION_JAVASCRIPT.getBytes());
+        byte[] mraidInjectionBytes = sMraidInjectionBytes;
+        if (mraidInjectionBytes == null) {
+            mraidInjectionBytes = MRAID_INJECTION_JAVASCRIPT.getBytes();
+            sMraidInjectionBytes = mraidInjectionBytes;
+        }
+        InputStream data = new ByteArrayInputStream(mraidInjectionBytes);
         return new WebResourceResponse("text/javascript", "UTF-8", data);
     }
 }
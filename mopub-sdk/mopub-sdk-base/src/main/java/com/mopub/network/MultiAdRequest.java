@@ -58,6 +58,7 @@ public class MultiAdRequest extends MoPubRequest<MultiAdResponse> {
         mContext = context.getApplicationContext();
 
         setShouldCache(false);
+        setPriority(Priority.AD_REQUEST);
 
         final PersonalInfoManager personalInfoManager = MoPub.getPersonalInformationManager();
         if (personalInfoManager != null) {
@@ -32,10 +32,10 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import static com.mopub.common.DataKeys.ADM_KEY;
@@ -64,6 +64,14 @@ public class MultiAdResponse implements Iterator<AdResponse> {
 
     private static final String EMPTY_JSON_ARRAY = "[]";
 
+    /**
+     * When enabled, the response body is read with {@link MultiAdResponseStreamParser} so that
+     * ad response items are only read from the body when the waterfall reaches them. Otherwise
+     * the whole body is parsed into a JSONObject up front. Either way, items are only turned into
+     * {@link AdResponse}s when the waterfall reaches them.
+     */
+    private static volatile boolean sStreamingParseEnabled = true;
+
     @NonNull
     private final Iterator<AdResponse> mResponseIterator;
 
@@ -93,9 +101,16 @@ public class MultiAdResponse implements Iterator<AdResponse> {
                            @Nullable final String adUnitId) throws JSONException, MoPubNetworkError {
 
         // Response Body encoding / decoding
-        final String responseBody = parseStringBody(networkResponse);
-
-        JSONObject jsonObject = new JSONObject(responseBody);
+        final JSONObject jsonObject;
+        final MultiAdResponseStreamParser streamParser;
+        if (sStreamingParseEnabled) {
+            streamParser = new MultiAdResponseStreamParser(networkResponse.getData(),
+                    MoPubNetworkUtils.parseCharsetFromContentType(networkResponse.getHeaders()));
+            jsonObject = streamParser.readTopLevelFields(ResponseHeader.AD_RESPONSES.getKey());
+        } else {
+            streamParser = null;
+            jsonObject = new JSONObject(parseStringBody(networkResponse));
+        }
         mFailUrl = jsonObject.optString(ResponseHeader.FAIL_URL.getKey());
         final String adUnitFormat = jsonObject.optString(ResponseHeader.ADUNIT_FORMAT.getKey());
         String requestId = jsonObject.optString(ResponseHeader.REQUEST_ID.getKey());
@@ -139,66 +154,48 @@ public class MultiAdResponse implements Iterator<AdResponse> {
 
         JSONObject creativeExperienceSettings = extractJsonObjectHeader(jsonObject,
                 ResponseHeader.CREATIVE_EXPERIENCE_SETTINGS);
-        
-        JSONArray adResponses = jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey());
-        int ADS_PER_RESPONSE = 3;
-        List<AdResponse> list = new ArrayList<>(ADS_PER_RESPONSE);
-        AdResponse adResponseClear = null;
-        for (int i = 0; i < adResponses.length(); i++) {
-            try {
-                JSONObject item = adResponses.getJSONObject(i);
-                AdResponse singleAdResponse = parseSingleAdResponse(appContext,
-                        networkResponse,
-                        item,
-                        adUnitId,
-                        adFormat,
-                        adUnitFormat,
-                        requestId,
-                        isRewarded,
-                        creativeExperienceSettings);
-                if (!AdType.CLEAR.equals(singleAdResponse.getAdType())) {
-                    list.add(singleAdResponse);
-                    continue;
-                }
 
-                // received message 'clear'
-                mFailUrl = "";
-                adResponseClear = singleAdResponse;
-                if (extractWarmup(item)) {
-                    throw new MoPubNetworkError.Builder("Server is preparing this Ad Unit.")
-                            .reason(MoPubNetworkError.Reason.WARMING_UP)
-                            .refreshTimeMillis(adResponseClear.getRefreshTimeMillis())
-                            .build();
-                }
-                break; // we don't process items beyond 'clear'
-
-            } catch (JSONException ex) {
-                // don't break everything because of single item parsing error
-                MoPubLog.log(CUSTOM, "Invalid response item. Body: " + responseBody);
-            } catch (MoPubNetworkError ex) {
-                if (ex.getReason() == MoPubNetworkError.Reason.WARMING_UP) {
-                    throw ex;
-                }
-                MoPubLog.log(CUSTOM, "Invalid response item. Error: " + ex.getReason());
-            } catch (Exception ex) {
-                MoPubLog.log(CUSTOM, "Unexpected error parsing response item. " + ex.getMessage());
-            }
+        final Iterator<JSONObject> items;
+        if (streamParser != null) {
+            items = streamParser.readArrayElements(ResponseHeader.AD_RESPONSES.getKey());
+        } else {
+            items = new JSONArrayItemIterator(
+                    jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey()));
         }
-        mResponseIterator = list.iterator();
+
+        final LazyAdResponseIterator responseIterator = new LazyAdResponseIterator(
+                appContext,
+                networkResponse,
+                items,
+                adUnitId,
+                adFormat,
+                adUnitFormat,
+                requestId,
+                isRewarded,
+                creativeExperienceSettings);
+        // Only parse up to the first valid item here so that warm up and no fill are still
+        // reported by the constructor. The rest are parsed as the waterfall reaches them.
+        responseIterator.advance(true);
+        mResponseIterator = responseIterator;
 
         // validate if there is any valid ad response
         if (!mResponseIterator.hasNext()) {
-            Integer refreshTimeMilliseconds = Constants.THIRTY_SECONDS_MILLIS;
-            if (adResponseClear != null) {
-                refreshTimeMilliseconds = adResponseClear.getRefreshTimeMillis();
-            }
-            throw new MoPubNetworkError.Builder("No ads found for ad unit.")
-                    .reason(MoPubNetworkError.Reason.NO_FILL)
-                    .refreshTimeMillis(refreshTimeMilliseconds)
-                    .build();
+            throw createNoFillError(responseIterator.mClearResponse);
         }
     }
 
+    @NonNull
+    private static MoPubNetworkError createNoFillError(@Nullable final AdResponse adResponseClear) {
+        Integer refreshTimeMilliseconds = Constants.THIRTY_SECONDS_MILLIS;
+        if (adResponseClear != null) {
+            refreshTimeMilliseconds = adResponseClear.getRefreshTimeMillis();
+        }
+        return new MoPubNetworkError.Builder("No ads found for ad unit.")
+                .reason(MoPubNetworkError.Reason.NO_FILL)
+                .refreshTimeMillis(refreshTimeMilliseconds)
+                .build();
+    }
+
     @Override
     public boolean hasNext() {
         return mResponseIterator.hasNext();
@@ -219,6 +216,166 @@ public class MultiAdResponse implements Iterator<AdResponse> {
         sServerOverrideListener = serverOverrideListener;
     }
 
+    public static void setStreamingParseEnabled(final boolean streamingParseEnabled) {
+        sStreamingParseEnabled = streamingParseEnabled;
+    }
+
+    public static boolean isStreamingParseEnabled() {
+        return sStreamingParseEnabled;
+    }
+
+    /**
+     * Iterates over the items of an already parsed ad responses array. Items that are not JSON
+     * objects are returned as null.
+     */
+    private static class JSONArrayItemIterator implements Iterator<JSONObject> {
+        @NonNull private final JSONArray mArray;
+        private int mIndex;
+
+        JSONArrayItemIterator(@NonNull final JSONArray array) {
+            mArray = array;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mIndex < mArray.length();
+        }
+
+        @Nullable
+        @Override
+        public JSONObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return mArray.optJSONObject(mIndex++);
+        }
+    }
+
+    /**
+     * Parses one ad response item at a time, one item ahead of the caller. Items that fail to
+     * parse are logged and skipped when they are reached.
+     */
+    private class LazyAdResponseIterator implements Iterator<AdResponse> {
+        @NonNull private final Context mAppContext;
+        @NonNull private final MoPubNetworkResponse mNetworkResponse;
+        @NonNull private final Iterator<JSONObject> mItems;
+        @Nullable private final String mAdUnitId;
+        @NonNull private final AdFormat mAdFormat;
+        @NonNull private final String mAdUnitFormat;
+        @Nullable private final String mRequestId;
+        private final boolean mIsRewarded;
+        @Nullable private final JSONObject mCreativeExperienceSettingsJson;
+
+        // Shared by every item, so only parsed once.
+        @Nullable private CreativeExperienceSettings mCreativeExperienceSettings;
+        @Nullable private AdResponse mNext;
+        @Nullable AdResponse mClearResponse;
+        private boolean mFinished;
+
+        LazyAdResponseIterator(@NonNull final Context appContext,
+                                    @NonNull final MoPubNetworkResponse networkResponse,
+                                    @NonNull final Iterator<JSONObject> items,
+                                    @Nullable final String adUnitId,
+                                    @NonNull final AdFormat adFormat,
+                                    @NonNull final String adUnitFormat,
+                                    @Nullable final String requestId,
+                                    final boolean isRewarded,
+                                    @Nullable final JSONObject creativeExperienceSettings) {
+            mAppContext = appContext;
+            mNetworkResponse = networkResponse;
+            mItems = items;
+            mAdUnitId = adUnitId;
+            mAdFormat = adFormat;
+            mAdUnitFormat = adUnitFormat;
+            mRequestId = requestId;
+            mIsRewarded = isRewarded;
+            mCreativeExperienceSettingsJson = creativeExperienceSettings;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (mNext == null && !mFinished) {
+                try {
+                    advance(false);
+                } catch (MoPubNetworkError e) {
+                    // Not reached since warm up is only reported for the first item.
+                    mFinished = true;
+                }
+            }
+            return mNext != null;
+        }
+
+        @NonNull
+        @Override
+        public AdResponse next() {
+            if (!hasNext() || mNext == null) {
+                throw new NoSuchElementException();
+            }
+            final AdResponse next = mNext;
+            mNext = null;
+            return next;
+        }
+
+        /**
+         * Parses items until one that is not 'clear' is found or the items run out.
+         *
+         * @param reportWarmup whether a 'clear' item with the warm up flag should be thrown
+         * @throws MoPubNetworkError when the ad unit is warming up
+         */
+        void advance(final boolean reportWarmup) throws MoPubNetworkError {
+            while (!mFinished && mItems.hasNext()) {
+                final JSONObject item = mItems.next();
+                if (item == null) {
+                    MoPubLog.log(CUSTOM, "Invalid response item.");
+                    continue;
+                }
+                try {
+                    if (mCreativeExperienceSettings == null) {
+                        mCreativeExperienceSettings = CreativeExperienceSettingsParser.parse(
+                                mCreativeExperienceSettingsJson, mIsRewarded);
+                    }
+                    final AdResponse singleAdResponse = parseSingleAdResponse(mAppContext,
+                            mNetworkResponse,
+                            item,
+                            mAdUnitId,
+                            mAdFormat,
+                            mAdUnitFormat,
+                            mRequestId,
+                            mIsRewarded,
+                            mCreativeExperienceSettings);
+                    if (!AdType.CLEAR.equals(singleAdResponse.getAdType())) {
+                        mNext = singleAdResponse;
+                        return;
+                    }
+
+                    // received message 'clear'
+                    mFailUrl = "";
+                    mClearResponse = singleAdResponse;
+                    mFinished = true;
+                    if (reportWarmup && extractWarmup(item)) {
+                        throw new MoPubNetworkError.Builder("Server is preparing this Ad Unit.")
+                                .reason(MoPubNetworkError.Reason.WARMING_UP)
+                                .refreshTimeMillis(singleAdResponse.getRefreshTimeMillis())
+                                .build();
+                    }
+                    return; // we don't process items beyond 'clear'
+
+                } catch (JSONException ex) {
+                    // don't break everything because of single item parsing error
+                    MoPubLog.log(CUSTOM, "Invalid response item. Item: " + item);
+                } catch (MoPubNetworkError ex) {
+                    if (ex.getReason() == MoPubNetworkError.Reason.WARMING_UP) {
+                        throw ex;
+                    }
+                    MoPubLog.log(CUSTOM, "Invalid response item. Error: " + ex.getReason());
+                } catch (Exception ex) {
+                    MoPubLog.log(CUSTOM, "Unexpected error parsing response item. " + ex.getMessage());
+                }
+            }
+            mFinished = true;
+        }
+    }
+
     /**
      * Parse single object {@link AdResponse} from JSON
      *
@@ -243,6 +400,28 @@ public class MultiAdResponse implements Iterator<AdResponse> {
                                                       @NonNull final Boolean isRewarded,
                                                       @Nullable final JSONObject ceSettingsJSONObject)
             throws JSONException, MoPubNetworkError {
+        return parseSingleAdResponse(appContext,
+                networkResponse,
+                jsonObject,
+                adUnitId,
+                adFormat,
+                adUnitFormat,
+                requestId,
+                isRewarded,
+                CreativeExperienceSettingsParser.parse(ceSettingsJSONObject, isRewarded));
+    }
+
+    @NonNull
+    private static AdResponse parseSingleAdResponse(@NonNull final Context appContext,
+                                                    @NonNull final MoPubNetworkResponse networkResponse,
+                                                    @NonNull final JSONObject jsonObject,
+                                                    @Nullable final String adUnitId,
+                                                    @NonNull final AdFormat adFormat,
+                                                    @NonNull final String adUnitFormat,
+                                                    @Nullable final String requestId,
+                                                    @NonNull final Boolean isRewarded,
+                                                    @NonNull final CreativeExperienceSettings ceSettings)
+            throws JSONException, MoPubNetworkError {
         Preconditions.checkNotNull(appContext);
         Preconditions.checkNotNull(networkResponse);
         Preconditions.checkNotNull(jsonObject);
@@ -494,8 +673,6 @@ public class MultiAdResponse implements Iterator<AdResponse> {
         builder.setRewardedAdCompletionUrl(rewardedVideoCompletionUrl);
         builder.setRewarded(isRewarded);
 
-        final CreativeExperienceSettings ceSettings =
-                CreativeExperienceSettingsParser.parse(ceSettingsJSONObject, isRewarded);
         builder.setCreativeExperienceSettings(ceSettings);
 
         return builder.build();
@@ -0,0 +1,254 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.logging.MoPubLog;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
+
+/**
+ * Token-streaming reader for the multi ad response body. Reads straight from the response bytes
+ * without decoding the whole body into a String or building a JSONObject for the whole response.
+ * The top-level fields and the elements of one top-level array are read in separate passes so
+ * that the array elements can be read one at a time, on demand.
+ */
+class MultiAdResponseStreamParser {
+
+    @NonNull private final byte[] mData;
+    @NonNull private final String mCharsetName;
+
+    MultiAdResponseStreamParser(@NonNull final byte[] data, @NonNull final String charsetName) {
+        Preconditions.checkNotNull(data);
+        Preconditions.checkNotNull(charsetName);
+
+        mData = data;
+        mCharsetName = charsetName;
+    }
+
+    /**
+     * Reads every top-level field except {@code skippedKey}, whose value is skipped without
+     * being materialized.
+     *
+     * @param skippedKey the top-level key to skip
+     * @return a JSONObject with the remaining top-level fields
+     * @throws JSONException when the body is not a valid JSON object
+     */
+    @NonNull
+    JSONObject readTopLevelFields(@NonNull final String skippedKey) throws JSONException {
+        Preconditions.checkNotNull(skippedKey);
+
+        final JsonReader reader = newReader();
+        try {
+            final JSONObject fields = new JSONObject();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (skippedKey.equals(name)) {
+                    reader.skipValue();
+                } else {
+                    fields.put(name, readValue(reader));
+                }
+            }
+            reader.endObject();
+            return fields;
+        } catch (IOException | RuntimeException e) {
+            throw toJSONException(e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements of the top-level array {@code arrayKey}. Each element
+     * is only read from the body when {@link Iterator#next()} is called. If the array is missing,
+     * this throws like {@link JSONObject#getJSONArray(String)}.
+     *
+     * @param arrayKey the top-level key of the array
+     * @return iterator over the array elements. Elements that are not objects are returned as
+     * null.
+     * @throws JSONException when the body is not a valid JSON object or has no such array
+     */
+    @NonNull
+    Iterator<JSONObject> readArrayElements(@NonNull final String arrayKey) throws JSONException {
+        Preconditions.checkNotNull(arrayKey);
+
+        final JsonReader reader = newReader();
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (!arrayKey.equals(name)) {
+                    reader.skipValue();
+                    continue;
+                }
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    throw new JSONException("Value at " + arrayKey + " is not a JSONArray.");
+                }
+                reader.beginArray();
+                return new ElementIterator(reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(reader);
+            throw toJSONException(e);
+        } catch (JSONException e) {
+            closeQuietly(reader);
+            throw e;
+        }
+        closeQuietly(reader);
+        throw new JSONException("No value for " + arrayKey);
+    }
+
+    @NonNull
+    private JsonReader newReader() {
+        InputStreamReader inputStreamReader;
+        try {
+            inputStreamReader = new InputStreamReader(new ByteArrayInputStream(mData), mCharsetName);
+        } catch (UnsupportedEncodingException e) {
+            inputStreamReader = new InputStreamReader(new ByteArrayInputStream(mData));
+        }
+        return new JsonReader(inputStreamReader);
+    }
+
+    /**
+     * Reads the next value into the same types org.json would produce.
+     */
+    @Nullable
+    static Object readValue(@NonNull final JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                final JSONObject object = new JSONObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    object.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return object;
+            case BEGIN_ARRAY:
+                final JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return parseNumber(reader.nextString());
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                throw new JSONException("Unexpected token " + reader.peek());
+        }
+    }
+
+    @NonNull
+    private static Object parseNumber(@NonNull final String literal) {
+        // Mirrors JSONTokener: integral literals become Integer or Long, the rest Double.
+        if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1 && literal.indexOf('E') == -1) {
+            try {
+                final long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException e) {
+                // Fall through to double
+            }
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return literal;
+        }
+    }
+
+    @NonNull
+    private static JSONException toJSONException(@NonNull final Exception e) {
+        final JSONException jsonException = new JSONException(e.getMessage());
+        jsonException.initCause(e);
+        return jsonException;
+    }
+
+    private static void closeQuietly(@NonNull final JsonReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Reads one array element per call to {@link #next()}. Stops at the end of the array or at
+     * the first malformed element, since the reader cannot recover its position after that.
+     */
+    private static class ElementIterator implements Iterator<JSONObject> {
+        @Nullable private JsonReader mReader;
+
+        ElementIterator(@NonNull final JsonReader reader) {
+            mReader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (mReader == null) {
+                return false;
+            }
+            try {
+                if (mReader.hasNext()) {
+                    return true;
+                }
+            } catch (IOException | RuntimeException e) {
+                MoPubLog.log(CUSTOM, "Unable to read ad response item. " + e.getMessage());
+            }
+            finish();
+            return false;
+        }
+
+        @Nullable
+        @Override
+        public JSONObject next() {
+            if (!hasNext() || mReader == null) {
+                throw new NoSuchElementException();
+            }
+            try {
+                final Object value = readValue(mReader);
+                return value instanceof JSONObject ? (JSONObject) value : null;
+            } catch (IOException | JSONException | RuntimeException e) {
+                MoPubLog.log(CUSTOM, "Unable to read ad response item. " + e.getMessage());
+                finish();
+                return null;
+            }
+        }
+
+        private void finish() {
+            if (mReader != null) {
+                closeQuietly(mReader);
+                mReader = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,477 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.TrackingJournalCacheService;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.DateAndTime;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Sends {@link TrackingRequest}s. Limits the number of requests in flight per host, and keeps
+ * trackers that could not connect to their host in a disk journal that is retried with backoff.
+ * <p>
+ * Only requests that never reached the server are retried, since retrying a request that the
+ * server may have received could cause duplicate impressions. Volley reports any I/O error before
+ * the response headers as a missing connection, so the journal only takes errors caused by
+ * failing to resolve or connect to the host.
+ */
+public class TrackingDispatcher {
+
+    // Volley has four network threads. Leave at least one for other hosts and ad requests.
+    @VisibleForTesting
+    static final int MAX_REQUESTS_PER_HOST = 3;
+    @VisibleForTesting
+    static final int MAX_JOURNAL_SIZE = 100;
+    @VisibleForTesting
+    static final long MAX_JOURNAL_AGE_MILLIS = 24 * 60 * 60 * 1000;
+    @VisibleForTesting
+    static final long INITIAL_RETRY_DELAY_MILLIS = 5 * 1000;
+    @VisibleForTesting
+    static final long MAX_RETRY_DELAY_MILLIS = 5 * 60 * 1000;
+
+    private static final String JOURNAL_FIELD_SEPARATOR = "\t";
+    private static final String JOURNAL_LINE_SEPARATOR = "\n";
+    private static final Charset JOURNAL_CHARSET = Charset.forName("UTF-8");
+
+    @Nullable private static volatile TrackingDispatcher sInstance;
+
+    @NonNull
+    public static TrackingDispatcher getInstance() {
+        TrackingDispatcher instance = sInstance;
+        if (instance == null) {
+            synchronized (TrackingDispatcher.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = new TrackingDispatcher(new Handler(Looper.getMainLooper()));
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Immutable snapshot of the dispatcher counters.
+     */
+    public static class Stats {
+        public final long dispatched;
+        public final long succeeded;
+        public final long failed;
+        public final long journaled;
+        public final long retried;
+        public final long dropped;
+        public final long averageLatencyMillis;
+
+        Stats(final long dispatched, final long succeeded, final long failed,
+                final long journaled, final long retried, final long dropped,
+                final long averageLatencyMillis) {
+            this.dispatched = dispatched;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.journaled = journaled;
+            this.retried = retried;
+            this.dropped = dropped;
+            this.averageLatencyMillis = averageLatencyMillis;
+        }
+    }
+
+    /**
+     * One failed firing of a tracker. The same url may be journaled several times, for example
+     * when a repeated impression or quartile pixel fails more than once, and each is replayed.
+     */
+    @VisibleForTesting
+    static class JournalEntry {
+        @NonNull final String url;
+        final long firstAttemptMillis;
+
+        JournalEntry(@NonNull final String url, final long firstAttemptMillis) {
+            this.url = url;
+            this.firstAttemptMillis = firstAttemptMillis;
+        }
+    }
+
+    private static class PendingTracker {
+        @NonNull final String url;
+        @NonNull final String host;
+        // Application context, since trackers may wait in the journal long after the ad is gone
+        @NonNull final Context context;
+        @Nullable final TrackingRequest.Listener listener;
+        final long firstAttemptMillis;
+
+        PendingTracker(@NonNull final String url, @NonNull final Context context,
+                @Nullable final TrackingRequest.Listener listener, final long firstAttemptMillis) {
+            this.url = url;
+            this.host = getHost(url);
+            this.context = context;
+            this.listener = listener;
+            this.firstAttemptMillis = firstAttemptMillis;
+        }
+    }
+
+    @NonNull private final Handler mHandler;
+    @NonNull private final Runnable mDrainRunnable;
+    @NonNull private final Map<String, Integer> mInFlightPerHost = new HashMap<>();
+    @NonNull private final Map<String, ArrayDeque<PendingTracker>> mWaitingPerHost = new HashMap<>();
+    // Journaled firings, oldest first
+    @NonNull private final List<JournalEntry> mJournal = new ArrayList<>();
+
+    @Nullable private Context mJournalContext;
+    private boolean mJournalLoaded;
+    private boolean mJournalWriteInFlight;
+    private boolean mJournalWritePending;
+    private boolean mDrainScheduled;
+    private long mRetryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+
+    private long mDispatched;
+    private long mSucceeded;
+    private long mFailed;
+    private long mJournaled;
+    private long mRetried;
+    private long mDropped;
+    private long mTotalLatencyMillis;
+
+    @VisibleForTesting
+    TrackingDispatcher(@NonNull final Handler handler) {
+        mHandler = handler;
+        mDrainRunnable = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (TrackingDispatcher.this) {
+                    mDrainScheduled = false;
+                }
+                drainJournal();
+            }
+        };
+    }
+
+    /**
+     * Sends each url, calling the listener once for each of them.
+     */
+    public synchronized void dispatch(@Nullable final Iterable<String> urls,
+            @Nullable final Context context,
+            @Nullable final TrackingRequest.Listener listener) {
+        if (urls == null || context == null) {
+            return;
+        }
+
+        final Context applicationContext = context.getApplicationContext() != null
+                ? context.getApplicationContext()
+                : context;
+        loadJournalIfNeeded(applicationContext);
+
+        for (final String url : urls) {
+            if (TextUtils.isEmpty(url)) {
+                continue;
+            }
+            enqueue(new PendingTracker(url, applicationContext, listener,
+                    DateAndTime.now().getTime()));
+        }
+    }
+
+    @NonNull
+    public synchronized Stats getStats() {
+        final long completed = mSucceeded + mFailed;
+        return new Stats(mDispatched, mSucceeded, mFailed, mJournaled, mRetried, mDropped, completed > 0 ? mTotalLatencyMillis / completed : 0);
+    }
+
+    private void enqueue(@NonNull final PendingTracker tracker) {
+        final Integer inFlight = mInFlightPerHost.get(tracker.host);
+        // Urls without a host fail without reaching the network, so they are never held back.
+        if (!tracker.host.isEmpty() && inFlight != null && inFlight >= MAX_REQUESTS_PER_HOST) {
+            ArrayDeque<PendingTracker> waiting = mWaitingPerHost.get(tracker.host);
+            if (waiting == null) {
+                waiting = new ArrayDeque<>();
+                mWaitingPerHost.put(tracker.host, waiting);
+            }
+            waiting.add(tracker);
+            return;
+        }
+        send(tracker);
+    }
+
+    private void send(@NonNull final PendingTracker tracker) {
+        final Integer inFlight = mInFlightPerHost.get(tracker.host);
+        mInFlightPerHost.put(tracker.host, inFlight == null ? 1 : inFlight + 1);
+        mDispatched++;
+
+        final long startMillis = SystemClock.elapsedRealtime();
+        final TrackingRequest.Listener internalListener = new TrackingRequest.Listener() {
+            @Override
+            public void onResponse(@NonNull final String response) {
+                final long latencyMillis = SystemClock.elapsedRealtime() - startMillis;
+                MoPubLog.log(CUSTOM, "Successfully hit tracking endpoint: " + tracker.url
+                        + " in " + latencyMillis + "ms");
+                onTrackerComplete(tracker, latencyMillis, true);
+                if (tracker.listener != null) {
+                    tracker.listener.onResponse(response);
+                }
+            }
+
+            @Override
+            public void onErrorResponse(@NonNull final MoPubNetworkError networkError) {
+                final long latencyMillis = SystemClock.elapsedRealtime() - startMillis;
+                MoPubLog.log(CUSTOM, "Failed to hit tracking endpoint: " + tracker.url
+                        + " in " + latencyMillis + "ms");
+                onTrackerComplete(tracker, latencyMillis, false);
+                if (isNeverConnected(networkError)) {
+                    addToJournal(tracker);
+                }
+                if (tracker.listener != null) {
+                    tracker.listener.onErrorResponse(networkError);
+                }
+            }
+        };
+        Networking.getRequestQueue(tracker.context).add(
+                new TrackingRequest(tracker.context, tracker.url, internalListener));
+    }
+
+    private synchronized void onTrackerComplete(@NonNull final PendingTracker tracker,
+            final long latencyMillis, final boolean success) {
+        mTotalLatencyMillis += latencyMillis;
+        if (success) {
+            mSucceeded++;
+            mRetryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+        } else {
+            mFailed++;
+        }
+
+        final Integer inFlight = mInFlightPerHost.get(tracker.host);
+        if (inFlight == null || inFlight <= 1) {
+            mInFlightPerHost.remove(tracker.host);
+        } else {
+            mInFlightPerHost.put(tracker.host, inFlight - 1);
+        }
+
+        final ArrayDeque<PendingTracker> waiting = mWaitingPerHost.get(tracker.host);
+        if (waiting != null) {
+            final PendingTracker next = waiting.poll();
+            if (waiting.isEmpty()) {
+                mWaitingPerHost.remove(tracker.host);
+            }
+            if (next != null) {
+                send(next);
+            }
+        }
+
+        // A success means the network is back, so there is no point waiting for the backoff.
+        if (success && !mJournal.isEmpty() && mDrainScheduled) {
+            mHandler.removeCallbacks(mDrainRunnable);
+            mDrainScheduled = false;
+            mHandler.post(mDrainRunnable);
+        }
+    }
+
+    /**
+     * @return Whether the request failed before connecting to its host, so the server can't have
+     * received it.
+     */
+    @VisibleForTesting
+    static boolean isNeverConnected(@NonNull final MoPubNetworkError networkError) {
+        if (networkError.getReason() != MoPubNetworkError.Reason.NO_CONNECTION) {
+            return false;
+        }
+        Throwable cause = networkError.getCause();
+        while (cause != null) {
+            if (cause instanceof UnknownHostException
+                    || cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    ///////////////////////////////////////////////////////////////
+    // Retry journal
+    //////////////////////////////////////////////////////////////
+
+    private synchronized void addToJournal(@NonNull final PendingTracker tracker) {
+        if (DateAndTime.now().getTime() - tracker.firstAttemptMillis > MAX_JOURNAL_AGE_MILLIS) {
+            mDropped++;
+            return;
+        }
+        mJournal.add(new JournalEntry(tracker.url, tracker.firstAttemptMillis));
+        mJournaled++;
+        trimJournal();
+        writeJournal();
+        scheduleDrain();
+    }
+
+    private void trimJournal() {
+        final long now = DateAndTime.now().getTime();
+        final Iterator<JournalEntry> iterator = mJournal.iterator();
+        while (iterator.hasNext()) {
+            final JournalEntry entry = iterator.next();
+            if (mJournal.size() > MAX_JOURNAL_SIZE
+                    || now - entry.firstAttemptMillis > MAX_JOURNAL_AGE_MILLIS) {
+                iterator.remove();
+                mDropped++;
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (mDrainScheduled || mJournal.isEmpty()) {
+            return;
+        }
+        mDrainScheduled = true;
+        mHandler.postDelayed(mDrainRunnable, mRetryDelayMillis);
+        mRetryDelayMillis = Math.min(mRetryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    @VisibleForTesting
+    synchronized void drainJournal() {
+        final Context context = mJournalContext;
+        if (context == null || mJournal.isEmpty()) {
+            return;
+        }
+
+        final List<PendingTracker> trackers = new ArrayList<>(mJournal.size());
+        for (final JournalEntry entry : mJournal) {
+            trackers.add(new PendingTracker(entry.url, context, null, entry.firstAttemptMillis));
+        }
+        mJournal.clear();
+        writeJournal();
+
+        for (final PendingTracker tracker : trackers) {
+            mRetried++;
+            enqueue(tracker);
+        }
+    }
+
+    private void loadJournalIfNeeded(@NonNull final Context context) {
+        if (mJournalContext != null) {
+            return;
+        }
+        mJournalContext = context;
+        TrackingJournalCacheService.getJournal(new CacheService.DiskLruCacheListener() {
+            @Override
+            public void onGetComplete(@NonNull final String key, @Nullable final byte[] content) {
+                onJournalLoaded(content);
+            }
+        }, context);
+    }
+
+    private synchronized void onJournalLoaded(@Nullable final byte[] content) {
+        mJournalLoaded = true;
+        if (content != null && content.length > 0) {
+            // Trackers journaled by this process were added after the ones on disk.
+            mJournal.addAll(0, deserializeJournal(content));
+            trimJournal();
+        }
+        if (mJournalWritePending) {
+            mJournalWritePending = false;
+            writeJournal();
+        }
+        scheduleDrain();
+    }
+
+    private void writeJournal() {
+        final Context context = mJournalContext;
+        if (context == null) {
+            return;
+        }
+        // Don't overwrite the journal on disk before it has been read, and only allow one write
+        // at a time since DiskLruCache rejects concurrent edits of the same entry.
+        if (!mJournalLoaded || mJournalWriteInFlight) {
+            mJournalWritePending = true;
+            return;
+        }
+        mJournalWriteInFlight = true;
+        TrackingJournalCacheService.putJournal(serializeJournal(mJournal),
+                new CacheService.DiskLruCacheListener() {
+                    @Override
+                    public void onPutComplete(final boolean success) {
+                        onJournalWritten();
+                    }
+                }, context);
+    }
+
+    private synchronized void onJournalWritten() {
+        mJournalWriteInFlight = false;
+        if (mJournalWritePending) {
+            mJournalWritePending = false;
+            writeJournal();
+        }
+    }
+
+    @NonNull
+    @VisibleForTesting
+    static byte[] serializeJournal(@NonNull final List<JournalEntry> journal) {
+        final StringBuilder builder = new StringBuilder();
+        for (final JournalEntry entry : journal) {
+            builder.append(entry.firstAttemptMillis)
+                    .append(JOURNAL_FIELD_SEPARATOR)
+                    .append(entry.url)
+                    .append(JOURNAL_LINE_SEPARATOR);
+        }
+        return builder.toString().getBytes(JOURNAL_CHARSET);
+    }
+
+    @NonNull
+    @VisibleForTesting
+    static List<JournalEntry> deserializeJournal(@NonNull final byte[] content) {
+        final List<JournalEntry> journal = new ArrayList<>();
+        for (final String line : new String(content, JOURNAL_CHARSET).split(JOURNAL_LINE_SEPARATOR)) {
+            final int separator = line.indexOf(JOURNAL_FIELD_SEPARATOR);
+            if (separator <= 0 || separator == line.length() - 1) {
+                continue;
+            }
+            try {
+                journal.add(new JournalEntry(line.substring(separator + 1),
+                        Long.parseLong(line.substring(0, separator))));
+            } catch (NumberFormatException e) {
+                MoPubLog.log(CUSTOM, "Skipping malformed tracking journal entry.");
+            }
+        }
+        return journal;
+    }
+
+    @NonNull
+    private static String getHost(@NonNull final String url) {
+        final String host = Uri.parse(url).getHost();
+        return host == null ? "" : host;
+    }
+
+    @VisibleForTesting
+    public static synchronized void clearForTesting() {
+        final TrackingDispatcher instance = sInstance;
+        if (instance != null) {
+            instance.mHandler.removeCallbacks(instance.mDrainRunnable);
+        }
+        sInstance = null;
+    }
+
+    @VisibleForTesting
+    synchronized int getJournalSizeForTesting() {
+        return mJournal.size();
+    }
+}
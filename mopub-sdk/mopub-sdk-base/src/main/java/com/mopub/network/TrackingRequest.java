@@ -10,7 +10,6 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
-import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.VastErrorCode;
 import com.mopub.mobileads.VastMacroHelper;
 import com.mopub.mobileads.VastTracker;
@@ -20,8 +19,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
-
 public class TrackingRequest extends MoPubRequest<String> {
 
     // Retrying may cause duplicate impressions
@@ -31,7 +28,7 @@ public class TrackingRequest extends MoPubRequest<String> {
 
     @Nullable private final Listener mListener;
 
-    private TrackingRequest(
+    TrackingRequest(
             @NonNull final Context context,
             @NonNull final String url,
             @Nullable final Listener listener) {
@@ -42,6 +39,7 @@ public class TrackingRequest extends MoPubRequest<String> {
                 listener);
         mListener = listener;
         setShouldCache(false);
+        setPriority(Priority.TRACKER);
         setRetryPolicy(new MoPubRetryPolicy(
                 MoPubRetryPolicy.DEFAULT_TIMEOUT_MS,
                 ZERO_RETRIES,
@@ -122,36 +120,7 @@ public class TrackingRequest extends MoPubRequest<String> {
     public static void makeTrackingHttpRequest(@Nullable final Iterable<String> urls,
                                                @Nullable final Context context,
                                                @Nullable final Listener listener) {
-        if (urls == null || context == null) {
-            return;
-        }
-
-        final MoPubRequestQueue requestQueue = Networking.getRequestQueue(context);
-        for (final String url : urls) {
-            if (TextUtils.isEmpty(url)) {
-                continue;
-            }
-
-            final TrackingRequest.Listener internalListener = new TrackingRequest.Listener() {
-                @Override
-                public void onResponse(@NonNull String url) {
-                    MoPubLog.log(CUSTOM, "Successfully hit tracking endpoint: " + url);
-                    if (listener != null) {
-                        listener.onResponse(url);
-                    }
-                }
-
-                @Override
-                public void onErrorResponse(@NonNull final MoPubNetworkError networkError) {
-                    MoPubLog.log(CUSTOM, "Failed to hit tracking endpoint: " + url);
-                    if (listener != null) {
-                        listener.onErrorResponse(networkError);
-                    }
-                }
-            };
-            final TrackingRequest trackingRequest = new TrackingRequest(context, url, internalListener);
-            requestQueue.add(trackingRequest);
-        }
+        TrackingDispatcher.getInstance().dispatch(urls, context, listener);
     }
 
     public static void makeTrackingHttpRequest(@Nullable final String url,
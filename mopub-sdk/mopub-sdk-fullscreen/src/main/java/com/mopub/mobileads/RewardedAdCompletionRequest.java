@@ -39,6 +39,7 @@ public class RewardedAdCompletionRequest extends MoPubRequest<Integer> {
                 MoPubRequestUtils.chooseMethod(url),
                 listener);
         setShouldCache(false);
+        setPriority(Priority.TRACKER);
         setRetryPolicy(retryPolicy);
         mListener = listener;
     }
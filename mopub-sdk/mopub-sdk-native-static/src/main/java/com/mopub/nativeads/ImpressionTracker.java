@@ -7,6 +7,7 @@ package com.mopub.nativeads;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.view.View;
@@ -25,10 +26,13 @@ import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
 /**
  * Impression tracker used to call {@link ImpressionInterface#recordImpression(View)} when a
  * percentage of a native ad has been on screen for a duration of time.
+ *
+ * Instead of polling visible views, a single timer is armed for the earliest time any visible view
+ * can record its impression. The timer is moved or cancelled as views become visible or invisible.
  */
 public class ImpressionTracker {
 
-    private static final int PERIOD = 250;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
 
     // Object tracking visibility of added views
     @NonNull private final VisibilityTracker mVisibilityTracker;
@@ -36,14 +40,24 @@ public class ImpressionTracker {
     // All views and ads being tracked for impressions
     @NonNull private final Map<View, ImpressionInterface> mTrackedViews;
 
-    // Visible views being polled for time on screen before tracking impression
+    // Visible views waiting for their time on screen before tracking impression
     @NonNull private final Map<View, TimestampWrapper<ImpressionInterface>> mPollingViews;
 
-    // Handler for polling visible views
+    // Handler for the impression deadline timer
     @NonNull private final Handler mPollHandler;
 
-    // Runnable to run on each visibility loop
-    @NonNull private final PollingRunnable mPollingRunnable;
+    // Runnable to run when the earliest impression deadline is reached
+    @NonNull private final DeadlineRunnable mDeadlineRunnable;
+
+    // Uptime at which the timer is armed to run, or NO_DEADLINE
+    private long mArmedDeadline = NO_DEADLINE;
+
+    // Instrumentation
+    private int mWakeupCount;
+    private int mIdleWakeupCount;
+    private int mArmCount;
+    private int mImpressionCount;
+    private long mTotalLatenessMillis;
 
     // Object to check actual visibility
     @NonNull private final VisibilityChecker mVisibilityChecker;
@@ -96,13 +110,15 @@ public class ImpressionTracker {
                 for (final View view : invisibleViews) {
                     mPollingViews.remove(view);
                 }
-                scheduleNextPoll();
+                scheduleNextDeadline();
             }
         };
         mVisibilityTracker.setVisibilityTrackerListener(mVisibilityTrackerListener);
+        // Visible views keep waiting until they become invisible, so only changes are needed.
+        mVisibilityTracker.setReportTransitionsOnly(true);
 
         mPollHandler = handler;
-        mPollingRunnable = new PollingRunnable();
+        mDeadlineRunnable = new DeadlineRunnable();
     }
 
     /**
@@ -128,8 +144,10 @@ public class ImpressionTracker {
 
     public void removeView(final View view) {
         mTrackedViews.remove(view);
-        removePollingView(view);
         mVisibilityTracker.removeView(view);
+        if (removePollingView(view)) {
+            scheduleNextDeadline();
+        }
     }
 
     /**
@@ -140,6 +158,7 @@ public class ImpressionTracker {
         mPollingViews.clear();
         mVisibilityTracker.clear();
         mPollHandler.removeMessages(0);
+        mArmedDeadline = NO_DEADLINE;
     }
 
     public void destroy() {
@@ -148,58 +167,115 @@ public class ImpressionTracker {
         mVisibilityTrackerListener = null;
     }
 
+    /**
+     * Arms the timer for the earliest impression deadline of the visible views, or cancels it
+     * when no view is visible. A timer already armed for that deadline is left alone.
+     */
     @VisibleForTesting
-    void scheduleNextPoll() {
-        // Only schedule if there are no messages already scheduled.
-        if (mPollHandler.hasMessages(0)) {
+    void scheduleNextDeadline() {
+        long earliestDeadline = NO_DEADLINE;
+        for (final TimestampWrapper<ImpressionInterface> timestampWrapper : mPollingViews.values()) {
+            earliestDeadline = Math.min(earliestDeadline, timestampWrapper.mCreatedTimestamp
+                    + timestampWrapper.mInstance.getImpressionMinTimeViewed());
+        }
+
+        if (earliestDeadline == mArmedDeadline) {
+            return;
+        }
+
+        mPollHandler.removeMessages(0);
+        mArmedDeadline = earliestDeadline;
+        if (earliestDeadline == NO_DEADLINE) {
             return;
         }
 
-        mPollHandler.postDelayed(mPollingRunnable, PERIOD);
+        mArmCount++;
+        mPollHandler.postDelayed(mDeadlineRunnable,
+                Math.max(0, earliestDeadline - SystemClock.uptimeMillis()));
     }
 
-    private void removePollingView(final View view) {
-        mPollingViews.remove(view);
+    private boolean removePollingView(final View view) {
+        return mPollingViews.remove(view) != null;
+    }
+
+    @NonNull
+    Stats getStats() {
+        return new Stats(mWakeupCount, mIdleWakeupCount, mArmCount, mImpressionCount,
+                mImpressionCount == 0 ? 0 : mTotalLatenessMillis / mImpressionCount);
+    }
+
+    /**
+     * Timer activity of this tracker, to compare its wakeups against polling.
+     */
+    static class Stats {
+        // Times the timer ran
+        public final int wakeupCount;
+        // Times the timer ran without recording an impression
+        public final int idleWakeupCount;
+        // Times the timer was armed or moved
+        public final int armCount;
+        public final int impressionCount;
+        // Average time between an impression deadline and the impression being recorded
+        public final long averageLatenessMillis;
+
+        Stats(final int wakeupCount, final int idleWakeupCount, final int armCount,
+                final int impressionCount, final long averageLatenessMillis) {
+            this.wakeupCount = wakeupCount;
+            this.idleWakeupCount = idleWakeupCount;
+            this.armCount = armCount;
+            this.impressionCount = impressionCount;
+            this.averageLatenessMillis = averageLatenessMillis;
+        }
     }
 
     @VisibleForTesting
-    class PollingRunnable implements Runnable {
+    class DeadlineRunnable implements Runnable {
         // Create this once to avoid excessive garbage collection observed when calculating
         // these on each pass.
         @NonNull private final ArrayList<View> mRemovedViews;
 
-        PollingRunnable() {
+        DeadlineRunnable() {
             mRemovedViews = new ArrayList<View>();
         }
 
         @Override
         public void run() {
+            mArmedDeadline = NO_DEADLINE;
+            mWakeupCount++;
+
+            final long now = SystemClock.uptimeMillis();
             for (final Map.Entry<View, TimestampWrapper<ImpressionInterface>> entry : mPollingViews.entrySet()) {
                 final View view = entry.getKey();
                 final TimestampWrapper<ImpressionInterface> timestampWrapper = entry.getValue();
 
                 // If it's been visible for the min impression time, trigger the callback
+                final int minTimeViewed = timestampWrapper.mInstance.getImpressionMinTimeViewed();
                 if (!mVisibilityChecker.hasRequiredTimeElapsed(
-                        timestampWrapper.mCreatedTimestamp,
-                        timestampWrapper.mInstance.getImpressionMinTimeViewed())) {
+                        timestampWrapper.mCreatedTimestamp, minTimeViewed)) {
                     continue;
                 }
 
                 timestampWrapper.mInstance.recordImpression(view);
                 timestampWrapper.mInstance.setImpressionRecorded();
+                mImpressionCount++;
+                mTotalLatenessMillis += Math.max(0,
+                        now - timestampWrapper.mCreatedTimestamp - minTimeViewed);
 
                 // Removed in a separate loop to avoid a ConcurrentModification exception.
                 mRemovedViews.add(view);
             }
 
+            if (mRemovedViews.isEmpty()) {
+                mIdleWakeupCount++;
+            }
             for (View view : mRemovedViews) {
-              removeView(view);
+                // Rearmed once below rather than for every removed view.
+                removePollingView(view);
+                removeView(view);
             }
             mRemovedViews.clear();
 
-            if (!mPollingViews.isEmpty()) {
-                scheduleNextPoll();
-            }
+            scheduleNextDeadline();
         }
     }
 
@@ -115,17 +115,16 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             public void onItemRangeInserted(final int positionStart, final int itemCount) {
                 final int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
                 final int newOriginalCount = mOriginalAdapter.getItemCount();
-                mStreamAdPlacer.setItemCount(newOriginalCount);
                 final boolean addingToEnd = positionStart + itemCount >= newOriginalCount;
                 if (KEEP_ADS_FIXED == mStrategy
                         || (INSERT_AT_END == mStrategy
                         && addingToEnd)) {
+                    mStreamAdPlacer.setItemCount(newOriginalCount);
                     notifyDataSetChanged();
                 } else {
-                    for (int i = 0; i < itemCount; i++) {
-                        // We insert itemCount items at the original position, moving ads downstream.
-                        mStreamAdPlacer.insertItem(positionStart);
-                    }
+                    // We insert itemCount items at the original position, moving ads downstream.
+                    mStreamAdPlacer.insertItems(positionStart, itemCount);
+                    mStreamAdPlacer.setItemCount(newOriginalCount);
                     notifyItemRangeInserted(adjustedStartPosition, itemCount);
                 }
             }
@@ -134,18 +133,17 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             public void onItemRangeRemoved(final int positionStart, final int itemsRemoved) {
                 int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
                 final int newOriginalCount = mOriginalAdapter.getItemCount();
-                mStreamAdPlacer.setItemCount(newOriginalCount);
                 final boolean removingFromEnd = positionStart + itemsRemoved >= newOriginalCount;
                 if (KEEP_ADS_FIXED == mStrategy
                         || (INSERT_AT_END == mStrategy
                         && removingFromEnd)) {
+                    mStreamAdPlacer.setItemCount(newOriginalCount);
                     notifyDataSetChanged();
                 } else {
                     final int oldAdjustedCount = mStreamAdPlacer.getAdjustedCount(newOriginalCount + itemsRemoved);
-                    for (int i = 0; i < itemsRemoved; i++) {
-                        // We remove itemsRemoved items at the original position.
-                        mStreamAdPlacer.removeItem(positionStart);
-                    }
+                    // We remove itemsRemoved items at the original position.
+                    mStreamAdPlacer.removeItems(positionStart, itemsRemoved);
+                    mStreamAdPlacer.setItemCount(newOriginalCount);
 
                     final int itemsRemovedIncludingAds = oldAdjustedCount - mStreamAdPlacer.getAdjustedCount(newOriginalCount);
                     // Need to move the start position back by the # of ads removed.
@@ -157,6 +155,10 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             @Override
             public void onItemRangeMoved(final int fromPosition, final int toPosition,
                     final int itemCount) {
+                if (KEEP_ADS_FIXED != mStrategy) {
+                    // Ads move along with the content, as they do for inserts and removals.
+                    mStreamAdPlacer.moveItems(fromPosition, toPosition, itemCount);
+                }
                 notifyDataSetChanged();
             }
         };
@@ -593,6 +593,26 @@ public class MoPubStreamAdPlacer {
         mPlacementData.insertItem(originalPosition);
     }
 
+    /**
+     * Inserts {@code itemCount} content rows at the given position, adjusting ad positions
+     * accordingly. The rows are inserted as a single edit, so ad positions are shifted once.
+     *
+     * This is equivalent to calling {@link #insertItem(int)} {@code itemCount} times, and should be
+     * used when replaying batched changes such as paging loads or DiffUtil results. Like
+     * {@link #insertItem(int)}, it does not change the item count: call {@link #setItemCount(int)}
+     * with the new original count afterwards.
+     *
+     * @param originalPosition The position at which to add the items. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param itemCount The number of items to insert.
+     */
+    public void insertItems(final int originalPosition, final int itemCount) {
+        if (itemCount <= 0) {
+            return;
+        }
+        mPlacementData.insertItems(originalPosition, itemCount);
+    }
+
     /**
      * Removes the content row at the given position, adjusting ad positions accordingly.
      *
@@ -614,6 +634,25 @@ public class MoPubStreamAdPlacer {
         mPlacementData.removeItem(originalPosition);
     }
 
+    /**
+     * Removes {@code itemCount} content rows starting at the given position, adjusting ad
+     * positions accordingly. Like {@link #insertItems(int, int)}, the rows are removed as a single
+     * edit.
+     *
+     * This is equivalent to calling {@link #removeItem(int)} {@code itemCount} times. Call
+     * {@link #setItemCount(int)} with the new original count afterwards.
+     *
+     * @param originalPosition The position of the first item to remove. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param itemCount The number of items to remove.
+     */
+    public void removeItems(final int originalPosition, final int itemCount) {
+        if (itemCount <= 0) {
+            return;
+        }
+        mPlacementData.removeItems(originalPosition, itemCount);
+    }
+
     /**
      * Moves the content row at the given position adjusting ad positions accordingly.
      *
@@ -636,6 +675,24 @@ public class MoPubStreamAdPlacer {
         mPlacementData.moveItem(originalPosition, newPosition);
     }
 
+    /**
+     * Moves {@code itemCount} consecutive content rows from the given position, adjusting ad
+     * positions accordingly. Like {@link #insertItems(int, int)}, the rows are moved as a single
+     * edit.
+     *
+     * @param originalPosition The position of the first item to move. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param newPosition The new position of the first item after the move, also expressed in
+     * terms of the original position.
+     * @param itemCount The number of items to move.
+     */
+    public void moveItems(final int originalPosition, final int newPosition, final int itemCount) {
+        if (itemCount <= 0 || originalPosition == newPosition) {
+            return;
+        }
+        mPlacementData.moveItems(originalPosition, newPosition, itemCount);
+    }
+
     private void notifyNeedsPlacement() {
         // Avoid posting if this method has already been called.
         if (mNeedsPlacement) {
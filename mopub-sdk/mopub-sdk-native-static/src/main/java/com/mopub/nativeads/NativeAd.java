@@ -59,7 +59,7 @@ public class NativeAd {
 
     @NonNull private final Context mContext;
     @NonNull private final BaseNativeAd mBaseNativeAd;
-    @NonNull private final MoPubAdRenderer mMoPubAdRenderer;
+    @NonNull private MoPubAdRenderer mMoPubAdRenderer;
     @NonNull private final Set<String> mImpressionTrackers;
     @NonNull private final Set<String> mClickTrackers;
     @NonNull private final String mAdUnitId;
@@ -173,6 +173,14 @@ public class NativeAd {
         return mMoPubAdRenderer;
     }
 
+    /**
+     * Switches the renderer of an ad that has not been rendered yet. Used when an ad loaded for one
+     * ad placer is handed to another placer with its own renderers.
+     */
+    void setMoPubAdRenderer(@NonNull final MoPubAdRenderer moPubAdRenderer) {
+        mMoPubAdRenderer = moPubAdRenderer;
+    }
+
     // Lifecycle Handlers
 
     /**
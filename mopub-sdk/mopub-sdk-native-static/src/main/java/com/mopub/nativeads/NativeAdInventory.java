@@ -0,0 +1,234 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.mopub.common.Constants.AD_EXPIRATION_DELAY;
+
+/**
+ * Process-wide inventory of loaded native ads that have not been placed yet, shared by the
+ * {@link NativeAdSource}s of all ad placers on the same ad unit and request parameters.
+ *
+ * Ad sources acquire an inventory entry when they start loading ads and release it when they are
+ * cleared, handing back the ads they loaded but never placed. Those ads are then used by the next
+ * ad source that needs one before it makes a new request, for example the placer recreated after
+ * a configuration change, or another tab showing the same ad unit. An ad source that runs out of
+ * ads can also take ads from another ad source on the same entry that is not being scrolled.
+ *
+ * Entries that nobody holds are kept for {@link #RETAIN_MILLIS} before their ads are destroyed,
+ * unless an ad source acquires them again in the meantime. Pooled ads keep their original load time and expire like cached ads.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+class NativeAdInventory {
+    @VisibleForTesting static final int MAX_POOLED_ADS = 5;
+    @VisibleForTesting static final long RETAIN_MILLIS = 5 * 60 * 1000;
+
+    private static final int EXPIRATION_TIME_MILLISECONDS = AD_EXPIRATION_DELAY;
+
+    @NonNull private static final Map<String, Entry> sEntries = new HashMap<String, Entry>();
+    @Nullable private static Handler sEvictionHandler;
+
+    private NativeAdInventory() {
+    }
+
+    /**
+     * Returns the inventory key for ads requested with this ad unit and request parameters. The
+     * location is not part of the key, since it changes between requests without changing which
+     * ads fit.
+     */
+    @NonNull
+    static String getKey(@NonNull final String adUnitId,
+            @Nullable final RequestParameters requestParameters) {
+        Preconditions.checkNotNull(adUnitId);
+
+        if (requestParameters == null) {
+            return adUnitId;
+        }
+        return adUnitId
+                + '\n' + requestParameters.getKeywords()
+                + '\n' + requestParameters.getUserDataKeywords()
+                + '\n' + requestParameters.getDesiredAssets();
+    }
+
+    static void acquire(@NonNull final String key, @NonNull final NativeAdSource adSource) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(adSource);
+
+        Entry entry = sEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            sEntries.put(key, entry);
+        }
+        getEvictionHandler().removeCallbacks(entry.mEvictionRunnable);
+        if (!entry.mAdSources.contains(adSource)) {
+            entry.mAdSources.add(adSource);
+        }
+    }
+
+    /**
+     * Releases the ad source's hold on the entry and pools the ads it did not place. Ads that do
+     * not fit in the pool are destroyed.
+     */
+    static void release(@NonNull final String key, @NonNull final NativeAdSource adSource,
+            @NonNull final List<TimestampWrapper<NativeAd>> unusedAds) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(adSource);
+        Preconditions.checkNotNull(unusedAds);
+
+        final long now = SystemClock.uptimeMillis();
+        final Entry entry = sEntries.get(key);
+        if (entry == null) {
+            for (final TimestampWrapper<NativeAd> unusedAd : unusedAds) {
+                unusedAd.mInstance.destroy();
+            }
+            return;
+        }
+
+        entry.mAdSources.remove(adSource);
+        for (final TimestampWrapper<NativeAd> unusedAd : unusedAds) {
+            if (entry.mPooledAds.size() < MAX_POOLED_ADS && !isExpired(unusedAd, now)) {
+                entry.mPooledAds.add(unusedAd);
+            } else {
+                unusedAd.mInstance.destroy();
+            }
+        }
+        if (entry.mAdSources.isEmpty()) {
+            final Handler evictionHandler = getEvictionHandler();
+            evictionHandler.removeCallbacks(entry.mEvictionRunnable);
+            evictionHandler.postDelayed(entry.mEvictionRunnable, RETAIN_MILLIS);
+        }
+    }
+
+    /**
+     * Takes the oldest pooled ad that one of the registry's renderers can render.
+     *
+     * @param includeOtherSources also take an ad from another ad source on this entry that has
+     * ads to spare, when there are none in the pool
+     * @return the ad, or null if there is none
+     */
+    @Nullable
+    static TimestampWrapper<NativeAd> take(@NonNull final String key,
+            @NonNull final NativeAdSource adSource,
+            @NonNull final AdRendererRegistry adRendererRegistry,
+            final boolean includeOtherSources) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(adSource);
+        Preconditions.checkNotNull(adRendererRegistry);
+
+        final Entry entry = sEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        final long now = SystemClock.uptimeMillis();
+        final Iterator<TimestampWrapper<NativeAd>> iterator = entry.mPooledAds.iterator();
+        while (iterator.hasNext()) {
+            final TimestampWrapper<NativeAd> pooledAd = iterator.next();
+            if (isExpired(pooledAd, now)) {
+                iterator.remove();
+                pooledAd.mInstance.destroy();
+                continue;
+            }
+            if (adRendererRegistry.getRendererForAd(pooledAd.mInstance.getBaseNativeAd()) != null) {
+                iterator.remove();
+                return pooledAd;
+            }
+        }
+
+        if (!includeOtherSources) {
+            return null;
+        }
+        for (final NativeAdSource otherAdSource : entry.mAdSources) {
+            if (otherAdSource == adSource) {
+                continue;
+            }
+            final TimestampWrapper<NativeAd> spareAd =
+                    otherAdSource.takeSpareAd(adRendererRegistry, now);
+            if (spareAd != null) {
+                return spareAd;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isExpired(@NonNull final TimestampWrapper<NativeAd> timestampWrapper,
+            final long now) {
+        return now - timestampWrapper.mCreatedTimestamp >= EXPIRATION_TIME_MILLISECONDS;
+    }
+
+    @NonNull
+    private static Handler getEvictionHandler() {
+        if (sEvictionHandler == null) {
+            sEvictionHandler = new Handler(Looper.getMainLooper());
+        }
+        return sEvictionHandler;
+    }
+
+    private static void evict(@NonNull final Entry entry) {
+        if (!entry.mAdSources.isEmpty() || sEntries.get(entry.mKey) != entry) {
+            return;
+        }
+        for (final TimestampWrapper<NativeAd> pooledAd : entry.mPooledAds) {
+            pooledAd.mInstance.destroy();
+        }
+        sEntries.remove(entry.mKey);
+    }
+
+    @VisibleForTesting
+    static int getPooledAdCount(@NonNull final String key) {
+        final Entry entry = sEntries.get(key);
+        return entry == null ? 0 : entry.mPooledAds.size();
+    }
+
+    @VisibleForTesting
+    static int getAdSourceCount(@NonNull final String key) {
+        final Entry entry = sEntries.get(key);
+        return entry == null ? 0 : entry.mAdSources.size();
+    }
+
+    @VisibleForTesting
+    static void clearForTesting() {
+        if (sEvictionHandler != null) {
+            sEvictionHandler.removeCallbacksAndMessages(null);
+            sEvictionHandler = null;
+        }
+        sEntries.clear();
+    }
+
+    private static class Entry {
+        @NonNull final String mKey;
+        // The ad sources currently holding this entry, which is its reference count
+        @NonNull final List<NativeAdSource> mAdSources = new ArrayList<NativeAdSource>();
+        @NonNull final List<TimestampWrapper<NativeAd>> mPooledAds =
+                new ArrayList<TimestampWrapper<NativeAd>>(MAX_POOLED_ADS);
+        // Posted when the last ad source releases the entry, removed when one acquires it
+        @NonNull final Runnable mEvictionRunnable = new Runnable() {
+            @Override
+            public void run() {
+                evict(Entry.this);
+            }
+        };
+
+        Entry(@NonNull final String key) {
+            mKey = key;
+        }
+    }
+}
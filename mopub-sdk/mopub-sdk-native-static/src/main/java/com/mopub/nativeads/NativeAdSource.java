@@ -12,7 +12,9 @@ import androidx.annotation.Nullable;
 
 import com.mopub.common.VisibleForTesting;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.mopub.common.Constants.AD_EXPIRATION_DELAY;
@@ -26,8 +28,15 @@ import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
  * a queue, so that the first ad loaded from the server will be the first ad available for dequeue.
  * To take an ad out of the cache, call {@link #dequeueAd}.
  *
- * The cache size may be automatically adjusted by the MoPub server based on an app's usage and
- * ad fill rate. Cached ads have a maximum TTL of 4 hours before which they expire.
+ * The cache size adapts to how fast the stream consumes ads and how long ad requests take to fill.
+ * A slowly scrolled stream keeps a single ad ready. When ads are dequeued faster than one request
+ * can fill them, the cache grows up to {@link #MAX_CACHE_LIMIT} ads and up to
+ * {@link #MAX_PARALLEL_REQUESTS} requests are made at the same time. Cached ads have a maximum TTL
+ * of 4 hours, after which they are destroyed and counted as wasted in {@link #getStats()}.
+ *
+ * Ad sources loaded through {@link #loadAds(Activity, String, RequestParameters)} share their
+ * unplaced ads through {@link NativeAdInventory}: cleared ad sources hand back the ads they did not
+ * place, and ad sources look there before making a new request.
  *
  * The ad source also takes care of retrying failed ad requests, with a reasonable back-off to
  * avoid spamming the server.
@@ -36,10 +45,20 @@ import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
  */
 class NativeAdSource {
     /**
-     * Number of ads to cache
+     * Number of ads to cache while the stream is idle or scrolled slowly
      */
     private static final int CACHE_LIMIT = 1;
 
+    /**
+     * Most ads to cache while the stream is scrolled quickly
+     */
+    @VisibleForTesting static final int MAX_CACHE_LIMIT = 3;
+
+    /**
+     * Most ad requests to have in flight at the same time
+     */
+    @VisibleForTesting static final int MAX_PARALLEL_REQUESTS = 2;
+
     private static final int EXPIRATION_TIME_MILLISECONDS = AD_EXPIRATION_DELAY;
     private static final int MAXIMUM_RETRY_TIME_MILLISECONDS = 5 * 60 * 1000; // 5 minutes.
     @VisibleForTesting static final int[] RETRY_TIME_ARRAY_MILLISECONDS = new int[]{1000, 3000, 5000, 25000, 60000, MAXIMUM_RETRY_TIME_MILLISECONDS};
@@ -53,6 +72,18 @@ class NativeAdSource {
     @VisibleForTesting boolean mRetryInFlight;
     @VisibleForTesting int mSequenceNumber;
     @VisibleForTesting int mCurrentRetries;
+    private long mRequestStartMillis;
+
+    @NonNull private final PrefetchPolicy mPrefetchPolicy;
+    @NonNull private final List<PrefetchRequest> mPrefetchRequests;
+
+    private long mDequeueCount;
+    private long mHitCount;
+    private long mExpiredCount;
+    private long mFillCount;
+    private long mTotalTimeToFillMillis;
+    private long mInventoryCount;
+    private long mLastActiveMillis;
 
     @Nullable private AdSourceListener mAdSourceListener;
 
@@ -60,8 +91,45 @@ class NativeAdSource {
     @Nullable private RequestParameters mRequestParameters;
     @Nullable private MoPubNative mMoPubNative;
 
+    // Used to create the extra MoPubNatives for parallel requests
+    @Nullable private WeakReference<Activity> mActivity;
+    @Nullable private String mAdUnitId;
+
+    // Key of the NativeAdInventory entry this ad source shares ads with, if any
+    @Nullable private String mInventoryKey;
+
     @NonNull private final AdRendererRegistry mAdRendererRegistry;
 
+    /**
+     * Snapshot of the ad source metrics since the last {@link #loadAds}. {@code dequeues} counts
+     * every request for an ad from the stream and {@code hits} the ones that got an ad, so
+     * {@code hits / dequeues} is the hit rate. {@code expired} counts ads that were loaded but
+     * expired before being shown. {@code averageTimeToFillMillis} is the average time from
+     * starting an ad request to having the ad in the cache. {@code fromInventory} counts the ads
+     * taken from {@link NativeAdInventory} instead of being requested.
+     */
+    static class Stats {
+        public final long dequeues;
+        public final long hits;
+        public final long expired;
+        public final long fills;
+        public final long averageTimeToFillMillis;
+        public final int targetCacheSize;
+        public final long fromInventory;
+
+        Stats(final long dequeues, final long hits, final long expired, final long fills,
+                final long averageTimeToFillMillis, final int targetCacheSize,
+                final long fromInventory) {
+            this.dequeues = dequeues;
+            this.hits = hits;
+            this.expired = expired;
+            this.fills = fills;
+            this.averageTimeToFillMillis = averageTimeToFillMillis;
+            this.targetCacheSize = targetCacheSize;
+            this.fromInventory = fromInventory;
+        }
+    }
+
     /**
      * A listener for when ads are available for dequeueing.
      */
@@ -93,6 +161,8 @@ class NativeAdSource {
         };
 
         mAdRendererRegistry = adRendererRegistry;
+        mPrefetchPolicy = new PrefetchPolicy();
+        mPrefetchRequests = new ArrayList<PrefetchRequest>(MAX_PARALLEL_REQUESTS - 1);
 
         // Construct native URL and start filling the cache
         mMoPubNativeNetworkListener = new MoPubNativeNetworkListener() {
@@ -105,15 +175,7 @@ class NativeAdSource {
                 }
 
                 mRequestInFlight = false;
-                mSequenceNumber++;
-                resetRetryTime();
-
-                mNativeAdCache.add(new TimestampWrapper<NativeAd>(nativeAd));
-                if (mNativeAdCache.size() == 1 && mAdSourceListener != null) {
-                    mAdSourceListener.onAdsAvailable();
-                }
-
-                replenishCache();
+                handleAdLoaded(nativeAd, mRequestStartMillis);
             }
 
             @Override
@@ -138,6 +200,25 @@ class NativeAdSource {
         resetRetryTime();
     }
 
+    private void handleAdLoaded(@NonNull final NativeAd nativeAd, final long requestStartMillis) {
+        final long now = SystemClock.uptimeMillis();
+        mSequenceNumber++;
+        resetRetryTime();
+
+        mFillCount++;
+        if (requestStartMillis > 0) {
+            mTotalTimeToFillMillis += now - requestStartMillis;
+            mPrefetchPolicy.onFill(now - requestStartMillis);
+        }
+
+        mNativeAdCache.add(new TimestampWrapper<NativeAd>(nativeAd));
+        if (mNativeAdCache.size() == 1 && mAdSourceListener != null) {
+            mAdSourceListener.onAdsAvailable();
+        }
+
+        replenishCache();
+    }
+
     int getAdRendererCount() {
         return mAdRendererRegistry.getAdRendererCount();
     }
@@ -156,6 +237,9 @@ class NativeAdSource {
         if (mMoPubNative != null) {
             mMoPubNative.registerAdRenderer(moPubNativeAdRenderer);
         }
+        for (final PrefetchRequest prefetchRequest : mPrefetchRequests) {
+            prefetchRequest.registerAdRenderer(moPubNativeAdRenderer);
+        }
     }
 
     @Nullable
@@ -174,12 +258,22 @@ class NativeAdSource {
     void loadAds(@NonNull final Activity activity,
             @NonNull final String adUnitId,
             final RequestParameters requestParameters) {
-        loadAds(requestParameters, new MoPubNative(activity, adUnitId, mMoPubNativeNetworkListener));
+        loadAds(requestParameters, new MoPubNative(activity, adUnitId, mMoPubNativeNetworkListener),
+                NativeAdInventory.getKey(adUnitId, requestParameters));
+        mActivity = new WeakReference<Activity>(activity);
+        mAdUnitId = adUnitId;
     }
 
     @VisibleForTesting
     void loadAds(final RequestParameters requestParameters,
              final MoPubNative moPubNative) {
+        loadAds(requestParameters, moPubNative, null);
+    }
+
+    @VisibleForTesting
+    void loadAds(final RequestParameters requestParameters,
+            final MoPubNative moPubNative,
+            @Nullable final String inventoryKey) {
         clear();
 
         for (MoPubAdRenderer renderer : mAdRendererRegistry.getRendererIterable()) {
@@ -188,6 +282,12 @@ class NativeAdSource {
 
         mRequestParameters = requestParameters;
         mMoPubNative = moPubNative;
+        mLastActiveMillis = SystemClock.uptimeMillis();
+
+        if (inventoryKey != null) {
+            mInventoryKey = inventoryKey;
+            NativeAdInventory.acquire(inventoryKey, this);
+        }
 
         replenishCache();
     }
@@ -202,10 +302,24 @@ class NativeAdSource {
             mMoPubNative = null;
         }
 
-        mRequestParameters = null;
+        for (final PrefetchRequest prefetchRequest : mPrefetchRequests) {
+            prefetchRequest.destroy();
+        }
+        mPrefetchRequests.clear();
 
-        for (final TimestampWrapper<NativeAd> timestampWrapper : mNativeAdCache) {
-            timestampWrapper.mInstance.destroy();
+        mRequestParameters = null;
+        mActivity = null;
+        mAdUnitId = null;
+
+        if (mInventoryKey != null) {
+            // Unplaced ads go back to the inventory for the next ad source on this ad unit
+            NativeAdInventory.release(mInventoryKey, this,
+                    new ArrayList<TimestampWrapper<NativeAd>>(mNativeAdCache));
+            mInventoryKey = null;
+        } else {
+            for (final TimestampWrapper<NativeAd> timestampWrapper : mNativeAdCache) {
+                timestampWrapper.mInstance.destroy();
+            }
         }
         mNativeAdCache.clear();
 
@@ -213,6 +327,14 @@ class NativeAdSource {
         mRequestInFlight = false;
         mSequenceNumber = 0;
         resetRetryTime();
+
+        mPrefetchPolicy.reset();
+        mDequeueCount = 0;
+        mHitCount = 0;
+        mExpiredCount = 0;
+        mFillCount = 0;
+        mTotalTimeToFillMillis = 0;
+        mInventoryCount = 0;
     }
 
     /**
@@ -228,6 +350,9 @@ class NativeAdSource {
     @Nullable
     NativeAd dequeueAd() {
         final long now = SystemClock.uptimeMillis();
+        mDequeueCount++;
+        mLastActiveMillis = now;
+        mPrefetchPolicy.onDequeue(now);
 
         // Starting an ad request takes several millis. Post for performance reasons.
         if (!mRequestInFlight && !mRetryInFlight) {
@@ -235,16 +360,84 @@ class NativeAdSource {
         }
 
         // Dequeue the first ad that hasn't expired.
-        while (!mNativeAdCache.isEmpty()) {
-            TimestampWrapper<NativeAd> responseWrapper = mNativeAdCache.remove(0);
+        evictExpiredAds(now);
+        if (mNativeAdCache.isEmpty()) {
+            final TimestampWrapper<NativeAd> inventoryAd = takeFromInventory(true);
+            if (inventoryAd == null) {
+                return null;
+            }
+            mNativeAdCache.add(inventoryAd);
+        }
+        mHitCount++;
+        return mNativeAdCache.remove(0).mInstance;
+    }
 
-            if (now - responseWrapper.mCreatedTimestamp < EXPIRATION_TIME_MILLISECONDS) {
-                return responseWrapper.mInstance;
+    /**
+     * Takes an ad from the inventory and switches it to this ad source's renderer.
+     */
+    @Nullable
+    private TimestampWrapper<NativeAd> takeFromInventory(final boolean includeOtherSources) {
+        if (mInventoryKey == null) {
+            return null;
+        }
+        final TimestampWrapper<NativeAd> inventoryAd = NativeAdInventory.take(mInventoryKey, this,
+                mAdRendererRegistry, includeOtherSources);
+        if (inventoryAd == null) {
+            return null;
+        }
+        final MoPubAdRenderer renderer = mAdRendererRegistry.getRendererForAd(
+                inventoryAd.mInstance.getBaseNativeAd());
+        if (renderer != null) {
+            inventoryAd.mInstance.setMoPubAdRenderer(renderer);
+        }
+        mInventoryCount++;
+        return inventoryAd;
+    }
+
+    /**
+     * Gives up a cached ad to another ad source on the same inventory entry. Only ads this ad
+     * source does not expect to need are given up: any ad once it has not been used for a while,
+     * otherwise only ads above its target cache size.
+     *
+     * @return the ad, or null if there is none to spare or no renderer in the registry fits it
+     */
+    @Nullable
+    TimestampWrapper<NativeAd> takeSpareAd(@NonNull final AdRendererRegistry adRendererRegistry,
+            final long now) {
+        evictExpiredAds(now);
+        final boolean idle = now - mLastActiveMillis > PrefetchPolicy.IDLE_MILLIS;
+        final int keep = idle ? 0 : mPrefetchPolicy.getTargetCacheSize(now);
+        for (int i = mNativeAdCache.size() - 1; i >= 0 && mNativeAdCache.size() > keep; i--) {
+            final TimestampWrapper<NativeAd> cachedAd = mNativeAdCache.get(i);
+            if (adRendererRegistry.getRendererForAd(cachedAd.mInstance.getBaseNativeAd()) != null) {
+                return mNativeAdCache.remove(i);
             }
         }
         return null;
     }
 
+    /**
+     * Destroys the cached ads that have expired, wherever they are in the cache.
+     */
+    private void evictExpiredAds(final long now) {
+        final Iterator<TimestampWrapper<NativeAd>> iterator = mNativeAdCache.iterator();
+        while (iterator.hasNext()) {
+            final TimestampWrapper<NativeAd> responseWrapper = iterator.next();
+            if (now - responseWrapper.mCreatedTimestamp >= EXPIRATION_TIME_MILLISECONDS) {
+                iterator.remove();
+                responseWrapper.mInstance.destroy();
+                mExpiredCount++;
+            }
+        }
+    }
+
+    @NonNull
+    Stats getStats() {
+        return new Stats(mDequeueCount, mHitCount, mExpiredCount, mFillCount,
+                mFillCount == 0 ? 0 : mTotalTimeToFillMillis / mFillCount,
+                mPrefetchPolicy.getTargetCacheSize(SystemClock.uptimeMillis()), mInventoryCount);
+    }
+
     @VisibleForTesting
     void updateRetryTime() {
         if (mCurrentRetries < RETRY_TIME_ARRAY_MILLISECONDS.length - 1) {
@@ -272,10 +465,78 @@ class NativeAdSource {
      */
     @VisibleForTesting
     void replenishCache() {
-        if (!mRequestInFlight && mMoPubNative != null && mNativeAdCache.size() < CACHE_LIMIT) {
+        if (mMoPubNative == null) {
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        evictExpiredAds(now);
+
+        final int targetCacheSize = mPrefetchPolicy.getTargetCacheSize(now);
+
+        // Use unplaced ads from the inventory before requesting new ones
+        final boolean wasEmpty = mNativeAdCache.isEmpty();
+        while (mNativeAdCache.size() < targetCacheSize) {
+            final TimestampWrapper<NativeAd> inventoryAd = takeFromInventory(false);
+            if (inventoryAd == null) {
+                break;
+            }
+            mNativeAdCache.add(inventoryAd);
+        }
+        if (wasEmpty && !mNativeAdCache.isEmpty() && mAdSourceListener != null) {
+            mAdSourceListener.onAdsAvailable();
+        }
+
+        if (!mRequestInFlight && mNativeAdCache.size() < targetCacheSize) {
             mRequestInFlight = true;
+            mRequestStartMillis = now;
             mMoPubNative.makeRequest(mRequestParameters, mSequenceNumber);
         }
+
+        // Extra requests only run next to the main one, and not while it is backing off after a
+        // failure.
+        if (!mRequestInFlight || mRetryInFlight) {
+            return;
+        }
+        final int maxRequests = Math.min(MAX_PARALLEL_REQUESTS,
+                targetCacheSize - mNativeAdCache.size());
+        int requestsInFlight = getRequestsInFlight();
+        for (int i = 0; requestsInFlight < maxRequests
+                && mNativeAdCache.size() + requestsInFlight < targetCacheSize; i++) {
+            if (i == mPrefetchRequests.size()) {
+                final PrefetchRequest prefetchRequest = new PrefetchRequest();
+                final MoPubNative moPubNative = createPrefetchMoPubNative(prefetchRequest);
+                if (moPubNative == null) {
+                    return;
+                }
+                prefetchRequest.setMoPubNative(moPubNative);
+                mPrefetchRequests.add(prefetchRequest);
+            }
+            final PrefetchRequest prefetchRequest = mPrefetchRequests.get(i);
+            if (!prefetchRequest.mInFlight) {
+                prefetchRequest.makeRequest(now, mSequenceNumber + requestsInFlight);
+                requestsInFlight++;
+            }
+        }
+    }
+
+    private int getRequestsInFlight() {
+        int requestsInFlight = mRequestInFlight ? 1 : 0;
+        for (final PrefetchRequest prefetchRequest : mPrefetchRequests) {
+            if (prefetchRequest.mInFlight) {
+                requestsInFlight++;
+            }
+        }
+        return requestsInFlight;
+    }
+
+    @Nullable
+    @VisibleForTesting
+    MoPubNative createPrefetchMoPubNative(@NonNull final MoPubNativeNetworkListener listener) {
+        final Activity activity = mActivity == null ? null : mActivity.get();
+        if (activity == null || mAdUnitId == null) {
+            return null;
+        }
+        return new MoPubNative(activity, mAdUnitId, listener);
     }
 
     @Deprecated
@@ -290,4 +551,112 @@ class NativeAdSource {
     MoPubNativeNetworkListener getMoPubNativeNetworkListener() {
         return mMoPubNativeNetworkListener;
     }
+
+    /**
+     * An extra ad request made next to the main {@link MoPubNative} request. Each one needs its
+     * own {@link MoPubNative}, since a MoPubNative only tracks one request at a time. Failures
+     * are not retried here; the main request takes care of backing off.
+     */
+    private class PrefetchRequest implements MoPubNativeNetworkListener {
+        @Nullable private MoPubNative mPrefetchMoPubNative;
+        boolean mInFlight;
+        private long mStartMillis;
+
+        void setMoPubNative(@NonNull final MoPubNative moPubNative) {
+            mPrefetchMoPubNative = moPubNative;
+            for (MoPubAdRenderer renderer : mAdRendererRegistry.getRendererIterable()) {
+                moPubNative.registerAdRenderer(renderer);
+            }
+        }
+
+        void registerAdRenderer(@NonNull final MoPubAdRenderer moPubAdRenderer) {
+            if (mPrefetchMoPubNative != null) {
+                mPrefetchMoPubNative.registerAdRenderer(moPubAdRenderer);
+            }
+        }
+
+        void makeRequest(final long now, final int sequenceNumber) {
+            if (mPrefetchMoPubNative == null) {
+                return;
+            }
+            mInFlight = true;
+            mStartMillis = now;
+            mPrefetchMoPubNative.makeRequest(mRequestParameters, sequenceNumber);
+        }
+
+        void destroy() {
+            mInFlight = false;
+            if (mPrefetchMoPubNative != null) {
+                mPrefetchMoPubNative.destroy();
+                mPrefetchMoPubNative = null;
+            }
+        }
+
+        @Override
+        public void onNativeLoad(@NonNull final NativeAd nativeAd) {
+            // Drop responses that arrive after the ad source was cleared.
+            if (!mInFlight || mMoPubNative == null) {
+                nativeAd.destroy();
+                return;
+            }
+            mInFlight = false;
+            handleAdLoaded(nativeAd, mStartMillis);
+        }
+
+        @Override
+        public void onNativeFail(final NativeErrorCode errorCode) {
+            mInFlight = false;
+        }
+    }
+
+    /**
+     * Decides how many ads to keep cached. Tracks the average time between dequeues, which
+     * follows how fast the user scrolls past ad positions, and the average time to fill an ad
+     * request. The cache should hold enough ads to cover the dequeues that happen while a request
+     * is being filled.
+     */
+    @VisibleForTesting
+    static class PrefetchPolicy {
+        // Weight of the newest sample in the moving averages
+        private static final double SMOOTHING_FACTOR = 0.3;
+        // Dequeues further apart than this mean that the user stopped scrolling
+        @VisibleForTesting static final long IDLE_MILLIS = 10 * 1000;
+
+        private long mLastDequeueMillis = -1;
+        private double mDequeueIntervalMillis;
+        private double mTimeToFillMillis;
+
+        void onDequeue(final long now) {
+            if (mLastDequeueMillis >= 0 && now - mLastDequeueMillis <= IDLE_MILLIS) {
+                mDequeueIntervalMillis = average(mDequeueIntervalMillis,
+                        Math.max(1, now - mLastDequeueMillis));
+            } else {
+                mDequeueIntervalMillis = 0;
+            }
+            mLastDequeueMillis = now;
+        }
+
+        void onFill(final long timeToFillMillis) {
+            mTimeToFillMillis = average(mTimeToFillMillis, Math.max(0, timeToFillMillis));
+        }
+
+        int getTargetCacheSize(final long now) {
+            if (mDequeueIntervalMillis <= 0 || now - mLastDequeueMillis > IDLE_MILLIS) {
+                return CACHE_LIMIT;
+            }
+            final double dequeuesPerFill = mTimeToFillMillis / mDequeueIntervalMillis;
+            final int targetCacheSize = CACHE_LIMIT + (int) Math.ceil(dequeuesPerFill);
+            return Math.max(CACHE_LIMIT, Math.min(MAX_CACHE_LIMIT, targetCacheSize));
+        }
+
+        void reset() {
+            mLastDequeueMillis = -1;
+            mDequeueIntervalMillis = 0;
+            mTimeToFillMillis = 0;
+        }
+
+        private static double average(final double average, final double sample) {
+            return average <= 0 ? sample : average + SMOOTHING_FACTOR * (sample - average);
+        }
+    }
 }
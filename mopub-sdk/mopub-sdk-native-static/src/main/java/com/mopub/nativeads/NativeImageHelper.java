@@ -19,7 +19,9 @@ import com.mopub.network.MoPubImageLoader;
 import com.mopub.network.MoPubNetworkError;
 import com.mopub.network.Networking;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -56,9 +58,12 @@ public class NativeImageHelper {
             @NonNull final List<String> imageUrls,
             @NonNull final ImageListener imageListener) {
         final MoPubImageLoader imageLoader = Networking.getImageLoader(context);
+        // Ads often use the same image more than once, e.g. as icon and as main image. Fetch each
+        // image once; fetches of images already loading for another ad join the load in flight.
+        final Set<String> distinctUrls = new LinkedHashSet<String>(imageUrls);
         // These Atomics are only accessed on the main thread.
         // We use Atomics here so we can change their values while keeping a reference for the inner class.
-        final AtomicInteger imageCounter = new AtomicInteger(imageUrls.size());
+        final AtomicInteger imageCounter = new AtomicInteger(distinctUrls.size());
         final AtomicBoolean anyFailures = new AtomicBoolean(false);
         MoPubImageLoader.ImageListener moPubImageListener = new MoPubImageLoader.ImageListener() {
 
@@ -86,7 +91,7 @@ public class NativeImageHelper {
             }
         };
 
-        for (String url : imageUrls) {
+        for (String url : distinctUrls) {
             if (TextUtils.isEmpty(url)) {
                 anyFailures.set(true);
                 imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
@@ -117,6 +122,14 @@ public class NativeImageHelper {
             return;
         }
 
+        // Decode no larger than the image view once it has been laid out. An image pre-cached at
+        // the max image width is still used as is.
+        final int maxImageWidth = ImageUtils.getMaxImageWidth(imageView.getContext());
+        final int maxWidth = imageView.getWidth() > 0
+                ? Math.min(imageView.getWidth(), maxImageWidth)
+                : maxImageWidth;
+        final int maxHeight = Math.max(imageView.getHeight(), 0);
+
         final MoPubImageLoader mImageLoader = Networking.getImageLoader(imageView.getContext());
         mImageLoader.fetch(url, new MoPubImageLoader.ImageListener() {
             @Override
@@ -134,6 +147,6 @@ public class NativeImageHelper {
                 MoPubLog.log(CUSTOM, "Failed to load image.", networkError);
                 imageView.setImageDrawable(null);
             }
-        }, ImageUtils.getMaxImageWidth(imageView.getContext()));
+        }, maxWidth, maxHeight);
     }
 }
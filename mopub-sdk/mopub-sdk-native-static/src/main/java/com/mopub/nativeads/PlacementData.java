@@ -10,6 +10,7 @@ import androidx.annotation.Nullable;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
@@ -18,7 +19,7 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * A data that represents placed ads in a {@link com.mopub.nativeads.MoPubStreamAdPlacer},
  * useful for tracking insertion and placed ad positions.
  *
- * It maintains four lists of integers
+ * Conceptually it maintains four lists of integers
  * 1) Desired insertion positions - positions to place ads
  * 2) Desired original positions - original position for each ad to place
  * 2) Adjusted ad positions - ad positions that were placed
@@ -119,10 +120,23 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * originalPositions: {3}
  * adjustedPositions: {3}
  *
- * Some runtime guarantees in terms of number of insertion ads:
+ * All four lists are derived from one sequence of ad slots ordered by original position. Each
+ * slot is either desired or placed, and placing or clearing an ad only flips its slot. The
+ * adjusted position of a slot, which is its insertion position while it is desired, is its
+ * original position plus the number of placed slots before it. Two Fenwick trees over the slots,
+ * one over the differences between consecutive original positions and one over the placed flags,
+ * give both sums in O(logN). Inserting or removing content items shifts every later original
+ * position, which is a single update of the first difference.
+ *
+ * Repeating positions are added to the end of the sequence as they are needed, so there is no
+ * cap on the number of ads.
+ *
+ * Some runtime guarantees in terms of number of ad slots:
  * - Finds the next or previous insertion position in O(logN)
  * - Maps from adjusted to original positions and vice versa in O(logN)
- * - Places an ad (moves positions from desired to placed) in O(N)
+ * - Places an ad in O(logN)
+ * - Inserts or removes a range of content items in O(logN), plus O(logN) for each ad slot inside
+ *   a removed range
  */
 class PlacementData {
     /**
@@ -130,65 +144,66 @@ class PlacementData {
      */
     public final static int NOT_FOUND = -1;
 
-    // Cap the number of ads to avoid unrestrained memory usage. 200 allows the 5 positioning
-    // arrays to fit in less than 4K.
-    private final static int MAX_ADS = 200;
-
-    // Initialize all of these to their max capacity. This prevents garbage collection when
-    // reallocating the list, which causes noticeable stuttering when scrolling on some devices.
-    @NonNull private final int[] mDesiredOriginalPositions = new int[MAX_ADS];
-    @NonNull private final int[] mDesiredInsertionPositions = new int[MAX_ADS];
-    private int mDesiredCount = 0;
-    @NonNull private final int[] mOriginalAdPositions = new int[MAX_ADS];
-    @NonNull private final int[] mAdjustedAdPositions = new int[MAX_ADS];
-    @NonNull private final NativeAd[] mNativeAds = new NativeAd[MAX_ADS];
+    // Arrays grow by doubling, so a long feed reallocates only a handful of times.
+    private final static int INITIAL_CAPACITY = 64;
+
+    private final int mRepeatInterval;
+
+    // 1-based Fenwick trees. mOriginalTree sums the differences between the original positions
+    // of consecutive slots. mPlacedTree sums 1 for each placed slot.
+    @NonNull private int[] mOriginalTree;
+    @NonNull private int[] mPlacedTree;
+    @NonNull private NativeAd[] mNativeAds;
+    private int mSlotCount = 0;
     private int mPlacedCount = 0;
 
     /**
      * @param desiredInsertionPositions Insertion positions, expressed as original positions
+     * @param repeatInterval Interval for the repeating positions after the last one, or
+     * {@link MoPubClientPositioning#NO_REPEAT}
      */
-    private PlacementData(@NonNull final int[] desiredInsertionPositions) {
-        mDesiredCount = Math.min(desiredInsertionPositions.length, MAX_ADS);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredInsertionPositions, 0, mDesiredCount);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredOriginalPositions, 0, mDesiredCount);
+    private PlacementData(@NonNull final int[] desiredInsertionPositions,
+            final int repeatInterval) {
+        mRepeatInterval = repeatInterval;
+        final int capacity = Math.max(INITIAL_CAPACITY, desiredInsertionPositions.length);
+        mOriginalTree = new int[capacity + 1];
+        mPlacedTree = new int[capacity + 1];
+        mNativeAds = new NativeAd[capacity];
+        for (final int position : desiredInsertionPositions) {
+            appendSlot(position);
+        }
+        if (isRepeating()) {
+            appendRepeatingSlot();
+        }
     }
 
     @NonNull
     static PlacementData fromAdPositioning(@NonNull final MoPubClientPositioning adPositioning) {
         final List<Integer> fixed = adPositioning.getFixedPositions();
-        final int interval = adPositioning.getRepeatingInterval();
-
-        final int size = (interval == MoPubClientPositioning.NO_REPEAT ? fixed.size() : MAX_ADS);
-        final int[] desiredInsertionPositions = new int[size];
+        final int[] desiredInsertionPositions = new int[fixed.size()];
 
         // Fixed positions are in terms of final positions. Calculate current insertion positions
         // by decrementing numAds at each index.
         int numAds = 0;
-        int lastPos = 0;
         for (final Integer position : fixed) {
-            lastPos = position - numAds;
-            desiredInsertionPositions[numAds++] = lastPos;
+            desiredInsertionPositions[numAds] = position - numAds;
+            numAds++;
         }
-
-        // Expand the repeating positions, if there are any
-        while (numAds < size) {
-            lastPos = lastPos + interval - 1;
-            desiredInsertionPositions[numAds++] = lastPos;
-        }
-        return new PlacementData(desiredInsertionPositions);
+        return new PlacementData(desiredInsertionPositions,
+                adPositioning.getRepeatingInterval());
     }
 
     @NonNull
     static PlacementData empty() {
-        return new PlacementData(new int[] {});
+        return new PlacementData(new int[] {}, MoPubClientPositioning.NO_REPEAT);
     }
 
     /**
      * Whether the given position should be an ad.
      */
     boolean shouldPlaceAd(final int position) {
-        final int index = binarySearch(mDesiredInsertionPositions, 0, mDesiredCount, position);
-        return index >= 0;
+        ensureAdjustedPositionsAfter(position);
+        return findDesiredSlot(position) != NOT_FOUND;
     }
 
     /**
@@ -196,12 +211,16 @@ class PlacementData {
      * more ads.
      */
     int nextInsertionPosition(final int position) {
-        final int index = binarySearchGreaterThan(
-                mDesiredInsertionPositions, mDesiredCount, position);
-        if (index == mDesiredCount) {
-            return NOT_FOUND;
+        ensureAdjustedPositionsAfter(position);
+        int slot = nextDesiredSlot(searchAdjustedEnd(position + 1));
+        if (slot == mSlotCount) {
+            if (!isRepeating()) {
+                return NOT_FOUND;
+            }
+            appendRepeatingSlot();
+            slot = mSlotCount - 1;
         }
-        return mDesiredInsertionPositions[index];
+        return getAdjustedPositionOfSlot(slot);
     }
 
     /**
@@ -209,67 +228,37 @@ class PlacementData {
      * are no more ads.
      */
     int previousInsertionPosition(final int position) {
-        final int index = binarySearchFirstEquals(
-                mDesiredInsertionPositions,  mDesiredCount, position);
-        if (index == 0) {
+        ensureAdjustedPositionsAfter(position);
+        // Every desired slot before this one has an insertion position less than position
+        final int end = searchAdjustedEnd(position);
+        final int desiredCount = end - prefixSum(mPlacedTree, end);
+        if (desiredCount == 0) {
             return NOT_FOUND;
         }
-        return mDesiredInsertionPositions[index - 1];
+        return getAdjustedPositionOfSlot(search(1, 0, -1, desiredCount));
     }
 
     /**
      * Sets ad data at the given position.
      */
     void placeAd(final int adjustedPosition, final NativeAd nativeAd) {
-        // See if this is a insertion ad
-        final int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, adjustedPosition);
-        if (desiredIndex == mDesiredCount
-                || mDesiredInsertionPositions[desiredIndex] != adjustedPosition) {
+        ensureAdjustedPositionsAfter(adjustedPosition);
+        final int slot = findDesiredSlot(adjustedPosition);
+        if (slot == NOT_FOUND) {
             MoPubLog.log(CUSTOM, "Attempted to insert an ad at an invalid position");
             return;
         }
 
-        // Add to placed array
-        final int originalPosition = mDesiredOriginalPositions[desiredIndex];
-        int placeIndex = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        if (placeIndex < mPlacedCount) {
-            final int num = mPlacedCount - placeIndex;
-            System.arraycopy(mOriginalAdPositions, placeIndex,
-                    mOriginalAdPositions, placeIndex + 1, num);
-            System.arraycopy(mAdjustedAdPositions, placeIndex,
-                    mAdjustedAdPositions, placeIndex + 1, num);
-            System.arraycopy(mNativeAds, placeIndex, mNativeAds, placeIndex + 1, num);
-        }
-        mOriginalAdPositions[placeIndex] = originalPosition;
-        mAdjustedAdPositions[placeIndex] = adjustedPosition;
-        mNativeAds[placeIndex] = nativeAd;
+        add(mPlacedTree, slot, 1);
+        mNativeAds[slot] = nativeAd;
         mPlacedCount++;
-
-        // Remove desired index
-        final int num = mDesiredCount - desiredIndex - 1;
-        System.arraycopy(mDesiredInsertionPositions, desiredIndex + 1,
-                mDesiredInsertionPositions, desiredIndex, num);
-        System.arraycopy(mDesiredOriginalPositions, desiredIndex + 1,
-                mDesiredOriginalPositions, desiredIndex, num);
-        mDesiredCount--;
-
-        // Increment adjusted positions
-        for (int i = desiredIndex; i < mDesiredCount; ++i) {
-            mDesiredInsertionPositions[i]++;
-        }
-        for (int i = placeIndex + 1; i < mPlacedCount; ++i) {
-            mAdjustedAdPositions[i]++;
-        }
     }
 
     /**
      * @see {@link com.mopub.nativeads.MoPubStreamAdPlacer#isAd(int)}
      */
     boolean isPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-        return index >= 0;
+        return findPlacedSlot(position) != NOT_FOUND;
     }
 
     /**
@@ -278,11 +267,11 @@ class PlacementData {
      */
     @Nullable
     NativeAd getPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-        if (index < 0) {
+        final int slot = findPlacedSlot(position);
+        if (slot == NOT_FOUND) {
             return null;
         }
-        return mNativeAds[index];
+        return mNativeAds[slot];
     }
 
     /**
@@ -291,8 +280,12 @@ class PlacementData {
      */
     @NonNull
     int[] getPlacedAdPositions() {
-        int[] positions = new int[mPlacedCount];
-        System.arraycopy(mAdjustedAdPositions, 0, positions, 0, mPlacedCount);
+        final int[] positions = new int[mPlacedCount];
+        int slot = nextPlacedSlot(0);
+        for (int i = 0; i < mPlacedCount; i++) {
+            positions[i] = getAdjustedPositionOfSlot(slot);
+            slot = nextPlacedSlot(slot + 1);
+        }
         return positions;
     }
 
@@ -300,24 +293,22 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getOriginalPosition(int)
      */
     int getOriginalPosition(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-
-        // No match, ~index is the number of ads before this pos.
-        if (index < 0) {
-            return position - ~index;
+        // This is an ad - there is no original position
+        if (findPlacedSlot(position) != NOT_FOUND) {
+            return NOT_FOUND;
         }
 
-        // This is an ad - there is no original position
-        return NOT_FOUND;
+        // Every placed slot before this one is an ad before position
+        return position - prefixSum(mPlacedTree, searchAdjustedEnd(position + 1));
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getAdjustedPosition(int)
      */
     int getAdjustedPosition(final int originalPosition) {
-        // This is an ad. Since binary search doesn't properly handle dups, find the first non-ad.
-        int index = binarySearchGreaterThan(mOriginalAdPositions, mPlacedCount, originalPosition);
-        return originalPosition + index;
+        // Ads placed before the item at originalPosition, including ads placed right before it
+        final int end = searchOriginal(originalPosition + 1);
+        return originalPosition + prefixSum(mPlacedTree, end);
     }
 
     /**
@@ -349,61 +340,23 @@ class PlacementData {
      * positions.
      */
     int clearAdsInRange(final int adjustedStartRange, final int adjustedEndRange) {
-        // Temporary arrays to store the cleared positions. Using temporary arrays makes it
-        // easy to debug what positions are being cleared.
-        int[] clearOriginalPositions = new int[mPlacedCount];
-        int[] clearAdjustedPositions = new int[mPlacedCount];
         int clearCount = 0;
-
-        // Add to the clear position arrays any positions that fall inside
-        // [adjustedRangeStart, adjustedRangeEnd).
-        for (int i = 0; i < mPlacedCount; ++i) {
-            int originalPosition = mOriginalAdPositions[i];
-            int adjustedPosition = mAdjustedAdPositions[i];
-            if (adjustedStartRange <= adjustedPosition && adjustedPosition < adjustedEndRange) {
-                // When copying adjusted positions, subtract the current clear count because there
-                // is no longer an ad incrementing the desired insertion position.
-                clearOriginalPositions[clearCount] = originalPosition;
-                clearAdjustedPositions[clearCount] = adjustedPosition - clearCount;
-
-                // Destroying and nulling out the ad objects to avoids a memory leak.
-                mNativeAds[i].destroy();
-                mNativeAds[i] = null;
-                clearCount++;
-            } else if (clearCount > 0) {
-                // The position is not in the range; shift it by the number of cleared ads.
-                int newIndex = i - clearCount;
-                mOriginalAdPositions[newIndex] = originalPosition;
-                mAdjustedAdPositions[newIndex] = adjustedPosition - clearCount;
-                mNativeAds[newIndex] = mNativeAds[i];
+        int slot = nextPlacedSlot(searchAdjustedEnd(adjustedStartRange + 1));
+        while (slot < mSlotCount) {
+            // Add back the ads cleared so far to compare against the positions before this call
+            final int adjustedPosition = getAdjustedPositionOfSlot(slot) + clearCount;
+            if (adjustedPosition >= adjustedEndRange) {
+                break;
             }
-        }
-
-        // If we have cleared nothing, this method was a no-op.
-        if (clearCount == 0) {
-            return 0;
-        }
-
-        // Modify the desired positions arrays in order to make space to put back the
-        // cleared ad positions. For example if the desired array was {1, 10,
-        // 15} and we need to insert {3, 7} we'll shift the desired array to be {1, ?, ? , 10, 15}.
-        int firstCleared = clearAdjustedPositions[0];
-        int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, firstCleared);
-        for (int i = mDesiredCount - 1; i >= desiredIndex; --i) {
-            mDesiredOriginalPositions[i + clearCount] = mDesiredOriginalPositions[i];
-            mDesiredInsertionPositions[i + clearCount] = mDesiredInsertionPositions[i] - clearCount;
-        }
 
-        // Copy the cleared ad positions into the desired arrays.
-        for (int i = 0; i < clearCount; ++i) {
-            mDesiredOriginalPositions[desiredIndex + i] = clearOriginalPositions[i];
-            mDesiredInsertionPositions[desiredIndex + i] = clearAdjustedPositions[i];
+            // Destroying and nulling out the ad objects to avoids a memory leak.
+            mNativeAds[slot].destroy();
+            mNativeAds[slot] = null;
+            add(mPlacedTree, slot, -1);
+            mPlacedCount--;
+            clearCount++;
+            slot = nextPlacedSlot(slot + 1);
         }
-
-        // Update the array counts, and we're done.
-        mDesiredCount = mDesiredCount + clearCount;
-        mPlacedCount = mPlacedCount - clearCount;
         return clearCount;
     }
 
@@ -416,28 +369,31 @@ class PlacementData {
             return;
         }
 
-        clearAdsInRange(0, mAdjustedAdPositions[mPlacedCount - 1] + 1);
+        clearAdsInRange(0, Integer.MAX_VALUE);
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItem(int)
      */
     void insertItem(final int originalPosition) {
+        insertItems(originalPosition, 1);
+    }
 
-        // Increment desired arrays.
-        int indexToIncrement = binarySearchFirstEquals(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-        for (int i = indexToIncrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]++;
-            mDesiredInsertionPositions[i]++;
+    /**
+     * Same as calling {@link #insertItem(int)} {@code itemCount} times with the same position.
+     *
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItems(int, int)
+     */
+    void insertItems(final int originalPosition, final int itemCount) {
+        if (itemCount <= 0) {
+            return;
         }
+        ensureOriginalPositionsAfter(originalPosition);
 
-        // Increment placed arrays.
-        indexToIncrement = binarySearchFirstEquals(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        for (int i = indexToIncrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]++;
-            mAdjustedAdPositions[i]++;
+        // Shift every slot at or after the insertion point
+        final int slot = searchOriginal(originalPosition);
+        if (slot < mSlotCount) {
+            add(mOriginalTree, slot, itemCount);
         }
     }
 
@@ -445,25 +401,37 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#removeItem(int)
      */
     void removeItem(final int originalPosition) {
+        removeItems(originalPosition, 1);
+    }
+
+    /**
+     * Same as calling {@link #removeItem(int)} {@code itemCount} times with the same position.
+     *
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#removeItems(int, int)
+     */
+    void removeItems(final int originalPosition, final int itemCount) {
+        if (itemCount <= 0) {
+            return;
+        }
+        final int lastRemoved = originalPosition + itemCount;
+        ensureOriginalPositionsAfter(lastRemoved);
+
         // When removing items, we only decrement ad position values *greater* than the original
         // position we're removing. The original position associated with an ad is the original
         // position of the first content item after the ad, so we shouldn't change the original
-        // position of an ad that matches the original position removed.
-        int indexToDecrement = binarySearchGreaterThan(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-
-        // Decrement desired arrays.
-        for (int i = indexToDecrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]--;
-            mDesiredInsertionPositions[i]--;
+        // position of an ad that matches the original position removed. Ads before removed items
+        // end up before the item that follows the removed range.
+        final int firstShifted = searchOriginal(originalPosition + 1);
+        final int firstAfterRange = searchOriginal(lastRemoved + 1);
+        final int originalAfterRange = firstAfterRange < mSlotCount
+                ? getOriginalPositionOfSlot(firstAfterRange)
+                : 0;
+        for (int slot = firstShifted; slot < firstAfterRange; slot++) {
+            add(mOriginalTree, slot, originalPosition - getOriginalPositionOfSlot(slot));
         }
-
-        indexToDecrement = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-
-        for (int i = indexToDecrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]--;
-            mAdjustedAdPositions[i]--;
+        if (firstAfterRange < mSlotCount) {
+            add(mOriginalTree, firstAfterRange,
+                    originalAfterRange - itemCount - getOriginalPositionOfSlot(firstAfterRange));
         }
     }
 
@@ -471,63 +439,182 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#moveItem(int, int)
      */
     void moveItem(final int originalPosition, final int newPosition) {
-        removeItem(originalPosition);
-        insertItem(newPosition);
+        moveItems(originalPosition, newPosition, 1);
+    }
+
+    /**
+     * Same as calling {@link #moveItem(int, int)} for each of the {@code itemCount} items.
+     *
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#moveItems(int, int, int)
+     */
+    void moveItems(final int originalPosition, final int newPosition, final int itemCount) {
+        removeItems(originalPosition, itemCount);
+        insertItems(newPosition, itemCount);
     }
 
-    private static int binarySearchFirstEquals(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    private boolean isRepeating() {
+        return mRepeatInterval != MoPubClientPositioning.NO_REPEAT;
+    }
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+    /**
+     * Adds repeating slots until there is a slot whose original position is after the given
+     * position, so that edits at that position shift every slot that they would have shifted if
+     * all repeating positions had been there from the start.
+     */
+    private void ensureOriginalPositionsAfter(final int originalPosition) {
+        if (!isRepeating()) {
+            return;
         }
+        while (getOriginalPositionOfSlot(mSlotCount - 1) <= originalPosition) {
+            appendRepeatingSlot();
+        }
+    }
 
-        int duplicateValue = array[index];
-        while (index >= 0 && array[index] == duplicateValue) {
-            index--;
+    /**
+     * Adds repeating slots until every slot that is not there yet would have an adjusted position
+     * after the given position.
+     */
+    private void ensureAdjustedPositionsAfter(final int adjustedPosition) {
+        if (!isRepeating()) {
+            return;
+        }
+        while (getOriginalPositionOfSlot(mSlotCount - 1) + mPlacedCount <= adjustedPosition) {
+            appendRepeatingSlot();
         }
+    }
 
-        return index + 1;
+    private void appendRepeatingSlot() {
+        final int lastPosition = mSlotCount == 0 ? 0 : getOriginalPositionOfSlot(mSlotCount - 1);
+        appendSlot(lastPosition + mRepeatInterval - 1);
     }
 
-    private static int binarySearchGreaterThan(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    /**
+     * Appends a desired slot. Original positions must not decrease.
+     */
+    private void appendSlot(final int originalPosition) {
+        if (mSlotCount == mNativeAds.length) {
+            final int capacity = mNativeAds.length * 2;
+            mOriginalTree = Arrays.copyOf(mOriginalTree, capacity + 1);
+            mPlacedTree = Arrays.copyOf(mPlacedTree, capacity + 1);
+            mNativeAds = Arrays.copyOf(mNativeAds, capacity);
+        }
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+        final int previousPosition = mSlotCount == 0
+                ? 0
+                : getOriginalPositionOfSlot(mSlotCount - 1);
+        // A new node covers itself and the nodes before it down to index - lowest bit
+        final int index = mSlotCount + 1;
+        final int coveredStart = index - (index & -index);
+        mOriginalTree[index] = originalPosition - previousPosition
+                + prefixSum(mOriginalTree, index - 1) - prefixSum(mOriginalTree, coveredStart);
+        mPlacedTree[index] = prefixSum(mPlacedTree, index - 1) - prefixSum(mPlacedTree, coveredStart);
+        mSlotCount++;
+    }
+
+    /**
+     * @return the desired slot whose insertion position is position, or NOT_FOUND
+     */
+    private int findDesiredSlot(final int position) {
+        final int slot = nextDesiredSlot(searchAdjustedEnd(position));
+        if (slot < mSlotCount && getAdjustedPositionOfSlot(slot) == position) {
+            return slot;
         }
+        return NOT_FOUND;
+    }
 
-        int duplicateValue = array[index];
-        while (index < count && array[index] == duplicateValue) {
-            index++;
+    /**
+     * @return the placed slot whose ad is at position, or NOT_FOUND
+     */
+    private int findPlacedSlot(final int position) {
+        final int slot = nextPlacedSlot(searchAdjustedEnd(position + 1));
+        if (slot < mSlotCount && getAdjustedPositionOfSlot(slot) == position) {
+            return slot;
         }
+        return NOT_FOUND;
+    }
 
-        return index;
+    private int getOriginalPositionOfSlot(final int slot) {
+        return prefixSum(mOriginalTree, slot + 1);
     }
 
     /**
-     * Copied from Arrays.java, which isn't available until Gingerbread.
+     * The ad position of a placed slot, or the insertion position of a desired slot.
      */
-    private static int binarySearch(int[] array, int startIndex, int endIndex, int value) {
-        int lo = startIndex;
-        int hi = endIndex - 1;
+    private int getAdjustedPositionOfSlot(final int slot) {
+        return getOriginalPositionOfSlot(slot) + prefixSum(mPlacedTree, slot);
+    }
 
-        while (lo <= hi) {
-            int mid = (lo + hi) >>> 1;
-            int midVal = array[mid];
+    /**
+     * @return the first slot whose original position is at least originalPosition, or the slot
+     * count if there is none
+     */
+    private int searchOriginal(final int originalPosition) {
+        return search(0, 1, 0, originalPosition);
+    }
 
-            if (midVal < value) {
-                lo = mid + 1;
-            } else if (midVal > value) {
-                hi = mid - 1;
-            } else {
-                return mid;  // value found
+    /**
+     * Finds the first slot whose adjusted position plus one if placed is at least position. That
+     * is the first desired slot with an insertion position of at least position, or the first
+     * placed slot with an ad position of at least position - 1.
+     */
+    private int searchAdjustedEnd(final int position) {
+        return search(0, 1, 1, position);
+    }
+
+    /**
+     * @return the first desired slot at or after slot, or the slot count if there is none
+     */
+    private int nextDesiredSlot(final int slot) {
+        return search(1, 0, -1, slot - prefixSum(mPlacedTree, slot) + 1);
+    }
+
+    /**
+     * @return the first placed slot at or after slot, or the slot count if there is none
+     */
+    private int nextPlacedSlot(final int slot) {
+        return search(0, 0, 1, prefixSum(mPlacedTree, slot) + 1);
+    }
+
+    /**
+     * Finds the first slot i such that, over slots 0 to i, countWeight * (number of slots) +
+     * originalWeight * (sum of original position differences) + placedWeight * (number of placed
+     * slots) is at least target. Each slot must add a non-negative amount to that sum.
+     *
+     * @return the slot, or the slot count if there is none
+     */
+    private int search(final int countWeight, final int originalWeight, final int placedWeight,
+            final int target) {
+        int index = 0;
+        int sum = 0;
+        for (int step = Integer.highestOneBit(mSlotCount); step > 0; step >>= 1) {
+            final int next = index + step;
+            if (next > mSlotCount) {
+                continue;
+            }
+            final int nextSum = sum + countWeight * step + originalWeight * mOriginalTree[next]
+                    + placedWeight * mPlacedTree[next];
+            if (nextSum < target) {
+                index = next;
+                sum = nextSum;
             }
         }
-        return ~lo;  // value not present
+        return index;
+    }
+
+    /**
+     * @return the sum of the first count values in the tree
+     */
+    private static int prefixSum(@NonNull final int[] tree, final int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void add(@NonNull final int[] tree, final int slot, final int delta) {
+        for (int i = slot + 1; i <= mSlotCount; i += i & -i) {
+            tree[i] += delta;
+        }
     }
 }
@@ -0,0 +1,248 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads
+
+import android.content.Context
+import androidx.annotation.AnyThread
+import androidx.annotation.WorkerThread
+
+import com.mopub.common.CacheService
+import com.mopub.common.VisibleForTesting
+import com.mopub.common.logging.MoPubLog
+import com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM
+import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning
+
+import kotlinx.coroutines.SupervisorJob
+
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Persists the positioning returned by the ad server per ad unit, so that a stream ad placer can
+ * start placing ads from the last known positions while they are revalidated in the background.
+ */
+object PositioningCacheService : CacheService("mopub-positioning-cache") {
+
+    /**
+     * Used when the server does not send a Cache-Control max-age.
+     */
+    const val DEFAULT_MAX_AGE_MILLIS = 60 * 60 * 1000L // 1 hour
+
+    /**
+     * How long past its max-age an entry is still used while it is being revalidated.
+     */
+    const val MAX_STALE_MILLIS = 7 * 24 * 60 * 60 * 1000L // 7 days
+
+    private const val VERSION = 1
+    private const val VERSION_KEY = "version"
+    private const val FIXED_KEY = "fixed"
+    private const val INTERVAL_KEY = "interval"
+    private const val ETAG_KEY = "etag"
+    private const val FETCHED_AT_KEY = "fetched_at"
+    private const val MAX_AGE_KEY = "max_age"
+
+    private val supervisorJob = SupervisorJob()
+
+    /**
+     * Entries per ad unit id, filled by puts and by reads from disk, so that only the first placer
+     * for an ad unit in this process waits for the disk cache.
+     */
+    private val entryIndex = ConcurrentHashMap<String, Entry>()
+
+    /**
+     * A cached positioning and the validators needed to revalidate it. Fetch times are wall clock
+     * times since the entry outlives the process.
+     */
+    class Entry(
+        positioning: MoPubClientPositioning,
+        val eTag: String?,
+        val fetchedAtMillis: Long,
+        val maxAgeMillis: Long
+    ) {
+        private val positioning = MoPubNativeAdPositioning.clone(positioning)
+
+        /**
+         * @return a copy of the cached positioning that callers are free to modify.
+         */
+        fun getPositioning(): MoPubClientPositioning = MoPubNativeAdPositioning.clone(positioning)
+
+        fun isFresh(nowMillis: Long) =
+            nowMillis >= fetchedAtMillis && nowMillis - fetchedAtMillis < maxAgeMillis
+
+        fun isUsable(nowMillis: Long) =
+            nowMillis >= fetchedAtMillis && nowMillis - fetchedAtMillis < maxAgeMillis + MAX_STALE_MILLIS
+
+        fun toByteArray(): ByteArray {
+            val fixed = JSONArray()
+            for (position in positioning.fixedPositions) {
+                fixed.put(position)
+            }
+            return JSONObject()
+                .put(VERSION_KEY, VERSION)
+                .put(FIXED_KEY, fixed)
+                .put(INTERVAL_KEY, positioning.repeatingInterval)
+                .putOpt(ETAG_KEY, eTag)
+                .put(FETCHED_AT_KEY, fetchedAtMillis)
+                .put(MAX_AGE_KEY, maxAgeMillis)
+                .toString()
+                .toByteArray(Charsets.UTF_8)
+        }
+
+        companion object {
+            @JvmStatic
+            fun fromByteArray(content: ByteArray?): Entry? {
+                if (content == null || content.isEmpty()) {
+                    return null
+                }
+                return try {
+                    val json = JSONObject(String(content, Charsets.UTF_8))
+                    if (json.getInt(VERSION_KEY) != VERSION) {
+                        return null
+                    }
+                    val positioning = MoPubClientPositioning()
+                    val fixed = json.getJSONArray(FIXED_KEY)
+                    for (i in 0 until fixed.length()) {
+                        positioning.addFixedPosition(fixed.getInt(i))
+                    }
+                    val interval = json.getInt(INTERVAL_KEY)
+                    if (interval != MoPubClientPositioning.NO_REPEAT) {
+                        positioning.enableRepeatingPositions(interval)
+                    }
+                    Entry(
+                        positioning,
+                        json.optString(ETAG_KEY).takeIf { it.isNotEmpty() },
+                        json.getLong(FETCHED_AT_KEY),
+                        json.getLong(MAX_AGE_KEY)
+                    )
+                } catch (e: JSONException) {
+                    MoPubLog.log(CUSTOM, "Unable to read cached positioning", e)
+                    null
+                }
+            }
+        }
+    }
+
+    /**
+     * Interface for positioning cache related callbacks
+     */
+    interface PositioningCacheListener {
+        fun onEntryReceived(entry: Entry?)
+    }
+
+    /**
+     * Get the cached positioning for an ad unit and pass it to the provided listener, whether or
+     * not it is still fresh. If the entry is already in memory, the listener is called before
+     * this returns.
+     *
+     * @param adUnitId the ad unit id for which to fetch the positioning for.
+     * @param listener the listener to pass the retrieved entry to.
+     * @param context to initialize the positioning cache.
+     */
+    @JvmStatic
+    @AnyThread
+    fun getPositioning(
+        adUnitId: String,
+        listener: PositioningCacheListener,
+        context: Context?
+    ) {
+        if (context == null) {
+            MoPubLog.log(CUSTOM, "Context cannot be null.")
+            listener.onEntryReceived(null)
+            return
+        }
+
+        entryIndex[adUnitId]?.let {
+            listener.onEntryReceived(it)
+            return
+        }
+
+        val cacheListener = object : DiskLruCacheListener {
+            override fun onGetComplete(key: String, content: ByteArray?) {
+                if (key != adUnitId) {
+                    return
+                }
+                val entry = Entry.fromByteArray(content)
+                // A put may have happened while this was read from disk. It wins.
+                if (entry != null) {
+                    entryIndex.putIfAbsent(adUnitId, entry)
+                }
+                listener.onEntryReceived(entryIndex[adUnitId])
+            }
+        }
+
+        getFromDiskCacheAsync(
+            adUnitId,
+            cacheListener,
+            supervisorJob,
+            context
+        )
+    }
+
+    /**
+     * Fire and forget call to cache the positioning for an ad unit.
+     *
+     * @param adUnitId the ad unit id for which to cache the positioning for (key).
+     * @param entry the positioning and its validators to cache (value).
+     * @param context to initialize the positioning cache.
+     */
+    @JvmStatic
+    @AnyThread
+    fun putPositioning(
+        adUnitId: String,
+        entry: Entry,
+        context: Context?
+    ) {
+        if (context == null) {
+            MoPubLog.log(CUSTOM, "Context cannot be null.")
+            return
+        }
+
+        entryIndex[adUnitId] = entry
+        putToDiskCacheAsync(
+            adUnitId,
+            entry.toByteArray(),
+            null,
+            supervisorJob,
+            context
+        )
+    }
+
+    /**
+     * Fire and forget call to forget the positioning for an ad unit, both in memory and on disk.
+     *
+     * @param adUnitId the ad unit id for which to remove the positioning (key).
+     * @param context to initialize the positioning cache.
+     */
+    @JvmStatic
+    @AnyThread
+    fun removePositioning(
+        adUnitId: String,
+        context: Context?
+    ) {
+        entryIndex.remove(adUnitId)
+        if (context == null) {
+            MoPubLog.log(CUSTOM, "Context cannot be null.")
+            return
+        }
+
+        removeFromDiskCacheAsync(
+            adUnitId,
+            supervisorJob,
+            context
+        )
+    }
+
+    // Testing
+    @JvmStatic
+    @WorkerThread
+    @VisibleForTesting
+    fun clearPositioningCache() {
+        entryIndex.clear()
+        clearAndNullCache()
+    }
+}
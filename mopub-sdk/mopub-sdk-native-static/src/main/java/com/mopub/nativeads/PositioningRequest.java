@@ -26,7 +26,10 @@ import org.json.JSONObject;
 
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 
@@ -37,12 +40,49 @@ public class PositioningRequest extends MoPubRequest<MoPubClientPositioning> {
     private static final String REPEATING_KEY = "repeating";
     private static final String INTERVAL_KEY = "interval";
 
+    private static final String ETAG_HEADER = "ETag";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String CACHE_CONTROL_HEADER = "Cache-Control";
+    private static final String MAX_AGE_DIRECTIVE = "max-age=";
+    private static final String NO_STORE_DIRECTIVE = "no-store";
+
+    /**
+     * Max age reported when the server did not send one.
+     */
+    static final long UNKNOWN_MAX_AGE = -1;
+
+    /**
+     * Max age reported when the server does not allow the response to be stored.
+     */
+    static final long NO_STORE = -2;
+
     // Max value to avoid bad integer math calculations. This is 2 ^ 16.
     private static final int MAX_VALUE = 1 << 16;
     private MoPubResponse.Listener<MoPubClientPositioning> mListener;
 
+    // Set when revalidating a cached positioning, which a 304 response resolves to.
+    @Nullable private final String mETag;
+    @Nullable private final MoPubClientPositioning mCachedPositioning;
+
+    // Written while parsing and read once the response is delivered.
+    @Nullable private volatile String mResponseETag;
+    private volatile long mMaxAgeMillis = UNKNOWN_MAX_AGE;
+    private volatile boolean mNotModified;
+
+    public PositioningRequest(@NonNull final Context context,
+            final String url,
+            final MoPubResponse.Listener<MoPubClientPositioning> listener) {
+        this(context, url, null, null, listener);
+    }
+
+    /**
+     * Creates a conditional request for a positioning that was cached with the given ETag. If the
+     * server answers 304 Not Modified, the cached positioning is delivered.
+     */
     public PositioningRequest(@NonNull final Context context,
             final String url,
+            @Nullable final String eTag,
+            @Nullable final MoPubClientPositioning cachedPositioning,
             final MoPubResponse.Listener<MoPubClientPositioning> listener) {
 
         super(context,
@@ -52,6 +92,42 @@ public class PositioningRequest extends MoPubRequest<MoPubClientPositioning> {
                 listener);
 
         mListener = listener;
+        mETag = cachedPositioning != null ? eTag : null;
+        // Ads can't be placed until the positioning is known.
+        setPriority(Priority.AD_REQUEST);
+        mCachedPositioning = cachedPositioning;
+    }
+
+    /**
+     * @return the ETag of the response, or null if the server didn't send one.
+     */
+    @Nullable
+    String getResponseETag() {
+        return mResponseETag;
+    }
+
+    /**
+     * @return the Cache-Control max-age of the response, {@link #UNKNOWN_MAX_AGE} if the server
+     * didn't send one or {@link #NO_STORE} if the response must not be cached.
+     */
+    long getMaxAgeMillis() {
+        return mMaxAgeMillis;
+    }
+
+    /**
+     * @return true if the server confirmed the cached positioning is still current.
+     */
+    boolean isNotModified() {
+        return mNotModified;
+    }
+
+    @Nullable
+    @Override
+    protected Map<String, String> getAdditionalHeaders() {
+        if (TextUtils.isEmpty(mETag)) {
+            return null;
+        }
+        return Collections.singletonMap(IF_NONE_MATCH_HEADER, mETag);
     }
 
     @Override
@@ -65,6 +141,15 @@ public class PositioningRequest extends MoPubRequest<MoPubClientPositioning> {
             return MoPubResponse.error(new MoPubNetworkError.Builder("Empty network response").build());
         }
 
+        mMaxAgeMillis = parseMaxAgeMillis(getHeader(response, CACHE_CONTROL_HEADER));
+
+        if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED
+                && mCachedPositioning != null) {
+            mResponseETag = mETag;
+            mNotModified = true;
+            return MoPubResponse.success(MoPubNativeAdPositioning.clone(mCachedPositioning), response);
+        }
+
         if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
             return MoPubResponse.error(new MoPubNetworkError.Builder().networkResponse(response).build());
         }
@@ -79,7 +164,9 @@ public class PositioningRequest extends MoPubRequest<MoPubClientPositioning> {
             String jsonString = new String(response.getData(),
                     MoPubNetworkUtils.parseCharsetFromContentType(response.getHeaders()));
 
-            return MoPubResponse.success(parseJson(jsonString), response);
+            final MoPubClientPositioning positioning = parseJson(jsonString);
+            mResponseETag = getHeader(response, ETAG_HEADER);
+            return MoPubResponse.success(positioning, response);
         } catch (UnsupportedEncodingException e) {
             return MoPubResponse.error(new MoPubNetworkError.Builder("Couldn't parse JSON from Charset", e)
                     .build());
@@ -121,6 +208,40 @@ public class PositioningRequest extends MoPubRequest<MoPubClientPositioning> {
         return positioning;
     }
 
+    @VisibleForTesting
+    static long parseMaxAgeMillis(@Nullable final String cacheControl) {
+        if (cacheControl == null) {
+            return UNKNOWN_MAX_AGE;
+        }
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim().toLowerCase(Locale.US);
+            if (directive.equals(NO_STORE_DIRECTIVE)) {
+                return NO_STORE;
+            }
+            if (directive.startsWith(MAX_AGE_DIRECTIVE)) {
+                try {
+                    final long seconds = Long.parseLong(
+                            directive.substring(MAX_AGE_DIRECTIVE.length()));
+                    return seconds < 0 ? UNKNOWN_MAX_AGE : TimeUnit.SECONDS.toMillis(seconds);
+                } catch (NumberFormatException e) {
+                    return UNKNOWN_MAX_AGE;
+                }
+            }
+        }
+        return UNKNOWN_MAX_AGE;
+    }
+
+    @Nullable
+    private static String getHeader(@NonNull final MoPubNetworkResponse response,
+            @NonNull final String name) {
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
     private void parseFixedJson(@NonNull final JSONArray fixed,
                                 @NonNull final MoPubClientPositioning positioning) throws JSONException {
         for (int i = 0; i < fixed.length(); ++i) {
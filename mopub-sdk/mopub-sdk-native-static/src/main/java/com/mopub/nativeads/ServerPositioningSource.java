@@ -6,6 +6,7 @@ package com.mopub.nativeads;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -50,6 +51,10 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR_WITH_THROWABLE
  *
  * The JSON parsing logic treats any violations to the above spec as invalid,
  * rather than trying to continue with a partially valid response.
+ *
+ * Loaded positions are cached per ad unit by {@link PositioningCacheService}. A cached positioning
+ * is delivered right away and, once past its max-age, revalidated in the background with the
+ * ETag the server sent along with it.
  */
 class ServerPositioningSource implements PositioningSource {
 
@@ -73,6 +78,18 @@ class ServerPositioningSource implements PositioningSource {
     @Nullable private String mRetryUrl;
     @Nullable private PositioningRequest mRequest;
 
+    @Nullable private String mAdUnitId;
+    // Incremented by every load so that cache reads for an earlier load are ignored.
+    int mLoadGeneration;
+    private long mLoadStartMillis;
+
+    // Positioning load times across all sources, for tuning the positioning cache.
+    private static int sCacheLoads;
+    private static int sNetworkLoads;
+    private static long sTotalCacheLoadMillis;
+    private static long sTotalNetworkLoadMillis;
+    private static int sNotModifiedCount;
+
     ServerPositioningSource(@NonNull final Context context) {
         mContext = context.getApplicationContext();
 
@@ -121,29 +138,127 @@ class ServerPositioningSource implements PositioningSource {
         }
 
         mListener = listener;
+        mAdUnitId = adUnitId;
+        mLoadStartMillis = SystemClock.uptimeMillis();
         mRetryUrl = new PositioningUrlGenerator(mContext)
                 .withAdUnitId(adUnitId)
                 .generateUrlString(Constants.HOST);
-        requestPositioningInternal();
+
+        final int loadGeneration = ++mLoadGeneration;
+        final CachedPositioningListener cacheListener = new CachedPositioningListener(loadGeneration);
+        PositioningCacheService.getPositioning(adUnitId, cacheListener, mContext);
+
+        // An entry that was already in memory has been delivered. Otherwise the network request
+        // races the disk read, so that a cache miss costs no extra time.
+        if (!cacheListener.mDelivered) {
+            requestPositioningInternal();
+        }
     }
 
     private void requestPositioningInternal() {
+        requestPositioningInternal(null);
+    }
+
+    private void requestPositioningInternal(@Nullable final PositioningCacheService.Entry cached) {
         MoPubLog.log(CUSTOM, "Loading positioning from: " + mRetryUrl);
 
-        mRequest = new PositioningRequest(mContext, mRetryUrl, mPositioningListener);
+        mRequest = cached == null
+                ? new PositioningRequest(mContext, mRetryUrl, mPositioningListener)
+                : new PositioningRequest(mContext, mRetryUrl, cached.getETag(),
+                        cached.getPositioning(), mPositioningListener);
         final MoPubRequestQueue requestQueue = Networking.getRequestQueue(mContext);
         requestQueue.add(mRequest);
     }
 
+    /**
+     * @return true if the cached positioning was delivered to the listener.
+     */
+    boolean handleCachedPositioning(final int loadGeneration,
+            @Nullable final PositioningCacheService.Entry entry) {
+        if (loadGeneration != mLoadGeneration || mListener == null) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        if (entry == null || !entry.isUsable(now)) {
+            return false;
+        }
+
+        deliver(entry.getPositioning(), true);
+
+        // If the entry was read from disk, a request or a retry is already refreshing it.
+        final boolean refreshing = mRequest != null || mRetryCount > 0;
+        if (!refreshing && !entry.isFresh(now)) {
+            MoPubLog.log(CUSTOM, "Revalidating cached positioning for ad unit " + mAdUnitId);
+            requestPositioningInternal(entry);
+        }
+        return true;
+    }
+
     private void handleSuccess(@NonNull MoPubClientPositioning positioning) {
+        final PositioningRequest request = mRequest;
+        mRequest = null;
+        mRetryCount = 0;
+        if (request != null) {
+            cachePositioning(positioning, request);
+        }
         if (mListener != null) {
-            mListener.onLoad(positioning);
+            deliver(positioning, false);
+        }
+    }
+
+    private void deliver(@NonNull final MoPubClientPositioning positioning,
+            final boolean fromCache) {
+        final long loadMillis = SystemClock.uptimeMillis() - mLoadStartMillis;
+        if (fromCache) {
+            sCacheLoads++;
+            sTotalCacheLoadMillis += loadMillis;
+        } else {
+            sNetworkLoads++;
+            sTotalNetworkLoadMillis += loadMillis;
         }
+        MoPubLog.log(CUSTOM, "Loaded positioning " + (fromCache ? "from cache" : "from network")
+                + " in " + loadMillis + " ms");
+
+        final PositioningListener listener = mListener;
         mListener = null;
-        mRetryCount = 0;
+        if (listener != null) {
+            listener.onLoad(positioning);
+        }
+    }
+
+    private void cachePositioning(@NonNull final MoPubClientPositioning positioning,
+            @NonNull final PositioningRequest request) {
+        if (mAdUnitId == null) {
+            return;
+        }
+        long maxAgeMillis = request.getMaxAgeMillis();
+        if (maxAgeMillis == PositioningRequest.NO_STORE) {
+            // The previous positioning must not be reused either.
+            PositioningCacheService.removePositioning(mAdUnitId, mContext);
+            return;
+        }
+        if (maxAgeMillis == PositioningRequest.UNKNOWN_MAX_AGE) {
+            maxAgeMillis = PositioningCacheService.DEFAULT_MAX_AGE_MILLIS;
+        }
+        if (request.isNotModified()) {
+            sNotModifiedCount++;
+        }
+        PositioningCacheService.putPositioning(mAdUnitId,
+                new PositioningCacheService.Entry(positioning, request.getResponseETag(),
+                        System.currentTimeMillis(), maxAgeMillis),
+                mContext);
     }
 
     private void handleFailure() {
+        mRequest = null;
+        if (mListener == null) {
+            // Positions were already delivered from the cache, which will be revalidated by the
+            // next load.
+            MoPubLog.log(CUSTOM, "Unable to revalidate cached positioning");
+            mRetryCount = 0;
+            return;
+        }
+
         double multiplier = Math.pow(EXPONENTIAL_BACKOFF_FACTOR, mRetryCount + 1);
         int delay = (int) (DEFAULT_RETRY_TIME_MILLISECONDS * multiplier);
         if (delay >= mMaximumRetryTimeMillis) {
@@ -164,4 +279,58 @@ class ServerPositioningSource implements PositioningSource {
     void setMaximumRetryTimeMilliseconds(int millis) {
         mMaximumRetryTimeMillis = millis;
     }
+
+    @NonNull
+    static Stats getStats() {
+        return new Stats(sCacheLoads, sNetworkLoads,
+                sCacheLoads == 0 ? 0 : sTotalCacheLoadMillis / sCacheLoads,
+                sNetworkLoads == 0 ? 0 : sTotalNetworkLoadMillis / sNetworkLoads,
+                sNotModifiedCount);
+    }
+
+    @VisibleForTesting
+    static void resetStatsForTesting() {
+        sCacheLoads = 0;
+        sNetworkLoads = 0;
+        sTotalCacheLoadMillis = 0;
+        sTotalNetworkLoadMillis = 0;
+        sNotModifiedCount = 0;
+    }
+
+    /**
+     * Time from {@link #loadPositions} until positions were delivered, split by whether they came
+     * from the positioning cache. Placement can start as soon as positions are delivered, so this
+     * is the part of the time to first placement that the cache saves.
+     */
+    static class Stats {
+        public final int cacheLoads;
+        public final int networkLoads;
+        public final long averageCacheLoadMillis;
+        public final long averageNetworkLoadMillis;
+        public final int notModifiedCount;
+
+        Stats(final int cacheLoads, final int networkLoads, final long averageCacheLoadMillis,
+                final long averageNetworkLoadMillis, final int notModifiedCount) {
+            this.cacheLoads = cacheLoads;
+            this.networkLoads = networkLoads;
+            this.averageCacheLoadMillis = averageCacheLoadMillis;
+            this.averageNetworkLoadMillis = averageNetworkLoadMillis;
+            this.notModifiedCount = notModifiedCount;
+        }
+    }
+
+    private class CachedPositioningListener
+            implements PositioningCacheService.PositioningCacheListener {
+        private final int mGeneration;
+        boolean mDelivered;
+
+        CachedPositioningListener(final int generation) {
+            mGeneration = generation;
+        }
+
+        @Override
+        public void onEntryReceived(@Nullable final PositioningCacheService.Entry entry) {
+            mDelivered = handleCachedPositioning(mGeneration, entry);
+        }
+    }
 }
@@ -0,0 +1,195 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import android.os.SystemClock
+
+import com.mopub.common.VisibleForTesting
+import com.mopub.volley.AuthFailureError
+import com.mopub.volley.Request
+import com.mopub.volley.toolbox.BaseHttpStack
+import com.mopub.volley.toolbox.HttpResponse
+import com.mopub.volley.toolbox.HurlStack
+
+import java.io.IOException
+import java.net.InetAddress
+import java.net.MalformedURLException
+import java.net.Socket
+import java.net.URL
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import javax.net.ssl.SSLSocketFactory
+
+/**
+ * Instrumentation only: sends requests exactly like [HurlHttpEngine] and counts, per host, the
+ * requests made, their time to first byte and how often https requests reused a pooled
+ * connection. Pooling itself is left to the platform [java.net.HttpURLConnection], which already
+ * keeps connections alive between requests.
+ *
+ * New connections are counted from the TLS socket factory, because the platform has no hook for
+ * plain http sockets. Connection reuse is therefore only reported for https requests.
+ */
+class InstrumentedHttpEngine : MoPubHttpEngine {
+    private val hostStats = ConcurrentHashMap<String, HostStats>()
+
+    override fun createHttpStack(sslSocketFactory: SSLSocketFactory,
+                                 urlRewriter: MoPubUrlRewriter): BaseHttpStack {
+        val countingSocketFactory = ConnectionCountingSSLSocketFactory(sslSocketFactory)
+        return object : HurlStack(HurlStack.UrlRewriter { url -> urlRewriter.rewriteUrl(url) },
+                countingSocketFactory) {
+            @Throws(IOException::class, AuthFailureError::class)
+            override fun executeRequest(request: Request<*>?,
+                                        additionalHeaders: MutableMap<String, String?>?): HttpResponse {
+                val startMillis = SystemClock.elapsedRealtime()
+                val response = super.executeRequest(request, additionalHeaders)
+                // HurlStack returns once the status line and headers have been read.
+                val url = parseUrl(urlRewriter, request?.url)
+                onRequestCompleted(url?.host ?: UNKNOWN_HOST,
+                        HTTPS.equals(url?.protocol, ignoreCase = true),
+                        SystemClock.elapsedRealtime() - startMillis)
+                return response
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the request counters for every host requested so far.
+     */
+    fun getConnectionStats(): Map<String, ConnectionStats> {
+        return hostStats.mapValues { it.value.snapshot() }
+    }
+
+    /**
+     * @return A snapshot of the request counters for the given host, or null if no request has
+     * been made to it.
+     */
+    fun getConnectionStats(host: String): ConnectionStats? {
+        return hostStats[host]?.snapshot()
+    }
+
+    fun resetConnectionStats() {
+        hostStats.clear()
+    }
+
+    @VisibleForTesting
+    internal fun onRequestCompleted(host: String, https: Boolean, timeToFirstByteMillis: Long) {
+        getHostStats(host).recordRequest(https, timeToFirstByteMillis)
+    }
+
+    private fun getHostStats(host: String): HostStats {
+        return hostStats[host] ?: hostStats.putIfAbsent(host, HostStats()) ?: hostStats.getValue(host)
+    }
+
+    /**
+     * Immutable per-host request counters.
+     *
+     * @property requests Number of requests completed to the host, over http or https.
+     * @property httpsRequests Number of those requests made over https.
+     * @property newTlsConnections Number of TLS connections opened to the host.
+     * @property reusedTlsConnections Number of https requests served by an already open
+     * connection.
+     * @property averageTimeToFirstByteMillis Average time from request start until the response
+     * headers were read.
+     */
+    data class ConnectionStats(val requests: Long,
+                               val httpsRequests: Long,
+                               val newTlsConnections: Long,
+                               val reusedTlsConnections: Long,
+                               val averageTimeToFirstByteMillis: Long)
+
+    private class HostStats {
+        val requests = AtomicLong()
+        val httpsRequests = AtomicLong()
+        val newTlsConnections = AtomicLong()
+        val timeToFirstByteMillis = AtomicLong()
+
+        fun recordRequest(https: Boolean, timeToFirstByteMillis: Long) {
+            this.timeToFirstByteMillis.addAndGet(timeToFirstByteMillis)
+            if (https) {
+                httpsRequests.incrementAndGet()
+            }
+            requests.incrementAndGet()
+        }
+
+        fun snapshot(): ConnectionStats {
+            val requestCount = requests.get()
+            val httpsRequestCount = httpsRequests.get()
+            val connectionCount = newTlsConnections.get()
+            return ConnectionStats(
+                    requestCount,
+                    httpsRequestCount,
+                    connectionCount,
+                    (httpsRequestCount - connectionCount).coerceAtLeast(0),
+                    if (requestCount > 0) timeToFirstByteMillis.get() / requestCount else 0
+            )
+        }
+    }
+
+    /**
+     * Forwards to the given factory and counts every socket created per host. The platform only
+     * asks for a new socket when no pooled connection to the host is available.
+     */
+    @VisibleForTesting
+    internal inner class ConnectionCountingSSLSocketFactory(
+            private val delegate: SSLSocketFactory
+    ) : SSLSocketFactory() {
+
+        override fun getDefaultCipherSuites(): Array<String> = delegate.defaultCipherSuites
+
+        override fun getSupportedCipherSuites(): Array<String> = delegate.supportedCipherSuites
+
+        @Throws(IOException::class)
+        override fun createSocket(socket: Socket?, host: String, port: Int, autoClose: Boolean): Socket {
+            return delegate.createSocket(socket, host, port, autoClose).also { onNewConnection(host) }
+        }
+
+        @Throws(IOException::class)
+        override fun createSocket(): Socket = delegate.createSocket()
+
+        @Throws(IOException::class)
+        override fun createSocket(host: String, port: Int): Socket {
+            return delegate.createSocket(host, port).also { onNewConnection(host) }
+        }
+
+        @Throws(IOException::class)
+        override fun createSocket(host: String, port: Int, localHost: InetAddress, localPort: Int): Socket {
+            return delegate.createSocket(host, port, localHost, localPort).also { onNewConnection(host) }
+        }
+
+        @Throws(IOException::class)
+        override fun createSocket(address: InetAddress, port: Int): Socket {
+            return delegate.createSocket(address, port).also { onNewConnection(address.hostName) }
+        }
+
+        @Throws(IOException::class)
+        override fun createSocket(address: InetAddress, port: Int, localAddress: InetAddress, localPort: Int): Socket {
+            return delegate.createSocket(address, port, localAddress, localPort).also {
+                onNewConnection(address.hostName)
+            }
+        }
+
+        /**
+         * Sockets opened by address are counted under the address' host name, so that they match
+         * the host the requests are counted under.
+         */
+        private fun onNewConnection(host: String) {
+            getHostStats(host).newTlsConnections.incrementAndGet()
+        }
+    }
+
+    companion object {
+        private const val HTTPS = "https"
+        private const val UNKNOWN_HOST = ""
+
+        private fun parseUrl(urlRewriter: MoPubUrlRewriter, url: String?): URL? {
+            url ?: return null
+            return try {
+                URL(urlRewriter.rewriteUrl(url))
+            } catch (e: MalformedURLException) {
+                null
+            }
+        }
+    }
+}
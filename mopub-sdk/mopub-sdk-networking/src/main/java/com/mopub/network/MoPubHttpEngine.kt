@@ -0,0 +1,39 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import com.mopub.volley.toolbox.BaseHttpStack
+import com.mopub.volley.toolbox.HurlStack
+
+import javax.net.ssl.SSLSocketFactory
+
+/**
+ * Transport used by [MoPubRequestQueue] to execute requests. Set an engine on
+ * [Networking.httpEngine] before the request queue is first created to replace the default
+ * [HurlHttpEngine].
+ */
+interface MoPubHttpEngine {
+    /**
+     * Creates the http stack backing the request queue. The user agent header is added by the
+     * request queue, so implementations do not need to set it.
+     *
+     * @param sslSocketFactory The socket factory to use for https connections.
+     * @param urlRewriter Rewriter that must be applied to every url before it is requested.
+     * @return A Volley http stack.
+     */
+    fun createHttpStack(sslSocketFactory: SSLSocketFactory,
+                        urlRewriter: MoPubUrlRewriter): BaseHttpStack
+}
+
+/**
+ * Default engine. Every request goes through Volley's [HurlStack] on its own
+ * [java.net.HttpURLConnection].
+ */
+open class HurlHttpEngine : MoPubHttpEngine {
+    override fun createHttpStack(sslSocketFactory: SSLSocketFactory,
+                                 urlRewriter: MoPubUrlRewriter): BaseHttpStack {
+        return HurlStack(HurlStack.UrlRewriter { url -> urlRewriter.rewriteUrl(url) }, sslSocketFactory)
+    }
+}
@@ -0,0 +1,272 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.widget.ImageView.ScaleType
+
+import com.mopub.common.VisibleForTesting
+
+import java.io.ByteArrayOutputStream
+import java.util.ArrayDeque
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Decodes images at the size they are displayed at rather than at full resolution. Images are
+ * subsampled while decoding and then scaled down to the target size. The intermediate bitmaps
+ * left over from scaling are kept and handed to the next decode as [BitmapFactory.Options.inBitmap],
+ * so that decoding a stream of images allocates fewer bitmaps.
+ */
+internal class MoPubImageDecoder {
+    companion object {
+        private val DECODE_CONFIG = Bitmap.Config.RGB_565
+        private const val BYTES_PER_PIXEL = 2
+        private const val MAX_REUSABLE_BITMAPS = 4
+        private const val JPEG_QUALITY = 90
+
+        // Decode one image at a time to limit the memory used by large images, like Volley does.
+        private val DECODE_LOCK = Any()
+
+        /**
+         * Scales one side of an image to fit the given bounds, the same way Volley's ImageRequest
+         * does. A bound of 0 leaves the side unbounded.
+         */
+        @VisibleForTesting
+        fun getResizedDimension(maxPrimary: Int,
+                                maxSecondary: Int,
+                                actualPrimary: Int,
+                                actualSecondary: Int,
+                                scaleType: ScaleType): Int {
+            if (maxPrimary == 0 && maxSecondary == 0) {
+                return actualPrimary
+            }
+
+            if (scaleType == ScaleType.FIT_XY) {
+                return if (maxPrimary == 0) actualPrimary else maxPrimary
+            }
+
+            if (maxPrimary == 0) {
+                val ratio = maxSecondary.toDouble() / actualSecondary
+                return (actualPrimary * ratio).toInt()
+            }
+
+            if (maxSecondary == 0) {
+                return maxPrimary
+            }
+
+            val ratio = actualSecondary.toDouble() / actualPrimary
+            var resized = maxPrimary
+
+            if (scaleType == ScaleType.CENTER_CROP) {
+                if (resized * ratio < maxSecondary) {
+                    resized = (maxSecondary / ratio).toInt()
+                }
+                return resized
+            }
+
+            if (resized * ratio > maxSecondary) {
+                resized = (maxSecondary / ratio).toInt()
+            }
+            return resized
+        }
+
+        /**
+         * The preferred RGB_565 config is only a hint: images with transparency, like privacy
+         * icons and logos, still decode with an alpha channel. Those are encoded as PNG so that
+         * they keep it. The quality is ignored for PNG.
+         */
+        @VisibleForTesting
+        fun getCompressFormat(bitmap: Bitmap): Bitmap.CompressFormat {
+            return if (bitmap.config != Bitmap.Config.RGB_565 && bitmap.hasAlpha()) {
+                Bitmap.CompressFormat.PNG
+            } else {
+                Bitmap.CompressFormat.JPEG
+            }
+        }
+
+        /**
+         * @return The largest power of two sample size that keeps the decoded image at least as
+         * large as the desired size.
+         */
+        @VisibleForTesting
+        fun findBestSampleSize(actualWidth: Int,
+                               actualHeight: Int,
+                               desiredWidth: Int,
+                               desiredHeight: Int): Int {
+            if (desiredWidth <= 0 || desiredHeight <= 0) {
+                return 1
+            }
+            val ratio = Math.min(actualWidth.toDouble() / desiredWidth,
+                    actualHeight.toDouble() / desiredHeight)
+            var sampleSize = 1
+            while (sampleSize * 2 <= ratio) {
+                sampleSize *= 2
+            }
+            return sampleSize
+        }
+    }
+
+    // Guarded by itself
+    private val reusableBitmaps = ArrayDeque<Bitmap>(MAX_REUSABLE_BITMAPS)
+
+    private val decodeCounter = AtomicLong()
+    private val decodeNanosCounter = AtomicLong()
+    private val bytesDecodedCounter = AtomicLong()
+    private val reusedBitmapsCounter = AtomicLong()
+
+    val decodeCount: Long
+        get() = decodeCounter.get()
+
+    val decodeNanos: Long
+        get() = decodeNanosCounter.get()
+
+    // Encoded bytes passed to the decoder
+    val bytesDecoded: Long
+        get() = bytesDecodedCounter.get()
+
+    // Decodes that reused a bitmap left over from an earlier decode
+    val reusedBitmaps: Long
+        get() = reusedBitmapsCounter.get()
+
+    /**
+     * Decoded image and whether it is smaller than the encoded image.
+     */
+    class DecodedImage(val bitmap: Bitmap, val isDownsampled: Boolean)
+
+    /**
+     * Decodes the image no larger than the given bounds. A bound of 0 leaves the side unbounded.
+     *
+     * @return The decoded image, or null if the data could not be decoded.
+     */
+    fun decode(data: ByteArray, maxWidth: Int, maxHeight: Int, scaleType: ScaleType): DecodedImage? {
+        val startNanos = System.nanoTime()
+        val decodedImage = synchronized(DECODE_LOCK) {
+            decodeLocked(data, maxWidth, maxHeight, scaleType)
+        }
+        decodeCounter.incrementAndGet()
+        decodeNanosCounter.addAndGet(System.nanoTime() - startNanos)
+        bytesDecodedCounter.addAndGet(data.size.toLong())
+        return decodedImage
+    }
+
+    /**
+     * Encodes a decoded image so that it can be cached in place of the original image. Only
+     * downsampled images are worth encoding again, since they take fewer bytes to store and to
+     * decode.
+     *
+     * @return The encoded image, or the original data if encoding did not make it smaller.
+     */
+    fun encode(decodedImage: DecodedImage, originalData: ByteArray): ByteArray {
+        if (!decodedImage.isDownsampled) {
+            return originalData
+        }
+        val outputStream = ByteArrayOutputStream(originalData.size)
+        val bitmap = decodedImage.bitmap
+        if (!bitmap.compress(getCompressFormat(bitmap), JPEG_QUALITY, outputStream)) {
+            return originalData
+        }
+        val encoded = outputStream.toByteArray()
+        return if (encoded.isNotEmpty() && encoded.size < originalData.size) encoded else originalData
+    }
+
+    private fun decodeLocked(data: ByteArray,
+                             maxWidth: Int,
+                             maxHeight: Int,
+                             scaleType: ScaleType): DecodedImage? {
+        val options = BitmapFactory.Options()
+        options.inPreferredConfig = DECODE_CONFIG
+
+        if (maxWidth == 0 && maxHeight == 0) {
+            val bitmap = decodeReusingBitmap(data, options, -1) ?: return null
+            return DecodedImage(bitmap, false)
+        }
+
+        // Read the image bounds first to find out how much to subsample.
+        options.inJustDecodeBounds = true
+        BitmapFactory.decodeByteArray(data, 0, data.size, options)
+        val actualWidth = options.outWidth
+        val actualHeight = options.outHeight
+        if (actualWidth <= 0 || actualHeight <= 0) {
+            return null
+        }
+
+        val desiredWidth = getResizedDimension(maxWidth, maxHeight, actualWidth, actualHeight,
+                scaleType)
+        val desiredHeight = getResizedDimension(maxHeight, maxWidth, actualHeight, actualWidth,
+                scaleType)
+
+        options.inJustDecodeBounds = false
+        options.inSampleSize = findBestSampleSize(actualWidth, actualHeight, desiredWidth,
+                desiredHeight)
+        val sampledWidth = ceilDiv(actualWidth, options.inSampleSize)
+        val sampledHeight = ceilDiv(actualHeight, options.inSampleSize)
+        val sampledBitmap = decodeReusingBitmap(data, options,
+                sampledWidth * sampledHeight * BYTES_PER_PIXEL) ?: return null
+
+        if (desiredWidth <= 0 || desiredHeight <= 0
+                || (sampledBitmap.width <= desiredWidth && sampledBitmap.height <= desiredHeight)) {
+            return DecodedImage(sampledBitmap, options.inSampleSize > 1)
+        }
+
+        val scaledBitmap = Bitmap.createScaledBitmap(sampledBitmap, desiredWidth, desiredHeight,
+                true)
+        if (scaledBitmap !== sampledBitmap) {
+            // Nothing else references the sampled bitmap, so the next decode can reuse it.
+            offerReusableBitmap(sampledBitmap)
+        }
+        return DecodedImage(scaledBitmap, true)
+    }
+
+    private fun decodeReusingBitmap(data: ByteArray,
+                                    options: BitmapFactory.Options,
+                                    byteCount: Int): Bitmap? {
+        options.inMutable = true
+        options.inBitmap = if (byteCount > 0) takeReusableBitmap(byteCount) else null
+        if (options.inBitmap == null) {
+            return BitmapFactory.decodeByteArray(data, 0, data.size, options)
+        }
+
+        return try {
+            BitmapFactory.decodeByteArray(data, 0, data.size, options)?.also {
+                reusedBitmapsCounter.incrementAndGet()
+            }
+        } catch (e: IllegalArgumentException) {
+            // The bitmap can't be reused for this image, e.g. because of its format.
+            options.inBitmap = null
+            BitmapFactory.decodeByteArray(data, 0, data.size, options)
+        }
+    }
+
+    private fun takeReusableBitmap(byteCount: Int): Bitmap? {
+        synchronized(reusableBitmaps) {
+            val iterator = reusableBitmaps.iterator()
+            while (iterator.hasNext()) {
+                val bitmap = iterator.next()
+                if (bitmap.isRecycled) {
+                    iterator.remove()
+                } else if (bitmap.config == DECODE_CONFIG && bitmap.allocationByteCount >= byteCount) {
+                    iterator.remove()
+                    return bitmap
+                }
+            }
+            return null
+        }
+    }
+
+    private fun offerReusableBitmap(bitmap: Bitmap) {
+        if (!bitmap.isMutable || bitmap.isRecycled) {
+            return
+        }
+        synchronized(reusableBitmaps) {
+            if (reusableBitmaps.size >= MAX_REUSABLE_BITMAPS) {
+                reusableBitmaps.removeFirst()
+            }
+            reusableBitmaps.addLast(bitmap)
+        }
+    }
+
+    private fun ceilDiv(value: Int, divisor: Int) = (value + divisor - 1) / divisor
+}
@@ -7,18 +7,49 @@ package com.mopub.network
 import android.graphics.Bitmap
 import android.widget.ImageView.ScaleType
 
+import androidx.collection.LruCache
+
 import com.mopub.common.Mockable
 import com.mopub.network.MoPubNetworkError.Companion.volleyErrorToMoPubNetworkError
+import com.mopub.volley.Request
+import com.mopub.volley.Response
 import com.mopub.volley.VolleyError
 import com.mopub.volley.toolbox.ImageLoader
 
+import java.util.concurrent.atomic.AtomicLong
+
 /**
  * Custom implementation of Volley's ImageLoader
+ *
+ * Images are loaded through two tiers before going to the network. The memory tier holds decoded
+ * bitmaps. A bitmap decoded for a larger size than requested is used as is, so images pre-cached
+ * at the max image width are still memory hits when loaded into a smaller view. The disk tier
+ * holds the encoded image at the size it was requested at (see [MoPubImageRequest]). Images are
+ * decoded with downsampling to the requested size.
  */
 @Mockable
-class MoPubImageLoader(queue: MoPubRequestQueue?, cache: ImageCache)  {
+class MoPubImageLoader(queue: MoPubRequestQueue?, private val cache: ImageCache)  {
+    companion object {
+        // Number of URLs for which the largest cached bitmap is remembered
+        private const val MAX_INDEXED_URLS = 256
+    }
+
     private val volleyImageLoader: ImageLoader
     private lateinit var volleyImageListener: ImageLoader.ImageListener
+    private val decoder = MoPubImageDecoder()
+
+    // Memory cache key of the largest bitmap decoded for each URL. Only accessed on the main thread.
+    private val largestBitmapKeys = LruCache<String, String>(MAX_INDEXED_URLS)
+
+    // Whether the last call to the Volley image loader started a request. Main thread only.
+    private var isRequestMade = false
+
+    // Instrumentation
+    private val coalescedFetches = AtomicLong()
+    private val memoryHits = AtomicLong()
+    private val memoryMisses = AtomicLong()
+    private val diskHits = AtomicLong()
+    private val networkLoads = AtomicLong()
 
     init {
         val volleyImageCache = object : ImageLoader.ImageCache {
@@ -35,7 +66,28 @@ class MoPubImageLoader(queue: MoPubRequestQueue?, cache: ImageCache)  {
             }
         }
 
-        volleyImageLoader = object : ImageLoader(queue?.getVolleyRequestQueue(), volleyImageCache) {}
+        val tierListener = object : MoPubImageRequest.TierListener {
+            override fun onImageLoaded(fromDisk: Boolean) {
+                (if (fromDisk) diskHits else networkLoads).incrementAndGet()
+            }
+        }
+
+        volleyImageLoader = object : ImageLoader(queue?.getVolleyRequestQueue(), volleyImageCache) {
+            override fun makeImageRequest(requestUrl: String,
+                                          maxWidth: Int,
+                                          maxHeight: Int,
+                                          scaleType: ScaleType,
+                                          cacheKey: String): Request<Bitmap> {
+                isRequestMade = true
+                return MoPubImageRequest(requestUrl, maxWidth, maxHeight, scaleType, decoder,
+                        tierListener,
+                        Response.Listener { bitmap ->
+                            onBitmapDecoded(requestUrl, cacheKey, bitmap)
+                            onGetImageSuccess(cacheKey, bitmap)
+                        },
+                        Response.ErrorListener { error -> onGetImageError(cacheKey, error) })
+            }
+        }
     }
 
     @JvmOverloads
@@ -46,6 +98,22 @@ class MoPubImageLoader(queue: MoPubRequestQueue?, cache: ImageCache)  {
         maxHeight: Int = 0,
         scaleType: ScaleType = ScaleType.CENTER_INSIDE
     ) {
+        var isMemoryMiss = false
+        if (requestUrl != null) {
+            if (volleyImageLoader.isCached(requestUrl, maxWidth, maxHeight, scaleType)) {
+                memoryHits.incrementAndGet()
+            } else {
+                val largerBitmap = getLargerBitmap(requestUrl, maxWidth, maxHeight, scaleType)
+                if (largerBitmap != null) {
+                    memoryHits.incrementAndGet()
+                    listener.onResponse(ImageContainer(largerBitmap), true)
+                    return
+                }
+                memoryMisses.incrementAndGet()
+                isMemoryMiss = true
+            }
+        }
+
         volleyImageListener = object : ImageLoader.ImageListener {
             override fun onResponse(imageContainer: ImageLoader.ImageContainer, isImmediate: Boolean) {
                 // Convert Volley ImageContainer to MoPubImageContainer
@@ -60,7 +128,97 @@ class MoPubImageLoader(queue: MoPubRequestQueue?, cache: ImageCache)  {
             }
         }
 
+        // Volley attaches a fetch of an image already being loaded at the same size to the
+        // request in flight instead of starting another one.
+        isRequestMade = false
         volleyImageLoader.get(requestUrl, volleyImageListener, maxWidth, maxHeight, scaleType)
+        if (isMemoryMiss && !isRequestMade) {
+            coalescedFetches.incrementAndGet()
+        }
+    }
+
+    /**
+     * @return A snapshot of the hit rates of each tier and of the decoding work done so far.
+     */
+    fun getStats(): Stats {
+        val decodeCount = decoder.decodeCount
+        return Stats(
+            memoryHits.get(),
+            memoryMisses.get(),
+            diskHits.get(),
+            networkLoads.get(),
+            decodeCount,
+            if (decodeCount > 0) decoder.decodeNanos / decodeCount / 1000 else 0,
+            decoder.bytesDecoded,
+            decoder.reusedBitmaps,
+            coalescedFetches.get()
+        )
+    }
+
+    private fun onBitmapDecoded(requestUrl: String, cacheKey: String, bitmap: Bitmap) {
+        val largestBitmap = largestBitmapKeys.get(requestUrl)?.let { cache.getBitmap(it) }
+        if (largestBitmap == null
+                || bitmap.width * bitmap.height > largestBitmap.width * largestBitmap.height) {
+            largestBitmapKeys.put(requestUrl, cacheKey)
+        }
+    }
+
+    /**
+     * @return A cached bitmap of the image that is large enough to be shown at the given size
+     * without scaling it up, or null.
+     */
+    private fun getLargerBitmap(requestUrl: String,
+                                maxWidth: Int,
+                                maxHeight: Int,
+                                scaleType: ScaleType): Bitmap? {
+        if (maxWidth == 0 && maxHeight == 0) {
+            // Only the full size image is large enough.
+            return null
+        }
+        val bitmap = largestBitmapKeys.get(requestUrl)?.let { cache.getBitmap(it) } ?: return null
+        val coversWidth = maxWidth == 0 || bitmap.width >= maxWidth
+        val coversHeight = maxHeight == 0 || bitmap.height >= maxHeight
+        val isLargeEnough = if (scaleType == ScaleType.CENTER_CROP || scaleType == ScaleType.FIT_XY) {
+            coversWidth && coversHeight
+        } else {
+            // The image is fit inside the bounds, so it only needs to reach one of them.
+            (maxWidth > 0 && bitmap.width >= maxWidth) || (maxHeight > 0 && bitmap.height >= maxHeight)
+        }
+        return if (isLargeEnough) bitmap else null
+    }
+
+    /**
+     * Immutable image pipeline counters.
+     *
+     * @property memoryHits Number of fetches answered from decoded bitmaps in memory.
+     * @property memoryMisses Number of fetches that had to load the image.
+     * @property diskHits Number of images loaded from the disk tier.
+     * @property networkLoads Number of images downloaded.
+     * @property decodeCount Number of images decoded.
+     * @property averageDecodeMicros Average time spent decoding an image.
+     * @property bytesDecoded Total size of the encoded images decoded.
+     * @property reusedBitmaps Number of decodes that reused a bitmap from an earlier decode.
+     * @property coalescedFetches Number of fetches that joined a load of the same image already
+     * in flight.
+     */
+    data class Stats(val memoryHits: Long,
+                     val memoryMisses: Long,
+                     val diskHits: Long,
+                     val networkLoads: Long,
+                     val decodeCount: Long,
+                     val averageDecodeMicros: Long,
+                     val bytesDecoded: Long,
+                     val reusedBitmaps: Long,
+                     val coalescedFetches: Long) {
+        val memoryHitRate: Double
+            get() = rate(memoryHits, memoryMisses)
+
+        // Share of the images loaded after a memory miss that came from disk
+        val diskHitRate: Double
+            get() = rate(diskHits, networkLoads)
+
+        private fun rate(hits: Long, misses: Long) =
+            if (hits + misses > 0) hits.toDouble() / (hits + misses) else 0.0
     }
 
     @Mockable
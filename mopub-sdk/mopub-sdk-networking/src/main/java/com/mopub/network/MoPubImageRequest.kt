@@ -0,0 +1,95 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import android.graphics.Bitmap
+import android.widget.ImageView.ScaleType
+
+import com.mopub.volley.DefaultRetryPolicy
+import com.mopub.volley.Header
+import com.mopub.volley.NetworkResponse
+import com.mopub.volley.ParseError
+import com.mopub.volley.Request
+import com.mopub.volley.Response
+import com.mopub.volley.toolbox.HttpHeaderParser
+
+/**
+ * Image request whose disk cache entry holds the image at the size it was requested at, keyed by
+ * URL and target size. The first load decodes the downloaded image with downsampling and caches
+ * the smaller encoded image, so later loads from disk decode far fewer bytes. Entries written by
+ * this request carry a marker header so that loads from the disk tier can be told apart from
+ * loads from the network.
+ */
+internal class MoPubImageRequest(
+    url: String,
+    private val maxWidth: Int,
+    private val maxHeight: Int,
+    private val scaleType: ScaleType,
+    private val decoder: MoPubImageDecoder,
+    private val tierListener: TierListener,
+    listener: Response.Listener<Bitmap>,
+    errorListener: Response.ErrorListener?
+) : Request<Bitmap>(Request.Method.GET, url, errorListener) {
+
+    companion object {
+        // Same as Volley's ImageRequest
+        private const val IMAGE_TIMEOUT_MS = 1000
+        private const val IMAGE_MAX_RETRIES = 2
+        private const val IMAGE_BACKOFF_MULT = 2f
+
+        internal const val DISK_TIER_HEADER = "X-MoPub-Image-Tier"
+        private const val DISK_TIER_VALUE = "disk"
+    }
+
+    /**
+     * Told where each image was loaded from. Called on a Volley thread.
+     */
+    interface TierListener {
+        fun onImageLoaded(fromDisk: Boolean)
+    }
+
+    @Volatile
+    private var listener: Response.Listener<Bitmap>? = listener
+
+    init {
+        retryPolicy = DefaultRetryPolicy(IMAGE_TIMEOUT_MS, IMAGE_MAX_RETRIES, IMAGE_BACKOFF_MULT)
+        setShouldCache(true)
+    }
+
+    override fun getPriority() = MoPubRequest.Priority.IMAGE.volleyPriority
+
+    override fun getCacheKey() = "#W$maxWidth#H$maxHeight#S${scaleType.ordinal}$url"
+
+    override fun cancel() {
+        super.cancel()
+        listener = null
+    }
+
+    override fun parseNetworkResponse(response: NetworkResponse): Response<Bitmap> {
+        val data = response.data ?: return Response.error(ParseError(response))
+        val decodedImage = try {
+            decoder.decode(data, maxWidth, maxHeight, scaleType)
+        } catch (e: OutOfMemoryError) {
+            return Response.error(ParseError(e))
+        } ?: return Response.error(ParseError(response))
+
+        val fromDisk = response.headers?.get(DISK_TIER_HEADER) == DISK_TIER_VALUE
+        tierListener.onImageLoaded(fromDisk)
+
+        val cacheEntry = HttpHeaderParser.parseCacheHeaders(response)
+        if (cacheEntry != null && !fromDisk) {
+            cacheEntry.data = decoder.encode(decodedImage, data)
+            cacheEntry.responseHeaders = HashMap(cacheEntry.responseHeaders ?: emptyMap())
+            cacheEntry.responseHeaders[DISK_TIER_HEADER] = DISK_TIER_VALUE
+            cacheEntry.allResponseHeaders = (cacheEntry.allResponseHeaders ?: emptyList()) +
+                    Header(DISK_TIER_HEADER, DISK_TIER_VALUE)
+        }
+        return Response.success(decodedImage.bitmap, cacheEntry)
+    }
+
+    override fun deliverResponse(response: Bitmap) {
+        listener?.onResponse(response)
+    }
+}
@@ -32,6 +32,17 @@ abstract class MoPubRequest<T: Any>(val context: Context,
         POST
     }
 
+    /**
+     * Lanes that queued requests are served in, from the most to the least urgent. Within a lane,
+     * requests are served in the order they were added.
+     */
+    enum class Priority(internal val volleyPriority: Request.Priority) {
+        AD_REQUEST(Request.Priority.IMMEDIATE),
+        CREATIVE_ASSET(Request.Priority.HIGH),
+        IMAGE(Request.Priority.NORMAL),
+        TRACKER(Request.Priority.LOW)
+    }
+
     private var volleyRequest : VolleyRequest<T>
 
     var shouldCache : Boolean = false
@@ -40,6 +51,8 @@ abstract class MoPubRequest<T: Any>(val context: Context,
             volleyRequest.setShouldCache(value)
         }
 
+    var priority : Priority = Priority.CREATIVE_ASSET
+
     var retryPolicy : MoPubRetryPolicy = MoPubRetryPolicy()
         set(value) {
             field = value
@@ -87,6 +100,16 @@ abstract class MoPubRequest<T: Any>(val context: Context,
             override fun getBodyContentType(): String {
                 return this@MoPubRequest.getBodyContentType()
             }
+
+            override fun getPriority(): Request.Priority {
+                return this@MoPubRequest.priority.volleyPriority
+            }
+
+            override fun getHeaders(): MutableMap<String, String> {
+                val headers = super.getHeaders()
+                this@MoPubRequest.getAdditionalHeaders()?.let { headers.putAll(it) }
+                return headers
+            }
         }
     }
 
@@ -137,6 +160,12 @@ abstract class MoPubRequest<T: Any>(val context: Context,
         return DEFAULT_CONTENT_TYPE
     }
 
+    /**
+     * Headers sent in addition to the ones every request carries, such as conditional request
+     * validators.
+     */
+    protected open fun getAdditionalHeaders() : Map<String, String>? = null
+
     protected abstract fun deliverResponse(response: T)
 
     protected abstract fun parseNetworkResponse(networkResponse: MoPubNetworkResponse?) : MoPubResponse<T>?
@@ -6,22 +6,29 @@ package com.mopub.network
 
 import com.mopub.common.Constants
 import com.mopub.common.Mockable
+import com.mopub.common.VisibleForTesting
 import com.mopub.common.util.DeviceUtils
 import com.mopub.common.util.ResponseHeader
 import com.mopub.volley.AuthFailureError
 import com.mopub.volley.Request
 import com.mopub.volley.RequestQueue
+import com.mopub.volley.toolbox.BaseHttpStack
 import com.mopub.volley.toolbox.BasicNetwork
 import com.mopub.volley.toolbox.DiskBasedCache
 import com.mopub.volley.toolbox.HttpResponse
-import com.mopub.volley.toolbox.HurlStack
 
 import java.io.File
 import java.io.IOException
+import java.util.PriorityQueue
 import javax.net.ssl.SSLSocketFactory
 
 /**
  * MoPub's custom implementation of the Google Volley RequestQueue.
+ *
+ * Requests are served in priority lanes (see [MoPubRequest.Priority]). Image and tracker requests
+ * may only occupy some of the network threads at a time. Further ones wait outside of Volley until
+ * one of them finishes, so that a burst of image loads while scrolling never keeps an ad request
+ * waiting for a free network thread.
  * @see [com.mopub.volley.RequestQueue]
  */
 @Mockable
@@ -29,14 +36,32 @@ class MoPubRequestQueue internal constructor(
     userAgent: String?,
     sslSocketFactory: SSLSocketFactory,
     moPubUrlRewriter: MoPubUrlRewriter,
-    volleyCacheDir: File
+    volleyCacheDir: File,
+    httpEngine: MoPubHttpEngine = HurlHttpEngine()
 ) {
-    private val volleyRequestQueue: RequestQueue
+    companion object {
+        // Volley's default network thread pool size is 4. One is always left for ad requests and
+        // creative assets.
+        @VisibleForTesting
+        internal const val MAX_BACKGROUND_REQUESTS = 3
+    }
+
+    private val volleyRequestQueue: LaneRequestQueue
+
+    // Image and tracker requests on the network threads and the ones waiting for them.
+    // Guarded by backgroundLock.
+    private val backgroundLock = Any()
+    private var backgroundRequestsInFlight = 0
+    // Highest priority first, then in the order they were added
+    private val deferredRequests = PriorityQueue<DeferredRequest>(
+        MAX_BACKGROUND_REQUESTS,
+        compareByDescending<DeferredRequest> { it.request.priority }.thenBy { it.sequence })
+    private var deferredRequestCount = 0L
 
     init {
-        val volleyUrlRewriter = HurlStack.UrlRewriter { url -> moPubUrlRewriter.rewriteUrl(url) }
+        val engineHttpStack = httpEngine.createHttpStack(sslSocketFactory, moPubUrlRewriter)
 
-        val volleyHurlStack = object : HurlStack(volleyUrlRewriter, sslSocketFactory) {
+        val volleyHttpStack = object : BaseHttpStack() {
             @Throws(IOException::class, AuthFailureError::class)
             override fun executeRequest(request: Request<*>?,
                                         additionalHeaders: MutableMap<String, String?>?): HttpResponse {
@@ -45,15 +70,18 @@ class MoPubRequestQueue internal constructor(
                 val newAdditionalHeaders = if (additionalHeaders.isNullOrEmpty()) mutableMapOf() else additionalHeaders
 
                 newAdditionalHeaders[ResponseHeader.USER_AGENT.key] = userAgent
-                return super.executeRequest(request, newAdditionalHeaders)
+                return engineHttpStack.executeRequest(request, newAdditionalHeaders)
             }
         }
 
-        val network = BasicNetwork(volleyHurlStack)
+        val network = BasicNetwork(volleyHttpStack)
         val cache = DiskBasedCache(volleyCacheDir,
                 DeviceUtils.diskCacheSizeBytes(volleyCacheDir, Constants.TEN_MB.toLong()).toInt())
 
-        volleyRequestQueue = RequestQueue(cache, network)
+        volleyRequestQueue = LaneRequestQueue(cache, network)
+        volleyRequestQueue.addRequestFinishedListener(RequestQueue.RequestFinishedListener<Any?> {
+            onRequestFinished(it)
+        })
     }
 
     fun start() {
@@ -80,4 +108,81 @@ class MoPubRequestQueue internal constructor(
     internal fun getVolleyRequestQueue() : RequestQueue {
         return volleyRequestQueue
     }
+
+    /**
+     * @return The number of image and tracker requests that had to wait for a network thread.
+     */
+    fun getDeferredRequestCount(): Long {
+        synchronized(backgroundLock) {
+            return deferredRequestCount
+        }
+    }
+
+    private fun isBackgroundRequest(request: Request<*>) =
+        request.priority <= MoPubRequest.Priority.IMAGE.volleyPriority
+
+    private fun onRequestFinished(request: Request<*>) {
+        if (!isBackgroundRequest(request)) {
+            return
+        }
+        val nextRequest = synchronized(backgroundLock) {
+            var next = deferredRequests.poll()?.request
+            // Requests cancelled while waiting never reach Volley, so they are dropped here.
+            while (next != null && next.isCanceled) {
+                next = deferredRequests.poll()?.request
+            }
+            if (next == null) {
+                backgroundRequestsInFlight--
+            }
+            next
+        }
+        nextRequest?.let { volleyRequestQueue.addToVolley(it) }
+    }
+
+    /**
+     * A held back request and the order it was added in, which breaks ties between requests of
+     * the same priority.
+     */
+    private class DeferredRequest(val request: Request<*>, val sequence: Long)
+
+    /**
+     * Volley queue that holds back image and tracker requests while too many are in flight.
+     */
+    private inner class LaneRequestQueue(
+        cache: DiskBasedCache,
+        network: BasicNetwork
+    ) : RequestQueue(cache, network) {
+
+        override fun <T : Any?> add(request: Request<T>): Request<T> {
+            if (!isBackgroundRequest(request)) {
+                return super.add(request)
+            }
+            synchronized(backgroundLock) {
+                if (backgroundRequestsInFlight >= MAX_BACKGROUND_REQUESTS) {
+                    deferredRequests.add(DeferredRequest(request, deferredRequestCount++))
+                    return request
+                }
+                backgroundRequestsInFlight++
+            }
+            return super.add(request)
+        }
+
+        override fun cancelAll(filter: RequestQueue.RequestFilter) {
+            super.cancelAll(filter)
+            synchronized(backgroundLock) {
+                deferredRequests.forEach {
+                    if (filter.apply(it.request)) {
+                        it.request.cancel()
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds a request that was held back, keeping its slot in flight.
+         */
+        fun addToVolley(request: Request<*>) {
+            super.add(request)
+        }
+    }
 }
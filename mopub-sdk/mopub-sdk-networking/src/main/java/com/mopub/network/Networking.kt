@@ -48,6 +48,13 @@ object Networking {
     @JvmStatic
     var urlRewriter : MoPubUrlRewriter? = null
 
+    /**
+     * Transport used by the request queue. Only takes effect if set before the request queue is
+     * first created. Defaults to [HurlHttpEngine].
+     */
+    @JvmStatic
+    var httpEngine : MoPubHttpEngine = HurlHttpEngine()
+
     /**
      * Gets the previously cached WebView user agent. This returns the default userAgent if the
      * WebView user agent has not been initialized yet.
@@ -81,7 +88,8 @@ object Networking {
                         userAgent,
                         socketFactory,
                         moPubUrlRewriter,
-                        volleyCacheDir
+                        volleyCacheDir,
+                        httpEngine
                     ).also {
                         requestQueue = it
                         it.start()
@@ -91,7 +99,7 @@ object Networking {
                 // If the url rewriter is null, return a request queue with the default url rewriter.
                 // Do not start it. This request queue is unusable.
                 val tempUrlRewriter = object : MoPubUrlRewriter {}
-                return@run MoPubRequestQueue(userAgent, socketFactory, tempUrlRewriter, volleyCacheDir)
+                return@run MoPubRequestQueue(userAgent, socketFactory, tempUrlRewriter, volleyCacheDir, httpEngine)
             }
         }
 
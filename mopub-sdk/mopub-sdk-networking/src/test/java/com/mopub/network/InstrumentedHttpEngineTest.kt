@@ -0,0 +1,120 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import com.mopub.test.support.NetworkingTestRunner
+
+import org.fest.assertions.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mock
+import org.mockito.Mockito.`when`
+
+import java.net.InetAddress
+import java.net.Socket
+import javax.net.ssl.SSLSocketFactory
+
+@RunWith(NetworkingTestRunner::class)
+class InstrumentedHttpEngineTest {
+    private lateinit var subject: InstrumentedHttpEngine
+    @Mock
+    private lateinit var mockSSLSocketFactory: SSLSocketFactory
+    @Mock
+    private lateinit var mockSocket: Socket
+
+    @Before
+    fun setup() {
+        subject = InstrumentedHttpEngine()
+        `when`(mockSSLSocketFactory.createSocket(mockSocket, "ads.mopub.com", 443, true))
+                .thenReturn(mockSocket)
+    }
+
+    @Test
+    fun createHttpStack_shouldReturnHttpStack() {
+        val httpStack = subject.createHttpStack(mockSSLSocketFactory, object : MoPubUrlRewriter {})
+
+        assertThat(httpStack).isNotNull
+    }
+
+    @Test
+    fun getConnectionStats_withNoRequests_shouldReturnNull() {
+        assertThat(subject.getConnectionStats("ads.mopub.com")).isNull()
+        assertThat(subject.getConnectionStats()).isEmpty()
+    }
+
+    @Test
+    fun getConnectionStats_withRequestsOnOneConnection_shouldCountReusedConnections() {
+        val socketFactory = subject.ConnectionCountingSSLSocketFactory(mockSSLSocketFactory)
+
+        socketFactory.createSocket(mockSocket, "ads.mopub.com", 443, true)
+        subject.onRequestCompleted("ads.mopub.com", true, 300)
+        subject.onRequestCompleted("ads.mopub.com", true, 100)
+        subject.onRequestCompleted("ads.mopub.com", true, 50)
+
+        val stats = subject.getConnectionStats("ads.mopub.com")!!
+        assertThat(stats.requests).isEqualTo(3)
+        assertThat(stats.newTlsConnections).isEqualTo(1)
+        assertThat(stats.reusedTlsConnections).isEqualTo(2)
+        assertThat(stats.averageTimeToFirstByteMillis).isEqualTo(150)
+    }
+
+    @Test
+    fun getConnectionStats_withNewConnectionPerRequest_shouldReportNoReuse() {
+        val socketFactory = subject.ConnectionCountingSSLSocketFactory(mockSSLSocketFactory)
+
+        socketFactory.createSocket(mockSocket, "ads.mopub.com", 443, true)
+        subject.onRequestCompleted("ads.mopub.com", true, 100)
+        socketFactory.createSocket(mockSocket, "ads.mopub.com", 443, true)
+        subject.onRequestCompleted("ads.mopub.com", true, 100)
+
+        val stats = subject.getConnectionStats("ads.mopub.com")!!
+        assertThat(stats.newTlsConnections).isEqualTo(2)
+        assertThat(stats.reusedTlsConnections).isEqualTo(0)
+    }
+
+    @Test
+    fun getConnectionStats_withPlainHttpRequests_shouldNotReportReuse() {
+        subject.onRequestCompleted("tracker.com", false, 100)
+        subject.onRequestCompleted("tracker.com", false, 100)
+
+        val stats = subject.getConnectionStats("tracker.com")!!
+        assertThat(stats.requests).isEqualTo(2)
+        assertThat(stats.httpsRequests).isEqualTo(0)
+        assertThat(stats.newTlsConnections).isEqualTo(0)
+        assertThat(stats.reusedTlsConnections).isEqualTo(0)
+    }
+
+    @Test
+    fun getConnectionStats_withSocketOpenedByAddress_shouldCountConnectionUnderHostName() {
+        val address = InetAddress.getByAddress("ads.mopub.com", byteArrayOf(10, 0, 0, 1))
+        `when`(mockSSLSocketFactory.createSocket(address, 443)).thenReturn(mockSocket)
+        val socketFactory = subject.ConnectionCountingSSLSocketFactory(mockSSLSocketFactory)
+
+        socketFactory.createSocket(address, 443)
+        subject.onRequestCompleted("ads.mopub.com", true, 100)
+
+        assertThat(subject.getConnectionStats()).hasSize(1)
+        assertThat(subject.getConnectionStats("ads.mopub.com")!!.newTlsConnections).isEqualTo(1)
+    }
+
+    @Test
+    fun getConnectionStats_shouldKeepHostsSeparate() {
+        subject.onRequestCompleted("ads.mopub.com", true, 100)
+        subject.onRequestCompleted("tracker.com", false, 100)
+
+        assertThat(subject.getConnectionStats()).hasSize(2)
+        assertThat(subject.getConnectionStats("tracker.com")!!.requests).isEqualTo(1)
+    }
+
+    @Test
+    fun resetConnectionStats_shouldClearAllHosts() {
+        subject.onRequestCompleted("ads.mopub.com", true, 100)
+
+        subject.resetConnectionStats()
+
+        assertThat(subject.getConnectionStats()).isEmpty()
+    }
+}
@@ -0,0 +1,90 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import android.graphics.Bitmap
+import android.widget.ImageView.ScaleType
+
+import com.mopub.test.support.NetworkingTestRunner
+
+import org.fest.assertions.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(NetworkingTestRunner::class)
+class MoPubImageDecoderTest {
+
+    @Test
+    fun getResizedDimension_withNoBounds_shouldReturnActualSize() {
+        assertThat(MoPubImageDecoder.getResizedDimension(0, 0, 1200, 800,
+                ScaleType.CENTER_INSIDE)).isEqualTo(1200)
+    }
+
+    @Test
+    fun getResizedDimension_withWidthBound_shouldKeepAspectRatio() {
+        val width = MoPubImageDecoder.getResizedDimension(600, 0, 1200, 800,
+                ScaleType.CENTER_INSIDE)
+        val height = MoPubImageDecoder.getResizedDimension(0, 600, 800, 1200,
+                ScaleType.CENTER_INSIDE)
+
+        assertThat(width).isEqualTo(600)
+        assertThat(height).isEqualTo(400)
+    }
+
+    @Test
+    fun getResizedDimension_withCenterCrop_shouldCoverBothBounds() {
+        val width = MoPubImageDecoder.getResizedDimension(300, 300, 1200, 800,
+                ScaleType.CENTER_CROP)
+        val height = MoPubImageDecoder.getResizedDimension(300, 300, 800, 1200,
+                ScaleType.CENTER_CROP)
+
+        assertThat(width).isEqualTo(450)
+        assertThat(height).isEqualTo(300)
+    }
+
+    @Test
+    fun findBestSampleSize_shouldReturnLargestPowerOfTwoNotSmallerThanDesiredSize() {
+        assertThat(MoPubImageDecoder.findBestSampleSize(1200, 800, 600, 400)).isEqualTo(2)
+        assertThat(MoPubImageDecoder.findBestSampleSize(1200, 800, 500, 300)).isEqualTo(2)
+        assertThat(MoPubImageDecoder.findBestSampleSize(1200, 800, 250, 160)).isEqualTo(4)
+        assertThat(MoPubImageDecoder.findBestSampleSize(1200, 800, 1500, 1000)).isEqualTo(1)
+        assertThat(MoPubImageDecoder.findBestSampleSize(1200, 800, 0, 0)).isEqualTo(1)
+    }
+
+    @Test
+    fun encode_withImageNotDownsampled_shouldReturnOriginalData() {
+        val subject = MoPubImageDecoder()
+        val originalData = byteArrayOf(1, 2, 3)
+        val decodedImage = MoPubImageDecoder.DecodedImage(
+                Bitmap.createBitmap(10, 10, Bitmap.Config.RGB_565), false)
+
+        assertThat(subject.encode(decodedImage, originalData)).isSameAs(originalData)
+    }
+
+    @Test
+    fun getCompressFormat_withOpaqueImage_shouldReturnJpeg() {
+        val bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.RGB_565)
+
+        assertThat(MoPubImageDecoder.getCompressFormat(bitmap)).isEqualTo(Bitmap.CompressFormat.JPEG)
+    }
+
+    @Test
+    fun getCompressFormat_withTransparentImage_shouldReturnPng() {
+        val bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888)
+        bitmap.setHasAlpha(true)
+
+        assertThat(MoPubImageDecoder.getCompressFormat(bitmap)).isEqualTo(Bitmap.CompressFormat.PNG)
+    }
+
+    @Test
+    fun decode_shouldCountDecodesAndBytesDecoded() {
+        val subject = MoPubImageDecoder()
+
+        subject.decode(byteArrayOf(1, 2, 3), 100, 100, ScaleType.CENTER_INSIDE)
+
+        assertThat(subject.decodeCount).isEqualTo(1)
+        assertThat(subject.bytesDecoded).isEqualTo(3)
+    }
+}
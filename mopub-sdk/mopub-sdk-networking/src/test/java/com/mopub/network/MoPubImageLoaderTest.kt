@@ -5,9 +5,11 @@
 package com.mopub.network
 
 import android.graphics.Bitmap
+import android.widget.ImageView.ScaleType
 
 import com.mopub.test.support.NetworkingTestRunner
 
+import org.fest.assertions.api.Assertions.assertThat
 import org.junit.Assert.assertNotNull
 import org.junit.Before
 import org.junit.Test
@@ -46,4 +48,31 @@ class MoPubImageLoaderTest {
 
         assertNotNull(containerResponse)
     }
+
+    @Test
+    fun fetch_withCachedBitmap_shouldCountMemoryHit() {
+        val imageLoader = MoPubImageLoader(mockRequestQueue, imageCache)
+        val imageListener = object : MoPubImageLoader.ImageListener {
+            override fun onResponse(imageContainer: MoPubImageLoader.ImageContainer, isImmediate: Boolean) {}
+        }
+
+        imageLoader.fetch("test", imageListener, 100, 0, ScaleType.CENTER_INSIDE)
+
+        val stats = imageLoader.getStats()
+        assertThat(stats.memoryHits).isEqualTo(1)
+        assertThat(stats.memoryMisses).isEqualTo(0)
+        assertThat(stats.memoryHitRate).isEqualTo(1.0)
+        assertThat(stats.decodeCount).isEqualTo(0)
+    }
+
+    @Test
+    fun stats_shouldComputeHitRatesPerTier() {
+        val stats = MoPubImageLoader.Stats(memoryHits = 3, memoryMisses = 1, diskHits = 1,
+                networkLoads = 0, decodeCount = 1, averageDecodeMicros = 500, bytesDecoded = 2048,
+                reusedBitmaps = 0, coalescedFetches = 0)
+
+        assertThat(stats.memoryHitRate).isEqualTo(0.75)
+        assertThat(stats.diskHitRate).isEqualTo(1.0)
+        assertThat(MoPubImageLoader.Stats(0, 0, 0, 0, 0, 0, 0, 0, 0).diskHitRate).isEqualTo(0.0)
+    }
 }
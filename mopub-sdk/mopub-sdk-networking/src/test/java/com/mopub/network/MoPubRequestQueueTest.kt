@@ -101,6 +101,85 @@ class MoPubRequestQueueTest {
         }
     }
 
+    @Test
+    fun add_shouldMapPriorityToVolleyPriority() {
+        val trackerRequest = TestMoPubRequest(context, null, "test")
+        trackerRequest.priority = MoPubRequest.Priority.TRACKER
+        val adRequest = TestMoPubRequest(context, null, "test")
+        adRequest.priority = MoPubRequest.Priority.AD_REQUEST
+
+        assertThat(moPubRequest.getVolleyRequest().priority).isEqualTo(Request.Priority.HIGH)
+        assertThat(trackerRequest.getVolleyRequest().priority).isEqualTo(Request.Priority.LOW)
+        assertThat(adRequest.getVolleyRequest().priority).isEqualTo(Request.Priority.IMMEDIATE)
+    }
+
+    @Test
+    fun add_withTooManyBackgroundRequests_shouldDeferThem_shouldNotDeferAdRequests() {
+        for (i in 0..MoPubRequestQueue.MAX_BACKGROUND_REQUESTS) {
+            val trackerRequest = TestMoPubRequest(context, null, "test")
+            trackerRequest.priority = MoPubRequest.Priority.TRACKER
+            subject.add(trackerRequest)
+        }
+        val adRequest = TestMoPubRequest(context, null, "test")
+        adRequest.priority = MoPubRequest.Priority.AD_REQUEST
+        subject.add(adRequest)
+
+        val requestsField = RequestQueue::class.java.getDeclaredField("mCurrentRequests")
+        requestsField.isAccessible = true
+        val currentRequests = requestsField.get(subject.getVolleyRequestQueue()) as Set<Request<*>>
+        assertThat(subject.getDeferredRequestCount()).isEqualTo(1)
+        assertThat(currentRequests).hasSize(MoPubRequestQueue.MAX_BACKGROUND_REQUESTS + 1)
+        assertTrue(currentRequests.contains(adRequest.getVolleyRequest()))
+    }
+
+    @Test
+    fun onRequestFinished_shouldReleaseHighestPriorityDeferredRequestFirst() {
+        val inFlightRequests = mutableListOf<TestMoPubRequest>()
+        for (i in 1..MoPubRequestQueue.MAX_BACKGROUND_REQUESTS) {
+            val trackerRequest = TestMoPubRequest(context, null, "test")
+            trackerRequest.priority = MoPubRequest.Priority.TRACKER
+            subject.add(trackerRequest)
+            inFlightRequests.add(trackerRequest)
+        }
+        val deferredTrackerRequest = TestMoPubRequest(context, null, "test")
+        deferredTrackerRequest.priority = MoPubRequest.Priority.TRACKER
+        subject.add(deferredTrackerRequest)
+        val deferredImageRequest = TestMoPubRequest(context, null, "test")
+        deferredImageRequest.priority = MoPubRequest.Priority.IMAGE
+        subject.add(deferredImageRequest)
+
+        val onRequestFinished = MoPubRequestQueue::class.java.getDeclaredMethod(
+            "onRequestFinished", Request::class.java)
+        onRequestFinished.isAccessible = true
+        onRequestFinished.invoke(subject, inFlightRequests[0].getVolleyRequest())
+
+        val requestsField = RequestQueue::class.java.getDeclaredField("mCurrentRequests")
+        requestsField.isAccessible = true
+        val currentRequests = requestsField.get(subject.getVolleyRequestQueue()) as Set<Request<*>>
+        assertThat(subject.getDeferredRequestCount()).isEqualTo(2)
+        assertTrue(currentRequests.contains(deferredImageRequest.getVolleyRequest()))
+        assertFalse(currentRequests.contains(deferredTrackerRequest.getVolleyRequest()))
+    }
+
+    @Test
+    fun cancelAll_withTag_shouldCancelDeferredRequests() {
+        val deferredRequests = mutableListOf<TestMoPubRequest>()
+        for (i in 0..MoPubRequestQueue.MAX_BACKGROUND_REQUESTS) {
+            val imageRequest = TestMoPubRequest(context, null, "test")
+            imageRequest.priority = MoPubRequest.Priority.IMAGE
+            imageRequest.setTag("tag")
+            subject.add(imageRequest)
+            deferredRequests.add(imageRequest)
+        }
+
+        subject.cancelAll("tag")
+
+        assertThat(subject.getDeferredRequestCount()).isEqualTo(1)
+        deferredRequests.forEach {
+            assertTrue(it.getVolleyRequest().isCanceled)
+        }
+    }
+
     class TestMoPubRequest(
         context: Context,
         listener: MoPubResponse.Listener<String>?,
@@ -0,0 +1,151 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.logging;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+
+/**
+ * Logger that hands events to another logger on a background thread, so that writing logs does
+ * not slow down the thread that logged them. Events wait in a fixed size ring buffer. When logging
+ * outpaces the background thread and the buffer is full, the oldest event is dropped.
+ *
+ * Use it in place of the logger it wraps:
+ * MoPubLog.addLogger(new MoPubAsyncLogger(myLogger), LogLevel.DEBUG);
+ */
+public class MoPubAsyncLogger implements MoPubLogger {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final String THREAD_NAME = "MoPubAsyncLogger";
+
+    @NonNull private final MoPubLogger mDelegate;
+    @NonNull private final Object mLock = new Object();
+    // Held while events are handed to the delegate, so that they arrive in order.
+    @NonNull private final Object mDrainLock = new Object();
+
+    // Ring buffer, guarded by mLock
+    @NonNull private final String[] mClassNames;
+    @NonNull private final String[] mMethodNames;
+    @NonNull private final String[] mIdentifiers;
+    @NonNull private final String[] mMessages;
+    private int mHead;
+    private int mSize;
+    private long mDroppedCount;
+    @Nullable private Thread mThread;
+
+    public MoPubAsyncLogger(@NonNull final MoPubLogger delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    public MoPubAsyncLogger(@NonNull final MoPubLogger delegate, final int capacity) {
+        Preconditions.checkNotNull(delegate);
+        Preconditions.checkArgument(capacity > 0);
+
+        mDelegate = delegate;
+        mClassNames = new String[capacity];
+        mMethodNames = new String[capacity];
+        mIdentifiers = new String[capacity];
+        mMessages = new String[capacity];
+    }
+
+    @Override
+    public void log(@Nullable final String className, @Nullable final String methodName,
+            @Nullable final String identifier, @Nullable final String message) {
+        synchronized (mLock) {
+            final int capacity = mMessages.length;
+            if (mSize == capacity) {
+                mHead = (mHead + 1) % capacity;
+                mSize--;
+                mDroppedCount++;
+            }
+            final int tail = (mHead + mSize) % capacity;
+            mClassNames[tail] = className;
+            mMethodNames[tail] = methodName;
+            mIdentifiers[tail] = identifier;
+            mMessages[tail] = message;
+            mSize++;
+
+            if (mThread == null) {
+                mThread = new Thread(new DrainRunnable(), THREAD_NAME);
+                mThread.setDaemon(true);
+                mThread.start();
+            }
+            mLock.notify();
+        }
+    }
+
+    /**
+     * Hands all waiting events to the wrapped logger on the calling thread, e.g. before the app
+     * goes away.
+     */
+    public void flush() {
+        synchronized (mDrainLock) {
+            while (drainOneLocked()) {
+                // Keep draining
+            }
+        }
+    }
+
+    /**
+     * @return The number of events dropped because the buffer was full.
+     */
+    public long getDroppedCount() {
+        synchronized (mLock) {
+            return mDroppedCount;
+        }
+    }
+
+    /**
+     * Hands the oldest waiting event to the wrapped logger. Must be called holding mDrainLock.
+     *
+     * @return Whether an event was handed over.
+     */
+    private boolean drainOneLocked() {
+        final String className;
+        final String methodName;
+        final String identifier;
+        final String message;
+        synchronized (mLock) {
+            if (mSize == 0) {
+                return false;
+            }
+            className = mClassNames[mHead];
+            methodName = mMethodNames[mHead];
+            identifier = mIdentifiers[mHead];
+            message = mMessages[mHead];
+            mClassNames[mHead] = null;
+            mMethodNames[mHead] = null;
+            mIdentifiers[mHead] = null;
+            mMessages[mHead] = null;
+            mHead = (mHead + 1) % mMessages.length;
+            mSize--;
+        }
+        mDelegate.log(className, methodName, identifier, message);
+        return true;
+    }
+
+    private class DrainRunnable implements Runnable {
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                synchronized (mLock) {
+                    while (mSize == 0) {
+                        try {
+                            mLock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                synchronized (mDrainLock) {
+                    drainOneLocked();
+                }
+            }
+        }
+    }
+}
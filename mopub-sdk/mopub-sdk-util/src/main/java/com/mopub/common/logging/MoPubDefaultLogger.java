@@ -34,14 +34,26 @@ public class MoPubDefaultLogger implements MoPubLogger {
      */
     private static final String MESSAGE_WITH_ID_FORMAT = "[%s][%s][%s] %s";
 
+    /**
+     * MESSAGE_WITH_ID_ONLY_FORMAT is used when the caller is not known (see
+     * {@link MoPubLog#setCallerCaptureEnabled(boolean)}) to produce a log in the following format:
+     * "[ad-unit-id-123] Adapter Custom Log - Attempting to invoke base ad: com.mopub.mobileads.MoPubInline"
+     */
+    private static final String MESSAGE_WITH_ID_ONLY_FORMAT = "[%s] %s";
+
     public MoPubDefaultLogger() {
     }
 
     @Override
     public void log(@Nullable String className, @Nullable String methodName,
                     @Nullable String identifier, @Nullable String message) {
+        final boolean hasCaller = className != null || methodName != null;
         for (final String segment : split(message)) {
-            if (identifier == null) {
+            if (!hasCaller) {
+                Log.i(MoPubLog.LOGTAG, identifier == null
+                        ? String.valueOf(segment)
+                        : String.format(MESSAGE_WITH_ID_ONLY_FORMAT, identifier, segment));
+            } else if (identifier == null) {
                 Log.i(MoPubLog.LOGTAG, String.format(MESSAGE_FORMAT, className,
                         methodName, segment));
             } else {
@@ -30,6 +30,11 @@ public class MoPubLog {
      */
     private static final int STACK_TRACE_LEVEL = 4;
 
+    /**
+     * Class and method names given to loggers when caller capture is off.
+     */
+    private static final Pair<String, String> NO_CLASS_AND_METHOD = new Pair<>(null, null);
+
     /**
      * LogLevelInt values set for parity with iOS
      */
@@ -87,6 +92,12 @@ public class MoPubLog {
     @NonNull private LogLevel sLogLevel = LogLevel.INFO;
     @NonNull private Map<MoPubLogger, LogLevel> mLoggers = new HashMap<>();
     @NonNull private MoPubLogger mDefaultLogger = new MoPubDefaultLogger();
+    /**
+     * Lowest level any logger accepts, so that events no logger would emit are dropped before the
+     * caller is looked up or the message is formatted.
+     */
+    private volatile int mMinLoggerLevel = LogLevel.NONE_INT;
+    private volatile boolean mCallerCaptureEnabled = false;
 
     private MoPubLog() {
     }
@@ -96,8 +107,9 @@ public class MoPubLog {
                 ? throwable.getMessage() : "");
     }
 
-    private static void removeLogger(@Nullable MoPubLogger logger) {
+    static void removeLogger(@Nullable MoPubLogger logger) {
         sInstance.mLoggers.remove(logger);
+        updateMinLoggerLevel();
     }
 
     public static void addLogger(@Nullable MoPubLogger logger) {
@@ -106,6 +118,17 @@ public class MoPubLog {
 
     public static void addLogger(@Nullable MoPubLogger logger, @Nullable LogLevel logLevel) {
         sInstance.mLoggers.put(logger, logLevel);
+        updateMinLoggerLevel();
+    }
+
+    private static void updateMinLoggerLevel() {
+        int minLoggerLevel = LogLevel.NONE_INT;
+        for (final LogLevel logLevel : sInstance.mLoggers.values()) {
+            if (logLevel != null) {
+                minLoggerLevel = Math.min(minLoggerLevel, logLevel.intValue());
+            }
+        }
+        sInstance.mMinLoggerLevel = minLoggerLevel;
     }
 
     public static void setLogLevel(@NonNull LogLevel logLevel) {
@@ -120,35 +143,73 @@ public class MoPubLog {
         return sInstance.sLogLevel;
     }
 
+    /**
+     * Looking up the class and method that logged an event walks the call stack, which costs more
+     * than the rest of logging the event. It is off by default, and loggers are given null class
+     * and method names.
+     *
+     * @param callerCaptureEnabled Whether to look up the class and method that logged each event.
+     */
+    public static void setCallerCaptureEnabled(final boolean callerCaptureEnabled) {
+        sInstance.mCallerCaptureEnabled = callerCaptureEnabled;
+    }
+
+    public static boolean isCallerCaptureEnabled() {
+        return sInstance.mCallerCaptureEnabled;
+    }
+
+    /**
+     * Callers that have to do work to build the arguments of an event can check this first.
+     *
+     * @return Whether any logger would emit the given event.
+     */
+    public static boolean isLoggable(@Nullable final MPLogEventType logEventType) {
+        return logEventType != null
+                && sInstance.mMinLoggerLevel <= logEventType.getLogLevel().intValue();
+    }
+
     public static void log(@Nullable final MPLogEventType logEventType, @Nullable final Object... args) {
+        if (!isLoggable(logEventType)) {
+            return;
+        }
         Pair<String, String> classAndMethodNames = getClassAndMethod();
         log(classAndMethodNames, null, logEventType, args);  // null identifiers are omitted
     }
 
     public static void log(@Nullable final String identifier, @Nullable final MPLogEventType logEventType,
                            @Nullable final Object... args) {
+        if (!isLoggable(logEventType)) {
+            return;
+        }
         Pair<String, String> classAndMethodNames = getClassAndMethod();
         log(classAndMethodNames, identifier, logEventType, args);  // null identifiers are omitted
     }
 
     private static void log(@NonNull Pair<String, String> classAndMethodNames, @Nullable String identifier,
-                            @Nullable  MPLogEventType logEventType, @Nullable Object... args) {
+                            @NonNull MPLogEventType logEventType, @Nullable Object... args) {
         Preconditions.checkNotNull(classAndMethodNames);
-
-        if (logEventType == null) {
-            return;
-        }
-
-        for (MoPubLogger logger : sInstance.mLoggers.keySet()) {
-            if (sInstance.mLoggers.get(logger) != null
-                    && sInstance.mLoggers.get(logger).intValue() <= logEventType.getLogLevel().intValue()) {
-                logger.log(classAndMethodNames.first, classAndMethodNames.second, identifier,
-                        logEventType.getMessage(args));
+        Preconditions.checkNotNull(logEventType);
+
+        final int eventLevel = logEventType.getLogLevel().intValue();
+        // Formatted once for all loggers, and only if one of them emits the event
+        String message = null;
+        for (Map.Entry<MoPubLogger, LogLevel> entry : sInstance.mLoggers.entrySet()) {
+            final LogLevel loggerLevel = entry.getValue();
+            if (loggerLevel != null && loggerLevel.intValue() <= eventLevel) {
+                if (message == null) {
+                    message = logEventType.getMessage(args);
+                }
+                entry.getKey().log(classAndMethodNames.first, classAndMethodNames.second,
+                        identifier, message);
             }
         }
     }
 
+    @NonNull
     private static Pair<String, String> getClassAndMethod() {
+        if (!sInstance.mCallerCaptureEnabled) {
+            return NO_CLASS_AND_METHOD;
+        }
         final StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
         return new Pair<>(stackTraceElements[STACK_TRACE_LEVEL].getClassName(),
                 stackTraceElements[STACK_TRACE_LEVEL].getMethodName());
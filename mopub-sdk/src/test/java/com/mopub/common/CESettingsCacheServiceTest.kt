@@ -14,6 +14,9 @@ import com.mopub.mobileads.CreativeExperienceSettingsParser
 import com.mopub.mobileads.CreativeExperienceSettingsParserTest
 
 import junit.framework.Assert.assertEquals
+import junit.framework.Assert.assertFalse
+import junit.framework.Assert.assertNull
+import junit.framework.Assert.assertTrue
 
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
@@ -27,7 +30,12 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.Robolectric
+
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
 
 @RunWith(SdkTestRunner::class)
 class CESettingsCacheServiceTest {
@@ -131,4 +139,80 @@ class CESettingsCacheServiceTest {
 
         assertEquals(responseSettings, cachedSettings)
     }
+
+    @Test
+    fun getCESettingsHash_afterPutCESettings_shouldCallOnHashReceivedWithoutReadingDisk() {
+        CESettingsCacheService.putCESettings(adUnitId, responseSettings, context)
+
+        CESettingsCacheService.getCESettingsHash(adUnitId, listener, context)
+
+        // The listener is called before getCESettingsHash returns
+        assertEquals("12345", cachedHash)
+    }
+
+    @Test
+    fun getCESettingsHash_secondCall_shouldUseInMemoryIndex() {
+        CESettingsCacheService.initializeDiskCache(context)
+        CESettingsCacheService.putToDiskCache(adUnitId, responseSettings.toByteArray())
+        CESettingsCacheService.getCESettingsHash(adUnitId, listener, context)
+        semaphore.acquire()
+        cachedHash = null
+
+        CESettingsCacheService.getCESettingsHash(adUnitId, listener, context)
+
+        assertEquals("12345", cachedHash)
+    }
+
+    @Test
+    fun getCESettings_withSerializedEntry_shouldReadSettings_shouldRewriteEntryInBinaryFormat() {
+        val serialized = ByteArrayOutputStream().also {
+            ObjectOutputStream(it).use { objectOutput -> objectOutput.writeObject(responseSettings) }
+        }.toByteArray()
+        assertTrue(CreativeExperienceSettings.isSerializedFormat(serialized))
+        CESettingsCacheService.initializeDiskCache(context)
+        CESettingsCacheService.putToDiskCache(adUnitId, serialized)
+        val migrationLatch = CountDownLatch(1)
+        CESettingsCacheService.migrationListener = object : CacheService.DiskLruCacheListener {
+            override fun onPutComplete(success: Boolean) {
+                migrationLatch.countDown()
+            }
+        }
+
+        CESettingsCacheService.getCESettings(adUnitId, listener, context)
+        semaphore.acquire()
+        assertTrue(migrationLatch.await(5, TimeUnit.SECONDS))
+
+        assertEquals(responseSettings, cachedSettings)
+        val migrated = CESettingsCacheService.getFromDiskCache(adUnitId)
+        assertFalse(CreativeExperienceSettings.isSerializedFormat(migrated))
+        assertEquals(responseSettings, CreativeExperienceSettings.fromByteArray(migrated))
+    }
+
+    @Test
+    fun toByteArray_fromByteArray_shouldRoundTrip() {
+        val defaultSettings = CreativeExperienceSettings.getDefaultSettings(true)
+
+        assertEquals(
+            responseSettings,
+            CreativeExperienceSettings.fromByteArray(responseSettings.toByteArray())
+        )
+        // The end card config has no minTimeUntilNextActionSecs
+        assertEquals(
+            defaultSettings,
+            CreativeExperienceSettings.fromByteArray(defaultSettings.toByteArray())
+        )
+    }
+
+    @Test
+    fun fromByteArray_withUnknownFormat_shouldReturnNull() {
+        assertNull(CreativeExperienceSettings.fromByteArray(byteArrayOf(1, 2, 3)))
+        assertNull(CreativeExperienceSettings.fromByteArray(ByteArray(0)))
+    }
+
+    @Test
+    fun fromByteArray_withTruncatedBytes_shouldReturnNull() {
+        val bytes = responseSettings.toByteArray()!!
+
+        assertNull(CreativeExperienceSettings.fromByteArray(bytes.copyOf(bytes.size - 1)))
+    }
 }
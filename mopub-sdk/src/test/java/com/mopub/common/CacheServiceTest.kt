@@ -17,6 +17,7 @@ import kotlinx.coroutines.test.setMain
 
 import org.fest.assertions.api.Assertions.assertThat
 import org.junit.After
+import org.junit.Assume.assumeTrue
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
@@ -30,8 +31,14 @@ import org.powermock.core.classloader.annotations.PrepareForTest
 import org.powermock.modules.junit4.rule.PowerMockRule
 import org.robolectric.Robolectric
 
+import java.io.ByteArrayInputStream
 import java.io.File
+import java.io.FileInputStream
 import java.io.InputStream
+import java.lang.management.ManagementFactory
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.Semaphore
 
 @RunWith(SdkTestRunner::class)
@@ -269,6 +276,17 @@ class CacheServiceTest {
         assertTrue(data1.toByteArray().contentEquals(getValue))
     }
 
+    @Test
+    fun removeFromDiskCache_withKeyInCache_shouldRemove_shouldReturnTrue() {
+        testCacheService.initialize(context)
+        testCacheService.putToDiskCache(key1, data1.toByteArray())
+
+        assertTrue(testCacheService.removeFromDiskCache(key1))
+
+        assertFalse(testCacheService.containsKeyDiskCache(key1))
+        assertFalse(testCacheService.removeFromDiskCache(key1))
+    }
+
     @Test
     fun putToDiskCacheAsync_shouldPut_shouldCallOnPutCompleteTrue() {
         testCacheService.putToDiskCacheAsync(
@@ -411,6 +429,174 @@ class CacheServiceTest {
         assertNull(asyncGetValue)
     }
 
+    @Test
+    fun getInputStreamFromDiskCache_whenPopulated_shouldStreamCachedValue() {
+        testCacheService.initialize(context)
+        testCacheService.putToDiskCache(key1, data1.toByteArray())
+
+        val inputStream = testCacheService.getInputStreamFromDiskCache(key1)
+
+        assertNotNull(inputStream)
+        inputStream!!.use {
+            assertTrue(data1.toByteArray().contentEquals(it.readBytes()))
+        }
+    }
+
+    @Test
+    fun getInputStreamFromDiskCache_withKeyNotInCache_shouldReturnNull() {
+        testCacheService.initialize(context)
+
+        assertNull(testCacheService.getInputStreamFromDiskCache(key1))
+        assertNull(testCacheService.getFileChannelFromDiskCache(key1))
+        assertNull(testCacheService.mapFromDiskCache(key1))
+        assertNull(testCacheService.openFileDescriptorDiskCache(key1))
+    }
+
+    @Test
+    fun getFileChannelFromDiskCache_whenPopulated_shouldReturnChannelOverCachedValue() {
+        testCacheService.initialize(context)
+        testCacheService.putToDiskCache(key1, data1.toByteArray())
+
+        val channel = testCacheService.getFileChannelFromDiskCache(key1)
+
+        assertNotNull(channel)
+        channel!!.use {
+            assertEquals(data1.length.toLong(), it.size())
+        }
+    }
+
+    @Test
+    fun mapFromDiskCache_whenPopulated_shouldMapCachedValue() {
+        testCacheService.initialize(context)
+        testCacheService.putToDiskCache(key1, data1.toByteArray())
+
+        val buffer = testCacheService.mapFromDiskCache(key1)
+
+        assertNotNull(buffer)
+        val bytes = ByteArray(buffer!!.remaining())
+        buffer.get(bytes)
+        assertTrue(data1.toByteArray().contentEquals(bytes))
+    }
+
+    @Test
+    fun openFileDescriptorDiskCache_whenPopulated_shouldOpenCachedFile() {
+        testCacheService.initialize(context)
+        testCacheService.putToDiskCache(key1, data1.toByteArray())
+
+        val fileDescriptor = testCacheService.openFileDescriptorDiskCache(key1)
+
+        assertNotNull(fileDescriptor)
+        FileInputStream(fileDescriptor!!.fileDescriptor).use {
+            assertTrue(data1.toByteArray().contentEquals(it.readBytes()))
+        }
+        fileDescriptor.close()
+    }
+
+    /**
+     * Reads a small and a large entry through the streaming and mapped APIs and checks that the
+     * bytes allocated do not grow with the entry size. Allocation is measured per thread, so this
+     * needs a JVM that supports thread allocation counters.
+     */
+    @Test
+    fun streamingAndMappedReads_shouldNotAllocateProportionallyToEntrySize() {
+        val threadMXBean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+        assumeTrue(threadMXBean != null && threadMXBean.isThreadAllocatedMemorySupported)
+        threadMXBean!!.isThreadAllocatedMemoryEnabled = true
+        testCacheService.initialize(context)
+        val smallKey = "https://www.mopub.com/small"
+        val largeKey = "https://www.mopub.com/large"
+        testCacheService.putToDiskCache(smallKey, ByteArrayInputStream(ByteArray(64 * 1024)))
+        testCacheService.putToDiskCache(largeKey, ByteArrayInputStream(ByteArray(8 * 1024 * 1024)))
+        val buffer = ByteArray(16 * 1024)
+
+        val readStream: (String) -> Long = { key ->
+            var total = 0L
+            testCacheService.getInputStreamFromDiskCache(key)!!.use {
+                var length = it.read(buffer)
+                while (length != -1) {
+                    total += length
+                    length = it.read(buffer)
+                }
+            }
+            total
+        }
+        val readMapped: (String) -> Long = { key ->
+            val mapped = testCacheService.mapFromDiskCache(key)!!
+            var total = 0L
+            while (mapped.hasRemaining()) {
+                total += mapped.get()
+            }
+            total
+        }
+
+        // Warm up both paths
+        readStream(smallKey)
+        readMapped(smallKey)
+
+        val threadId = Thread.currentThread().id
+        val measure: ((String) -> Long, String) -> Long = { read, key ->
+            val startBytes = threadMXBean.getThreadAllocatedBytes(threadId)
+            read(key)
+            threadMXBean.getThreadAllocatedBytes(threadId) - startBytes
+        }
+        val streamSmall = measure(readStream, smallKey)
+        val streamLarge = measure(readStream, largeKey)
+        val mappedSmall = measure(readMapped, smallKey)
+        val mappedLarge = measure(readMapped, largeKey)
+        val heapCopyLarge = measure({ key -> testCacheService.getFromDiskCache(key)!!.size.toLong() }, largeKey)
+
+        // The large entry is 128 times the small one. Allow for bookkeeping noise, not the value.
+        val slack = 256 * 1024L
+        assertThat(streamLarge).isLessThan(streamSmall + slack)
+        assertThat(mappedLarge).isLessThan(mappedSmall + slack)
+        assertThat(heapCopyLarge).isGreaterThan(8 * 1024 * 1024L)
+    }
+
+    @Test
+    fun initializeDiskCache_shouldNotShareStateAcrossCaches() {
+        val otherCacheService = object : CacheService("mopub-other-mock-cache") {}
+
+        assertTrue(testCacheService.initializeDiskCache(context))
+        assertNull(otherCacheService.diskLruCache)
+        assertTrue(otherCacheService.initializeDiskCache(context))
+
+        assertNotSame(testCacheService.diskLruCache, otherCacheService.diskLruCache)
+        otherCacheService.clearAndNullCache()
+    }
+
+    @Test
+    fun putToDiskCache_withConcurrentWriters_shouldPersistAllValues() {
+        val writers = 8
+        val putsPerWriter = 50
+        testCacheService.initialize(context)
+
+        val executor = Executors.newFixedThreadPool(writers)
+        val start = CountDownLatch(1)
+        val done = CountDownLatch(writers)
+        var failures = 0
+        for (writer in 0 until writers) {
+            executor.execute {
+                start.await()
+                for (i in 0 until putsPerWriter) {
+                    if (!testCacheService.putToDiskCache("$key1$writer/$i", data1.toByteArray())) {
+                        synchronized(this) { failures++ }
+                    }
+                }
+                done.countDown()
+            }
+        }
+        start.countDown()
+        assertTrue(done.await(60, TimeUnit.SECONDS))
+        executor.shutdown()
+
+        assertEquals(0, failures)
+        for (writer in 0 until writers) {
+            for (i in 0 until putsPerWriter) {
+                assertTrue(testCacheService.containsKeyDiskCache("$key1$writer/$i"))
+            }
+        }
+    }
+
     companion object {
         const val cacheName = "mopub-mock-cache"
         private lateinit var testCacheService: CacheService
@@ -7,12 +7,15 @@ package com.mopub.common;
 import android.app.Activity;
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.net.ConnectivityManager;
 import android.provider.Settings;
 import android.telephony.TelephonyManager;
 
 import com.mopub.common.privacy.MoPubIdentifierTest;
 import com.mopub.common.privacy.PersonalInfoManager;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.test.support.MoPubShadowConnectivityManager;
 import com.mopub.mobileads.test.support.MoPubShadowTelephonyManager;
 import com.mopub.common.util.Reflection;
 
@@ -24,18 +27,23 @@ import org.robolectric.Robolectric;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowNetworkInfo;
 
 import static android.Manifest.permission.ACCESS_NETWORK_STATE;
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_UNKNOWN;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @RunWith(SdkTestRunner.class)
-@Config(shadows = {MoPubShadowTelephonyManager.class})
+@Config(shadows = {MoPubShadowTelephonyManager.class, MoPubShadowConnectivityManager.class})
 public class ClientMetadataTest {
 
     private Activity activityContext;
     private MoPubShadowTelephonyManager shadowTelephonyManager;
+    private MoPubShadowConnectivityManager shadowConnectivityManager;
     private PersonalInfoManager mockPersonalInfoManager;
 
     @Before
@@ -44,6 +52,10 @@ public class ClientMetadataTest {
         Shadows.shadowOf(activityContext).grantPermissions(ACCESS_NETWORK_STATE);
         shadowTelephonyManager = (MoPubShadowTelephonyManager)
                 Shadows.shadowOf((TelephonyManager) activityContext.getSystemService(Context.TELEPHONY_SERVICE));
+        shadowConnectivityManager = (MoPubShadowConnectivityManager)
+                Shadows.shadowOf((ConnectivityManager) activityContext.getSystemService(Context.CONNECTIVITY_SERVICE));
+        shadowConnectivityManager.setActiveNetworkInfo(ShadowNetworkInfo.newInstance(null,
+                TYPE_MOBILE, NETWORK_TYPE_UNKNOWN, true, true));
         mockPersonalInfoManager = mock(PersonalInfoManager.class);
         MoPubIdentifierTest.writeAdvertisingInfoToSharedPreferences(activityContext, false);
     }
@@ -116,4 +128,68 @@ public class ClientMetadataTest {
         // Telephony manager data.
         assertThat(clientMetadata.getIsoCountryCode()).isEqualTo("");
     }
+
+    @Test
+    public void getActiveNetworkType_withoutChanges_shouldNotMakeBinderCalls() {
+        final ClientMetadata clientMetadata = ClientMetadata.getInstance(activityContext);
+        clientMetadata.getActiveNetworkType();
+        final long binderCallCount = clientMetadata.getStats().binderCallCount;
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(clientMetadata.getActiveNetworkType())
+                    .isEqualTo(ClientMetadata.MoPubNetworkType.MOBILE);
+            clientMetadata.getNetworkOperatorForUrl();
+            clientMetadata.getNetworkOperatorName();
+            clientMetadata.getIsoCountryCode();
+        }
+
+        assertThat(clientMetadata.getStats().binderCallCount).isEqualTo(binderCallCount);
+    }
+
+    @Test
+    public void getActiveNetworkType_afterConnectivityChange_shouldReadNewSnapshot() {
+        final ClientMetadata clientMetadata = ClientMetadata.getInstance(activityContext);
+        assertThat(clientMetadata.getActiveNetworkType())
+                .isEqualTo(ClientMetadata.MoPubNetworkType.MOBILE);
+        final ClientMetadata.Stats stats = clientMetadata.getStats();
+
+        shadowConnectivityManager.setNetworkInfo(TYPE_MOBILE, null);
+        shadowConnectivityManager.setActiveNetworkInfo(ShadowNetworkInfo.newInstance(null,
+                TYPE_WIFI, NETWORK_TYPE_UNKNOWN, true, true));
+
+        assertThat(clientMetadata.getActiveNetworkType())
+                .isEqualTo(ClientMetadata.MoPubNetworkType.WIFI);
+        assertThat(clientMetadata.getStats().snapshotVersion).isGreaterThan(stats.snapshotVersion);
+        assertThat(clientMetadata.getStats().snapshotCount).isEqualTo(stats.snapshotCount + 1);
+    }
+
+    @Test
+    public void getNetworkOperatorForUrl_afterConfigurationChange_shouldReadNewSnapshot() {
+        shadowTelephonyManager.setNetworkOperator("123456");
+        final ClientMetadata clientMetadata = ClientMetadata.getInstance(activityContext);
+        assertThat(clientMetadata.getNetworkOperatorForUrl()).isEqualTo("123456");
+
+        shadowTelephonyManager.setNetworkOperator("789012");
+        RuntimeEnvironment.application.onConfigurationChanged(new Configuration());
+
+        assertThat(clientMetadata.getNetworkOperatorForUrl()).isEqualTo("789012");
+    }
+
+    @Test
+    public void repopulateCountryData_shouldReadNewCountryCode() throws Exception {
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(true);
+        new Reflection.MethodBuilder(null, "setPersonalInfoManager")
+                .setStatic(MoPub.class)
+                .setAccessible()
+                .addParam(PersonalInfoManager.class, mockPersonalInfoManager)
+                .execute();
+        shadowTelephonyManager.setNetworkCountryIso("1");
+        final ClientMetadata clientMetadata = ClientMetadata.getInstance(activityContext);
+        assertThat(clientMetadata.getIsoCountryCode()).isEqualTo("1");
+
+        shadowTelephonyManager.setNetworkCountryIso("2");
+        clientMetadata.repopulateCountryData();
+
+        assertThat(clientMetadata.getIsoCountryCode()).isEqualTo("2");
+    }
 }
@@ -5,6 +5,7 @@
 package com.mopub.common;
 
 import android.app.Activity;
+import android.webkit.WebResourceResponse;
 
 import com.iab.omid.library.mopub.Omid;
 import com.iab.omid.library.mopub.ScriptInjector;
@@ -21,9 +22,13 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 import org.robolectric.Robolectric;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -165,4 +170,110 @@ public class ViewabilityManagerTest {
 
         assertEquals(html, subject);
     }
+
+    @Test
+    public void injectScriptsIntoHtml_shouldReferenceOmidScriptBeforeVerificationScripts() throws MalformedURLException {
+        final String html = "<html><head></head><body>ad</body></html>";
+        final Set<ViewabilityVendor> vendorSet = createVendors("https://first_url", "https://second_url");
+
+        final String subject = ViewabilityManager.injectScriptsIntoHtml(html, vendorSet);
+
+        final String omidTag = "<script src=\"" + ViewabilityManager.getOmidJsServiceUrl() + "\"></script>";
+        final String firstTag = "<script src=\"https://first_url\"></script>";
+        final String secondTag = "<script src=\"https://second_url\"></script>";
+        assertThat(subject).contains(omidTag + firstTag + secondTag);
+        assertThat(subject).doesNotContain(ViewabilityManager.getOmidJsServiceContent());
+        assertEquals(html, subject.replace(omidTag + firstTag + secondTag, ""));
+    }
+
+    @Test
+    public void injectScriptsIntoHtml_whenViewabilityDisabled_doesNotModifyHtml() {
+        final String html = "<HTML/>";
+        ViewabilityManager.setViewabilityEnabled(false);
+
+        final String subject = ViewabilityManager.injectScriptsIntoHtml(html, null);
+
+        assertEquals(html, subject);
+    }
+
+    @Test
+    public void injectScriptsIntoHtml_whenInjectorThrowsException_returnsUnmodifiedHtml() throws MalformedURLException {
+        PowerMockito.mockStatic(ScriptInjector.class);
+        when(ScriptInjector.injectScriptContentIntoHtml(anyString(), anyString())).thenThrow(new OutOfMemoryError());
+
+        final String html = "<HTML/>";
+
+        final String subject = ViewabilityManager.injectScriptsIntoHtml(html,
+                createVendors("https://first_url"));
+
+        assertEquals(html, subject);
+    }
+
+    @Test
+    public void matchesOmidJsServiceUrl_shouldMatchOnlyOmidScriptUrl() {
+        assertTrue(ViewabilityManager.matchesOmidJsServiceUrl(
+                ViewabilityManager.getOmidJsServiceUrl()));
+        assertFalse(ViewabilityManager.matchesOmidJsServiceUrl("https://ads.mopub.com/mraid.js"));
+        assertFalse(ViewabilityManager.matchesOmidJsServiceUrl(
+                "https://creative.example.com/" + ViewabilityManager.OMID_JS_SERVICE_FILE));
+        assertFalse(ViewabilityManager.matchesOmidJsServiceUrl(
+                "https://ads.mopub.com/scripts/" + ViewabilityManager.OMID_JS_SERVICE_FILE));
+        assertFalse(ViewabilityManager.matchesOmidJsServiceUrl(null));
+    }
+
+    @Test
+    public void createOmidJsServiceResponse_shouldServeOmidScript() throws IOException {
+        final WebResourceResponse response = ViewabilityManager.createOmidJsServiceResponse();
+
+        assertEquals("text/javascript", response.getMimeType());
+        assertEquals(ViewabilityManager.getOmidJsServiceContent(),
+                readFully(response.getData(), response.getEncoding()));
+    }
+
+    /**
+     * Referencing the OM SDK script keeps the ad close to its own size, while inlining it copies
+     * the whole script into every ad.
+     */
+    @Test
+    public void injectScriptsIntoHtml_shouldCopyLessIntoEachAdThanInlining() throws MalformedURLException {
+        final StringBuilder htmlBuilder = new StringBuilder("<html><head></head><body>");
+        while (htmlBuilder.length() < 20000) {
+            htmlBuilder.append("<div class=\"ad\">creative content</div>");
+        }
+        final String html = htmlBuilder.append("</body></html>").toString();
+        final Set<ViewabilityVendor> vendorSet = createVendors("https://first_url", "https://second_url");
+
+        final String inlined = inlineScripts(html, vendorSet);
+        final String referenced = ViewabilityManager.injectScriptsIntoHtml(html, vendorSet);
+
+        assertThat(referenced.length()).isLessThan(html.length()
+                + ViewabilityManager.getOmidJsServiceContent().length());
+        assertThat(inlined.length()).isGreaterThan(html.length()
+                + ViewabilityManager.getOmidJsServiceContent().length());
+    }
+
+    private String inlineScripts(final String html, final Set<ViewabilityVendor> vendorSet) {
+        return ViewabilityManager.injectScriptContentIntoHtml(
+                ViewabilityManager.injectVerificationUrlsIntoHtml(html, vendorSet));
+    }
+
+    private Set<ViewabilityVendor> createVendors(final String... urls) throws MalformedURLException {
+        final Set<ViewabilityVendor> vendorSet = new LinkedHashSet<>();
+        for (final String url : urls) {
+            final ViewabilityVendor vendor = mock(ViewabilityVendor.class);
+            when(vendor.getJavascriptResourceUrl()).thenReturn(new URL(url));
+            vendorSet.add(vendor);
+        }
+        return vendorSet;
+    }
+
+    private String readFully(final InputStream inputStream, final String encoding) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, count);
+        }
+        return outputStream.toString(encoding);
+    }
 }
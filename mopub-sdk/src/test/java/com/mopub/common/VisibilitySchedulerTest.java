@@ -0,0 +1,159 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.os.Handler;
+import android.view.ViewTreeObserver;
+
+import com.mopub.common.VisibilityScheduler.Subscriber;
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static android.view.ViewTreeObserver.OnPreDrawListener;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class VisibilitySchedulerTest {
+    @Mock private Handler mockHandler;
+    @Mock private ViewTreeObserver mockViewTreeObserver;
+    @Mock private Subscriber mockSubscriber1;
+    @Mock private Subscriber mockSubscriber2;
+
+    private VisibilityScheduler subject;
+
+    @Before
+    public void setUp() {
+        when(mockViewTreeObserver.isAlive()).thenReturn(true);
+        when(mockSubscriber1.onVisibilityCheck()).thenReturn(3);
+        when(mockSubscriber2.onVisibilityCheck()).thenReturn(5);
+
+        subject = new VisibilityScheduler(mockHandler);
+    }
+
+    @Test
+    public void requestCheck_fromSeveralSubscribers_shouldScheduleOnePass() {
+        subject.requestCheck(mockSubscriber1);
+        subject.requestCheck(mockSubscriber2);
+        subject.requestCheck(mockSubscriber1);
+
+        verify(mockHandler).postDelayed(any(Runnable.class), anyLong());
+        assertThat(subject.isCheckRequested(mockSubscriber1)).isTrue();
+        assertThat(subject.isCheckRequested(mockSubscriber2)).isTrue();
+    }
+
+    @Test
+    public void runPass_shouldCheckEachRequestedSubscriberOnce_shouldRecordStats() {
+        subject.requestCheck(mockSubscriber1);
+        subject.requestCheck(mockSubscriber2);
+        subject.requestCheck(mockSubscriber1);
+
+        subject.runPass();
+
+        verify(mockSubscriber1).onVisibilityCheck();
+        verify(mockSubscriber2).onVisibilityCheck();
+        assertThat(subject.isCheckRequested(mockSubscriber1)).isFalse();
+        final VisibilityScheduler.Stats stats = subject.getStats();
+        assertThat(stats.passCount).isEqualTo(1);
+        assertThat(stats.checkCount).isEqualTo(2);
+        assertThat(stats.viewsChecked).isEqualTo(8);
+    }
+
+    @Test
+    public void runPass_withNoRequestedSubscribers_shouldNotCountPass() {
+        subject.runPass();
+
+        assertThat(subject.getStats().passCount).isEqualTo(0);
+    }
+
+    @Test
+    public void runPass_whenSubscriberRequestsDuringPass_shouldScheduleNextPass() {
+        when(mockSubscriber1.onVisibilityCheck()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(final InvocationOnMock invocation) {
+                subject.requestCheck(mockSubscriber1);
+                return 1;
+            }
+        });
+        subject.requestCheck(mockSubscriber1);
+
+        subject.runPass();
+
+        assertThat(subject.isCheckRequested(mockSubscriber1)).isTrue();
+        verify(mockHandler, times(2)).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void cancelCheck_withOtherCheckPending_shouldNotCancelPass() {
+        subject.requestCheck(mockSubscriber1);
+        subject.requestCheck(mockSubscriber2);
+
+        subject.cancelCheck(mockSubscriber1);
+
+        assertThat(subject.isCheckRequested(mockSubscriber1)).isFalse();
+        verify(mockHandler, never()).removeMessages(anyInt());
+    }
+
+    @Test
+    public void cancelCheck_withLastPendingCheck_shouldCancelPass() {
+        subject.requestCheck(mockSubscriber1);
+
+        subject.cancelCheck(mockSubscriber1);
+
+        verify(mockHandler).removeMessages(0);
+        subject.requestCheck(mockSubscriber1);
+        verify(mockHandler, times(2)).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void attach_withSeveralSubscribers_shouldAddOnePreDrawListener_shouldRequestAllOnPreDraw() {
+        subject.attach(mockViewTreeObserver, mockSubscriber1);
+        subject.attach(mockViewTreeObserver, mockSubscriber2);
+
+        final ArgumentCaptor<OnPreDrawListener> captor =
+                ArgumentCaptor.forClass(OnPreDrawListener.class);
+        verify(mockViewTreeObserver).addOnPreDrawListener(captor.capture());
+
+        assertThat(captor.getValue().onPreDraw()).isTrue();
+        assertThat(subject.isCheckRequested(mockSubscriber1)).isTrue();
+        assertThat(subject.isCheckRequested(mockSubscriber2)).isTrue();
+        verify(mockHandler).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void detach_shouldRemovePreDrawListenerAfterLastSubscriber() {
+        subject.attach(mockViewTreeObserver, mockSubscriber1);
+        subject.attach(mockViewTreeObserver, mockSubscriber2);
+
+        subject.detach(mockViewTreeObserver, mockSubscriber1);
+        verify(mockViewTreeObserver, never()).removeOnPreDrawListener(any(OnPreDrawListener.class));
+
+        subject.detach(mockViewTreeObserver, mockSubscriber2);
+        verify(mockViewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
+    }
+
+    @Test
+    public void detach_withDeadViewTreeObserver_shouldNotRemovePreDrawListener() {
+        subject.attach(mockViewTreeObserver, mockSubscriber1);
+        when(mockViewTreeObserver.isAlive()).thenReturn(false);
+
+        subject.detach(mockViewTreeObserver, mockSubscriber1);
+
+        verify(mockViewTreeObserver, never()).removeOnPreDrawListener(any(OnPreDrawListener.class));
+    }
+}
@@ -13,7 +13,6 @@ import android.view.ViewParent;
 import android.view.ViewTreeObserver;
 import android.view.Window;
 
-import com.mopub.common.VisibilityTracker.TrackingInfo;
 import com.mopub.common.test.support.SdkTestRunner;
 
 import org.fest.util.Lists;
@@ -27,10 +26,10 @@ import org.mockito.stubbing.Answer;
 import org.robolectric.Robolectric;
 import org.robolectric.shadows.ShadowSystemClock;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 import static android.view.ViewTreeObserver.OnPreDrawListener;
 import static com.mopub.common.VisibilityTracker.VisibilityChecker;
@@ -52,18 +51,20 @@ public class VisibilityTrackerTest {
 
     private Activity activity;
     private VisibilityTracker subject;
-    private Map<View, TrackingInfo> trackedViews;
+    private VisibilityTrackingTable trackedViews;
     private VisibilityChecker visibilityChecker;
 
     @Mock private VisibilityTrackerListener visibilityTrackerListener;
     @Mock private View view;
     @Mock private View view2;
     @Mock private Handler visibilityHandler;
+    private VisibilityScheduler visibilityScheduler;
 
     @Before
     public void setUp() throws Exception {
-        trackedViews = new WeakHashMap<View, TrackingInfo>();
+        trackedViews = new VisibilityTrackingTable();
         visibilityChecker = new VisibilityChecker();
+        visibilityScheduler = new VisibilityScheduler(visibilityHandler);
         activity = Robolectric.buildActivity(Activity.class).create().get();
         view = createViewMock(View.VISIBLE, 100, 100, 100, 100, true, true);
         view2 = createViewMock(View.VISIBLE, 100, 100, 100, 100, true, true);
@@ -77,7 +78,7 @@ public class VisibilityTrackerTest {
                 visibilityTrackerListener.onVisibilityChanged(safeVisibleViews, safeInVisibleViews);
             }
         };
-        subject = new VisibilityTracker(activity, trackedViews, visibilityChecker, visibilityHandler);
+        subject = new VisibilityTracker(activity, trackedViews, visibilityChecker, visibilityScheduler);
         subject.setVisibilityTrackerListener(proxyListener);
 
         // XXX We need this to ensure that our SystemClock starts
@@ -97,9 +98,8 @@ public class VisibilityTrackerTest {
         when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
-        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
-        assertThat(subject.mOnPreDrawListener).isNotNull();
-        verify(viewTreeObserver).addOnPreDrawListener(subject.mOnPreDrawListener);
+        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityScheduler);
+        verify(viewTreeObserver).addOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
     }
 
@@ -115,15 +115,15 @@ public class VisibilityTrackerTest {
         when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
         when(viewTreeObserver.isAlive()).thenReturn(false);
 
-        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
-        verify(viewTreeObserver, never()).addOnPreDrawListener(subject.mOnPreDrawListener);
+        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityScheduler);
+        verify(viewTreeObserver, never()).addOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
     }
 
     @Test
     public void constructor_withApplicationContext_shouldNotSetOnPreDrawListener() {
         subject = new VisibilityTracker(activity.getApplicationContext(), trackedViews,
-                visibilityChecker, visibilityHandler);
+                visibilityChecker, visibilityScheduler);
 
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
     }
@@ -132,7 +132,7 @@ public class VisibilityTrackerTest {
     public void addView_withVisibleView_shouldAddVisibleViewToTrackedViews() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
 
-        assertThat(trackedViews).hasSize(1);
+        assertThat(trackedViews.size()).isEqualTo(1);
     }
 
     @Test
@@ -146,7 +146,7 @@ public class VisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
         subject = new VisibilityTracker(activity.getApplicationContext(), trackedViews,
-                visibilityChecker, visibilityHandler);
+                visibilityChecker, visibilityScheduler);
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
 
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
@@ -156,30 +156,30 @@ public class VisibilityTrackerTest {
     public void addView_whenViewIsNull_shouldThrowNPE() throws Exception {
         subject.addView(null, MIN_PERCENTAGE_VIEWED, null);
 
-        assertThat(trackedViews).isEmpty();
+        assertThat(trackedViews.size()).isEqualTo(0);
     }
 
     @Test
     public void removeView_shouldRemoveFromTrackedViews() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
 
-        assertThat(trackedViews).hasSize(1);
-        assertThat(trackedViews).containsKey(view);
+        assertThat(trackedViews.size()).isEqualTo(1);
+        assertThat(trackedViews.indexOf(view)).isGreaterThanOrEqualTo(0);
 
         subject.removeView(view);
 
-        assertThat(trackedViews).isEmpty();
+        assertThat(trackedViews.size()).isEqualTo(0);
     }
 
     @Test
     public void clear_shouldRemoveAllViewsFromTrackedViews_shouldRemoveMessagesFromVisibilityHandler_shouldResetIsVisibilityScheduled() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
         subject.addView(view2, MIN_PERCENTAGE_VIEWED, null);
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         subject.clear();
 
-        assertThat(trackedViews).isEmpty();
+        assertThat(trackedViews.size()).isEqualTo(0);
         verify(visibilityHandler).removeMessages(0);
     }
 
@@ -196,15 +196,15 @@ public class VisibilityTrackerTest {
         when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
-        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
+        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityScheduler);
 
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
         subject.addView(view2, MIN_PERCENTAGE_VIEWED, null);
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         subject.destroy();
 
-        assertThat(trackedViews).isEmpty();
+        assertThat(trackedViews.size()).isEqualTo(0);
         verify(visibilityHandler).removeMessages(0);
         verify(viewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
@@ -236,6 +236,108 @@ public class VisibilityTrackerTest {
         assertThat(invisibleCaptor.getValue().size()).isEqualTo(1);
     }
 
+    @Test
+    public void visibilityRunnable_run_withReportTransitionsOnly_shouldOnlyReportStateChanges() throws Exception {
+        subject.setReportTransitionsOnly(true);
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+
+        subject.new VisibilityRunnable().run();
+        subject.new VisibilityRunnable().run();
+
+        verify(visibilityTrackerListener).onVisibilityChanged(
+                Lists.newArrayList(view), Lists.<View>newArrayList());
+
+        reset(visibilityTrackerListener);
+        when(view.getVisibility()).thenReturn(View.INVISIBLE);
+        subject.new VisibilityRunnable().run();
+        subject.new VisibilityRunnable().run();
+
+        verify(visibilityTrackerListener).onVisibilityChanged(
+                Lists.<View>newArrayList(), Lists.newArrayList(view));
+    }
+
+    @Test
+    public void visibilityRunnable_run_withReportTransitionsOnly_withViewBetweenThresholds_shouldKeepState() throws Exception {
+        subject.setReportTransitionsOnly(true);
+        subject.addView(view, view, 100, 10, null);
+        subject.new VisibilityRunnable().run();
+        reset(visibilityTrackerListener);
+
+        // Half of the view is visible, which is neither visible nor invisible
+        when(view.getGlobalVisibleRect(any(Rect.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocationOnMock) {
+                ((Rect) invocationOnMock.getArguments()[0]).set(0, 0, 50, 100);
+                return true;
+            }
+        });
+        subject.new VisibilityRunnable().run();
+
+        verify(visibilityTrackerListener, never()).onVisibilityChanged(
+                any(List.class), any(List.class));
+    }
+
+    /**
+     * Once the lists have grown to size, a check of many views shouldn't allocate in either
+     * reporting mode. Allocation is measured per thread, so this needs a JVM that supports thread
+     * allocation counters.
+     */
+    @Test
+    public void visibilityRunnable_run_with1000TrackedViews_shouldNotAllocate() throws Exception {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean allocationBean =
+                (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        final ToggledVisibilityChecker toggledChecker = new ToggledVisibilityChecker();
+        final List<View> views = new ArrayList<View>();
+        for (int i = 0; i < 1000; i++) {
+            final View trackedView = new View(activity);
+            views.add(trackedView);
+            trackedViews.put(trackedView, trackedView, MIN_PERCENTAGE_VIEWED,
+                    MIN_PERCENTAGE_VIEWED, 0, 0);
+        }
+        final int[] transitionCount = new int[1];
+        for (final boolean reportTransitionsOnly : new boolean[] {false, true}) {
+            subject = new VisibilityTracker(activity, trackedViews, toggledChecker,
+                    visibilityScheduler);
+            subject.setReportTransitionsOnly(reportTransitionsOnly);
+            subject.setVisibilityTrackerListener(new VisibilityTrackerListener() {
+                @Override
+                public void onVisibilityChanged(List<View> visibleViews,
+                        List<View> invisibleViews) {
+                    transitionCount[0] += visibleViews.size() + invisibleViews.size();
+                }
+            });
+            final VisibilityTracker.VisibilityRunnable runnable = subject.new VisibilityRunnable();
+
+            // Grow the lists to size with every view visible and then invisible
+            for (int i = 0; i < 2; i++) {
+                toggledChecker.visible = !toggledChecker.visible;
+                runnable.run();
+            }
+
+            transitionCount[0] = 0;
+            final long threadId = Thread.currentThread().getId();
+            final long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100; i++) {
+                toggledChecker.visible = !toggledChecker.visible;
+                runnable.run();
+            }
+            final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            assertThat(transitionCount[0]).isEqualTo(100 * 1000);
+            assertThat(allocated).isLessThan(1024);
+        }
+        assertThat(trackedViews.size()).isEqualTo(views.size());
+    }
+
     // VisibilityChecker tests
 
     @Test
@@ -346,27 +448,37 @@ public class VisibilityTrackerTest {
     public void addView_shouldClearViewAfterNumAccesses() {
         // Access 1 time
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
-        assertThat(trackedViews).hasSize(1);
+        assertThat(trackedViews.size()).isEqualTo(1);
 
         // Access 2-49 times
         for (int i = 0; i < VisibilityTracker.NUM_ACCESSES_BEFORE_TRIMMING - 2; ++i) {
             subject.addView(view2, MIN_PERCENTAGE_VIEWED, null);
         }
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         // 50th time
         subject.addView(view2, MIN_PERCENTAGE_VIEWED, null);
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         // 51-99
         for (int i = 0; i < VisibilityTracker.NUM_ACCESSES_BEFORE_TRIMMING - 1; ++i) {
             subject.addView(view2, MIN_PERCENTAGE_VIEWED, null);
         }
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         // 100
         subject.addView(view2, MIN_PERCENTAGE_VIEWED, null);
-        assertThat(trackedViews).hasSize(1);
+        assertThat(trackedViews.size()).isEqualTo(1);
+    }
+
+    private static class ToggledVisibilityChecker extends VisibilityChecker {
+        boolean visible;
+
+        @Override
+        public boolean isVisible(final View rootView, final View view,
+                final int minPercentageViewed, final int minVisiblePx) {
+            return visible;
+        }
     }
 
     public static View createViewMock(final int visibility,
@@ -0,0 +1,122 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.app.Activity;
+import android.view.View;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class VisibilityTrackingTableTest {
+    private Activity activity;
+    private VisibilityTrackingTable subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        subject = new VisibilityTrackingTable();
+    }
+
+    @Test
+    public void put_withManyViews_shouldGrow_shouldFindEveryView() {
+        final List<View> views = createViews(100);
+        for (int i = 0; i < views.size(); i++) {
+            subject.put(views.get(i), views.get(i), 50, 10, 0, i);
+        }
+
+        assertThat(subject.size()).isEqualTo(100);
+        assertThat(subject.capacity()).isGreaterThan(100);
+        for (int i = 0; i < views.size(); i++) {
+            final int slot = subject.indexOf(views.get(i));
+            assertThat(slot).isGreaterThanOrEqualTo(0);
+            assertThat(subject.getViewAt(slot)).isSameAs(views.get(i));
+            assertThat(subject.getRootViewAt(slot)).isSameAs(views.get(i));
+        }
+    }
+
+    @Test
+    public void put_withTrackedView_shouldUpdateThresholds_shouldKeepState() {
+        final View view = new View(activity);
+        final View rootView = new View(activity);
+        final int slot = subject.put(view, view, 50, 10, 0, 0);
+        subject.setStateAt(slot, VisibilityTrackingTable.STATE_VISIBLE);
+
+        assertThat(subject.put(view, rootView, 100, 20, 5, 1)).isEqualTo(slot);
+
+        assertThat(subject.size()).isEqualTo(1);
+        assertThat(subject.getRootViewAt(slot)).isSameAs(rootView);
+        assertThat(subject.getMinVisiblePercentAt(slot)).isEqualTo(100);
+        assertThat(subject.getMaxInvisiblePercentAt(slot)).isEqualTo(20);
+        assertThat(subject.getMinVisiblePxAt(slot)).isEqualTo(5);
+        assertThat(subject.getStateAt(slot)).isEqualTo(VisibilityTrackingTable.STATE_VISIBLE);
+    }
+
+    @Test
+    public void remove_shouldKeepOtherViewsReachable() {
+        final List<View> views = createViews(12);
+        for (final View view : views) {
+            subject.put(view, view, 50, 10, 0, 0);
+        }
+
+        for (int i = 0; i < views.size(); i += 2) {
+            assertThat(subject.remove(views.get(i))).isTrue();
+        }
+
+        assertThat(subject.size()).isEqualTo(6);
+        for (int i = 0; i < views.size(); i++) {
+            assertThat(subject.indexOf(views.get(i)) >= 0).isEqualTo(i % 2 == 1);
+        }
+        assertThat(subject.remove(views.get(0))).isFalse();
+    }
+
+    @Test
+    public void removeEntriesAccessedBefore_shouldOnlyRemoveOlderEntries() {
+        final List<View> views = createViews(10);
+        for (int i = 0; i < views.size(); i++) {
+            subject.put(views.get(i), views.get(i), 50, 10, 0, i);
+        }
+
+        assertThat(subject.removeEntriesAccessedBefore(4)).isEqualTo(4);
+
+        assertThat(subject.size()).isEqualTo(6);
+        for (int i = 0; i < views.size(); i++) {
+            assertThat(subject.indexOf(views.get(i)) >= 0).isEqualTo(i >= 4);
+        }
+    }
+
+    @Test
+    public void clear_shouldRemoveAllEntries() {
+        for (final View view : createViews(5)) {
+            subject.put(view, view, 50, 10, 0, 0);
+        }
+
+        subject.clear();
+
+        assertThat(subject.size()).isEqualTo(0);
+        for (int slot = 0; slot < subject.capacity(); slot++) {
+            assertThat(subject.getViewAt(slot)).isNull();
+            assertThat(subject.isClearedAt(slot)).isFalse();
+        }
+    }
+
+    private List<View> createViews(final int count) {
+        final List<View> views = new ArrayList<View>(count);
+        for (int i = 0; i < count; i++) {
+            views.add(new View(activity));
+        }
+        return views;
+    }
+}
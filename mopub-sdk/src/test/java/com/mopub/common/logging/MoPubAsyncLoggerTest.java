@@ -0,0 +1,87 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.logging;
+
+import androidx.annotation.Nullable;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class MoPubAsyncLoggerTest {
+
+    @Test
+    public void log_thenFlush_shouldHandAllEventsToDelegateInOrder() {
+        final RecordingLogger delegate = new RecordingLogger(null, null);
+        final MoPubAsyncLogger subject = new MoPubAsyncLogger(delegate, 16);
+
+        for (int i = 0; i < 10; i++) {
+            subject.log("class", "method", null, "message" + i);
+        }
+        subject.flush();
+
+        assertThat(delegate.messages).hasSize(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(delegate.messages.get(i)).isEqualTo("message" + i);
+        }
+        assertThat(subject.getDroppedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void log_withFullBuffer_shouldDropOldestEvent() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingLogger delegate = new RecordingLogger(entered, release);
+        final MoPubAsyncLogger subject = new MoPubAsyncLogger(delegate, 2);
+
+        // The background thread takes the first event and waits inside the delegate.
+        subject.log(null, null, null, "message0");
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        subject.log(null, null, null, "message1");
+        subject.log(null, null, null, "message2");
+        subject.log(null, null, null, "message3");
+        release.countDown();
+        subject.flush();
+
+        assertThat(subject.getDroppedCount()).isEqualTo(1);
+        assertThat(delegate.messages).containsExactly("message0", "message2", "message3");
+    }
+
+    private static class RecordingLogger implements MoPubLogger {
+        // Only accessed while the async logger holds its drain lock
+        final List<String> messages = new ArrayList<>();
+        @Nullable private final CountDownLatch entered;
+        @Nullable private final CountDownLatch release;
+
+        RecordingLogger(@Nullable final CountDownLatch entered,
+                @Nullable final CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public void log(@Nullable final String className, @Nullable final String methodName,
+                @Nullable final String identifier, @Nullable final String message) {
+            messages.add(message);
+            if (entered != null && release != null && entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.logging;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.logging.MoPubLog.LogLevel;
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class MoPubLogTest {
+    private LogLevel previousLogLevel;
+    private RecordingLogger logger;
+    private CountingLogEvent debugEvent;
+
+    @Before
+    public void setUp() {
+        previousLogLevel = MoPubLog.getLogLevel();
+        // Keep the default logger from emitting anything during these tests.
+        MoPubLog.setLogLevel(LogLevel.NONE);
+        logger = new RecordingLogger();
+        debugEvent = new CountingLogEvent(LogLevel.DEBUG);
+    }
+
+    @After
+    public void tearDown() {
+        MoPubLog.removeLogger(logger);
+        MoPubLog.setCallerCaptureEnabled(false);
+        MoPubLog.setLogLevel(previousLogLevel);
+    }
+
+    @Test
+    public void log_withNoLoggerAcceptingLevel_shouldNotFormatMessage_shouldNotCallLogger() {
+        MoPubLog.addLogger(logger, LogLevel.INFO);
+
+        MoPubLog.log(debugEvent, "message");
+
+        assertThat(MoPubLog.isLoggable(debugEvent)).isFalse();
+        assertThat(debugEvent.messageCount).isEqualTo(0);
+        assertThat(logger.messages).isEmpty();
+    }
+
+    @Test
+    public void log_withSeveralLoggersAcceptingLevel_shouldFormatMessageOnce() {
+        final RecordingLogger otherLogger = new RecordingLogger();
+        MoPubLog.addLogger(logger, LogLevel.DEBUG);
+        MoPubLog.addLogger(otherLogger, LogLevel.DEBUG);
+
+        MoPubLog.log("identifier", debugEvent, "message");
+        MoPubLog.removeLogger(otherLogger);
+
+        assertThat(debugEvent.messageCount).isEqualTo(1);
+        assertThat(logger.messages).containsExactly("message");
+        assertThat(otherLogger.messages).containsExactly("message");
+        assertThat(logger.identifiers).containsExactly("identifier");
+    }
+
+    @Test
+    public void log_afterLoggerRemoved_shouldTakeFastPath() {
+        MoPubLog.addLogger(logger, LogLevel.DEBUG);
+        assertThat(MoPubLog.isLoggable(debugEvent)).isTrue();
+
+        MoPubLog.removeLogger(logger);
+
+        assertThat(MoPubLog.isLoggable(debugEvent)).isFalse();
+    }
+
+    @Test
+    public void log_withCallerCaptureDisabled_shouldPassNullClassAndMethod() {
+        MoPubLog.addLogger(logger, LogLevel.DEBUG);
+
+        MoPubLog.log(debugEvent, "message");
+
+        assertThat(logger.classNames).containsExactly((String) null);
+        assertThat(logger.methodNames).containsExactly((String) null);
+    }
+
+    @Test
+    public void log_withCallerCaptureEnabled_shouldPassClassAndMethod() {
+        MoPubLog.addLogger(logger, LogLevel.DEBUG);
+        MoPubLog.setCallerCaptureEnabled(true);
+
+        MoPubLog.log(debugEvent, "message");
+
+        assertThat(logger.classNames.get(0)).isNotNull();
+        assertThat(logger.methodNames.get(0)).isNotNull();
+    }
+
+    private static class RecordingLogger implements MoPubLogger {
+        final List<String> classNames = new ArrayList<>();
+        final List<String> methodNames = new ArrayList<>();
+        final List<String> identifiers = new ArrayList<>();
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void log(@Nullable final String className, @Nullable final String methodName,
+                @Nullable final String identifier, @Nullable final String message) {
+            classNames.add(className);
+            methodNames.add(methodName);
+            identifiers.add(identifier);
+            messages.add(message);
+        }
+    }
+
+    private static class CountingLogEvent implements MoPubLog.MPLogEventType {
+        @NonNull private final LogLevel logLevel;
+        int messageCount;
+
+        CountingLogEvent(@NonNull final LogLevel logLevel) {
+            this.logLevel = logLevel;
+        }
+
+        @NonNull
+        @Override
+        public String getMessage(@Nullable final Object... args) {
+            messageCount++;
+            return String.valueOf(args[0]);
+        }
+
+        @NonNull
+        @Override
+        public LogLevel getLogLevel() {
+            return logLevel;
+        }
+    }
+}
@@ -10,7 +10,9 @@ import com.mopub.common.CESettingsCacheService;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.MoPub;
 import com.mopub.common.Preconditions;
+import com.mopub.common.TrackingJournalCacheService;
 import com.mopub.common.VideoCacheService;
+import com.mopub.common.VisibilityScheduler;
 import com.mopub.common.factories.MethodBuilderFactory;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.DateAndTime;
@@ -19,6 +21,7 @@ import com.mopub.common.util.test.support.ShadowMoPubHttpUrlConnection;
 import com.mopub.common.util.test.support.ShadowReflection;
 import com.mopub.common.util.test.support.TestDateAndTime;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
+import com.mopub.mobileads.VastRedirectCache;
 import com.mopub.mobileads.factories.AdViewControllerFactory;
 import com.mopub.mobileads.factories.BaseAdFactory;
 import com.mopub.mobileads.factories.FullscreenAdAdapterFactory;
@@ -35,8 +38,10 @@ import com.mopub.mobileads.test.support.TestMoPubViewFactory;
 import com.mopub.mobileads.test.support.TestMraidControllerFactory;
 import com.mopub.mobileads.test.support.TestVastManagerFactory;
 import com.mopub.mobileads.test.support.TestVideoViewFactory;
+import com.mopub.nativeads.PositioningCacheService;
 import com.mopub.nativeads.factories.CustomEventNativeFactory;
 import com.mopub.nativeads.test.support.TestCustomEventNativeFactory;
+import com.mopub.network.TrackingDispatcher;
 
 import org.junit.runners.model.InitializationError;
 import org.mockito.MockitoAnnotations;
@@ -92,6 +97,11 @@ public class SdkTestRunner extends RobolectricTestRunner {
             AsyncTasks.setExecutor(new RoboExecutorService());
             VideoCacheService.clearAndNullVideoCache();
             CESettingsCacheService.clearCESettingsCache();
+            TrackingJournalCacheService.clearTrackingJournalCache();
+            TrackingDispatcher.clearForTesting();
+            VastRedirectCache.clearForTesting();
+            PositioningCacheService.clearPositioningCache();
+            VisibilityScheduler.clearForTesting();
         }
     }
 }
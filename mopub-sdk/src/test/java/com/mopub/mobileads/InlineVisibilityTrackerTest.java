@@ -6,7 +6,6 @@ package com.mopub.mobileads;
 
 import android.app.Activity;
 import android.graphics.Rect;
-import android.os.Handler;
 import android.view.View;
 import android.view.ViewParent;
 import android.view.ViewTreeObserver;
@@ -44,7 +43,6 @@ public class InlineVisibilityTrackerTest {
     private Activity activity;
     private InlineVisibilityTracker subject;
     private BannerVisibilityChecker visibilityChecker;
-    private Handler visibilityHandler;
 
     private View mockView;
     @Mock
@@ -59,7 +57,6 @@ public class InlineVisibilityTrackerTest {
         subject.setInlineVisibilityTrackerListener(visibilityTrackerListener);
 
         visibilityChecker = subject.getBannerVisibilityChecker();
-        visibilityHandler = subject.getVisibilityHandler();
 
         // XXX We need this to ensure that our SystemClock starts
         ShadowSystemClock.currentTimeMillis();
@@ -79,8 +76,7 @@ public class InlineVisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
         subject = new InlineVisibilityTracker(spyActivity, mockView, mockView, MIN_VISIBLE_DIPS, MIN_VISIBLE_MILLIS);
-        assertThat(subject.mOnPreDrawListener).isNotNull();
-        verify(viewTreeObserver).addOnPreDrawListener(subject.mOnPreDrawListener);
+        verify(viewTreeObserver).addOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
     }
 
@@ -97,7 +93,7 @@ public class InlineVisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(false);
 
         subject = new InlineVisibilityTracker(mockActivity, mockView, mockView, MIN_VISIBLE_DIPS, MIN_VISIBLE_MILLIS);
-        verify(viewTreeObserver, never()).addOnPreDrawListener(subject.mOnPreDrawListener);
+        verify(viewTreeObserver, never()).addOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
     }
 
@@ -138,7 +134,6 @@ public class InlineVisibilityTrackerTest {
         subject = new InlineVisibilityTracker(spyActivity, mockView, mockView, MIN_VISIBLE_DIPS, MIN_VISIBLE_MILLIS);
         subject.destroy();
 
-        assertThat(visibilityHandler.hasMessages(0)).isFalse();
         assertThat(subject.isVisibilityScheduled()).isFalse();
         verify(viewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
@@ -12,19 +12,24 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.VectorDrawable;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.View;
 import android.webkit.WebView;
 import android.widget.ImageView;
 
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import androidx.media2.common.FileMediaItem;
+import androidx.media2.common.MediaItem;
 import androidx.media2.common.SessionPlayer;
+import androidx.media2.common.UriMediaItem;
 import androidx.media2.player.MediaPlayer;
 import androidx.media2.widget.VideoView;
 
 import com.mopub.common.Constants;
 import com.mopub.common.ExternalViewabilitySessionManager;
 import com.mopub.common.MoPubBrowser;
+import com.mopub.common.VideoCacheService;
 import com.mopub.common.VideoEvent;
 import com.mopub.common.ViewabilityObstruction;
 import com.mopub.common.test.support.SdkTestRunner;
@@ -44,6 +49,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.api.mockito.verification.PrivateMethodVerification;
@@ -84,6 +90,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -225,6 +232,7 @@ public class VastVideoViewControllerTest {
         Robolectric.getForegroundThreadScheduler().pause();
         Robolectric.getBackgroundThreadScheduler().pause();
         FakeHttp.clearPendingHttpResponses();
+        VastVideoViewController.setMediaItemExecutor(Runnable::run);
 
         LocalBroadcastManager.getInstance(context).registerReceiver(broadcastReceiver,
                 new EventForwardingBroadcastReceiver(null,
@@ -242,6 +250,8 @@ public class VastVideoViewControllerTest {
 
         validateMockitoUsage(); // makes sure that issues from one test don't carry over to the next
         ExternalViewabilitySessionManager.setCreator(null);
+        VastVideoViewController.setMediaItemExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        VideoCacheService.clearAndNullVideoCache();
     }
 
     @Test
@@ -629,6 +639,31 @@ public class VastVideoViewControllerTest {
         verify(baseVideoViewControllerListener, never()).onVideoFinish(anyInt());
     }
 
+    @Test
+    public void constructor_withCachedVideo_shouldSetFileMediaItem() throws Exception {
+        VideoCacheService.initializeCache(context);
+        VideoCacheService.put("video_url", new byte[] {1, 2, 3});
+        final ArgumentCaptor<MediaItem> mediaItemCaptor = ArgumentCaptor.forClass(MediaItem.class);
+
+        initializeSubject();
+
+        verify(TestMediaPlayerFactory.Companion.getMockMediaPlayer(), atLeastOnce())
+                .setMediaItem(mediaItemCaptor.capture());
+        assertThat(mediaItemCaptor.getValue()).isInstanceOf(FileMediaItem.class);
+        ((FileMediaItem) mediaItemCaptor.getValue()).getParcelFileDescriptor().close();
+    }
+
+    @Test
+    public void constructor_withoutCachedVideo_shouldSetUriMediaItem() throws Exception {
+        final ArgumentCaptor<MediaItem> mediaItemCaptor = ArgumentCaptor.forClass(MediaItem.class);
+
+        initializeSubject();
+
+        verify(TestMediaPlayerFactory.Companion.getMockMediaPlayer(), atLeastOnce())
+                .setMediaItem(mediaItemCaptor.capture());
+        assertThat(mediaItemCaptor.getValue()).isInstanceOf(UriMediaItem.class);
+    }
+
     // region onTouch
 
     @Test
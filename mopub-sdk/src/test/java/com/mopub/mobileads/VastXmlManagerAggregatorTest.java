@@ -1134,6 +1134,61 @@ public class VastXmlManagerAggregatorTest {
         assertThat(vastVideoConfig).isNull();
     }
 
+    @Test
+    public void evaluateVastXmlManager_withWrapperFollowedByAnotherAggregator_shouldUseCachedRedirect() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+        subject.evaluateVastXmlManager(TEST_VAST_XML_STRING, new ArrayList<VastTracker>());
+
+        final VastXmlManagerAggregator otherSubject = new VastXmlManagerAggregator(
+                vastXmlManagerAggregatorListener, (double) DIM_LONG / DIM_SHORT, DIM_LONG,
+                context);
+        final VastVideoConfig vastVideoConfig = otherSubject.evaluateVastXmlManager(
+                TEST_VAST_XML_STRING, new ArrayList<VastTracker>());
+
+        assertThat(vastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        assertThat(VastUtils.vastTrackersToStrings(vastVideoConfig.getImpressionTrackers()))
+                .contains("https://myTrackingURL/wrapper/impression1");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withSiblingWrappers_whenFirstHasNoAd_shouldUseSecondWrapper() throws Exception {
+        VastRedirectCache.put("https://first.wrapper/xml", TEST_JUST_ERROR_XML_STRING);
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+        final String vastXml = "<VAST version='3.0'>" +
+                createWrapperAd("first", "https://first.wrapper/xml") +
+                createWrapperAd("second", "https://second.wrapper/xml") +
+                "</VAST>";
+
+        final VastVideoConfig vastVideoConfig = subject.evaluateVastXmlManager(vastXml,
+                new ArrayList<VastTracker>());
+
+        assertThat(vastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        assertThat(VastUtils.vastTrackersToStrings(vastVideoConfig.getImpressionTrackers()))
+                .contains("https://second/impression")
+                .doesNotContain("https://first/impression");
+        assertThat(VastRedirectCache.get("https://second.wrapper/xml"))
+                .isEqualTo(TEST_NESTED_VAST_XML_STRING);
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withSiblingWrappers_shouldUseFirstWrapperWithValidMediaFile() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+        final String vastXml = "<VAST version='3.0'>" +
+                createWrapperAd("first", "https://first.wrapper/xml") +
+                createWrapperAd("second", "https://second.wrapper/xml") +
+                "</VAST>";
+
+        final VastVideoConfig vastVideoConfig = subject.evaluateVastXmlManager(vastXml,
+                new ArrayList<VastTracker>());
+
+        assertThat(VastUtils.vastTrackersToStrings(vastVideoConfig.getImpressionTrackers()))
+                .contains("https://first/impression")
+                .doesNotContain("https://second/impression");
+    }
+
     @Test
     public void evaluateVastXmlManager_withRedirectHavingNoCompanionAd_shouldReturnVastVideoConfigurationWithCompanionAdOfWrapper() throws Exception {
         ShadowMoPubHttpUrlConnection.addPendingResponse(200,
@@ -1467,6 +1522,16 @@ public class VastXmlManagerAggregatorTest {
         return iconXmlManager;
     }
 
+    private static String createWrapperAd(final String id, final String vastAdTagUri) {
+        return "<Ad id='" + id + "'>" +
+                "    <Wrapper>" +
+                "        <AdSystem>MoPub</AdSystem>" +
+                "        <VASTAdTagURI>" + vastAdTagUri + "</VASTAdTagURI>" +
+                "        <Impression>https://" + id + "/impression</Impression>" +
+                "    </Wrapper>" +
+                "</Ad>";
+    }
+
     static VastResourceXmlManager initializeVastResourceXmlManagerMock(
             final String staticResource,
             final String staticResourceType,
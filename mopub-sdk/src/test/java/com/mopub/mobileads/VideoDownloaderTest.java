@@ -23,13 +23,20 @@ import org.mockito.Mock;
 import org.robolectric.Robolectric;
 import org.robolectric.annotation.Config;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(SdkTestRunner.class)
 @Config(shadows = {ShadowAsyncTasks.class, ShadowMoPubHttpUrlConnection.class})
@@ -46,6 +53,7 @@ public class VideoDownloaderTest {
 
     @After
     public void tearDown() {
+        VideoDownloader.resetStats();
         VideoDownloader.clearDownloaderTasks();
         VideoCacheService.clearAndNullVideoCache();
     }
@@ -105,6 +113,35 @@ public class VideoDownloaderTest {
         assertThat(VideoDownloader.getDownloaderTasks().pop().get()).isEqualTo(expectedTask2);
     }
 
+    @Test
+    public void cache_withUrlAlreadyDownloading_shouldNotExecuteAnotherTask_shouldCallBothListeners() {
+        final VideoDownloaderListener secondListener = mock(VideoDownloaderListener.class);
+        VideoDownloader.cache(expectedUrl1, mockListener);
+        final VideoDownloaderTask task = (VideoDownloaderTask) ShadowAsyncTasks.getLatestAsyncTask();
+
+        VideoDownloader.cache(expectedUrl1, secondListener);
+
+        assertThat(VideoDownloader.getDownloaderTasks()).hasSize(1);
+        verify(secondListener, never()).onComplete(anyBoolean());
+
+        task.onPostExecute(true);
+
+        verify(mockListener).onComplete(true);
+        verify(secondListener).onComplete(true);
+    }
+
+    @Test
+    public void cache_withUrlOfFinishedDownload_shouldExecuteAnotherTask() {
+        VideoDownloader.cache(expectedUrl1, mockListener);
+        final VideoDownloaderTask task = (VideoDownloaderTask) ShadowAsyncTasks.getLatestAsyncTask();
+        task.onPostExecute(false);
+
+        VideoDownloader.cache(expectedUrl1, mockListener);
+
+        assertThat(ShadowAsyncTasks.getLatestAsyncTask()).isNotSameAs(task);
+        assertThat(VideoDownloader.getDownloaderTasks()).hasSize(1);
+    }
+
     @Test
     public void cancelAllDownloaderTasks_shouldCancelAllTasksAndRemoveFromStaticCollection() {
         final VideoDownloaderTask task1 = mock(VideoDownloaderTask.class);
@@ -216,6 +253,134 @@ public class VideoDownloaderTest {
         assertThat(VideoCacheService.getVideoCache().size()).isEqualTo(0);
     }
 
+    @Test
+    public void doInBackground_withDroppedConnection_shouldResumeWithRangeRequest() throws Exception {
+        final String expectedResponse = "0123456789";
+        final HttpURLConnection first = addConnection(200, expectedResponse, 4, null);
+        final HttpURLConnection second = addConnection(206, "456789", -1, "bytes 4-9/10");
+        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(mockListener);
+
+        final Boolean result = videoDownloaderTask.doInBackground(expectedUrl1);
+
+        assertThat(result).isTrue();
+        assertThat(VideoCacheService.get(expectedUrl1)).isEqualTo(expectedResponse.getBytes());
+        verify(first, never()).setRequestProperty(eq("Range"), anyString());
+        verify(second).setRequestProperty("Range", "bytes=4-");
+        verify(second).setRequestProperty("If-Range", "\"etag\"");
+        assertThat(VideoDownloader.getStats().resumes).isEqualTo(1);
+        assertThat(VideoDownloader.getStats().succeeded).isEqualTo(1);
+        assertThat(VideoDownloader.getStats().bytesDownloaded).isEqualTo(10);
+    }
+
+    @Test
+    public void doInBackground_withFailedTask_shouldResumeInNextTask() throws Exception {
+        final String expectedResponse = "0123456789";
+        addConnection(200, expectedResponse, 6, null);
+        final VideoDownloaderTask firstTask = new VideoDownloaderTask(mockListener);
+
+        assertThat(firstTask.doInBackground(expectedUrl1)).isFalse();
+        assertThat(VideoCacheService.getPartialFile(expectedUrl1).length()).isEqualTo(6);
+
+        final HttpURLConnection resumed = addConnection(206, "6789", -1, "bytes 6-9/10");
+        final VideoDownloaderTask secondTask = new VideoDownloaderTask(mockListener);
+
+        assertThat(secondTask.doInBackground(expectedUrl1)).isTrue();
+        verify(resumed).setRequestProperty("Range", "bytes=6-");
+        assertThat(VideoCacheService.get(expectedUrl1)).isEqualTo(expectedResponse.getBytes());
+        assertThat(VideoCacheService.getPartialFile(expectedUrl1).exists()).isFalse();
+    }
+
+    @Test
+    public void doInBackground_withFullResponseToRangeRequest_shouldStartOver() throws Exception {
+        final String expectedResponse = "abcdefghij";
+        addConnection(200, "0123456789", 4, null);
+        addConnection(200, expectedResponse, -1, null);
+        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(mockListener);
+
+        final Boolean result = videoDownloaderTask.doInBackground(expectedUrl1);
+
+        assertThat(result).isTrue();
+        assertThat(VideoCacheService.get(expectedUrl1)).isEqualTo(expectedResponse.getBytes());
+        assertThat(VideoDownloader.getStats().resumes).isEqualTo(0);
+    }
+
+    @Test
+    public void doInBackground_withDroppedConnection_withoutValidator_shouldStartOverWithoutRange() throws Exception {
+        final String expectedResponse = "0123456789";
+        final HttpURLConnection first = addConnection(200, expectedResponse, 4, null);
+        when(first.getHeaderField("ETag")).thenReturn(null);
+        final HttpURLConnection second = addConnection(200, expectedResponse, -1, null);
+        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(mockListener);
+
+        final Boolean result = videoDownloaderTask.doInBackground(expectedUrl1);
+
+        assertThat(result).isTrue();
+        assertThat(VideoCacheService.get(expectedUrl1)).isEqualTo(expectedResponse.getBytes());
+        verify(second, never()).setRequestProperty(eq("Range"), anyString());
+        assertThat(VideoDownloader.getStats().resumes).isEqualTo(0);
+    }
+
+    @Test
+    public void doInBackground_withRangeNotSatisfiable_shouldDeletePartialFile_shouldStartOver() throws Exception {
+        final String expectedResponse = "abcdefghij";
+        addConnection(200, "0123456789", 4, null);
+        final HttpURLConnection rejected = addConnection(416, "", -1, "bytes */10");
+        final HttpURLConnection restarted = addConnection(200, expectedResponse, -1, null);
+        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(mockListener);
+
+        final Boolean result = videoDownloaderTask.doInBackground(expectedUrl1);
+
+        assertThat(result).isTrue();
+        verify(rejected).setRequestProperty("Range", "bytes=4-");
+        verify(restarted, never()).setRequestProperty(eq("Range"), anyString());
+        assertThat(VideoCacheService.get(expectedUrl1)).isEqualTo(expectedResponse.getBytes());
+        assertThat(VideoDownloader.getStats().resumes).isEqualTo(0);
+    }
+
+    @Test
+    public void doInBackground_withTooManyDroppedConnections_shouldReturnFalse() throws Exception {
+        addConnection(200, "0123456789", 1, null);
+        for (int i = 1; i <= VideoDownloader.MAX_RESUME_ATTEMPTS; i++) {
+            addConnection(206, "123456789".substring(i - 1), 1,
+                    "bytes " + i + "-9/10");
+        }
+        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(mockListener);
+
+        final Boolean result = videoDownloaderTask.doInBackground(expectedUrl1);
+
+        assertThat(result).isFalse();
+        assertThat(VideoCacheService.getVideoCache().size()).isEqualTo(0);
+        assertThat(VideoDownloader.getStats().resumes).isEqualTo(VideoDownloader.MAX_RESUME_ATTEMPTS);
+        assertThat(VideoDownloader.getStats().failed).isEqualTo(1);
+    }
+
+    @Test
+    public void doInBackground_withVideoCachedByEarlierTask_shouldReturnTrue_shouldNotDownloadAgain() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "response");
+        assertThat(new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1)).isTrue();
+        final long downloads = VideoDownloader.getStats().downloads;
+
+        final Boolean result = new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1);
+
+        assertThat(result).isTrue();
+        assertThat(VideoDownloader.getStats().downloads).isEqualTo(downloads);
+        assertThat(VideoCacheService.get(expectedUrl1)).isEqualTo("response".getBytes());
+    }
+
+    @Test
+    public void getContentRangeStart_shouldParseFirstBytePosition() throws Exception {
+        final HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+
+        when(urlConnection.getHeaderField("Content-Range")).thenReturn("bytes 100-199/200");
+        assertThat(VideoDownloader.getContentRangeStart(urlConnection)).isEqualTo(100);
+
+        when(urlConnection.getHeaderField("Content-Range")).thenReturn("bytes */200");
+        assertThat(VideoDownloader.getContentRangeStart(urlConnection)).isEqualTo(-1);
+
+        when(urlConnection.getHeaderField("Content-Range")).thenReturn(null);
+        assertThat(VideoDownloader.getContentRangeStart(urlConnection)).isEqualTo(-1);
+    }
+
     @Test
     public void onPostExecute_withSuccessTrue_shouldCallOnCompleteTrue_shouldRemoveDownloadTaskFromQueue() {
         VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(mockListener);
@@ -260,6 +425,36 @@ public class VideoDownloaderTest {
         assertThat(VideoDownloader.getDownloaderTasks()).hasSize(0);
     }
 
+    /**
+     * Queues a connection whose body fails with an IOException after {@code failAfterBytes}
+     * bytes, or never if it is negative.
+     */
+    @SuppressWarnings("unchecked")
+    private static HttpURLConnection addConnection(final int statusCode, final String response,
+            final int failAfterBytes, final String contentRange) throws IOException {
+        final byte[] bytes = response.getBytes();
+        final HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        final InputStream body = new ByteArrayInputStream(bytes);
+        when(urlConnection.getInputStream()).thenReturn(failAfterBytes < 0 ? body
+                : new InputStream() {
+                    private int mRead;
+
+                    @Override
+                    public int read() throws IOException {
+                        if (mRead++ >= failAfterBytes) {
+                            throw new IOException("connection reset");
+                        }
+                        return body.read();
+                    }
+                });
+        when(urlConnection.getResponseCode()).thenReturn(statusCode);
+        when(urlConnection.getContentLength()).thenReturn(bytes.length);
+        when(urlConnection.getHeaderField("ETag")).thenReturn("\"etag\"");
+        when(urlConnection.getHeaderField("Content-Range")).thenReturn(contentRange);
+        ShadowMoPubHttpUrlConnection.getPendingUrlConnections().add(urlConnection);
+        return urlConnection;
+    }
+
     private static String createLongString(int size) {
         return new String(new char[size]).replace("\0", "*");
     }
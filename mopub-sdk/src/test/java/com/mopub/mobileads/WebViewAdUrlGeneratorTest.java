@@ -27,6 +27,7 @@ import android.view.WindowManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.mopub.common.AdUrlGenerator;
 import com.mopub.common.AppEngineInfo;
 import com.mopub.common.BaseAdapterConfiguration;
 import com.mopub.common.BaseUrlGenerator;
@@ -198,6 +199,7 @@ public class WebViewAdUrlGeneratorTest {
                 .execute();
         BaseUrlGenerator.setAppEngineInfo(null);
         BaseUrlGenerator.setWrapperVersion("");
+        AdUrlGenerator.setEncodedParamsCacheEnabled(true);
     }
 
     @Test
@@ -809,6 +811,68 @@ public class WebViewAdUrlGeneratorTest {
         assertEquals(getParameterFromRequestUrl(adUrl, "ce_settings_hash_key"), "0");
     }
 
+    @Test
+    public void generateAdUrl_withEncodedParamsCached_shouldMatchUncachedUrl() {
+        final String firstUrl = generateMinimumUrlString();
+        AdUrlGenerator.setEncodedParamsCacheEnabled(false);
+        assertThat(generateMinimumUrlString()).isEqualTo(firstUrl);
+        AdUrlGenerator.setEncodedParamsCacheEnabled(true);
+        generateMinimumUrlString();
+
+        assertThat(generateMinimumUrlString()).isEqualTo(firstUrl);
+    }
+
+    @Test
+    public void generateAdUrl_withEncodedParamsCached_afterConsentChange_shouldIncludeNewConsent() {
+        generateMinimumUrlString();
+        when(mockPersonalInfoManager.getPersonalInfoConsentStatus()).thenReturn(ConsentStatus.EXPLICIT_YES);
+        when(mockPersonalInfoManager.gdprApplies()).thenReturn(true);
+
+        final String adUrl = generateMinimumUrlString();
+
+        assertEquals(getParameterFromRequestUrl(adUrl, "current_consent_status"),
+                ConsentStatus.EXPLICIT_YES.getValue());
+        assertEquals(getParameterFromRequestUrl(adUrl, "gdpr_applies"), "1");
+    }
+
+    @Test
+    public void generateAdUrl_withEncodedParamsCached_afterNetworkChange_shouldIncludeNewNetworkType() {
+        final String mobileUrl = generateMinimumUrlString();
+        shadowConnectivityManager.setActiveNetworkInfo(createNetworkInfo(TYPE_WIFI));
+
+        final String wifiUrl = generateMinimumUrlString();
+
+        assertEquals(getParameterFromRequestUrl(mobileUrl, "ct"),
+                String.valueOf(MoPubNetworkType.MOBILE.getId()));
+        assertEquals(getParameterFromRequestUrl(wifiUrl, "ct"),
+                String.valueOf(MoPubNetworkType.WIFI.getId()));
+    }
+
+    /**
+     * Network type and carrier data come from a snapshot, so only a connectivity change should
+     * cost any binder calls.
+     */
+    @Test
+    public void generateAdUrl_shouldOnlyMakeBinderCallsAfterConnectivityChange() {
+        generateMinimumUrlString();
+        final ClientMetadata clientMetadata = ClientMetadata.getInstance(context);
+        final ClientMetadata.Stats startStats = clientMetadata.getStats();
+
+        for (int i = 0; i < 100; i++) {
+            generateMinimumUrlString();
+        }
+        final ClientMetadata.Stats steadyStats = clientMetadata.getStats();
+        shadowConnectivityManager.setActiveNetworkInfo(createNetworkInfo(TYPE_WIFI));
+        for (int i = 0; i < 100; i++) {
+            generateMinimumUrlString();
+        }
+        final ClientMetadata.Stats changedStats = clientMetadata.getStats();
+
+        assertThat(steadyStats.binderCallCount).isEqualTo(startStats.binderCallCount);
+        assertThat(changedStats.binderCallCount).isGreaterThan(steadyStats.binderCallCount);
+        assertThat(changedStats.snapshotCount).isEqualTo(steadyStats.snapshotCount + 1);
+    }
+
     private String getParameterFromRequestUrl(String requestString, String key) {
         Uri requestUri = Uri.parse(requestString);
         String parameter = requestUri.getQueryParameter(key);
@@ -0,0 +1,111 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class WebViewPoolTest {
+    private Activity activity;
+    private List<BaseWebView> createdWebViews;
+    private WebViewPool<BaseWebView> subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        createdWebViews = new ArrayList<>();
+        subject = new WebViewPool<>(new WebViewPool.WebViewFactory<BaseWebView>() {
+            @NonNull
+            @Override
+            public BaseWebView create(@NonNull final Context context) {
+                final BaseWebView webView = mock(BaseWebView.class);
+                createdWebViews.add(webView);
+                return webView;
+            }
+        }, 2);
+    }
+
+    @Test
+    public void lease_withEmptyPool_shouldConstructWebView_shouldCountMiss() {
+        final BaseWebView webView = subject.lease(activity);
+
+        assertThat(createdWebViews).containsExactly(webView);
+        final WebViewPool.Stats stats = subject.getStats();
+        assertThat(stats.leaseCount).isEqualTo(1);
+        assertThat(stats.hitCount).isEqualTo(0);
+        assertThat(stats.constructedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void warmUpOne_shouldFillPoolUpToMaxSize() {
+        subject.warmUp(activity);
+
+        assertThat(subject.warmUpOne()).isTrue();
+        assertThat(subject.warmUpOne()).isFalse();
+        assertThat(subject.warmUpOne()).isFalse();
+
+        assertThat(subject.getIdleCount()).isEqualTo(2);
+        assertThat(createdWebViews).hasSize(2);
+    }
+
+    @Test
+    public void lease_afterWarmUp_shouldReturnPooledWebView_shouldCountHit() {
+        subject.warmUp(activity);
+        subject.warmUpOne();
+
+        final BaseWebView webView = subject.lease(activity);
+
+        assertThat(webView).isSameAs(createdWebViews.get(0));
+        assertThat(subject.getIdleCount()).isEqualTo(0);
+        final WebViewPool.Stats stats = subject.getStats();
+        assertThat(stats.hitCount).isEqualTo(1);
+        assertThat(stats.getHitRate()).isEqualTo(1.0);
+        assertThat(stats.savedConstructionMicros).isEqualTo(stats.averageConstructionMicros);
+    }
+
+    @Test
+    public void onTrimMemory_withRunningLow_shouldDestroyIdleWebViews() {
+        subject.warmUp(activity);
+        subject.warmUpOne();
+        subject.warmUpOne();
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertThat(subject.getIdleCount()).isEqualTo(0);
+        assertThat(subject.getStats().evictedCount).isEqualTo(2);
+        for (final BaseWebView webView : createdWebViews) {
+            verify(webView).destroy();
+        }
+    }
+
+    @Test
+    public void onTrimMemory_withRunningModerate_shouldKeepIdleWebViews() {
+        subject.warmUp(activity);
+        subject.warmUpOne();
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertThat(subject.getIdleCount()).isEqualTo(1);
+        assertThat(subject.getStats().evictedCount).isEqualTo(0);
+    }
+}
@@ -4,10 +4,13 @@
 
 package com.mopub.mobileads.test.support;
 
+import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.Network;
 import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
 
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -39,4 +42,32 @@ public class MoPubShadowConnectivityManager extends ShadowConnectivityManager {
         }
         return null;
     }
+
+    /**
+     * Like the platform, tells receivers the connectivity changed, so that cached network data
+     * is read again.
+     */
+    @Override
+    public void setActiveNetworkInfo(NetworkInfo info) {
+        super.setActiveNetworkInfo(info);
+        sendConnectivityChange();
+    }
+
+    @Override
+    public void setNetworkInfo(int networkType, NetworkInfo networkInfo) {
+        super.setNetworkInfo(networkType, networkInfo);
+        sendConnectivityChange();
+    }
+
+    @Override
+    public void clearAllNetworks() {
+        super.clearAllNetworks();
+        sendConnectivityChange();
+    }
+
+    @SuppressWarnings("deprecation")
+    private void sendConnectivityChange() {
+        RuntimeEnvironment.application.sendBroadcast(
+                new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
 }
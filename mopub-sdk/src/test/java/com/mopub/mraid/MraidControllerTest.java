@@ -539,11 +539,30 @@ public class MraidControllerTest {
 
         subject.fillContent("<HTML/>", null, null);
 
-        final String htmlContent = ViewabilityManager.injectScriptContentIntoHtml("<HTML/>");
+        final String htmlContent = ViewabilityManager.injectScriptsIntoHtml("<HTML/>", null);
         verify(mockBridge).setContentHtml(htmlContent);
         verify(mockWebViewListener, never()).onLoaded(any(View.class));
     }
 
+    @Test
+    public void fillContent_withDestroyBeforeScriptsAdded_shouldNotLoadHtmlData() {
+        subject = new MraidController(
+                activity, "", PlacementType.INLINE,
+                mockBridge, mockTwoPartBridge, mockScreenMetricsWaiter);
+        subject.setMoPubWebViewListener(mockWebViewListener);
+        reset(mockWebViewListener, mockBridge);
+        subject.setOrientationBroadcastReceiver(mockOrientationBroadcastReceiver);
+        subject.setRootView(rootView);
+        Robolectric.getBackgroundThreadScheduler().pause();
+
+        subject.fillContent("<HTML/>", null, null);
+        subject.destroy();
+        Robolectric.flushBackgroundThreadScheduler();
+        Robolectric.flushForegroundThreadScheduler();
+
+        verify(mockBridge, never()).setContentHtml(any());
+    }
+
     @Test
     public void fillContent_withUrl_shouldLoadUrl() {
         subject = new MraidController(
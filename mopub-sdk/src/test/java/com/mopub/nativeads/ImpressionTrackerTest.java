@@ -24,6 +24,7 @@ import java.util.HashMap;
 import static com.mopub.common.VisibilityTracker.VisibilityChecker;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -211,26 +212,41 @@ public class ImpressionTrackerTest {
     }
 
     @Test
-    public void scheduleNextPoll_shouldPostDelayedThePollingRunnable() {
-        when(handler.hasMessages(0)).thenReturn(false);
+    public void scheduleNextDeadline_shouldPostDelayedTheDeadlineRunnableUntilEarliestDeadline() {
+        Robolectric.getForegroundThreadScheduler().advanceTo(5555);
+        timeStampWrapper.mCreatedTimestamp = 5555 - 400;
+        pollingViews.put(view, timeStampWrapper);
+        final TimestampWrapper<ImpressionInterface> laterWrapper =
+                new TimestampWrapper<ImpressionInterface>(impressionInterface2);
+        laterWrapper.mCreatedTimestamp = 5555 - 100;
+        pollingViews.put(view2, laterWrapper);
 
-        subject.scheduleNextPoll();
+        subject.scheduleNextDeadline();
 
-        verify(handler).postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(handler).postDelayed(any(ImpressionTracker.DeadlineRunnable.class), eq((long) 600));
+        assertThat(subject.getStats().armCount).isEqualTo(1);
     }
 
     @Test
-    public void scheduleNextPoll_withMessages_shouldNotPostDelayedThePollingRunnable() {
-        when(handler.hasMessages(0)).thenReturn(true);
+    public void scheduleNextDeadline_withSameDeadlineArmed_shouldNotPostDelayedTheDeadlineRunnable() {
+        pollingViews.put(view, timeStampWrapper);
+        subject.scheduleNextDeadline();
+
+        subject.scheduleNextDeadline();
+
+        verify(handler).postDelayed(any(ImpressionTracker.DeadlineRunnable.class), anyLong());
+    }
 
-        subject.scheduleNextPoll();
+    @Test
+    public void scheduleNextDeadline_withNoVisibleViews_shouldNotPostDelayedTheDeadlineRunnable() {
+        subject.scheduleNextDeadline();
 
         verify(handler, never())
-                .postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+                .postDelayed(any(ImpressionTracker.DeadlineRunnable.class), anyLong());
     }
 
     @Test
-    public void visibilityTrackerListener_onVisibilityChanged_withVisibleViews_shouldAddViewToPollingViews_shouldScheduleNextPoll() {
+    public void visibilityTrackerListener_onVisibilityChanged_withVisibleViews_shouldAddViewToPollingViews_shouldArmDeadline() {
         subject.addView(view, impressionInterface);
 
         assertThat(pollingViews).isEmpty();
@@ -239,11 +255,11 @@ public class ImpressionTrackerTest {
                 .onVisibilityChanged(Lists.newArrayList(view), Lists.<View>newArrayList());
 
         assertThat(pollingViews.keySet()).containsOnly(view);
-        verify(handler).postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(handler).postDelayed(any(ImpressionTracker.DeadlineRunnable.class), eq((long) 1000));
     }
 
     @Test
-    public void visibilityTrackerListener_onVisibilityChanged_withVisibleViews_shouldRemoveViewFromPollingViews() {
+    public void visibilityTrackerListener_onVisibilityChanged_withInvisibleViews_shouldRemoveViewFromPollingViews_shouldCancelDeadline() {
         subject.addView(view, impressionInterface);
         subject.getVisibilityTrackerListener()
                 .onVisibilityChanged(Lists.newArrayList(view), Lists.<View>newArrayList());
@@ -257,55 +273,88 @@ public class ImpressionTrackerTest {
 
         assertThat(trackedViews.keySet()).containsOnly(view);
         assertThat(pollingViews).isEmpty();
+        verify(handler).removeMessages(0);
     }
 
     @Test
-    public void pollingRunnableRun_whenLessThanOneSecondHasElapsed_shouldNotTrackImpression_shouldScheduleNextPoll() {
+    public void deadlineRunnableRun_whenLessThanOneSecondHasElapsed_shouldNotTrackImpression_shouldArmRemainingTime() {
         // Force the last viewed timestamp to be a known value
         timeStampWrapper.mCreatedTimestamp = 5555;
         pollingViews.put(view, timeStampWrapper);
 
         // We progress 999 milliseconds
         Robolectric.getForegroundThreadScheduler().advanceTo(5555 + 999);
-        subject.new PollingRunnable().run();
+        subject.new DeadlineRunnable().run();
 
         verify(impressionInterface, never()).recordImpression(view);
 
         assertThat(pollingViews.keySet()).containsOnly(view);
-        verify(handler).postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(handler).postDelayed(any(ImpressionTracker.DeadlineRunnable.class), eq((long) 1));
+        assertThat(subject.getStats().idleWakeupCount).isEqualTo(1);
     }
 
     @Test
-    public void pollingRunnableRun_whenMoreThanOneSecondHasElapsed_shouldTrackImpression_shouldNotScheduleNextPoll() {
+    public void deadlineRunnableRun_whenMoreThanOneSecondHasElapsed_shouldTrackImpression_shouldNotArmDeadline() {
         // Force the last viewed timestamp to be a known value
         timeStampWrapper.mCreatedTimestamp = 5555;
         pollingViews.put(view, timeStampWrapper);
+        subject.scheduleNextDeadline();
 
         // We progress 1000 milliseconds
         Robolectric.getForegroundThreadScheduler().advanceTo(5555 + 1000);
-        subject.new PollingRunnable().run();
+        subject.new DeadlineRunnable().run();
 
         verify(impressionInterface).recordImpression(view);
 
         assertThat(pollingViews).isEmpty();
-        verify(handler, never())
-                .postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(handler).postDelayed(any(ImpressionTracker.DeadlineRunnable.class), anyLong());
+        final ImpressionTracker.Stats stats = subject.getStats();
+        assertThat(stats.wakeupCount).isEqualTo(1);
+        assertThat(stats.idleWakeupCount).isEqualTo(0);
+        assertThat(stats.impressionCount).isEqualTo(1);
+        assertThat(stats.averageLatenessMillis).isEqualTo(0);
+    }
+
+    @Test
+    public void deadlineRunnableRun_withTwoVisibleViews_shouldTrackEachImpressionAtItsDeadline() {
+        when(impressionInterface2.getImpressionMinTimeViewed()).thenReturn(1500);
+        timeStampWrapper.mCreatedTimestamp = 5555;
+        pollingViews.put(view, timeStampWrapper);
+        final TimestampWrapper<ImpressionInterface> laterWrapper =
+                new TimestampWrapper<ImpressionInterface>(impressionInterface2);
+        laterWrapper.mCreatedTimestamp = 5555;
+        pollingViews.put(view2, laterWrapper);
+
+        Robolectric.getForegroundThreadScheduler().advanceTo(5555 + 1000);
+        subject.new DeadlineRunnable().run();
+
+        verify(impressionInterface).recordImpression(view);
+        verify(impressionInterface2, never()).recordImpression(view2);
+        verify(handler).postDelayed(any(ImpressionTracker.DeadlineRunnable.class), eq((long) 500));
+
+        Robolectric.getForegroundThreadScheduler().advanceTo(5555 + 1500);
+        subject.new DeadlineRunnable().run();
+
+        verify(impressionInterface2).recordImpression(view2);
+        assertThat(pollingViews).isEmpty();
+        assertThat(subject.getStats().wakeupCount).isEqualTo(2);
+        assertThat(subject.getStats().idleWakeupCount).isEqualTo(0);
     }
 
     @Test(expected = NullPointerException.class)
-    public void pollingRunnableRun_whenWrapperIsNull_shouldThrowNPE() {
+    public void deadlineRunnableRun_whenWrapperIsNull_shouldThrowNPE() {
         pollingViews.put(view, null);
-        subject.new PollingRunnable().run();
+        subject.new DeadlineRunnable().run();
 
         verify(impressionInterface, never()).recordImpression(view);
     }
 
     @Test(expected = NullPointerException.class)
-    public void pollingRunnableRun_whenImpressionInterfaceIsNull_shouldThrowNPE() {
+    public void deadlineRunnableRun_whenImpressionInterfaceIsNull_shouldThrowNPE() {
         // This doesn't normally happen; perhaps we're being overly defensive
         pollingViews.put(view, new TimestampWrapper<ImpressionInterface>(null));
 
-        subject.new PollingRunnable().run();
+        subject.new DeadlineRunnable().run();
 
         verify(impressionInterface, never()).recordImpression(view);
     }
@@ -484,8 +484,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeInserted(originalItemCount + 2, 3);
         verifyNoMoreInteractions(mockObserver);
         verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount);
+        verify(mockStreamAdPlacer).insertItems(originalItemCount, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -517,8 +517,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeInserted(originalItemCount - 5, 3);
         verifyNoMoreInteractions(mockObserver);
         verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
+        verify(mockStreamAdPlacer).insertItems(originalItemCount - 7, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -534,8 +534,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeInserted(originalItemCount - 5, 3);
         verifyNoMoreInteractions(mockObserver);
         verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
+        verify(mockStreamAdPlacer).insertItems(originalItemCount - 7, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -555,6 +555,31 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
+    @Test
+    public void onItemRangeMoved_withMoveAdsStrategy_shouldMoveItems_shouldNotifyDataChanged() {
+        subject.registerAdapterDataObserver(mockObserver);
+        subject.setContentChangeStrategy(MOVE_ALL_ADS_WITH_CONTENT);
+
+        originalAdapter.notifyItemMoved(2, 5);
+
+        verify(mockObserver).onChanged();
+        verifyNoMoreInteractions(mockObserver);
+        verify(mockStreamAdPlacer).moveItems(2, 5, 1);
+        verifyNoMoreInteractions(mockStreamAdPlacer);
+    }
+
+    @Test
+    public void onItemRangeMoved_withKeepAdsStrategy_shouldNotMoveItems_shouldNotifyDataChanged() {
+        subject.registerAdapterDataObserver(mockObserver);
+        subject.setContentChangeStrategy(KEEP_ADS_FIXED);
+
+        originalAdapter.notifyItemMoved(2, 5);
+
+        verify(mockObserver).onChanged();
+        verifyNoMoreInteractions(mockObserver);
+        verifyNoMoreInteractions(mockStreamAdPlacer);
+    }
+
     @Test
     public void onItemRangeRemovedFromEnd_withInsertAtEndStrategy_shouldNotifyDataChanged() {
         subject.registerAdapterDataObserver(mockObserver);
@@ -583,8 +608,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeRemoved(originalItemCount - 2, 3);
         verifyNoMoreInteractions(mockObserver);
 
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 4, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 4);
     }
 
     @Test
@@ -602,8 +627,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeRemoved(originalItemCount - 4, 4);
         verifyNoMoreInteractions(mockObserver);
 
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 4, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 4);
     }
 
     @Test
@@ -633,8 +658,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeRemoved(originalItemCount - 6, 3);
         verifyNoMoreInteractions(mockObserver);
 
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 8, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 8);
     }
 
     @Test
@@ -649,8 +674,8 @@ public class MoPubRecyclerAdapterTest {
         verify(mockObserver).onItemRangeRemoved(originalItemCount - 6, 3);
         verifyNoMoreInteractions(mockObserver);
 
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 8, 3);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 8);
     }
 
     @Test
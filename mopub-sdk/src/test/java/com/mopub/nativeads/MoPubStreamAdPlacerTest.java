@@ -463,6 +463,35 @@ public class MoPubStreamAdPlacerTest {
         checkAdPositions(1, 3, 5);
     }
 
+    @Test
+    public void insertItems_shouldMoveAdsDownstream() {
+        when(mockAdSource.dequeueAd()).thenReturn(mStubNativeAd);
+        subject.loadAds("test-ad-unit-id");
+        subject.handlePositioningLoad(positioning);
+        subject.handleAdsAvailable();
+        subject.setItemCount(4);
+
+        subject.insertItems(0, 2);
+
+        checkAdPositions(3, 5, 7);
+        assertThat(subject.getOriginalPosition(8)).isEqualTo(5);
+    }
+
+    @Test
+    public void removeItems_shouldMoveAdsUpstream() {
+        when(mockAdSource.dequeueAd()).thenReturn(mStubNativeAd);
+        subject.loadAds("test-ad-unit-id");
+        subject.handlePositioningLoad(positioning);
+        subject.handleAdsAvailable();
+        subject.setItemCount(4);
+
+        subject.removeItems(0, 2);
+
+        checkAdPositions(0, 1, 3);
+        assertThat(subject.getOriginalPosition(2)).isEqualTo(0);
+        assertThat(subject.getOriginalPosition(4)).isEqualTo(1);
+    }
+
     void checkAdPositions(Integer... positions) {
         List<Integer> expected = Arrays.asList(positions);
         List<Integer> actual = new ArrayList<Integer>();
@@ -0,0 +1,227 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class NativeAdInventoryTest {
+    private static final String AD_UNIT_ID = "adUnitId";
+
+    private String key;
+    private AdRendererRegistry adRendererRegistry;
+    private NativeAdSource subject;
+
+    @Mock private MoPubAdRenderer mockRenderer;
+    @Mock private MoPubAdRenderer mockOtherRenderer;
+    @Mock private BaseNativeAd mockBaseNativeAd;
+    @Mock private NativeAd mockNativeAd;
+    @Mock private MoPubNative mockMoPubNative;
+    @Mock private Handler mockHandler;
+    @Mock private NativeAdSource.AdSourceListener mockAdSourceListener;
+
+    @Before
+    public void setUp() {
+        key = NativeAdInventory.getKey(AD_UNIT_ID, null);
+        when(mockRenderer.supports(any(BaseNativeAd.class))).thenReturn(true);
+        when(mockNativeAd.getBaseNativeAd()).thenReturn(mockBaseNativeAd);
+        when(mockNativeAd.getMoPubAdRenderer()).thenReturn(mockOtherRenderer);
+
+        adRendererRegistry = new AdRendererRegistry();
+        adRendererRegistry.registerAdRenderer(mockRenderer);
+        subject = new NativeAdSource(new ArrayList<TimestampWrapper<NativeAd>>(),
+                mockHandler, adRendererRegistry);
+        subject.setAdSourceListener(mockAdSourceListener);
+    }
+
+    @After
+    public void tearDown() {
+        NativeAdInventory.clearForTesting();
+    }
+
+    @Test
+    public void getKey_shouldIncludeRequestParameters_shouldIgnoreLocation() {
+        final RequestParameters keywords = new RequestParameters.Builder()
+                .keywords("a").build();
+        final RequestParameters otherKeywords = new RequestParameters.Builder()
+                .keywords("b").build();
+
+        assertThat(NativeAdInventory.getKey(AD_UNIT_ID, keywords))
+                .isEqualTo(NativeAdInventory.getKey(AD_UNIT_ID, new RequestParameters.Builder()
+                        .keywords("a").location(new android.location.Location("")).build()));
+        assertThat(NativeAdInventory.getKey(AD_UNIT_ID, keywords))
+                .isNotEqualTo(NativeAdInventory.getKey(AD_UNIT_ID, otherKeywords));
+        assertThat(NativeAdInventory.getKey(AD_UNIT_ID, keywords))
+                .isNotEqualTo(NativeAdInventory.getKey("otherAdUnitId", keywords));
+    }
+
+    @Test
+    public void release_shouldPoolUnusedAds_take_shouldReturnThem() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        NativeAdInventory.acquire(key, otherAdSource);
+        NativeAdInventory.release(key, otherAdSource,
+                Collections.singletonList(new TimestampWrapper<NativeAd>(mockNativeAd)));
+
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(1);
+        assertThat(NativeAdInventory.take(key, subject, adRendererRegistry, false).mInstance)
+                .isEqualTo(mockNativeAd);
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(0);
+        verify(mockNativeAd, never()).destroy();
+    }
+
+    @Test
+    public void take_withoutMatchingRenderer_shouldReturnNull_shouldKeepAd() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        NativeAdInventory.acquire(key, otherAdSource);
+        NativeAdInventory.release(key, otherAdSource,
+                Collections.singletonList(new TimestampWrapper<NativeAd>(mockNativeAd)));
+        when(mockRenderer.supports(any(BaseNativeAd.class))).thenReturn(false);
+
+        assertThat(NativeAdInventory.take(key, subject, adRendererRegistry, false)).isNull();
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(1);
+    }
+
+    @Test
+    public void release_withExpiredAd_shouldDestroyAd() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        final TimestampWrapper<NativeAd> expiredAd = new TimestampWrapper<NativeAd>(mockNativeAd);
+        expiredAd.mCreatedTimestamp = SystemClock.uptimeMillis() - (4*60*60*1000+1);
+        NativeAdInventory.acquire(key, otherAdSource);
+
+        NativeAdInventory.release(key, otherAdSource, Collections.singletonList(expiredAd));
+
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(0);
+        verify(mockNativeAd).destroy();
+    }
+
+    @Test
+    public void release_withMoreThanMaxPooledAds_shouldDestroySurplus() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        final List<TimestampWrapper<NativeAd>> unusedAds =
+                new ArrayList<TimestampWrapper<NativeAd>>();
+        for (int i = 0; i < NativeAdInventory.MAX_POOLED_ADS; i++) {
+            unusedAds.add(new TimestampWrapper<NativeAd>(mock(NativeAd.class)));
+        }
+        unusedAds.add(new TimestampWrapper<NativeAd>(mockNativeAd));
+        NativeAdInventory.acquire(key, otherAdSource);
+
+        NativeAdInventory.release(key, otherAdSource, unusedAds);
+
+        assertThat(NativeAdInventory.getPooledAdCount(key))
+                .isEqualTo(NativeAdInventory.MAX_POOLED_ADS);
+        verify(mockNativeAd).destroy();
+    }
+
+    @Test
+    public void release_byLastAdSource_afterRetainTime_shouldDestroyPooledAds() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        NativeAdInventory.acquire(key, otherAdSource);
+        NativeAdInventory.release(key, otherAdSource,
+                Collections.singletonList(new TimestampWrapper<NativeAd>(mockNativeAd)));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                NativeAdInventory.RETAIN_MILLIS - 1, TimeUnit.MILLISECONDS);
+        verify(mockNativeAd, never()).destroy();
+        Robolectric.getForegroundThreadScheduler().advanceBy(1, TimeUnit.MILLISECONDS);
+
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(0);
+        verify(mockNativeAd).destroy();
+    }
+
+    @Test
+    public void acquire_beforeRetainTime_shouldCancelEviction() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        NativeAdInventory.acquire(key, otherAdSource);
+        NativeAdInventory.release(key, otherAdSource,
+                Collections.singletonList(new TimestampWrapper<NativeAd>(mockNativeAd)));
+
+        NativeAdInventory.acquire(key, subject);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                NativeAdInventory.RETAIN_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(1);
+        verify(mockNativeAd, never()).destroy();
+    }
+
+    @Test
+    public void nativeAdSource_clear_shouldReturnUnusedAdsToInventory_shouldNotDestroyThem() {
+        subject.loadAds(null, mockMoPubNative, key);
+        subject.getMoPubNativeNetworkListener().onNativeLoad(mockNativeAd);
+        assertThat(NativeAdInventory.getAdSourceCount(key)).isEqualTo(1);
+
+        subject.clear();
+
+        assertThat(NativeAdInventory.getAdSourceCount(key)).isEqualTo(0);
+        assertThat(NativeAdInventory.getPooledAdCount(key)).isEqualTo(1);
+        verify(mockNativeAd, never()).destroy();
+    }
+
+    @Test
+    public void nativeAdSource_loadAds_withPooledAd_shouldUseItWithoutRequest() {
+        final NativeAdSource otherAdSource = mock(NativeAdSource.class);
+        NativeAdInventory.acquire(key, otherAdSource);
+        NativeAdInventory.release(key, otherAdSource,
+                Collections.singletonList(new TimestampWrapper<NativeAd>(mockNativeAd)));
+
+        subject.loadAds(null, mockMoPubNative, key);
+
+        verify(mockAdSourceListener).onAdsAvailable();
+        verify(mockMoPubNative, never()).makeRequest(any(RequestParameters.class),
+                any(Integer.class));
+        verify(mockNativeAd).setMoPubAdRenderer(mockRenderer);
+        assertThat(subject.dequeueAd()).isEqualTo(mockNativeAd);
+        assertThat(subject.getStats().fromInventory).isEqualTo(1);
+    }
+
+    @Test
+    public void nativeAdSource_dequeueAd_withEmptyCache_shouldTakeAdFromIdleAdSource() {
+        final NativeAdSource idleAdSource = new NativeAdSource(
+                new ArrayList<TimestampWrapper<NativeAd>>(), mockHandler, adRendererRegistry);
+        idleAdSource.loadAds(null, mock(MoPubNative.class), key);
+        idleAdSource.getMoPubNativeNetworkListener().onNativeLoad(mockNativeAd);
+        ShadowSystemClock.advanceBy(
+                Duration.ofMillis(NativeAdSource.PrefetchPolicy.IDLE_MILLIS + 1));
+        subject.loadAds(null, mockMoPubNative, key);
+
+        assertThat(subject.dequeueAd()).isEqualTo(mockNativeAd);
+        assertThat(idleAdSource.dequeueAd()).isNull();
+    }
+
+    @Test
+    public void nativeAdSource_dequeueAd_shouldNotTakeOnlyAdFromActiveAdSource() {
+        final NativeAdSource activeAdSource = new NativeAdSource(
+                new ArrayList<TimestampWrapper<NativeAd>>(), mockHandler, adRendererRegistry);
+        activeAdSource.loadAds(null, mock(MoPubNative.class), key);
+        activeAdSource.getMoPubNativeNetworkListener().onNativeLoad(mockNativeAd);
+        subject.loadAds(null, mockMoPubNative, key);
+
+        assertThat(subject.dequeueAd()).isNull();
+        assertThat(activeAdSource.dequeueAd()).isEqualTo(mockNativeAd);
+    }
+}
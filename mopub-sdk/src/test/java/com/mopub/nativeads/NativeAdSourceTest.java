@@ -7,6 +7,8 @@ package com.mopub.nativeads;
 import android.os.Handler;
 import android.os.SystemClock;
 
+import androidx.annotation.NonNull;
+
 import com.mopub.common.test.support.SdkTestRunner;
 
 import org.junit.Before;
@@ -15,8 +17,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.robolectric.shadows.ShadowSystemClock;
 
+import java.time.Duration;
 import java.util.ArrayList;
 
+import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
 import static com.mopub.nativeads.NativeAdSource.AdSourceListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -382,4 +386,117 @@ public class NativeAdSourceTest {
         assertThat(subject.getRetryTime()).isEqualTo(defaultRetryTime);
         verify(mockReplenishCacheHandler, never()).postDelayed(any(Runnable.class), anyLong());
     }
+
+    @Test
+    public void dequeueAd_withExpiredAdBehindFreshAd_shouldDestroyExpiredAd_shouldCountExpired() {
+        subject.setMoPubNative(mockMoPubNative);
+        final NativeAd expiredNativeAd = mock(NativeAd.class);
+        final TimestampWrapper<NativeAd> expiredWrapper =
+                new TimestampWrapper<NativeAd>(expiredNativeAd);
+        expiredWrapper.mCreatedTimestamp = SystemClock.uptimeMillis() - (4*60*60*1000+1);
+        nativeAdCache.add(new TimestampWrapper<NativeAd>(mMockNativeAd));
+        nativeAdCache.add(expiredWrapper);
+
+        assertThat(subject.dequeueAd()).isEqualTo(mMockNativeAd);
+
+        assertThat(nativeAdCache).isEmpty();
+        verify(expiredNativeAd).destroy();
+        verify(mMockNativeAd, never()).destroy();
+        final NativeAdSource.Stats stats = subject.getStats();
+        assertThat(stats.dequeues).isEqualTo(1);
+        assertThat(stats.hits).isEqualTo(1);
+        assertThat(stats.expired).isEqualTo(1);
+    }
+
+    @Test
+    public void prefetchPolicy_withoutDequeues_shouldTargetOneAd() {
+        final NativeAdSource.PrefetchPolicy policy = new NativeAdSource.PrefetchPolicy();
+        policy.onFill(2000);
+
+        assertThat(policy.getTargetCacheSize(0)).isEqualTo(1);
+    }
+
+    @Test
+    public void prefetchPolicy_withDequeuesFasterThanFills_shouldGrowTargetUpToMax() {
+        final NativeAdSource.PrefetchPolicy policy = new NativeAdSource.PrefetchPolicy();
+        policy.onFill(1000);
+        policy.onDequeue(0);
+        policy.onDequeue(1000);
+
+        // One dequeue per fill needs one more ad than the idle cache
+        assertThat(policy.getTargetCacheSize(1000)).isEqualTo(2);
+
+        policy.onFill(4000);
+        policy.onDequeue(1100);
+        policy.onDequeue(1200);
+
+        assertThat(policy.getTargetCacheSize(1200)).isEqualTo(NativeAdSource.MAX_CACHE_LIMIT);
+    }
+
+    @Test
+    public void prefetchPolicy_afterIdle_shouldTargetOneAd() {
+        final NativeAdSource.PrefetchPolicy policy = new NativeAdSource.PrefetchPolicy();
+        policy.onFill(2000);
+        policy.onDequeue(0);
+        policy.onDequeue(500);
+
+        assertThat(policy.getTargetCacheSize(500 + NativeAdSource.PrefetchPolicy.IDLE_MILLIS + 1))
+                .isEqualTo(1);
+
+        // The first dequeue after being idle doesn't count as fast scrolling
+        policy.onDequeue(500 + NativeAdSource.PrefetchPolicy.IDLE_MILLIS + 1);
+        assertThat(policy.getTargetCacheSize(500 + NativeAdSource.PrefetchPolicy.IDLE_MILLIS + 1))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void replenishCache_withAdsDequeuedFasterThanFilled_shouldMakeParallelRequests() {
+        final MoPubNative prefetchMoPubNative = mock(MoPubNative.class);
+        subject = new NativeAdSource(nativeAdCache, mockReplenishCacheHandler,
+                mockAdRendererRegistry) {
+            @Override
+            MoPubNative createPrefetchMoPubNative(
+                    @NonNull final MoPubNativeNetworkListener listener) {
+                return prefetchMoPubNative;
+            }
+        };
+        subject.loadAds(requestParameters, mockMoPubNative);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(2000));
+        subject.getMoPubNativeNetworkListener().onNativeLoad(mMockNativeAd);
+
+        assertThat(subject.dequeueAd()).isEqualTo(mMockNativeAd);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(500));
+        assertThat(subject.dequeueAd()).isNull();
+        subject.replenishCache();
+
+        verify(mockMoPubNative).makeRequest(requestParameters, 1);
+        verify(prefetchMoPubNative).registerAdRenderer(mockRenderer);
+        verify(prefetchMoPubNative).makeRequest(requestParameters, 2);
+        final NativeAdSource.Stats stats = subject.getStats();
+        assertThat(stats.dequeues).isEqualTo(2);
+        assertThat(stats.hits).isEqualTo(1);
+        assertThat(stats.fills).isEqualTo(1);
+        assertThat(stats.averageTimeToFillMillis).isEqualTo(2000);
+        assertThat(stats.targetCacheSize).isEqualTo(NativeAdSource.MAX_CACHE_LIMIT);
+    }
+
+    @Test
+    public void replenishCache_withoutDequeues_shouldNotMakeParallelRequests() {
+        final MoPubNative prefetchMoPubNative = mock(MoPubNative.class);
+        subject = new NativeAdSource(nativeAdCache, mockReplenishCacheHandler,
+                mockAdRendererRegistry) {
+            @Override
+            MoPubNative createPrefetchMoPubNative(
+                    @NonNull final MoPubNativeNetworkListener listener) {
+                return prefetchMoPubNative;
+            }
+        };
+
+        subject.loadAds(requestParameters, mockMoPubNative);
+        subject.replenishCache();
+
+        verify(mockMoPubNative).makeRequest(requestParameters, 0);
+        verify(prefetchMoPubNative, never()).makeRequest(any(RequestParameters.class),
+                any(Integer.class));
+    }
 }
@@ -16,6 +16,7 @@ import org.mockito.Mock;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static com.mopub.nativeads.PlacementData.NOT_FOUND;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -797,6 +798,128 @@ public class PlacementDataTest {
         checkPlacedPositions(20, adsAt15repeating);
     }
 
+    @Test
+    public void repeatingPositions_shouldNotBeCappedAtAFixedNumberOfAds() {
+        int position = adsRepeating.nextInsertionPosition(-1);
+        for (int i = 0; i < 1000; i++) {
+            adsRepeating.placeAd(position, mMockNativeAd);
+            position = adsRepeating.nextInsertionPosition(position);
+        }
+
+        assertThat(adsRepeating.getPlacedAdPositions()).hasSize(1000);
+        assertThat(adsRepeating.isPlacedAd(2997)).isTrue();
+        assertThat(adsRepeating.shouldPlaceAd(3002)).isTrue();
+        assertThat(adsRepeating.getAdjustedPosition(2000)).isEqualTo(3000);
+        assertThat(adsRepeating.getOriginalPosition(3001)).isEqualTo(2001);
+    }
+
+    @Test
+    public void insertItems_shouldMatchRepeatedInsertItem() {
+        final PlacementData expected = createPlacedRepeating();
+        final PlacementData actual = createPlacedRepeating();
+
+        for (int i = 0; i < 7; i++) {
+            expected.insertItem(4);
+        }
+        actual.insertItems(4, 7);
+
+        checkSameState(50, expected, actual);
+    }
+
+    @Test
+    public void removeItems_shouldMatchRepeatedRemoveItem() {
+        final PlacementData expected = createPlacedRepeating();
+        final PlacementData actual = createPlacedRepeating();
+
+        for (int i = 0; i < 7; i++) {
+            expected.removeItem(3);
+        }
+        actual.removeItems(3, 7);
+
+        checkSameState(50, expected, actual);
+    }
+
+    @Test
+    public void clearAdsInRange_withDesiredPositionsBetweenClearedAds_shouldKeepPositionsOrdered() {
+        final PlacementData placementData = PlacementData.fromAdPositioning(
+                MoPubNativeAdPositioning.clientPositioning()
+                        .addFixedPosition(1)
+                        .addFixedPosition(8)
+                        .addFixedPosition(15)
+                        .enableRepeatingPositions(2));
+        placementData.placeAd(36, mMockNativeAd);
+        placementData.placeAd(23, mMockNativeAd);
+        placementData.placeAd(28, mMockNativeAd);
+
+        assertThat(placementData.clearAdsInRange(22, 40)).isEqualTo(3);
+
+        assertThat(placementData.getPlacedAdPositions()).isEmpty();
+        assertThat(placementData.nextInsertionPosition(22)).isEqualTo(23);
+        assertThat(placementData.nextInsertionPosition(23)).isEqualTo(24);
+    }
+
+    /**
+     * Edits a 10,000 item feed with an ad every 5 items at random positions, then checks that
+     * every item still maps to an adjusted position and back.
+     */
+    @Test
+    public void insertAndRemoveItems_withRandomEditsOnLongFeed_shouldKeepPositionsConsistent() {
+        final int itemCount = 10000;
+        final int operationCount = 2000;
+        final PlacementData placementData = PlacementData.fromAdPositioning(
+                MoPubNativeAdPositioning.clientPositioning().enableRepeatingPositions(5));
+        final Random random = new Random(0);
+
+        int position = placementData.nextInsertionPosition(-1);
+        while (position != NOT_FOUND && position < placementData.getAdjustedCount(itemCount)) {
+            placementData.placeAd(position, mMockNativeAd);
+            position = placementData.nextInsertionPosition(position);
+        }
+        assertThat(placementData.getPlacedAdPositions().length).isGreaterThan(itemCount / 5);
+
+        int count = itemCount;
+        for (int i = 0; i < operationCount; i++) {
+            final int originalPosition = random.nextInt(count);
+            if (random.nextBoolean()) {
+                placementData.insertItems(originalPosition, 10);
+                count += 10;
+            } else {
+                final int removed = Math.min(10, count - originalPosition);
+                placementData.removeItems(originalPosition, removed);
+                count -= removed;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            final int adjustedPosition = placementData.getAdjustedPosition(i);
+            assertThat(placementData.isPlacedAd(adjustedPosition)).isFalse();
+            assertThat(placementData.getOriginalPosition(adjustedPosition)).isEqualTo(i);
+        }
+    }
+
+    private PlacementData createPlacedRepeating() {
+        final PlacementData placementData = PlacementData.fromAdPositioning(
+                MoPubNativeAdPositioning.clientPositioning()
+                        .addFixedPosition(1)
+                        .addFixedPosition(5)
+                        .enableRepeatingPositions(3));
+        placementData.placeAd(1, mMockNativeAd);
+        placementData.placeAd(5, mMockNativeAd);
+        placementData.placeAd(8, mMockNativeAd);
+        placementData.placeAd(11, mMockNativeAd);
+        return placementData;
+    }
+
+    private void checkSameState(int maxValue, PlacementData expected, PlacementData actual) {
+        assertThat(actual.getPlacedAdPositions()).isEqualTo(expected.getPlacedAdPositions());
+        for (int i = 0; i <= maxValue; i++) {
+            assertThat(actual.shouldPlaceAd(i)).isEqualTo(expected.shouldPlaceAd(i));
+            assertThat(actual.isPlacedAd(i)).isEqualTo(expected.isPlacedAd(i));
+            assertThat(actual.getOriginalPosition(i)).isEqualTo(expected.getOriginalPosition(i));
+            assertThat(actual.getAdjustedPosition(i)).isEqualTo(expected.getAdjustedPosition(i));
+        }
+    }
+
     void checkInsertionPositions(int maxValue, PlacementData placementData, Integer... positions) {
         List<Integer> expected = Arrays.asList(positions);
         List<Integer> actual = new ArrayList<Integer>();
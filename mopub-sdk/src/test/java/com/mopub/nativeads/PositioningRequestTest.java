@@ -32,6 +32,7 @@ import static com.mopub.network.MoPubRequest.JSON_CONTENT_TYPE;
 import static junit.framework.Assert.fail;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -120,6 +121,70 @@ public class PositioningRequestTest {
         assertThat(subject.parseNetworkResponse(mockNetworkResponse).getMoPubNetworkError()).isNotNull();
     }
     
+    @Test
+    public void parseNetworkResponse_shouldRecordETagAndMaxAge() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("etag", "\"v1\"");
+        headers.put("Cache-Control", "public, max-age=600");
+        mockNetworkResponse = new MoPubNetworkResponse(200, "{fixed: []}".getBytes(), headers);
+
+        subject.parseNetworkResponse(mockNetworkResponse);
+
+        assertEquals("\"v1\"", subject.getResponseETag());
+        assertEquals(600 * 1000, subject.getMaxAgeMillis());
+        assertFalse(subject.isNotModified());
+    }
+
+    @Test
+    public void parseNetworkResponse_withNotModified_withCachedPositioning_shouldReturnCachedPositioning() {
+        MoPubNativeAdPositioning.MoPubClientPositioning cached =
+                new MoPubNativeAdPositioning.MoPubClientPositioning().addFixedPosition(3);
+        subject = new PositioningRequest(Robolectric.buildActivity(Activity.class).get(), URL,
+                "\"v1\"", cached, mockListener);
+        mockNetworkResponse = new MoPubNetworkResponse(304, null,
+                Collections.<String, String>emptyMap());
+
+        MoPubNativeAdPositioning.MoPubClientPositioning result =
+                subject.parseNetworkResponse(mockNetworkResponse).getMoPubResult();
+
+        assertThat(result.getFixedPositions()).containsOnly(3);
+        assertEquals("\"v1\"", subject.getResponseETag());
+        assertTrue(subject.isNotModified());
+    }
+
+    @Test
+    public void parseNetworkResponse_withNotModified_withoutCachedPositioning_shouldReturnError() {
+        mockNetworkResponse = new MoPubNetworkResponse(304, null,
+                Collections.<String, String>emptyMap());
+
+        assertThat(subject.parseNetworkResponse(mockNetworkResponse).getMoPubNetworkError()).isNotNull();
+    }
+
+    @Test
+    public void getHeaders_withETag_shouldSendIfNoneMatch() {
+        subject = new PositioningRequest(Robolectric.buildActivity(Activity.class).get(), URL,
+                "\"v1\"", new MoPubNativeAdPositioning.MoPubClientPositioning(), mockListener);
+
+        assertEquals("\"v1\"", subject.getHeaders().get("If-None-Match"));
+    }
+
+    @Test
+    public void getHeaders_withoutETag_shouldNotSendIfNoneMatch() {
+        assertNull(subject.getHeaders().get("If-None-Match"));
+    }
+
+    @Test
+    public void parseMaxAgeMillis_shouldHandleCacheControlDirectives() {
+        assertEquals(PositioningRequest.UNKNOWN_MAX_AGE, PositioningRequest.parseMaxAgeMillis(null));
+        assertEquals(PositioningRequest.UNKNOWN_MAX_AGE, PositioningRequest.parseMaxAgeMillis("public"));
+        assertEquals(PositioningRequest.UNKNOWN_MAX_AGE,
+                PositioningRequest.parseMaxAgeMillis("max-age=abc"));
+        assertEquals(0, PositioningRequest.parseMaxAgeMillis("Max-Age=0"));
+        assertEquals(60 * 1000, PositioningRequest.parseMaxAgeMillis("private, max-age=60"));
+        assertEquals(PositioningRequest.NO_STORE,
+                PositioningRequest.parseMaxAgeMillis("no-store, max-age=60"));
+    }
+
     @Test
     public void parseJson_noFixedPositions_shouldReturnEmptyPositioning() throws Exception {
         MoPubNativeAdPositioning.MoPubClientPositioning positioning = subject.parseJson(
@@ -15,6 +15,7 @@ import com.mopub.mobileads.MoPubErrorCode;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 import com.mopub.nativeads.PositioningSource.PositioningListener;
 import com.mopub.network.MoPubNetworkError;
+import com.mopub.network.MoPubNetworkResponse;
 import com.mopub.network.MoPubRequest;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
@@ -27,7 +28,10 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.robolectric.Robolectric;
 import org.robolectric.shadows.ShadowLog;
+import org.robolectric.shadows.ShadowSystemClock;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
@@ -46,6 +50,7 @@ import static org.mockito.Mockito.when;
 public class ServerPositioningSourceTest {
     @Mock PositioningListener mockPositioningListener;
     @Captor ArgumentCaptor<PositioningRequest> positionRequestCaptor;
+    @Captor ArgumentCaptor<MoPubClientPositioning> positioningCaptor;
     @Mock Context mockContext;
     @Mock ClientMetadata mockClientMetaData;
     @Mock MoPubRequestQueue mockRequestQueue;
@@ -62,6 +67,7 @@ public class ServerPositioningSourceTest {
         setupClientMetadata();
         Networking.setRequestQueueForTesting(mockRequestQueue);
         MoPubLog.setLogLevel(MoPubLog.LogLevel.DEBUG);
+        ServerPositioningSource.resetStatsForTesting();
     }
 
     private void setupClientMetadata() {
@@ -202,4 +208,121 @@ public class ServerPositioningSourceTest {
         assertThat(allLogMessages).contains("[com.mopub.nativeads.ServerPositioningSource]" +
                 "[access$300] SDK Log - Error downloading positioning information");
     }
+
+    @Test
+    public void loadPositions_withFreshCachedPositioning_shouldLoadFromCache_shouldNotRequest() {
+        putCachedPositioning(System.currentTimeMillis());
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockPositioningListener).onLoad(positioningCaptor.capture());
+        assertThat(positioningCaptor.getValue().getRepeatingInterval()).isEqualTo(3);
+        verify(mockRequestQueue, never()).add(any(MoPubRequest.class));
+    }
+
+    @Test
+    public void loadPositions_withStaleCachedPositioning_shouldLoadFromCache_shouldRevalidateWithETag() {
+        putCachedPositioning(staleFetchTime());
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockPositioningListener).onLoad(any(MoPubClientPositioning.class));
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        assertThat(positionRequestCaptor.getValue().getHeaders().get("If-None-Match"))
+                .isEqualTo("\"v1\"");
+    }
+
+    @Test
+    public void loadPositions_withStaleCachedPositioning_thenRevalidated_shouldNotCallListenerAgain_shouldUpdateCache() {
+        putCachedPositioning(staleFetchTime());
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+
+        positionRequestCaptor.getValue().deliverResponse(
+                new MoPubClientPositioning().enableRepeatingPositions(5));
+        verify(mockPositioningListener).onLoad(any(MoPubClientPositioning.class));
+
+        // The revalidated positioning is fresh, so the next placer doesn't make a request.
+        reset(mockRequestQueue, mockPositioningListener);
+        new ServerPositioningSource(spyActivity).loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockPositioningListener).onLoad(positioningCaptor.capture());
+        assertThat(positioningCaptor.getValue().getRepeatingInterval()).isEqualTo(5);
+        verify(mockRequestQueue, never()).add(any(MoPubRequest.class));
+    }
+
+    @Test
+    public void loadPositions_withStaleCachedPositioning_thenNoStoreResponse_shouldRemoveCachedPositioning() {
+        putCachedPositioning(staleFetchTime());
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+
+        final PositioningRequest request = positionRequestCaptor.getValue();
+        request.parseNetworkResponse(new MoPubNetworkResponse(200, "{fixed: []}".getBytes(),
+                Collections.singletonMap("Cache-Control", "no-store")));
+        request.deliverResponse(new MoPubClientPositioning().enableRepeatingPositions(5));
+
+        // Nothing is left in memory, so the next placer does not get the old positioning.
+        reset(mockPositioningListener);
+        new ServerPositioningSource(spyActivity).loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockPositioningListener, never()).onLoad(any(MoPubClientPositioning.class));
+    }
+
+    @Test
+    public void loadPositions_withStaleCachedPositioning_thenRevalidationFails_shouldNotRetry_shouldNotCallFailureHandler() {
+        putCachedPositioning(staleFetchTime());
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+
+        positionRequestCaptor.getValue().getMoPubListener().onErrorResponse(
+                new MoPubNetworkError.Builder("testError").build());
+        Robolectric.getForegroundThreadScheduler().advanceToLastPostedRunnable();
+
+        verify(mockRequestQueue).add(any(MoPubRequest.class));
+        verify(mockPositioningListener).onLoad(any(MoPubClientPositioning.class));
+        verify(mockPositioningListener, never()).onFailed();
+    }
+
+    @Test
+    public void loadPositions_withExpiredCachedPositioning_shouldRequest_shouldNotLoadFromCache() {
+        putCachedPositioning(System.currentTimeMillis() - PositioningCacheService.DEFAULT_MAX_AGE_MILLIS
+                - PositioningCacheService.MAX_STALE_MILLIS - 1);
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        assertThat(positionRequestCaptor.getValue().getHeaders().get("If-None-Match")).isNull();
+        verify(mockPositioningListener, never()).onLoad(any(MoPubClientPositioning.class));
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioning_shouldReduceTimeToPositioning() {
+        final long networkLatencyMillis = 300;
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        ShadowSystemClock.advanceBy(Duration.ofMillis(networkLatencyMillis));
+        positionRequestCaptor.getValue().deliverResponse(
+                new MoPubClientPositioning().enableRepeatingPositions(3));
+
+        new ServerPositioningSource(spyActivity).loadPositions("test_ad_unit", mockPositioningListener);
+
+        final ServerPositioningSource.Stats stats = ServerPositioningSource.getStats();
+        assertThat(stats.networkLoads).isEqualTo(1);
+        assertThat(stats.cacheLoads).isEqualTo(1);
+        assertThat(stats.averageNetworkLoadMillis).isEqualTo(networkLatencyMillis);
+        assertThat(stats.averageCacheLoadMillis).isEqualTo(0);
+        verify(mockPositioningListener, times(2)).onLoad(any(MoPubClientPositioning.class));
+    }
+
+    private void putCachedPositioning(final long fetchedAtMillis) {
+        PositioningCacheService.putPositioning("test_ad_unit",
+                new PositioningCacheService.Entry(
+                        new MoPubClientPositioning().enableRepeatingPositions(3), "\"v1\"",
+                        fetchedAtMillis, PositioningCacheService.DEFAULT_MAX_AGE_MILLIS),
+                spyActivity);
+    }
+
+    private static long staleFetchTime() {
+        return System.currentTimeMillis() - PositioningCacheService.DEFAULT_MAX_AGE_MILLIS - 1000;
+    }
 }
@@ -0,0 +1,187 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+
+import com.mopub.common.AdFormat;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.ResponseHeader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SdkTestRunner.class)
+public class MultiAdResponseStreamParserTest {
+    private static final String CHARSET = "UTF-8";
+    private static final String AD_UNIT_ID = "testAdUnitId";
+    private static final int WATERFALL_LENGTH = 20;
+
+    private Activity activity;
+
+    @Before
+    public void setup() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+    }
+
+    @After
+    public void teardown() {
+        MultiAdResponse.setStreamingParseEnabled(true);
+        RequestRateTrackerTest.clearRequestRateTracker();
+    }
+
+    @Test
+    public void readTopLevelFields_shouldSkipKey_shouldReadOtherFields() throws Exception {
+        final JSONObject body = createWaterfall(2, 16);
+        body.put("nested", new JSONObject().put("a", new JSONArray().put(1).put(2.5).put(true)));
+        final MultiAdResponseStreamParser subject = new MultiAdResponseStreamParser(
+                body.toString().getBytes(CHARSET), CHARSET);
+
+        final JSONObject result = subject.readTopLevelFields(ResponseHeader.AD_RESPONSES.getKey());
+
+        assertFalse(result.has(ResponseHeader.AD_RESPONSES.getKey()));
+        assertThat(result.getString(ResponseHeader.FAIL_URL.getKey())).isEqualTo("fail_url");
+        assertThat(result.getJSONObject("nested").toString())
+                .isEqualTo(body.getJSONObject("nested").toString());
+    }
+
+    @Test
+    public void readArrayElements_shouldReturnEachElement() throws Exception {
+        final JSONObject body = createWaterfall(3, 16);
+        final MultiAdResponseStreamParser subject = new MultiAdResponseStreamParser(
+                body.toString().getBytes(CHARSET), CHARSET);
+
+        final Iterator<JSONObject> iterator = subject.readArrayElements(
+                ResponseHeader.AD_RESPONSES.getKey());
+
+        final JSONArray expected = body.getJSONArray(ResponseHeader.AD_RESPONSES.getKey());
+        for (int i = 0; i < expected.length(); i++) {
+            assertTrue(iterator.hasNext());
+            assertThat(iterator.next().toString()).isEqualTo(expected.getJSONObject(i).toString());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = JSONException.class)
+    public void readArrayElements_withMissingArray_shouldThrowJSONException() throws Exception {
+        final MultiAdResponseStreamParser subject = new MultiAdResponseStreamParser(
+                "{\"x-next-url\":\"\"}".getBytes(CHARSET), CHARSET);
+
+        subject.readArrayElements(ResponseHeader.AD_RESPONSES.getKey());
+    }
+
+    @Test(expected = JSONException.class)
+    public void readTopLevelFields_withNonJsonBody_shouldThrowJSONException() throws Exception {
+        final MultiAdResponseStreamParser subject = new MultiAdResponseStreamParser(
+                "abc".getBytes(CHARSET), CHARSET);
+
+        subject.readTopLevelFields(ResponseHeader.AD_RESPONSES.getKey());
+    }
+
+    @Test
+    public void readArrayElements_withTruncatedBody_shouldStopAtMalformedElement() throws Exception {
+        final String body = createWaterfall(2, 16).toString();
+        final String truncated = body.substring(0, body.lastIndexOf("content"));
+        final MultiAdResponseStreamParser subject = new MultiAdResponseStreamParser(
+                truncated.getBytes(CHARSET), CHARSET);
+
+        final Iterator<JSONObject> iterator = subject.readArrayElements(
+                ResponseHeader.AD_RESPONSES.getKey());
+
+        assertThat(iterator.next()).isNotNull();
+        assertTrue(iterator.hasNext());
+        assertNull(iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void multiAdResponse_withStreamingParse_shouldMatchDomParse() throws Exception {
+        final MoPubNetworkResponse networkResponse = createNetworkResponse(
+                createWaterfall(WATERFALL_LENGTH, 256));
+
+        final List<AdResponse> streamed = parseAll(networkResponse, true);
+        final List<AdResponse> dom = parseAll(networkResponse, false);
+
+        assertThat(streamed.size()).isEqualTo(WATERFALL_LENGTH);
+        assertThat(streamed.size()).isEqualTo(dom.size());
+        for (int i = 0; i < dom.size(); i++) {
+            assertThat(streamed.get(i).getAdGroupId()).isEqualTo(dom.get(i).getAdGroupId());
+            assertThat(streamed.get(i).getStringBody()).isEqualTo(dom.get(i).getStringBody());
+            assertThat(streamed.get(i).getRefreshTimeMillis())
+                    .isEqualTo(dom.get(i).getRefreshTimeMillis());
+            assertThat(streamed.get(i).getImpressionTrackingUrls())
+                    .isEqualTo(dom.get(i).getImpressionTrackingUrls());
+            assertThat(streamed.get(i).getServerExtras()).isEqualTo(dom.get(i).getServerExtras());
+        }
+    }
+
+    private List<AdResponse> parseAll(final MoPubNetworkResponse networkResponse,
+            final boolean streaming) throws Exception {
+        MultiAdResponse.setStreamingParseEnabled(streaming);
+        final MultiAdResponse subject = new MultiAdResponse(activity, networkResponse,
+                AdFormat.BANNER, AD_UNIT_ID);
+        final List<AdResponse> responses = new ArrayList<>();
+        while (subject.hasNext()) {
+            responses.add(subject.next());
+        }
+        return responses;
+    }
+
+    private static MoPubNetworkResponse createNetworkResponse(final JSONObject body)
+            throws Exception {
+        return new MoPubNetworkResponse(200, body.toString().getBytes(CHARSET),
+                Collections.singletonMap("Content-Type", "application/json; charset=UTF-8"));
+    }
+
+    private static JSONObject createWaterfall(final int length, final int contentLength)
+            throws JSONException {
+        final StringBuilder content = new StringBuilder(contentLength);
+        while (content.length() < contentLength) {
+            content.append("<div class=\"creative\">é</div>");
+        }
+
+        final JSONArray adResponses = new JSONArray();
+        for (int i = 0; i < length; i++) {
+            final JSONObject metadata = new JSONObject();
+            metadata.put(ResponseHeader.AD_TYPE.getKey(), "html");
+            metadata.put(ResponseHeader.AD_GROUP_ID.getKey(), "ad_group_" + i);
+            metadata.put(ResponseHeader.IMPRESSION_URLS.getKey(),
+                    new JSONArray().put("https://imp/" + i).put("https://imp2/" + i));
+            metadata.put(ResponseHeader.CLICK_TRACKING_URL.getKey(),
+                    new JSONArray().put("https://click/" + i));
+            metadata.put(ResponseHeader.REFRESH_TIME.getKey(), 30);
+            metadata.put(ResponseHeader.HEIGHT.getKey(), 50);
+            metadata.put(ResponseHeader.WIDTH.getKey(), 320);
+            metadata.put(ResponseHeader.CUSTOM_EVENT_DATA.getKey(), "{\"key\":\"value" + i + "\"}");
+
+            final JSONObject item = new JSONObject();
+            item.put(ResponseHeader.CONTENT.getKey(), content.toString());
+            item.put(ResponseHeader.METADATA.getKey(), metadata);
+            adResponses.put(item);
+        }
+
+        final JSONObject body = new JSONObject();
+        body.put(ResponseHeader.AD_RESPONSES.getKey(), adResponses);
+        body.put(ResponseHeader.FAIL_URL.getKey(), "fail_url");
+        body.put(ResponseHeader.REWARDED.getKey(), "0");
+        return body;
+    }
+}
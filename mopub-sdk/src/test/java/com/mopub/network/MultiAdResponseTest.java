@@ -86,6 +86,7 @@ import android.app.Activity;
 
 import com.mopub.common.AdFormat;
 import com.mopub.common.AdType;
+import com.mopub.common.BrowserAgentManager;
 import com.mopub.common.Constants;
 import com.mopub.common.DataKeys;
 import com.mopub.common.ViewabilityManager;
@@ -558,6 +559,64 @@ public class MultiAdResponseTest {
         assertTrue(subject.isWaterfallFinished());
     }
 
+    @Test
+    public void constructor_withTwoAdResponses_shouldNotParseSecondUntilReached() throws Exception {
+        BrowserAgentManager.resetBrowserAgent();
+        JSONObject secondResponse = new JSONObject(singleAdResponse.toString());
+        secondResponse.getJSONObject(ResponseHeader.METADATA.getKey())
+                .put(ResponseHeader.BROWSER_AGENT.getKey(), NATIVE.ordinal());
+        JSONObject jsonObject = createJsonBody(FAIL_URL, singleAdResponse);
+        jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey()).put(secondResponse);
+        MoPubNetworkResponse testResponse = new MoPubNetworkResponse(200,
+                jsonObject.toString().getBytes(), Collections.emptyMap());
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertThat(BrowserAgentManager.getBrowserAgent()).isEqualTo(IN_APP);
+        subject.next();
+        assertTrue(subject.hasNext());
+        assertThat(BrowserAgentManager.getBrowserAgent()).isEqualTo(NATIVE);
+        BrowserAgentManager.resetBrowserAgent();
+    }
+
+    @Test
+    public void hasNext_withInvalidSecondAdResponse_shouldSkipItWhenReached() throws Exception {
+        JSONObject invalidResponse = new JSONObject(singleAdResponse.toString());
+        invalidResponse.getJSONObject(ResponseHeader.METADATA.getKey())
+                .put(ResponseHeader.CUSTOM_EVENT_DATA.getKey(), "{invalid");
+        JSONObject thirdResponse = new JSONObject(singleAdResponse.toString());
+        thirdResponse.getJSONObject(ResponseHeader.METADATA.getKey())
+                .put(ResponseHeader.AD_GROUP_ID.getKey(), AD_GROUP_ID + "_3");
+        JSONObject jsonObject = createJsonBody(FAIL_URL, singleAdResponse);
+        jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey())
+                .put(invalidResponse)
+                .put(thirdResponse);
+        MoPubNetworkResponse testResponse = new MoPubNetworkResponse(200,
+                jsonObject.toString().getBytes(), Collections.emptyMap());
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertThat(subject.next().getAdGroupId()).isEqualTo(AD_GROUP_ID);
+        assertTrue(subject.hasNext());
+        assertThat(subject.next().getAdGroupId()).isEqualTo(AD_GROUP_ID + "_3");
+        assertFalse(subject.hasNext());
+    }
+
+    @Test
+    public void hasNext_withClearAfterAdResponse_shouldFinishWaterfallWhenReached() throws Exception {
+        JSONObject jsonObject = createJsonBody(FAIL_URL, singleAdResponse);
+        jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey()).put(createClearAdResponse());
+        MoPubNetworkResponse testResponse = new MoPubNetworkResponse(200,
+                jsonObject.toString().getBytes(), Collections.emptyMap());
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertFalse(subject.isWaterfallFinished());
+        subject.next();
+        assertFalse(subject.hasNext());
+        assertTrue(subject.isWaterfallFinished());
+    }
+
     @Test
     public void constructor_withEnableDebugLoggingTrue_shouldSetDebugLogLevel() throws Exception {
         // Set log level to none
@@ -0,0 +1,199 @@
+// Copyright 2018-2021 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// https://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network
+
+import android.app.Activity
+import android.content.Context
+import android.os.Handler
+import android.os.Looper
+
+import com.mopub.common.test.support.KtArgumentCaptor.argumentCaptor
+import com.mopub.common.test.support.SdkTestRunner
+import com.mopub.network.Networking.setRequestQueueForTesting
+
+import org.fest.assertions.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Matchers.anyString
+import org.mockito.Mock
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
+import org.robolectric.Robolectric
+import java.net.ConnectException
+import java.net.SocketTimeoutException
+import java.net.UnknownHostException
+
+@RunWith(SdkTestRunner::class)
+class TrackingDispatcherTest {
+
+    @Mock
+    private lateinit var mockRequestQueue: MoPubRequestQueue
+    private lateinit var context: Context
+    private lateinit var subject: TrackingDispatcher
+    private val trackingRequestCaptor = argumentCaptor<TrackingRequest>()
+
+    @Before
+    fun setup() {
+        context = Robolectric.buildActivity(Activity::class.java).create().get()
+        setRequestQueueForTesting(mockRequestQueue)
+        subject = TrackingDispatcher(Handler(Looper.getMainLooper()))
+    }
+
+    @Test
+    fun dispatch_withRepeatedUrls_shouldSendEach_shouldCallListenerForEach() {
+        val mockListener = mock(TrackingRequest.Listener::class.java)
+
+        subject.dispatch(listOf("https://tracker.com/imp", "https://tracker.com/imp"), context, mockListener)
+        subject.dispatch(listOf("https://tracker.com/imp"), context, mockListener)
+
+        verify(mockRequestQueue, times(3)).add(trackingRequestCaptor.capture())
+        trackingRequestCaptor.allValues.forEach { it.moPubListener!!.onResponse("200") }
+        verify(mockListener, times(3)).onResponse(anyString())
+        assertThat(subject.stats.dispatched).isEqualTo(3)
+    }
+
+    @Test
+    fun dispatch_shouldSendWithApplicationContext() {
+        subject.dispatch(listOf("https://tracker.com/imp"), context, null)
+
+        verify(mockRequestQueue).add(trackingRequestCaptor.capture())
+        assertThat(trackingRequestCaptor.firstValue.context).isSameAs(context.applicationContext)
+    }
+
+    @Test
+    fun dispatch_withEmptyUrls_shouldNotSend() {
+        subject.dispatch(listOf("", ""), context, null)
+
+        verify(mockRequestQueue, times(0)).add(trackingRequestCaptor.capture())
+    }
+
+    @Test
+    fun dispatch_withMoreThanMaxRequestsPerHost_shouldHoldBackUntilOneCompletes() {
+        val urls = (0..TrackingDispatcher.MAX_REQUESTS_PER_HOST).map { "https://tracker.com/q$it" }
+
+        subject.dispatch(urls, context, null)
+
+        verify(mockRequestQueue, times(TrackingDispatcher.MAX_REQUESTS_PER_HOST))
+            .add(trackingRequestCaptor.capture())
+
+        trackingRequestCaptor.firstValue.moPubListener!!.onResponse("200")
+
+        verify(mockRequestQueue, times(TrackingDispatcher.MAX_REQUESTS_PER_HOST + 1))
+            .add(trackingRequestCaptor.capture())
+        assertThat(trackingRequestCaptor.lastValue.originalUrl)
+            .isEqualTo("https://tracker.com/q${TrackingDispatcher.MAX_REQUESTS_PER_HOST}")
+        assertThat(subject.stats.succeeded).isEqualTo(1)
+    }
+
+    @Test
+    fun dispatch_withDifferentHosts_shouldNotLimitAcrossHosts() {
+        val urls = (0..TrackingDispatcher.MAX_REQUESTS_PER_HOST).map { "https://tracker$it.com/imp" }
+
+        subject.dispatch(urls, context, null)
+
+        verify(mockRequestQueue, times(TrackingDispatcher.MAX_REQUESTS_PER_HOST + 1))
+            .add(trackingRequestCaptor.capture())
+    }
+
+    @Test
+    fun onErrorResponse_withUnknownHost_shouldJournal() {
+        subject.dispatch(listOf("https://tracker.com/imp"), context, null)
+        verify(mockRequestQueue).add(trackingRequestCaptor.capture())
+
+        trackingRequestCaptor.firstValue.moPubListener!!.onErrorResponse(
+            MoPubNetworkError.Builder(null, UnknownHostException())
+                .reason(MoPubNetworkError.Reason.NO_CONNECTION).build())
+
+        assertThat(subject.journalSizeForTesting).isEqualTo(1)
+        assertThat(subject.stats.failed).isEqualTo(1)
+        assertThat(subject.stats.journaled).isEqualTo(1)
+    }
+
+    @Test
+    fun onErrorResponse_withNoConnection_afterConnecting_shouldNotJournal() {
+        subject.dispatch(listOf("https://tracker.com/imp"), context, null)
+        verify(mockRequestQueue).add(trackingRequestCaptor.capture())
+
+        // The request may have been sent before the response timed out.
+        trackingRequestCaptor.firstValue.moPubListener!!.onErrorResponse(
+            MoPubNetworkError.Builder(null, SocketTimeoutException())
+                .reason(MoPubNetworkError.Reason.NO_CONNECTION).build())
+
+        assertThat(subject.journalSizeForTesting).isEqualTo(0)
+        assertThat(subject.stats.journaled).isEqualTo(0)
+    }
+
+    @Test
+    fun onErrorResponse_withServerError_shouldNotJournal() {
+        subject.dispatch(listOf("https://tracker.com/imp"), context, null)
+        verify(mockRequestQueue).add(trackingRequestCaptor.capture())
+
+        trackingRequestCaptor.firstValue.moPubListener!!.onErrorResponse(
+            MoPubNetworkError.Builder().reason(MoPubNetworkError.Reason.TRACKING_FAILURE).build())
+
+        assertThat(subject.journalSizeForTesting).isEqualTo(0)
+        assertThat(subject.stats.journaled).isEqualTo(0)
+    }
+
+    @Test
+    fun drainJournal_shouldResendJournaledUrls() {
+        subject.dispatch(listOf("https://tracker.com/imp"), context, null)
+        verify(mockRequestQueue).add(trackingRequestCaptor.capture())
+        trackingRequestCaptor.firstValue.moPubListener!!.onErrorResponse(
+            MoPubNetworkError.Builder(null, ConnectException())
+                .reason(MoPubNetworkError.Reason.NO_CONNECTION).build())
+
+        subject.drainJournal()
+
+        verify(mockRequestQueue, times(2)).add(trackingRequestCaptor.capture())
+        assertThat(trackingRequestCaptor.lastValue.originalUrl).isEqualTo("https://tracker.com/imp")
+        assertThat(subject.journalSizeForTesting).isEqualTo(0)
+        assertThat(subject.stats.retried).isEqualTo(1)
+    }
+
+    @Test
+    fun drainJournal_withRepeatedUrlFailedTwice_shouldResendBoth() {
+        subject.dispatch(listOf("https://tracker.com/imp", "https://tracker.com/imp"), context, null)
+        verify(mockRequestQueue, times(2)).add(trackingRequestCaptor.capture())
+        trackingRequestCaptor.allValues.forEach {
+            it.moPubListener!!.onErrorResponse(
+                MoPubNetworkError.Builder(null, ConnectException())
+                    .reason(MoPubNetworkError.Reason.NO_CONNECTION).build())
+        }
+        assertThat(subject.journalSizeForTesting).isEqualTo(2)
+
+        subject.drainJournal()
+
+        verify(mockRequestQueue, times(4)).add(trackingRequestCaptor.capture())
+        assertThat(subject.stats.retried).isEqualTo(2)
+    }
+
+    @Test
+    fun serializeJournal_deserializeJournal_shouldRoundTrip_shouldKeepRepeatedUrls() {
+        val journal = listOf(
+            TrackingDispatcher.JournalEntry("https://a.com/1?x=y", 100L),
+            TrackingDispatcher.JournalEntry("https://b.com/2", 200L),
+            TrackingDispatcher.JournalEntry("https://a.com/1?x=y", 300L)
+        )
+
+        val result = TrackingDispatcher.deserializeJournal(TrackingDispatcher.serializeJournal(journal))
+
+        assertThat(result.map { it.url }).isEqualTo(journal.map { it.url })
+        assertThat(result.map { it.firstAttemptMillis }).isEqualTo(journal.map { it.firstAttemptMillis })
+    }
+
+    @Test
+    fun deserializeJournal_withMalformedLines_shouldSkipThem() {
+        val content = "abc\thttps://a.com\n\n100\thttps://b.com\nno-separator\n".toByteArray()
+
+        val result = TrackingDispatcher.deserializeJournal(content)
+
+        assertThat(result).hasSize(1)
+        assertThat(result[0].url).isEqualTo("https://b.com")
+        assertThat(result[0].firstAttemptMillis).isEqualTo(100L)
+    }
+}